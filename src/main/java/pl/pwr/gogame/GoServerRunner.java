@@ -1,30 +1,284 @@
 package pl.pwr.gogame;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.Scanner;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import pl.pwr.gogame.model.Board;
-import pl.pwr.gogame.model.BoardFactory;
-import pl.pwr.gogame.model.GameEngine;
-import pl.pwr.gogame.model.GamePlayer;
-import pl.pwr.gogame.model.StoneColor;
-import pl.pwr.gogame.persistence.entity.GameEntity;
-import pl.pwr.gogame.server.BotHandler;
+import pl.pwr.gogame.model.ScoringMode;
+import pl.pwr.gogame.model.TimeControl;
 import pl.pwr.gogame.server.ClientHandler;
+import pl.pwr.gogame.server.GameRegistry;
+import pl.pwr.gogame.server.HandlerThreads;
+import pl.pwr.gogame.server.Lobby;
+import pl.pwr.gogame.server.RateLimiter;
+import pl.pwr.gogame.server.SpectatorGroup;
+import pl.pwr.gogame.server.net.BlockingConnection;
+import pl.pwr.gogame.server.net.IdleMonitor;
+import pl.pwr.gogame.server.net.NioServer;
+import pl.pwr.gogame.server.net.SlowConsumerPolicy;
+import pl.pwr.gogame.server.net.TimingWheel;
 
 import pl.pwr.gogame.persistence.service.GamePersistenceService;
+import pl.pwr.gogame.service.AreaScoring;
+import pl.pwr.gogame.service.ScoringStrategy;
+import pl.pwr.gogame.service.TerritoryScoring;
 
 @Component
 public class GoServerRunner {
 
     private final GamePersistenceService persistenceService;
 
+    /**
+     * Zasady liczenia punktów: {@code territory} (japońskie) lub {@code area} (chińskie).
+     */
+    @Value("${gogame.scoring.rules:territory}")
+    private String scoringRules;
+
+    /**
+     * Sposób klasyfikowania regionów przy liczeniu terytorium.
+     */
+    @Value("${gogame.scoring.mode:SIMPLE}")
+    private String scoringMode;
+
+    /**
+     * Komi doliczane białemu.
+     */
+    @Value("${gogame.scoring.komi:0}")
+    private double komi;
+
+    /**
+     * Port, na którym serwer przyjmuje połączenia.
+     */
+    @Value("${gogame.server.port:58901}")
+    private int port;
+
+    /**
+     * Warstwa transportowa: {@code blocking} (wątek na klienta) lub
+     * {@code nio} (kilka pętli zdarzeń opartych na selektorze).
+     */
+    @Value("${gogame.server.transport:nio}")
+    private String transport;
+
+    /**
+     * Liczba wątków pętli zdarzeń dla transportu {@code nio}
+     * (0 oznacza liczbę dostępnych procesorów).
+     */
+    @Value("${gogame.server.eventLoops:0}")
+    private int eventLoops;
+
+    /**
+     * Rodzaj wątków handlerów klientów (transport {@code blocking}) i botów:
+     * {@code platform} lub {@code virtual} (Java 21, profil {@code java21}).
+     */
+    @Value("${gogame.server.threads:platform}")
+    private String threads;
+
+    /**
+     * Maksymalna liczba linii oczekujących na wysłanie do jednego klienta.
+     */
+    @Value("${gogame.server.outboundLimit:1024}")
+    private int outboundLimit;
+
+    /**
+     * Polityka dla klientów, którzy nie nadążają z odbiorem:
+     * {@code COALESCE} lub {@code DISCONNECT}.
+     */
+    @Value("${gogame.server.slowConsumer:COALESCE}")
+    private String slowConsumer;
+
+    /**
+     * Czas (w sekundach), przez jaki gra czeka na powrót rozłączonego gracza
+     * ({@code RESUME <token>}); {@code 0} kończy grę od razu po rozłączeniu.
+     */
+    @Value("${gogame.server.resumeGraceSeconds:60}")
+    private int resumeGraceSeconds;
+
+    /**
+     * Czas (w sekundach) bez danych od klienta, po którym serwer wysyła
+     * {@code PING}; {@code 0} wyłącza nadzór bezczynnych połączeń.
+     */
+    @Value("${gogame.server.heartbeatSeconds:15}")
+    private int heartbeatSeconds;
+
+    /**
+     * Czas (w sekundach) bez danych od klienta, po którym połączenie
+     * uznawane jest za martwe i zrywane.
+     */
+    @Value("${gogame.server.idleTimeoutSeconds:45}")
+    private int idleTimeoutSeconds;
+
+    /**
+     * Zegar gry: {@code none} (bez limitu czasu), {@code byoyomi} lub {@code fischer}.
+     */
+    @Value("${gogame.clock.mode:none}")
+    private String clockMode;
+
+    /**
+     * Czas podstawowy każdego gracza (w sekundach).
+     */
+    @Value("${gogame.clock.mainSeconds:600}")
+    private int clockMainSeconds;
+
+    /**
+     * Liczba okresów byo-yomi.
+     */
+    @Value("${gogame.clock.periods:5}")
+    private int clockPeriods;
+
+    /**
+     * Długość okresu byo-yomi (w sekundach).
+     */
+    @Value("${gogame.clock.periodSeconds:30}")
+    private int clockPeriodSeconds;
+
+    /**
+     * Dodatek Fischera za każdy ruch (w sekundach).
+     */
+    @Value("${gogame.clock.incrementSeconds:10}")
+    private int clockIncrementSeconds;
+
+    /**
+     * Odstęp (w milisekundach) między kolejnymi partiami dobierania graczy w pary.
+     */
+    @Value("${gogame.matchmaking.tickMillis:250}")
+    private long matchmakingTickMillis;
+
+    /**
+     * Największa różnica rankingu przeciwników zaraz po dołączeniu do kolejki.
+     */
+    @Value("${gogame.matchmaking.initialWindow:100}")
+    private int matchmakingInitialWindow;
+
+    /**
+     * Przyrost dopuszczalnej różnicy rankingu za każdą sekundę oczekiwania.
+     */
+    @Value("${gogame.matchmaking.widenPerSecond:25}")
+    private int matchmakingWidenPerSecond;
+
+    /**
+     * Największa dopuszczalna różnica rankingu przeciwników.
+     */
+    @Value("${gogame.matchmaking.maxWindow:1000}")
+    private int matchmakingMaxWindow;
+
+    /**
+     * Czy komendy klientów są ograniczane ({@code gogame.ratelimit.*}).
+     */
+    @Value("${gogame.ratelimit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    /**
+     * Limit ruchów, pasów i rezygnacji jednego klienta na sekundę.
+     */
+    @Value("${gogame.ratelimit.gamePerSecond:20}")
+    private double rateLimitGame;
+
+    /**
+     * Limit komend negocjacji (oznaczanie martwych grup) jednego klienta na sekundę.
+     */
+    @Value("${gogame.ratelimit.negotiationPerSecond:50}")
+    private double rateLimitNegotiation;
+
+    /**
+     * Limit komend lobby (np. LIST_GAMES) jednego klienta na sekundę.
+     */
+    @Value("${gogame.ratelimit.lobbyPerSecond:10}")
+    private double rateLimitLobby;
+
+    /**
+     * Limit wszystkich komend jednego klienta na sekundę.
+     */
+    @Value("${gogame.ratelimit.totalPerSecond:100}")
+    private double rateLimitTotal;
+
+    /**
+     * Liczba odrzuconych komend, po której połączenie jest zrywane ({@code 0} - nigdy).
+     */
+    @Value("${gogame.ratelimit.abuseLimit:200}")
+    private int rateLimitAbuse;
+
+    /**
+     * Czy ruchy i wyniki gier są zapisywane w tle ({@code false} - w wątku gry).
+     */
+    @Value("${gogame.persistence.journal.enabled:true}")
+    private boolean journalEnabled;
+
+    /**
+     * Największa liczba wpisów w kolejce zapisu; nadmiar czeka w wątku przelewowym,
+     * a nie w wątkach gier.
+     */
+    @Value("${gogame.persistence.journal.capacity:65536}")
+    private int journalCapacity;
+
+    /**
+     * Największa liczba wpisów zapisywanych w jednej transakcji.
+     */
+    @Value("${gogame.persistence.journal.batchSize:256}")
+    private int journalBatchSize;
+
+    /**
+     * Plik dziennika utrwalany ({@code fsync}) przed zapisem każdej partii do bazy;
+     * pusty - bez pliku (wpisy w kolejce giną przy awarii procesu).
+     */
+    @Value("${gogame.persistence.journal.file:}")
+    private String journalFile;
+
+    /**
+     * Sposób przechowywania ruchów: {@code rows} (wiersz na ruch) lub
+     * {@code packed} (jedno pole z zakodowanymi ruchami gry).
+     */
+    @Value("${gogame.persistence.moveFormat:rows}")
+    private String moveFormat;
+
+    /**
+     * Co ile ruchów zapisywana jest migawka planszy do szybkiego odtwarzania
+     * pozycji; {@code 0} - bez migawek.
+     */
+    @Value("${gogame.persistence.snapshotInterval:50}")
+    private int snapshotInterval;
+
+    /**
+     * Sekret współdzielony z routerem (opcja {@code --secret} routera);
+     * pusty - węzeł nie przyjmuje gier przydzielonych przez router.
+     */
+    @Value("${gogame.router.secret:}")
+    private String routerSecret;
+
+    /**
+     * Liczba wątków rozsyłających zdarzenia gier do obserwatorów.
+     */
+    @Value("${gogame.spectators.threads:2}")
+    private int spectatorThreads;
+
+    /**
+     * Długość kolejki wyjściowej, powyżej której obserwator jest pomijany
+     * (i dostaje później migawkę zamiast pominiętych ruchów).
+     */
+    @Value("${gogame.spectators.queueLimit:64}")
+    private int spectatorQueueLimit;
+
+    /**
+     * Rejestr trwających gier.
+     */
+    private final GameRegistry registry = new GameRegistry();
+
+    /**
+     * Lobby łączące graczy w gry.
+     */
+    private Lobby lobby;
+
+    /**
+     * Koło czasowe dla nadzoru połączeń, czasu na powrót graczy, zegarów gier
+     * i dobierania graczy w pary.
+     */
+    private final TimingWheel timers = new TimingWheel("timers", 100, 512);
+
     public GoServerRunner(GamePersistenceService persistenceService) {
         this.persistenceService = persistenceService;
     }
@@ -32,6 +286,29 @@ public class GoServerRunner {
 
     @PostConstruct
     public void startServer() {
+        persistenceService.setMoveFormat(
+                GamePersistenceService.MoveFormat.valueOf(moveFormat.trim().toUpperCase()));
+        persistenceService.setSnapshotInterval(snapshotInterval);
+        if (journalEnabled) {
+            try {
+                persistenceService.startJournal(journalCapacity, journalBatchSize,
+                        journalFile.isBlank() ? null : Path.of(journalFile.trim()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Nie można uruchomić dziennika zapisu gier", e);
+            }
+        }
+        this.lobby = new Lobby(registry, persistenceService, this::createScoringStrategy,
+                HandlerThreads.create(threads, "bot-"),
+                SpectatorGroup.newFanOutPool(spectatorThreads), spectatorQueueLimit,
+                resumeGraceSeconds * 1000L, timers);
+        lobby.setTimeControl(createTimeControl());
+        lobby.setRouterSecret(routerSecret);
+        lobby.setRateLimiter(rateLimitEnabled
+                ? new RateLimiter(rateLimitGame, rateLimitNegotiation, rateLimitLobby, rateLimitTotal, rateLimitAbuse)
+                : null);
+        lobby.getMatchmaker().setTickMillis(matchmakingTickMillis);
+        lobby.getMatchmaker().setRatingWindow(matchmakingInitialWindow, matchmakingWidenPerSecond,
+                matchmakingMaxWindow);
         new Thread(() -> {
             try {
                 runServer();
@@ -41,132 +318,78 @@ public class GoServerRunner {
         }).start();
     }
 
+    /**
+     * Przyjmuje połączenia w pętli. Każdy klient wybiera tryb gry i rozmiar
+     * planszy, po czym {@link Lobby} łączy go w grę; gry toczą się równolegle
+     * i są usuwane z {@link GameRegistry} po zakończeniu.
+     */
     private void runServer() throws IOException {
-         try (ServerSocket serverSocket = new ServerSocket(58901)) {
-
-
-            System.out.println("Serwer Go działa...");
-            System.out.println("Witaj w Go! (serwer będzie oczekiwał na wybór rozmiaru od pierwszego klienta)");
-
-            // Akceptuj pierwszego klienta
-            System.out.println("OCZEKIWANIE: Oczekiwanie na pierwszego klienta (wybór rozmiaru)...");
-            Socket socket1 = serverSocket.accept();
-            System.out.println("Pierwszy klient połączył się");
-
-            // Wyślij żądanie wyboru trybu gry do pierwszego klienta
-            PrintWriter out1 = new PrintWriter(socket1.getOutputStream(), true);
-            out1.println("REQUEST_GAME_MODE");
-
-            // Odczytaj komunikat SET_GAME_MODE od pierwszego klienta
-            Scanner in1 = new Scanner(socket1.getInputStream());
-            String gameMode = null;
-
-            while (in1.hasNextLine()) {
-                String line = in1.nextLine().trim();
-                if (line.startsWith("SET_GAME_MODE")) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 2) {
-                        gameMode = parts[1];
-                        System.out.println("Wybrano tryb gry: " + gameMode);
-                        break;
-                    }
-                } else {
-                    // Ignoruj inne linie do momentu otrzymania prawidłowej komendy
-                }
-            }
-            
-            // Wyślij żądanie wyboru rozmiaru do pierwszego klienta
-            out1.println("REQUEST_BOARD_SIZE");
-
-            // Odczytaj komunikat SET_BOARD_SIZE N od pierwszego klienta
-            int boardSize = 0;
-            Board board = null;
-
-            while (in1.hasNextLine()) {
-                String line = in1.nextLine().trim();
-                if (line.startsWith("SET_BOARD_SIZE")) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 2) {
-                        try {
-                            boardSize = Integer.parseInt(parts[1]);
-                            board = BoardFactory.createBoard(boardSize);
-                            System.out.println("Wybrano rozmiar planszy: " + boardSize);
-                            break;
-                        } catch (IllegalArgumentException e) {
-                            System.out.println(
-                                "Nieprawidłowy rozmiar otrzymany od klienta: " + parts[1]
-                            );
-                            // ignoruj i czekaj dalej
-                        }
-                    }
-                } else {
-                    // Ignoruj inne linie do momentu otrzymania prawidłowej komendy
-                }
+        SlowConsumerPolicy policy = SlowConsumerPolicy.valueOf(slowConsumer.trim().toUpperCase());
+        IdleMonitor idleMonitor = heartbeatSeconds > 0
+                ? new IdleMonitor(timers, heartbeatSeconds * 1000L, idleTimeoutSeconds * 1000L)
+                : null;
+        if ("nio".equalsIgnoreCase(transport)) {
+            int loops = eventLoops > 0 ? eventLoops : Runtime.getRuntime().availableProcessors();
+            try (NioServer server = new NioServer(port, loops, () -> new ClientHandler(lobby, persistenceService),
+                    outboundLimit, policy, idleMonitor)) {
+                server.run();
             }
+            return;
+        }
+        if (!"blocking".equalsIgnoreCase(transport)) {
+            throw new IllegalArgumentException("Nieznana warstwa transportowa: " + transport);
+        }
+        ThreadFactory clientThreads = HandlerThreads.create(threads, "client-");
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println("Serwer Go działa na porcie " + port + " (wątki: " + threads + ")...");
 
-            // nie zamykamy 'in1' ani InputStream tutaj — ClientHandler będzie obsługiwał połączenie dalej
-            if (board == null) {
-                System.out.println("Nie otrzymano prawidłowego rozmiaru planszy. Kończę.");
-                socket1.close();
-                return;
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                System.out.println("Klient połączył się: " + socket.getRemoteSocketAddress());
+                BlockingConnection connection = new BlockingConnection(socket,
+                        new ClientHandler(lobby, persistenceService), clientThreads, outboundLimit, policy, idleMonitor);
+                clientThreads.newThread(connection).start();
             }
+        }
+    }
 
-            if (gameMode.equals("BOT")) {
-                    // Inicjalizacja silnika gry
-                    GameEngine gameEngine = new GameEngine(board);
-                    System.out.println("Uruchamianie gry przeciwko botowi...");
-
-                    // Stworzenie gracza i bota
-                    GamePlayer blackPlayer = new GamePlayer("BlackPlayer", StoneColor.BLACK);
-                    GamePlayer botPlayer = new GamePlayer("WhitePlayer", StoneColor.WHITE);
-                    gameEngine.setPlayers(blackPlayer, botPlayer);
-
-                    // Obsługa bazy danych
-                    GameEntity gameEntity = persistenceService.startGame(gameEngine);
-
-                    // Utworzenie handlera klienta i bota
-                    ClientHandler black = new ClientHandler(socket1, gameEngine, blackPlayer, board, persistenceService, gameEntity);
-
-                    // Tworzenie drugiego socketu dla bota
-                    Socket botSocket = new Socket("localhost", socket1.getLocalPort());
-                    BotHandler bot = new BotHandler(botSocket, gameEngine, botPlayer, board, persistenceService, gameEntity);
-
-                    // Uruchomienie wątków obsługi klienta i bota
-                    new Thread(black).start();
-                    new Thread(bot).start();
-
-                    // Po uruchomieniu obu handlerów — ustaw przeciwników i rozpocznij grę
-                    black.setOpponent(bot);
-                } else {
-                // Akceptuj drugiego klienta
-                System.out.println("OCZEKIWANIE: (możesz uruchomić drugiego klienta teraz)");
-                Socket socket2 = serverSocket.accept();
-               
-                // Inicjalizacja silnika gry
-                GameEngine gameEngine = new GameEngine(board);
-
-                // Stworzenie dwóch lokalnych graczy
-                GamePlayer blackPlayer = new GamePlayer("BlackPlayer", StoneColor.BLACK);
-                GamePlayer whitePlayer = new GamePlayer("WhitePlayer", StoneColor.WHITE);
-                gameEngine.setPlayers(blackPlayer, whitePlayer);
-                
-                // Obsługa bazy danych
-                GameEntity gameEntity = persistenceService.startGame(gameEngine);
-
-                System.out.println("OCZEKIWANIE: Oczekiwanie na drugiego klienta... (oczekuję na 1 połączenie)");
-
-                // Utworzenie handlerów klientów
-                ClientHandler black = new ClientHandler(socket1, gameEngine, blackPlayer, board, persistenceService, gameEntity);
-                ClientHandler white = new ClientHandler(socket2, gameEngine, whitePlayer, board, persistenceService, gameEntity);
-
-                // Uruchomienie wątków obsługi klientów
-                new Thread(black).start();
-                new Thread(white).start();
-
-                // Po uruchomieniu obu handlerów — ustaw przeciwników i rozpocznij grę
-                black.setOpponent(white);
-                System.out.println("Drugi klient połączył się");
-            }
+    public GameRegistry getRegistry() { return registry; }
+
+    public Lobby getLobby() { return lobby; }
+
+    /**
+     * Tworzy strategię liczenia punktów na podstawie konfiguracji
+     * ({@code gogame.scoring.*}).
+     *
+     * @return strategia liczenia punktów dla nowej gry
+     * @throws IllegalArgumentException jeśli konfiguracja jest niepoprawna
+     */
+    private ScoringStrategy createScoringStrategy() {
+        if ("area".equalsIgnoreCase(scoringRules)) {
+            return new AreaScoring(komi);
+        }
+        if ("territory".equalsIgnoreCase(scoringRules)) {
+            return new TerritoryScoring(ScoringMode.valueOf(scoringMode.trim().toUpperCase()), komi);
+        }
+        throw new IllegalArgumentException("Nieznane zasady liczenia punktów: " + scoringRules);
+    }
+
+    /**
+     * Tworzy tempo gry na podstawie konfiguracji ({@code gogame.clock.*}).
+     *
+     * @return tempo gry lub {@code null} dla gier bez limitu czasu
+     * @throws IllegalArgumentException jeśli konfiguracja jest niepoprawna
+     */
+    private TimeControl createTimeControl() {
+        if ("none".equalsIgnoreCase(clockMode)) {
+            return null;
+        }
+        if ("byoyomi".equalsIgnoreCase(clockMode)) {
+            return TimeControl.byoYomi(clockMainSeconds * 1000L, clockPeriods, clockPeriodSeconds * 1000L);
+        }
+        if ("fischer".equalsIgnoreCase(clockMode)) {
+            return TimeControl.fischer(clockMainSeconds * 1000L, clockIncrementSeconds * 1000L);
         }
+        throw new IllegalArgumentException("Nieznany tryb zegara: " + clockMode);
     }
 }
@@ -0,0 +1,183 @@
+package pl.pwr.gogame.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.protocol.FrameDecoder;
+import pl.pwr.gogame.protocol.FrameListener;
+import pl.pwr.gogame.protocol.MoveFrame;
+import pl.pwr.gogame.protocol.SnapshotFrame;
+
+/**
+ * Klasa {@code BinaryClient} to klient bez interfejsu graficznego
+ * (np. dla botów i testów obciążeniowych) używający protokołu binarnego.
+ * <p>
+ * Ramki ruchów dekodowane są do jednego, używanego ponownie obiektu
+ * {@link MoveFrame}, a komendy kodowane w buforze używanym ponownie,
+ * więc obsługa ruchu nie alokuje pamięci.
+ * </p>
+ * <p>
+ * Na {@code PING} serwera klient odpowiada automatycznie ramką {@code PONG}.
+ * </p>
+ */
+public class BinaryClient implements Closeable {
+
+    /**
+     * Odbiorca komunikatów od serwera. Metody wywoływane są w wątku
+     * czytającym klienta.
+     */
+    public interface Listener {
+
+        /**
+         * Wywoływane po odebraniu wyniku ruchu. Obiekt ramki jest używany
+         * ponownie, więc dane trzeba odczytać przed powrotem z metody.
+         *
+         * @param frame zdekodowana ramka
+         */
+        void onMoveFrame(MoveFrame frame);
+
+        /**
+         * Wywoływane dla linii protokołu tekstowego przesłanej w ramce.
+         *
+         * @param line treść linii
+         */
+        void onLine(String line);
+
+        /**
+         * Wywoływane po odebraniu migawki stanu gry (np. po {@code SPECTATE <id>}).
+         *
+         * @param snapshot migawka stanu gry
+         */
+        default void onSnapshot(GameSnapshot snapshot) {}
+
+        /**
+         * Wywoływane po zamknięciu połączenia.
+         */
+        default void onClose() {}
+    }
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final Listener listener;
+
+    /**
+     * Bufor kodowania komend (chroniony monitorem {@code out}).
+     */
+    private final ByteBuffer command = ByteBuffer.allocate(16);
+    private final MoveFrame moveFrame = new MoveFrame();
+
+    private static final ByteBuffer PONG = BinaryProtocol.encodeEmpty(BinaryProtocol.PONG);
+
+    /**
+     * Łączy się z serwerem, wybiera protokół binarny i uruchamia wątek czytający.
+     *
+     * @param host adres serwera
+     * @param port port serwera
+     * @param listener odbiorca komunikatów
+     * @throws IOException jeśli nie można połączyć się z serwerem
+     */
+    public BinaryClient(String host, int port, Listener listener) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.out = socket.getOutputStream();
+        this.listener = listener;
+        out.write(new byte[] {BinaryProtocol.PREFACE, BinaryProtocol.VERSION});
+        out.flush();
+        Thread reader = new Thread(this::listen, "binary-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void listen() {
+        try {
+            InputStream in = socket.getInputStream();
+            // serwer wysyła jedną linię tekstową przed przejściem na protokół binarny
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') { }
+
+            FrameDecoder decoder = new FrameDecoder();
+            FrameListener frames = this::onFrame;
+            byte[] chunk = new byte[8192];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                buffer.clear().limit(read);
+                decoder.decode(buffer, frames);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // połączenie zamknięte lub niepoprawne dane - kończymy
+        } finally {
+            listener.onClose();
+        }
+    }
+
+    private void onFrame(int opcode, ByteBuffer payload) {
+        switch (opcode) {
+            case BinaryProtocol.MOVE_FRAME -> {
+                moveFrame.decode(payload);
+                listener.onMoveFrame(moveFrame);
+            }
+            case BinaryProtocol.LINE -> listener.onLine(BinaryProtocol.readLine(payload));
+            case BinaryProtocol.SNAPSHOT -> listener.onSnapshot(SnapshotFrame.decode(payload));
+            case BinaryProtocol.PING -> {
+                try {
+                    write(PONG);
+                } catch (IOException e) {
+                    // zerwane połączenie zgłosi wątek czytający
+                }
+            }
+            default -> { } // HELLO i nieznane ramki pomijamy
+        }
+    }
+
+    /**
+     * Wysyła komendę tekstową (np. {@code SET_GAME_MODE BOT}).
+     *
+     * @param line treść komendy
+     * @throws IOException jeśli zapis się nie powiódł
+     */
+    public void sendLine(String line) throws IOException {
+        write(BinaryProtocol.encodeLine(line));
+    }
+
+    /**
+     * Wysyła ruch na podane pole.
+     *
+     * @param point indeks pola ({@code row * size + col})
+     * @throws IOException jeśli zapis się nie powiódł
+     */
+    public void sendMove(int point) throws IOException {
+        synchronized (out) {
+            command.clear();
+            BinaryProtocol.writeMove(command, point);
+            out.write(command.array(), 0, command.position());
+            out.flush();
+        }
+    }
+
+    public void sendPass() throws IOException {
+        write(BinaryProtocol.encodeEmpty(BinaryProtocol.PASS));
+    }
+
+    public void sendResign() throws IOException {
+        write(BinaryProtocol.encodeEmpty(BinaryProtocol.RESIGN));
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
+        synchronized (out) {
+            out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
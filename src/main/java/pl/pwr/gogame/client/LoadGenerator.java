@@ -0,0 +1,436 @@
+package pl.pwr.gogame.client;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.protocol.MoveFrame;
+
+/**
+ * Klasa {@code LoadGenerator} to generator obciążenia serwera bez interfejsu
+ * graficznego. Otwiera zadaną liczbę połączeń ({@link BinaryClient}), z których
+ * każde gra z innym symulowanym graczem losowe, poprawne partie, z czasem
+ * do namysłu przed każdym ruchem.
+ * <p>
+ * Każdy gracz dołącza do kolejki ({@code SET_GAME_MODE PLAYER}), śledzi planszę
+ * na podstawie ramek ruchów i gra na losowe wolne pola; ruch odrzucony przez
+ * serwer (samobójstwo, ko) jest ponawiany na innym polu. Po osiągnięciu limitu
+ * ruchów gracz rezygnuje, a obaj gracze łączą się ponownie i dołączają do kolejki,
+ * więc liczba połączeń jest stała przez cały test.
+ * </p>
+ * <p>
+ * Mierzony jest czas od wysłania ruchu do odebrania ramki z jego wynikiem.
+ * Co 5 sekund i na końcu testu wypisywane są: liczba ruchów na sekundę,
+ * percentyle p50/p99/p999 czasu odpowiedzi oraz liczby błędów.
+ * </p>
+ * <p>
+ * Przykład: {@code java -cp target/classes pl.pwr.gogame.client.LoadGenerator
+ * --connections=200 --seconds=60 --think=100}. Przy krótkim czasie namysłu
+ * serwer należy uruchomić z {@code gogame.ratelimit.enabled=false}, inaczej
+ * ruchy ponad limit są odrzucane (i liczone jako {@code throttled}).
+ * </p>
+ */
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final int boardSize;
+    private final long thinkMillis;
+    private final int movesPerGame;
+    private final long timeoutNanos;
+
+    private final ScheduledExecutorService scheduler;
+    private final Set<Player> players = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+
+    /**
+     * @param host adres serwera
+     * @param port port serwera
+     * @param boardSize rozmiar planszy
+     * @param thinkMillis średni czas namysłu przed ruchem (losowany z przedziału 0..2x)
+     * @param movesPerGame liczba ruchów, po której partia kończy się rezygnacją
+     * @param timeoutMillis czas oczekiwania na odpowiedź, po którym ruch liczony jest jako błąd
+     */
+    public LoadGenerator(String host, int port, int boardSize, long thinkMillis, int movesPerGame, long timeoutMillis) {
+        if (boardSize < 2) throw new IllegalArgumentException("Rozmiar planszy musi być większy niż 1");
+        if (thinkMillis < 0 || movesPerGame < 2 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Niepoprawne parametry generatora obciążenia");
+        }
+        this.host = host;
+        this.port = port;
+        this.boardSize = boardSize;
+        this.thinkMillis = thinkMillis;
+        this.movesPerGame = movesPerGame;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                task -> {
+                    Thread thread = new Thread(task, "load-generator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = option(args, "host", "localhost");
+        int port = Integer.parseInt(option(args, "port", "58901"));
+        int connections = Integer.parseInt(option(args, "connections", "100"));
+        int seconds = Integer.parseInt(option(args, "seconds", "60"));
+        int size = Integer.parseInt(option(args, "size", "9"));
+        long think = Long.parseLong(option(args, "think", "200"));
+        int moves = Integer.parseInt(option(args, "moves", "120"));
+        long timeout = Long.parseLong(option(args, "timeout", "10000"));
+
+        System.out.printf("Generator obciążenia: %s:%d, połączeń: %d, plansza %dx%d, namysł %d ms, %d s%n",
+                host, port, connections, size, size, think, seconds);
+        LoadGenerator generator = new LoadGenerator(host, port, size, think, moves, timeout);
+        generator.run(connections, seconds);
+    }
+
+    /**
+     * Zwraca wartość opcji {@code --nazwa=wartość} lub wartość domyślną.
+     */
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Uruchamia test: otwiera połączenia, co 5 sekund wypisuje postęp,
+     * a po upływie czasu zamyka połączenia i wypisuje podsumowanie.
+     *
+     * @param connections liczba symulowanych graczy
+     * @param seconds czas trwania testu
+     */
+    public void run(int connections, int seconds) throws InterruptedException {
+        for (int i = 0; i < connections; i++) {
+            connect();
+        }
+        scheduler.scheduleAtFixedRate(this::checkTimeouts, 1, 1, TimeUnit.SECONDS);
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long lastMoves = 0;
+        long lastReport = start;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(5000, Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            long now = System.nanoTime();
+            long moves = latency.getCount();
+            System.out.printf("[%3d s] ruchów/s: %.0f, p99: %.2f ms, partii: %d, błędów: %d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start),
+                    (moves - lastMoves) * 1e9 / (now - lastReport),
+                    latency.percentileMicros(99) / 1000.0, games.sum(), errorCount());
+            lastMoves = moves;
+            lastReport = now;
+        }
+        running = false;
+        for (Player player : players) player.stop();
+        scheduler.shutdownNow();
+        report(System.nanoTime() - start);
+    }
+
+    private void report(long elapsedNanos) {
+        long moves = latency.getCount();
+        System.out.println("=== Podsumowanie ===");
+        System.out.printf("ruchów: %d (%.0f/s), partii: %d%n", moves, moves * 1e9 / elapsedNanos, games.sum());
+        System.out.printf("czas odpowiedzi na ruch [ms]: p50 %.2f, p99 %.2f, p999 %.2f, max %.2f%n",
+                latency.percentileMicros(50) / 1000.0, latency.percentileMicros(99) / 1000.0,
+                latency.percentileMicros(99.9) / 1000.0, latency.getMaxMicros() / 1000.0);
+        System.out.printf("odrzucone ruchy (niedozwolone): %d, ponad limit serwera: %d%n",
+                rejected.sum(), throttled.sum());
+        System.out.printf("błędy: %d (nieudane połączenia: %d, przekroczony czas: %d)%n",
+                errorCount(), connectFailures.sum(), timeouts.sum());
+    }
+
+    private long errorCount() {
+        return errors.sum() + timeouts.sum() + connectFailures.sum();
+    }
+
+    /**
+     * Otwiera nowe połączenie gracza, który od razu dołącza do kolejki.
+     */
+    private void connect() {
+        if (!running) return;
+        Player player = new Player();
+        try {
+            player.start();
+        } catch (IOException e) {
+            connectFailures.increment();
+            // ponowna próba po chwili, by nie zalać serwera połączeniami
+            scheduler.schedule(this::connect, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.nanoTime();
+        for (Player player : players) {
+            if (player.isOverdue(now)) {
+                timeouts.increment();
+                player.finish();
+            }
+        }
+    }
+
+    /**
+     * Symulowany gracz jednej partii. Zdarzenia od serwera obsługuje wątek
+     * czytający klienta, ruchy wysyłane są z puli generatora po czasie namysłu.
+     */
+    private final class Player implements BinaryClient.Listener {
+
+        /** Plansza: 0 - puste pole, 1 - czarny, 2 - biały (chroniona monitorem gracza). */
+        private final byte[] board = new byte[boardSize * boardSize];
+
+        /** Pola odrzucone przez serwer w bieżącej turze. */
+        private final BitSet tried = new BitSet(boardSize * boardSize);
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicBoolean turn = new AtomicBoolean();
+
+        private BinaryClient client;
+        private volatile StoneColor color;
+        private volatile int pending = -1;
+        private volatile long sentAt;
+        private int ownMoves;
+
+        void start() throws IOException {
+            client = new BinaryClient(host, port, this);
+            players.add(this);
+            client.sendLine("SET_GAME_MODE PLAYER");
+            client.sendLine("SET_BOARD_SIZE " + boardSize);
+        }
+
+        @Override
+        public void onLine(String line) {
+            if (line.startsWith("CONFIG COLOR ")) {
+                color = StoneColor.valueOf(line.substring("CONFIG COLOR ".length()).trim());
+            } else if (line.equals("YOUR_TURN")) {
+                startTurn();
+            } else if (line.startsWith("RESIGN") || line.contains("Przeciwnik rozłączył")) {
+                // koniec partii (rezygnacja, koniec czasu lub rozłączony przeciwnik)
+                finish();
+            } else if (line.startsWith("TEXT BŁĄD") && pending >= 0) {
+                int point = pending;
+                pending = -1;
+                if (line.contains("zbyt wiele")) {
+                    throttled.increment();
+                    scheduler.schedule(this::play, 100, TimeUnit.MILLISECONDS);
+                } else if (line.startsWith("TEXT BŁĄD: ")) {
+                    rejected.increment();
+                    synchronized (this) {
+                        tried.set(point);
+                    }
+                    scheduler.execute(this::play);
+                } else {
+                    errors.increment();
+                    finish();
+                }
+            }
+        }
+
+        @Override
+        public void onMoveFrame(MoveFrame frame) {
+            boolean mine = frame.getColor() == color;
+            synchronized (this) {
+                board[frame.getPoint()] = (byte) (frame.getColor() == StoneColor.BLACK ? 1 : 2);
+                for (int i = 0; i < frame.getCapturedCount(); i++) board[frame.getCaptured(i)] = 0;
+            }
+            if (mine && frame.getPoint() == pending) {
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                pending = -1;
+                ownMoves++;
+                turn.set(false);
+            }
+            if (frame.getNext() == color) {
+                startTurn();
+            }
+        }
+
+        @Override
+        public void onClose() {
+            if (finished.compareAndSet(false, true)) {
+                // serwer zamknął połączenie w trakcie gry
+                errors.increment();
+                reconnect();
+            }
+        }
+
+        /**
+         * Rozpoczyna turę gracza (raz, nawet jeśli serwer zgłosi ją kilkukrotnie).
+         */
+        private void startTurn() {
+            if (finished.get() || !turn.compareAndSet(false, true)) return;
+            synchronized (this) {
+                tried.clear();
+            }
+            if (2 * ownMoves >= movesPerGame) {
+                resign();
+                return;
+            }
+            long think = thinkMillis > 0 ? ThreadLocalRandom.current().nextLong(2 * thinkMillis + 1) : 0;
+            scheduler.schedule(this::play, think, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Wysyła ruch na losowe wolne pole, którego serwer nie odrzucił w tej turze.
+         */
+        private void play() {
+            if (finished.get()) return;
+            int point = randomFreePoint();
+            if (point < 0) {
+                resign();
+                return;
+            }
+            pending = point;
+            sentAt = System.nanoTime();
+            try {
+                client.sendMove(point);
+            } catch (IOException e) {
+                errors.increment();
+                finish();
+            }
+        }
+
+        private synchronized int randomFreePoint() {
+            int free = 0;
+            for (int i = 0; i < board.length; i++) {
+                if (board[i] == 0 && !tried.get(i)) free++;
+            }
+            if (free == 0) return -1;
+            int k = ThreadLocalRandom.current().nextInt(free);
+            for (int i = 0; i < board.length; i++) {
+                if (board[i] == 0 && !tried.get(i) && k-- == 0) return i;
+            }
+            return -1;
+        }
+
+        private void resign() {
+            try {
+                client.sendResign();
+                games.increment();
+            } catch (IOException e) {
+                errors.increment();
+            }
+            finish();
+        }
+
+        boolean isOverdue(long now) {
+            return pending >= 0 && now - sentAt > timeoutNanos;
+        }
+
+        /**
+         * Kończy partię tego gracza i dołącza nowego gracza do kolejki.
+         */
+        void finish() {
+            if (finished.compareAndSet(false, true)) {
+                close();
+                reconnect();
+            }
+        }
+
+        private void reconnect() {
+            players.remove(this);
+            if (running) scheduler.execute(LoadGenerator.this::connect);
+        }
+
+        /**
+         * Zamyka połączenie na końcu testu (bez liczenia błędu i ponownego połączenia).
+         */
+        void stop() {
+            finished.set(true);
+            close();
+        }
+
+        private void close() {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // połączenie i tak jest zamykane
+            }
+        }
+    }
+
+    /**
+     * Histogram czasów odpowiedzi w mikrosekundach: przedziały logarytmiczne
+     * podzielone na 32 równe części, więc percentyl wyznaczany jest z dokładnością
+     * około 3% bez przechowywania pojedynczych pomiarów. Zapis to jedna operacja
+     * atomowa, bez blokad.
+     */
+    static final class LatencyHistogram {
+
+        private static final int SUB_BUCKETS = 32;
+        private static final int LINEAR = 2 * SUB_BUCKETS;
+        private static final int BUCKETS = LINEAR + 40 * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts.incrementAndGet(Math.min(BUCKETS - 1, index(value)));
+            count.increment();
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getMaxMicros() {
+            return max.get();
+        }
+
+        /**
+         * Zwraca górną granicę przedziału, w którym leży podany percentyl.
+         *
+         * @param percentile percentyl (0-100)
+         * @return czas w mikrosekundach ({@code 0}, jeśli nie było pomiarów)
+         */
+        long percentileMicros(double percentile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if (value < LINEAR) return (int) value;
+            int msb = 63 - Long.numberOfLeadingZeros(value);
+            int shift = msb - 5;
+            return LINEAR + (msb - 6) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        private static long upperBound(int index) {
+            if (index < LINEAR) return index;
+            int msb = (index - LINEAR) / SUB_BUCKETS + 6;
+            int sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((long) (sub + 1) << (msb - 5)) - 1;
+        }
+    }
+}
@@ -44,6 +44,36 @@ public class NetworkClient {
      */
     private final GameController controller;
 
+    /**
+     * Rozmiar planszy z komunikatu {@code CONFIG BOARD_SIZE}.
+     */
+    private volatile int boardSize;
+
+    /**
+     * Kolor kamieni tego klienta z komunikatu {@code CONFIG COLOR}.
+     */
+    private volatile StoneColor myColor;
+
+    private final String host;
+    private final int port;
+
+    /**
+     * Token sesji z komunikatu {@code SESSION}; po zerwaniu połączenia
+     * klient wraca nim do gry ({@code RESUME <token>}).
+     */
+    private volatile String sessionToken;
+
+    /**
+     * Gra się zakończyła - po rozłączeniu nie próbujemy wracać.
+     */
+    private volatile boolean gameOver;
+
+    /**
+     * Liczba prób ponownego połączenia i odstęp między nimi (w milisekundach).
+     */
+    private static final int RESUME_ATTEMPTS = 20;
+    private static final long RESUME_DELAY = 3000;
+
     /**
      * Tworzy nowego klienta sieciowego i nawiązuje połączenie z serwerem.
      * Po połączeniu uruchamiany jest osobny wątek nasłuchujący komunikaty
@@ -58,16 +88,54 @@ public class NetworkClient {
                          GameController controller) {
         this.view = view;
         this.controller = controller;
+        this.host = host;
+        this.port = port;
 
         try {
-            Socket socket = new Socket(host, port);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            new Thread(() -> listen(socket)).start();
+            Socket socket = connect();
+            new Thread(() -> run(socket)).start();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(host, port);
+        out = new PrintWriter(socket.getOutputStream(), true);
+        return socket;
+    }
+
+    /**
+     * Nasłuchuje kolejnych połączeń: po zerwaniu połączenia w trakcie gry
+     * łączy się ponownie i wraca do gry tokenem sesji.
+     *
+     * @param socket pierwsze połączenie z serwerem
+     */
+    private void run(Socket socket) {
+        while (socket != null) {
+            listen(socket);
+            if (sessionToken == null || gameOver) return;
+            log("Utracono połączenie z serwerem. Ponowne łączenie...");
+            socket = reconnect();
+        }
+        log("Nie udało się połączyć ponownie z serwerem.");
+    }
+
+    private Socket reconnect() {
+        for (int attempt = 0; attempt < RESUME_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(RESUME_DELAY);
+                return connect();
+            } catch (IOException e) {
+                // serwer jeszcze niedostępny - próbujemy dalej
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * Wyświetla okno dialogowe umożliwiające wybór
      * rozmiaru planszy gry. Opcja ta dostępna jest tylko
@@ -196,6 +264,16 @@ public class NetworkClient {
         dialog.showAndWait();
     }
 
+    /**
+     * Formatuje czas gracza z komunikatu {@code CLOCK} jako {@code m:ss}
+     * z liczbą pozostałych okresów byo-yomi.
+     */
+    private static String formatClock(String millis, String periods) {
+        long seconds = Long.parseLong(millis) / 1000;
+        String time = seconds / 60 + ":" + String.format("%02d", seconds % 60);
+        return "0".equals(periods) ? time : time + " (+" + periods + " okr.)";
+    }
+
     /**
      * Nasłuchuje wiadomości przychodzących z serwera
      * i reaguje na nie odpowiednimi akcjami w interfejsie użytkownika.
@@ -207,11 +285,18 @@ public class NetworkClient {
 
             while (in.hasNextLine()) {
                 String msg = in.nextLine();
+                if (msg.equals("PING")) {
+                    // serwer sprawdza, czy połączenie żyje
+                    send("PONG");
+                    continue;
+                }
                 System.out.println("SERVER: " + msg);
 
                 // Jeśli w dowolnym komunikacie pojawia się informacja o zakończeniu gry,
                 // zablokuj przycisk 'Resign' (użytkownik nie może się poddać po zakończeniu gry).
-                if (msg.toLowerCase().contains("koniec gry") || msg.toLowerCase().contains("koniec")) {
+                if (msg.toLowerCase().contains("koniec gry") || msg.toLowerCase().contains("koniec")
+                        || msg.contains("Gra zakończona") || msg.startsWith("RESIGN")) {
+                    gameOver = true;
                     Platform.runLater(() -> {
                         try {
                             view.getResignButton().setDisable(true);
@@ -225,7 +310,32 @@ public class NetworkClient {
                     continue;
                 }
                 if (msg.equals("REQUEST_GAME_MODE")) {
-                    Platform.runLater(() -> showGameModeDialog());
+                    // wynik każdego ruchu chcemy dostawać jako jedną ramkę MOVE_FRAME
+                    send("SET_PROTOCOL FRAMES");
+                    String token = sessionToken;
+                    if (token != null) {
+                        // ponowne połączenie w trakcie gry - wracamy do niej zamiast wybierać tryb
+                        send("RESUME " + token);
+                    } else {
+                        Platform.runLater(() -> showGameModeDialog());
+                    }
+                    continue;
+                }
+                if (msg.startsWith("SESSION ")) {
+                    sessionToken = msg.substring(8);
+                    continue;
+                }
+                if (msg.equals("RESUME_FAILED")) {
+                    sessionToken = null;
+                    log("Nie można wrócić do gry - gra została zakończona.");
+                    continue;
+                }
+                if (msg.startsWith("RESUMED")) {
+                    log("Wrócono do gry.");
+                    continue;
+                }
+                if (msg.startsWith("SNAPSHOT")) {
+                    applySnapshot(msg);
                     continue;
                 }
                 // W zależności od typu zdarzenia wywoływane są
@@ -301,6 +411,7 @@ public class NetworkClient {
 
                 if (msg.startsWith("CONFIG BOARD_SIZE")) {
                     int size = Integer.parseInt(msg.split(" ")[2]);
+                    boardSize = size;
 
                     Platform.runLater(() -> {
                         view.createBoard(size);
@@ -309,6 +420,16 @@ public class NetworkClient {
                     continue;
                 }
 
+                if (msg.startsWith("CONFIG COLOR")) {
+                    myColor = StoneColor.valueOf(msg.split(" ")[2]);
+                    continue;
+                }
+
+                if (msg.startsWith("MOVE_FRAME")) {
+                    applyMoveFrame(msg);
+                    continue;
+                }
+
                 if (msg.startsWith("MOVE")) {
                     String[] parts = msg.split(" ");
                     int col = Integer.parseInt(parts[1]);
@@ -336,6 +457,35 @@ public class NetworkClient {
                         }
                     });
 
+                } else if (msg.startsWith("OWNERSHIP")) {
+                    // OWNERSHIP <czarny> <biały> <indeks><B|W|.> ...
+                    String[] parts = msg.split(" ");
+                    int[] points = new int[parts.length - 3];
+                    StoneColor[] owners = new StoneColor[parts.length - 3];
+                    for (int i = 3; i < parts.length; i++) {
+                        String token = parts[i];
+                        char code = token.charAt(token.length() - 1);
+                        points[i - 3] = Integer.parseInt(token.substring(0, token.length() - 1));
+                        owners[i - 3] = code == 'B' ? StoneColor.BLACK : code == 'W' ? StoneColor.WHITE : StoneColor.EMPTY;
+                    }
+                    String estimate = "Szacunek: czarny " + parts[1] + ", biały " + parts[2];
+
+                    Platform.runLater(() -> {
+                        BoardCanvas board = view.getBoardCanvas();
+                        if (board != null) {
+                            for (int i = 0; i < points.length; i++) {
+                                board.setOwnership(points[i], owners[i]);
+                            }
+                            board.refresh();
+                        }
+                        view.getLogArea().appendText(estimate + "\n");
+                    });
+
+                } else if (msg.startsWith("CLOCK")) {
+                    // CLOCK <na ruchu|NONE> <czas czarnego> <okresy> <czas białego> <okresy>
+                    String[] parts = msg.split(" ");
+                    log("Zegar: czarny " + formatClock(parts[2], parts[3])
+                            + ", biały " + formatClock(parts[4], parts[5]));
                 } else if (msg.startsWith("PASS")) {
                     //wpisywanie pasu do logów
                     log("Przeciwnik zpasował.");
@@ -385,6 +535,95 @@ public class NetworkClient {
         }
     }
 
+    /**
+     * Dekoduje ramkę {@code MOVE_FRAME} i aktualizuje planszę, szacunek
+     * wyniku oraz turę w jednym zadaniu wątku JavaFX.
+     * Format: {@code MOVE_FRAME <col> <row> <kolor> <następny> <zbite czarnego>
+     * <zbite białego> <indeksy zbitych po przecinku lub -> [<czarny> <biały> <indeks><B|W|.> ...]}.
+     *
+     * @param msg treść ramki
+     */
+    private void applyMoveFrame(String msg) {
+        String[] parts = msg.split(" ");
+        int col = Integer.parseInt(parts[1]);
+        int row = Integer.parseInt(parts[2]);
+        StoneColor color = StoneColor.valueOf(parts[3]);
+        StoneColor next = StoneColor.valueOf(parts[4]);
+        String blackCaptures = parts[5];
+        String whiteCaptures = parts[6];
+        int size = boardSize;
+
+        int[] captured = new int[0];
+        if (!parts[7].equals("-")) {
+            String[] tokens = parts[7].split(",");
+            captured = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) captured[i] = Integer.parseInt(tokens[i]);
+        }
+
+        int ownershipCount = parts.length > 10 ? parts.length - 10 : 0;
+        int[] points = new int[ownershipCount];
+        StoneColor[] owners = new StoneColor[ownershipCount];
+        for (int i = 0; i < ownershipCount; i++) {
+            String token = parts[10 + i];
+            char code = token.charAt(token.length() - 1);
+            points[i] = Integer.parseInt(token.substring(0, token.length() - 1));
+            owners[i] = code == 'B' ? StoneColor.BLACK : code == 'W' ? StoneColor.WHITE : StoneColor.EMPTY;
+        }
+        String estimate = parts.length > 9 ? "Szacunek: czarny " + parts[8] + ", biały " + parts[9] : null;
+        boolean myTurn = next == myColor;
+        boolean negotiation = controller != null && controller.isNegotiationMode();
+        int[] removed = captured;
+
+        Platform.runLater(() -> {
+            BoardCanvas board = view.getBoardCanvas();
+            if (board != null) {
+                board.drawStone(col, row, color);
+                for (int index : removed) {
+                    board.removeStone(index % size, index / size);
+                }
+                for (int i = 0; i < points.length; i++) {
+                    board.setOwnership(points[i], owners[i]);
+                }
+                board.refresh();
+                if (!negotiation) board.setMouseTransparent(!myTurn);
+            }
+            StringBuilder entry = new StringBuilder();
+            entry.append("Ruch ").append(color).append(": ").append(col).append(" ").append(row);
+            if (removed.length > 0) entry.append(", zbite kamienie: ").append(removed.length);
+            entry.append(" (jeńcy: czarny ").append(blackCaptures).append(", biały ").append(whiteCaptures).append(")\n");
+            if (estimate != null) entry.append(estimate).append("\n");
+            entry.append(myTurn ? "Twój ruch." : "Ruch przeciwnika.").append("\n");
+            view.getLogArea().appendText(entry.toString());
+        });
+    }
+
+    /**
+     * Odtwarza całą planszę z migawki stanu gry (po powrocie do gry).
+     * Format: {@code SNAPSHOT <rozmiar> <następny> <zbite czarnego> <zbite białego> <pola B/W/.>}.
+     *
+     * @param msg treść komunikatu
+     */
+    private void applySnapshot(String msg) {
+        String[] parts = msg.split(" ");
+        StoneColor next = StoneColor.valueOf(parts[2]);
+        String points = parts[5];
+        StoneColor[] stones = new StoneColor[points.length()];
+        for (int i = 0; i < stones.length; i++) {
+            char code = points.charAt(i);
+            stones[i] = code == 'B' ? StoneColor.BLACK : code == 'W' ? StoneColor.WHITE : StoneColor.EMPTY;
+        }
+        boolean myTurn = next == myColor;
+        Platform.runLater(() -> {
+            BoardCanvas board = view.getBoardCanvas();
+            if (board != null) {
+                board.setStones(stones);
+                board.setMouseTransparent(!myTurn);
+            }
+            view.getLogArea().appendText("Stan planszy odtworzony (jeńcy: czarny " + parts[3]
+                    + ", biały " + parts[4] + ").\n");
+        });
+    }
+
     /**
      * Wysyła wiadomość tekstową do serwera.
      *
@@ -42,6 +42,12 @@ public class BoardCanvas extends Canvas {
     // marks used during negotiation: key -> "col,row"; value -> true for local player's mark, false for opponent's mark
     private final Map<String, Boolean> negotiationMarks = new HashMap<>();
 
+    /**
+     * Szacowana przynależność pól otrzymana od serwera.
+     * Kluczem jest indeks pola {@code row * size + col}.
+     */
+    private final Map<Integer, StoneColor> ownership = new HashMap<>();
+
     /**
      * Tworzy nową kanwę planszy o zadanym rozmiarze.
      * Ustawia szerokość i wysokość kanwy oraz inicjalnie rysuje pustą planszę.
@@ -172,6 +178,20 @@ public class BoardCanvas extends Canvas {
         redraw();
     }
 
+    /**
+     * Ustawia naraz wszystkie kamienie planszy (np. po otrzymaniu migawki
+     * stanu gry) i przerysowuje planszę tylko raz.
+     *
+     * @param points kolory pól w kolejności indeksów {@code row * size + col}
+     */
+    public void setStones(StoneColor[] points) {
+        stones.clear();
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != StoneColor.EMPTY) stones.put((i % size) + "," + (i / size), points[i]);
+        }
+        redraw();
+    }
+
     /**
      * Add a negotiation mark (X) on the given intersection.
      * @param col column
@@ -189,6 +209,26 @@ public class BoardCanvas extends Canvas {
         redraw();
     }
 
+    /**
+     * Ustawia szacowanego właściciela pola. Nie przerysowuje planszy, by
+     * zmiany wielu pól dawały jedno rysowanie - po nich należy wywołać
+     * {@link #refresh()}.
+     *
+     * @param index indeks pola ({@code row * size + col})
+     * @param owner właściciel pola lub {@link StoneColor#EMPTY}
+     */
+    public void setOwnership(int index, StoneColor owner) {
+        if (owner == StoneColor.EMPTY) ownership.remove(index);
+        else ownership.put(index, owner);
+    }
+
+    /**
+     * Odświeża planszę po wczytaniu zmian przynależności pól.
+     */
+    public void refresh() {
+        redraw();
+    }
+
     /** Remove all negotiation marks. */
     public void clearNegotiationMarks() {
         negotiationMarks.clear();
@@ -212,6 +252,18 @@ public class BoardCanvas extends Canvas {
         double cellHeight = h / size;
         double stoneDiameter = Math.min(cellWidth, cellHeight) * 0.7; // 70% of cell
 
+        //szacowane terytorium: mały kwadrat na pustych polach
+        double markerSize = Math.min(cellWidth, cellHeight) * 0.25;
+        for (Map.Entry<Integer, StoneColor> entry : ownership.entrySet()) {
+            int col = entry.getKey() % size;
+            int row = entry.getKey() / size;
+            if (stones.containsKey(col + "," + row)) continue;
+            gc.setFill(entry.getValue() == StoneColor.BLACK ? Color.rgb(0, 0, 0, 0.5) : Color.rgb(255, 255, 255, 0.7));
+            gc.fillRect(col * cellWidth + cellWidth / 2 - markerSize / 2,
+                        row * cellHeight + cellHeight / 2 - markerSize / 2,
+                        markerSize, markerSize);
+        }
+
         for (Map.Entry<String, StoneColor> entry : stones.entrySet()) {
             String[] parts = entry.getKey().split(",");
             int col = Integer.parseInt(parts[0]);
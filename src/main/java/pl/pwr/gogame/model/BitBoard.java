@@ -0,0 +1,250 @@
+package pl.pwr.gogame.model;
+
+import java.util.Arrays;
+
+/**
+ * Klasa {@code BitBoard} reprezentuje zbiór pól planszy jako tablicę bitów
+ * upakowaną w słowach {@code long}. Bit o numerze {@code row * size + col}
+ * odpowiada polu {@code (col, row)}.
+ * <p>
+ * Operacje na całej planszy (suma, iloczyn, rozlewanie po sąsiadach)
+ * wykonywane są na kilku słowach naraz - plansza 19x19 mieści się
+ * w sześciu słowach - dzięki czemu nadaje się do szybkiego liczenia
+ * punktów oraz do zwięzłego zapisu stanu planszy.
+ * </p>
+ */
+public final class BitBoard {
+
+    /**
+     * Rozmiar planszy.
+     */
+    private final int size;
+
+    /**
+     * Bity pól planszy.
+     */
+    private final long[] words;
+
+    /**
+     * Tworzy pusty zbiór pól dla planszy o podanym rozmiarze.
+     *
+     * @param size rozmiar planszy
+     */
+    public BitBoard(int size) {
+        this.size = size;
+        this.words = new long[(size * size + 63) >>> 6];
+    }
+
+    private BitBoard(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    /**
+     * Tworzy zbiór pól zajętych przez kamienie danego koloru
+     * (lub pustych pól dla {@link StoneColor#EMPTY}).
+     *
+     * @param board plansza gry
+     * @param color szukany kolor
+     * @return zbiór pól danego koloru
+     */
+    public static BitBoard of(Board board, StoneColor color) {
+        int size = board.getSize();
+        BitBoard bits = new BitBoard(size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board.getStone(c, r) == color) bits.set(r * size + c);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Odtwarza zbiór pól z tablicy słów (np. odczytanej z zapisu stanu gry).
+     *
+     * @param size rozmiar planszy
+     * @param words słowa bitów w kolejności {@link #toLongArray()}
+     * @return zbiór pól
+     * @throws IllegalArgumentException jeśli liczba słów nie pasuje do rozmiaru planszy
+     */
+    public static BitBoard fromLongArray(int size, long[] words) {
+        BitBoard bits = new BitBoard(size);
+        if (words.length != bits.words.length) {
+            throw new IllegalArgumentException("Niepoprawna liczba słów dla planszy " + size);
+        }
+        System.arraycopy(words, 0, bits.words, 0, words.length);
+        bits.trim();
+        return bits;
+    }
+
+    public int getSize() { return size; }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Zwraca liczbę ustawionych pól.
+     *
+     * @return liczba pól w zbiorze
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) count += Long.bitCount(word);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    public BitBoard copy() {
+        return new BitBoard(size, words.clone());
+    }
+
+    public void or(BitBoard other) {
+        for (int i = 0; i < words.length; i++) words[i] |= other.words[i];
+    }
+
+    public void and(BitBoard other) {
+        for (int i = 0; i < words.length; i++) words[i] &= other.words[i];
+    }
+
+    public void andNot(BitBoard other) {
+        for (int i = 0; i < words.length; i++) words[i] &= ~other.words[i];
+    }
+
+    /**
+     * Zamienia zbiór na jego dopełnienie w obrębie planszy.
+     */
+    public void invert() {
+        for (int i = 0; i < words.length; i++) words[i] = ~words[i];
+        trim();
+    }
+
+    /**
+     * Rozszerza zbiór o wszystkie pola maski {@code within} osiągalne
+     * ze zbioru przez kolejnych sąsiadów (góra, dół, lewo, prawo).
+     * Pola startowe pozostają w zbiorze, nawet jeśli nie należą do maski.
+     * Każdy krok to kilka przesunięć bitowych całych słów, bez alokacji
+     * poza dwiema tablicami roboczymi.
+     *
+     * @param within pola, po których wolno się rozlewać
+     */
+    public void floodWithin(BitBoard within) {
+        long[] notFirstCol = columnMask(0);
+        long[] notLastCol = columnMask(size - 1);
+        long[] grown = new long[words.length];
+        long[] shifted = new long[words.length];
+        boolean changed = true;
+        while (changed) {
+            Arrays.fill(grown, 0);
+            shiftUp(words, shifted, 1);
+            orMasked(grown, shifted, notFirstCol);
+            shiftDown(words, shifted, 1);
+            orMasked(grown, shifted, notLastCol);
+            shiftUp(words, shifted, size);
+            orMasked(grown, shifted, null);
+            shiftDown(words, shifted, size);
+            orMasked(grown, shifted, null);
+            changed = false;
+            for (int i = 0; i < words.length; i++) {
+                long next = words[i] | (grown[i] & within.words[i]);
+                if (next != words[i]) {
+                    words[i] = next;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Zwraca kopię słów bitów, np. do zapisania stanu planszy.
+     *
+     * @return tablica słów
+     */
+    public long[] toLongArray() {
+        return words.clone();
+    }
+
+    /**
+     * Przesuwa bity w stronę wyższych indeksów (pole {@code i} trafia na {@code i + k}).
+     */
+    private void shiftUp(long[] src, long[] dst, int k) {
+        int wordShift = k >>> 6;
+        int bitShift = k & 63;
+        for (int i = dst.length - 1; i >= 0; i--) {
+            int from = i - wordShift;
+            long value = from >= 0 ? src[from] << bitShift : 0;
+            if (bitShift != 0 && from - 1 >= 0) value |= src[from - 1] >>> (64 - bitShift);
+            dst[i] = value;
+        }
+        trim(dst);
+    }
+
+    /**
+     * Przesuwa bity w stronę niższych indeksów (pole {@code i} trafia na {@code i - k}).
+     */
+    private void shiftDown(long[] src, long[] dst, int k) {
+        int wordShift = k >>> 6;
+        int bitShift = k & 63;
+        for (int i = 0; i < dst.length; i++) {
+            int from = i + wordShift;
+            long value = from < src.length ? src[from] >>> bitShift : 0;
+            if (bitShift != 0 && from + 1 < src.length) value |= src[from + 1] << (64 - bitShift);
+            dst[i] = value;
+        }
+    }
+
+    private static void orMasked(long[] target, long[] source, long[] mask) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= mask == null ? source[i] : source[i] & mask[i];
+        }
+    }
+
+    /**
+     * Maska wszystkich pól planszy poza podaną kolumną.
+     */
+    private long[] columnMask(int excludedCol) {
+        long[] mask = new long[words.length];
+        for (int index = 0; index < size * size; index++) {
+            if (index % size != excludedCol) mask[index >>> 6] |= 1L << index;
+        }
+        return mask;
+    }
+
+    /**
+     * Zeruje bity leżące poza planszą w ostatnim słowie.
+     */
+    private void trim() {
+        trim(words);
+    }
+
+    private void trim(long[] bits) {
+        int used = (size * size) & 63;
+        if (used != 0) bits[bits.length - 1] &= (1L << used) - 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitBoard other)) return false;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+}
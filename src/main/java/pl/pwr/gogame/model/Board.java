@@ -61,6 +61,19 @@ public class Board {
         return grid[position.row()][position.col()];
     }
 
+    /**
+     * Zwraca kamień na polu o podanych współrzędnych bez tworzenia
+     * obiektu {@link Position}. Przeznaczone dla algorytmów, które
+     * przechodzą całą planszę i same pilnują zakresu współrzędnych.
+     *
+     * @param col kolumna
+     * @param row wiersz
+     * @return kolor kamienia na danym polu
+     */
+    public StoneColor getStone(int col, int row) {
+        return grid[row][col];
+    }
+
     /**
      * Ustawia kamień o podanym kolorze na wskazanej pozycji planszy.
      *
@@ -0,0 +1,149 @@
+package pl.pwr.gogame.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Klasa {@code GameClock} to zegar szachowy jednej gry: pozostały czas
+ * obu graczy według {@link TimeControl}.
+ * <p>
+ * Zegar nie ma własnego wątku ani timera. Czas przekazywany jest jawnie
+ * (w nanosekundach z {@link System#nanoTime()}), a rozliczenie odbywa się
+ * przy zatwierdzeniu ruchu ({@link #commit(long)}). Termin utraty czasu
+ * bieżącego gracza ({@link #remainingNanos(long)}) planuje serwer we wspólnym
+ * kole czasowym. Klasa nie jest bezpieczna wątkowo - chroni ją blokada
+ * {@link GameEngine}.
+ * </p>
+ */
+public final class GameClock {
+
+    /**
+     * Stan zegara w chwili ostatniego rozliczenia (np. do wysłania klientom).
+     *
+     * @param running kolor gracza, któremu biegnie czas ({@code null}, jeśli zegar stoi)
+     * @param blackMillis pozostały czas podstawowy czarnego
+     * @param blackPeriods pozostałe okresy byo-yomi czarnego
+     * @param whiteMillis pozostały czas podstawowy białego
+     * @param whitePeriods pozostałe okresy byo-yomi białego
+     */
+    public record Reading(StoneColor running, long blackMillis, int blackPeriods,
+                          long whiteMillis, int whitePeriods) {}
+
+    private final TimeControl control;
+    private final long periodNanos;
+    private final long incrementNanos;
+
+    /** Pozostały czas podstawowy: [0] czarny, [1] biały. */
+    private final long[] main = new long[2];
+    private final int[] periods = new int[2];
+
+    private StoneColor running;
+    private long turnStart;
+
+    /**
+     * @param control tempo gry
+     */
+    public GameClock(TimeControl control) {
+        this.control = control;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(control.getPeriodMillis());
+        this.incrementNanos = TimeUnit.MILLISECONDS.toNanos(control.getIncrementMillis());
+        main[0] = main[1] = TimeUnit.MILLISECONDS.toNanos(control.getMainMillis());
+        periods[0] = periods[1] = control.getPeriods();
+    }
+
+    /**
+     * Uruchamia odliczanie czasu gracza.
+     *
+     * @param color kolor gracza na ruchu
+     * @param now bieżący czas w nanosekundach
+     */
+    public void start(StoneColor color, long now) {
+        running = color;
+        turnStart = now;
+    }
+
+    /**
+     * Zatrzymuje zegar (np. na czas negocjacji lub po końcu gry) bez rozliczania.
+     */
+    public void stop() {
+        running = null;
+    }
+
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    public StoneColor getRunning() {
+        return running;
+    }
+
+    /**
+     * Zwraca czas do utraty czasu przez gracza na ruchu.
+     *
+     * @param now bieżący czas w nanosekundach
+     * @return pozostały czas w nanosekundach ({@code 0} po upływie czasu)
+     *         lub {@code -1}, jeśli zegar stoi
+     */
+    public long remainingNanos(long now) {
+        if (running == null) return -1;
+        int i = index(running);
+        return Math.max(0, limit(i) - (now - turnStart));
+    }
+
+    /**
+     * Informuje, czy graczowi na ruchu skończył się czas.
+     *
+     * @param now bieżący czas w nanosekundach
+     * @return {@code true} po upływie całego czasu gracza
+     */
+    public boolean isFlagged(long now) {
+        return remainingNanos(now) == 0;
+    }
+
+    /**
+     * Rozlicza czas gracza, który właśnie wykonał ruch, i przełącza zegar
+     * na przeciwnika. Wywoływane tylko dla gracza, któremu nie skończył się czas.
+     *
+     * @param now chwila zatwierdzenia ruchu
+     */
+    public void commit(long now) {
+        if (running == null) return;
+        int i = index(running);
+        long elapsed = now - turnStart;
+        if (control.getType() == TimeControl.Type.FISCHER) {
+            main[i] = main[i] - elapsed + incrementNanos;
+        } else if (elapsed <= main[i]) {
+            main[i] -= elapsed;
+        } else {
+            // zużyte w całości okresy przepadają, rozpoczęty okres odnawia się
+            long over = elapsed - main[i];
+            main[i] = 0;
+            periods[i] -= (int) (over / periodNanos);
+        }
+        running = running == StoneColor.BLACK ? StoneColor.WHITE : StoneColor.BLACK;
+        turnStart = now;
+    }
+
+    /**
+     * Zwraca stan zegara z chwili ostatniego rozliczenia; czas gracza
+     * na ruchu klient odlicza sam.
+     *
+     * @return stan zegara
+     */
+    public Reading reading() {
+        return new Reading(running,
+                TimeUnit.NANOSECONDS.toMillis(main[0]), periods[0],
+                TimeUnit.NANOSECONDS.toMillis(main[1]), periods[1]);
+    }
+
+    public TimeControl getTimeControl() {
+        return control;
+    }
+
+    private long limit(int i) {
+        return control.getType() == TimeControl.Type.FISCHER ? main[i] : main[i] + periods[i] * periodNanos;
+    }
+
+    private static int index(StoneColor color) {
+        return color == StoneColor.BLACK ? 0 : 1;
+    }
+}
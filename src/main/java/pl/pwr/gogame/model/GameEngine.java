@@ -1,16 +1,19 @@
 package pl.pwr.gogame.model;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
+import java.util.concurrent.locks.ReentrantLock;
 
 import pl.pwr.gogame.model.GamePhase;
 
 import pl.pwr.gogame.service.BoardService;
 import pl.pwr.gogame.service.GameEngineService;
+import pl.pwr.gogame.service.OwnershipEstimator;
+import pl.pwr.gogame.service.ScoringStrategy;
+import pl.pwr.gogame.service.TerritoryScoring;
 
 /**
  * Klasa {@code GameEngine} pełni rolę fasady dla logiki gry Go.
@@ -54,6 +57,17 @@ public class GameEngine {
      */
     private int whiteCaptures = 0;
 
+    /**
+     * Liczba poprawnych ruchów (kamieni, pasów i rezygnacji) wykonanych w grze;
+     * numer ruchu nadawany jest pod blokadą, więc odpowiada kolejności ich wykonania.
+     */
+    private int moveCount = 0;
+
+    /**
+     * Co ile ruchów wynik ruchu niesie migawkę planszy (0 - nigdy).
+     */
+    private int keyframeInterval = 0;
+
     /**
      * Migawka poprzedniego stanu planszy, wykorzystywana
      * m.in. do sprawdzania reguły ko.
@@ -99,8 +113,36 @@ public class GameEngine {
      */
     private final GameEngineService GameEngineService;
 
+    /**
+     * Strategia liczenia punktów na koniec gry.
+     */
+    private ScoringStrategy scoringStrategy = new TerritoryScoring(ScoringMode.SIMPLE, 0);
+
+    /**
+     * Przyrostowy szacunek przynależności pól w trakcie gry.
+     */
+    private final OwnershipEstimator ownershipEstimator;
+
     private GamePlayer winner;
 
+    /**
+     * Zegar gry ({@code null} dla gry bez limitu czasu).
+     */
+    private GameClock clock;
+
+    /**
+     * Powiadamiany (pod blokadą silnika) o każdej zmianie terminu utraty
+     * czasu, by serwer mógł przestawić timer gry.
+     */
+    private Runnable clockListener;
+
+    /**
+     * Blokada chroniąca stan gry przed równoczesnymi komendami obu graczy.
+     * Zamiast monitorów {@code synchronized} używamy {@link ReentrantLock},
+     * bo oczekiwanie na nią nie blokuje wątku nośnego wątków wirtualnych.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
     /**
      * Tworzy nowy silnik gry dla podanej planszy.
      *
@@ -110,23 +152,41 @@ public class GameEngine {
         this.board = board;
         this.boardService = new BoardService();
         this.GameEngineService = new GameEngineService(this.boardService);
+        this.ownershipEstimator = OwnershipEstimator.of(board);
         this.currentPlayer = null;
     }
 
     // --- negocjacja martwych grup: API ---
     /** Zwraca aktualną fazę gry */
-    public synchronized GamePhase getPhase() { return phase; }
+    public GamePhase getPhase() {
+        lock.lock();
+        try {
+            return phase;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     /** Rozpoczyna fazę negocjacji (po podwójnym pasie) */
-    public synchronized void startNegotiation() {
-        phase = GamePhase.NEGOTIATION;
-        negotiationMarks.clear();
-        negotiationDone.clear();
+    public void startNegotiation() {
+        lock.lock();
+        try {
+            phase = GamePhase.NEGOTIATION;
+            negotiationMarks.clear();
+            negotiationDone.clear();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /** Gracz oznacza pozycję/grupę jako potencjalnie martwą (w trakcie negocjacji) */
-    public synchronized void markNegotiationPosition(GamePlayer player, Position pos) {
-        negotiationMarks.computeIfAbsent(player, k -> new HashSet<>()).add(pos);
+    public void markNegotiationPosition(GamePlayer player, Position pos) {
+        lock.lock();
+        try {
+            negotiationMarks.computeIfAbsent(player, k -> new HashSet<>()).add(pos);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /** Gracz kończy oznaczanie; gdy obaj gracze skończą, stosujemy uzgodnione rezultaty */
@@ -135,13 +195,23 @@ public class GameEngine {
      * Zwraca true jeśli po tym wywołaniu obie strony zakończyły negocjację
      * (wtedy wyniki negocjacji zostaną zastosowane), w przeciwnym wypadku false.
      */
-    public synchronized boolean finishNegotiationFor(GamePlayer player) {
-        negotiationDone.add(player);
-        if (negotiationDone.contains(blackPlayer) && negotiationDone.contains(whitePlayer)) {
-            applyNegotiationResults();
-            return true;
+    public boolean finishNegotiationFor(GamePlayer player) {
+        lock.lock();
+        try {
+            negotiationDone.add(player);
+            if (negotiationDone.contains(blackPlayer) && negotiationDone.contains(whitePlayer)) {
+                applyNegotiationResults();
+                if (phase == GamePhase.PLAYING && clock != null) {
+                    // brak zgody - gra i zegar gracza na ruchu toczą się dalej
+                    clock.start(getCurrentColor(), System.nanoTime());
+                    notifyClock();
+                }
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
     /** Wykonuje usunięcie grup, które zostały oznaczone przez obie strony (consensus) */
@@ -171,6 +241,7 @@ public class GameEngine {
                 else if (s == StoneColor.BLACK) removedByWhite++;
             }
 
+            ownershipEstimator.removeStones(removed);
             if (removedByBlack > 0) updateCaptureCounts(StoneColor.BLACK, removedByBlack);
             if (removedByWhite > 0) updateCaptureCounts(StoneColor.WHITE, removedByWhite);
 
@@ -189,7 +260,14 @@ public class GameEngine {
         }
     }
 
-    public synchronized boolean getLastNegotiationSucceeded() { return lastNegotiationSucceeded; }
+    public boolean getLastNegotiationSucceeded() {
+        lock.lock();
+        try {
+            return lastNegotiationSucceeded;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     //metody fasady 
 
@@ -199,8 +277,26 @@ public class GameEngine {
      * @param move ruch do wykonania
      * @return rezultat ruchu
      */
-    public synchronized MoveResult applyMove(Move move) {
-        return GameEngineService.applyMove(this, move);
+    public MoveResult applyMove(Move move) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (isTimeUp(move.getPlayer(), now)) return MoveResult.error(TIME_UP);
+            MoveResult result = GameEngineService.applyMove(this, move);
+            if (result.isOk()) {
+                result.setOwnershipDelta(ownershipEstimator.applyMove(
+                        move.getPosition(), move.getPlayer().getColor(), result.getCapturedPositions()));
+                result.setMoveNumber(++moveCount);
+                // stan po ruchu czytany pod blokadą - inny wątek (np. bot) mógł już zagrać dalej
+                result.setStateAfterMove(getCurrentColor(), blackCaptures, whiteCaptures);
+                // migawka pod tą samą blokadą, więc odpowiada dokładnie temu ruchowi
+                if (keyframeInterval > 0 && moveCount % keyframeInterval == 0) result.setKeyframe(snapshot());
+                commitClock(now, false);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -209,8 +305,24 @@ public class GameEngine {
      * @param player gracz wykonujący pas
      * @return rezultat operacji
      */
-    public synchronized MoveResult pass(GamePlayer player) {
-        return GameEngineService.pass(this, player);
+    public MoveResult pass(GamePlayer player) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (isTimeUp(player, now)) return MoveResult.error(TIME_UP);
+            MoveResult result = GameEngineService.pass(this, player);
+            if (result.isOk()) {
+                // pas dostaje numer jak kamień; migawki tylko po kamieniach, bo nie
+                // przenoszą informacji o poprzednim pasie
+                result.setMoveNumber(++moveCount);
+                result.setStateAfterMove(getCurrentColor(), blackCaptures, whiteCaptures);
+                // w czasie negocjacji zegar stoi
+                commitClock(now, result.isNegotiation());
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -219,8 +331,18 @@ public class GameEngine {
      * @param player gracz rezygnujący
      * @return rezultat operacji
      */
-    public synchronized MoveResult resign(GamePlayer player) {
-        return GameEngineService.resign(this, player);
+    public MoveResult resign(GamePlayer player) {
+        lock.lock();
+        try {
+            boolean over = end;
+            MoveResult result = GameEngineService.resign(this, player);
+            // numer dostaje tylko rezygnacja, która zakończyła trwającą grę
+            if (!over) result.setMoveNumber(++moveCount);
+            stopClock();
+            return result;
+        } finally {
+            lock.unlock();
+        }
     }
 
     //zarzadzanie graczami i punktacja
@@ -257,6 +379,121 @@ public class GameEngine {
         else whiteCaptures += count;
     }
 
+    //zegar gry
+
+    /**
+     * Komunikat dla ruchu wykonanego po upływie czasu gracza (przed
+     * ogłoszeniem przegranej przez timer gry).
+     */
+    public static final String TIME_UP = "Koniec czasu";
+
+    /**
+     * Ustawia zegar gry. Zegar rusza dopiero po {@link #startClock()}.
+     *
+     * @param clock zegar gry
+     * @param listener wywoływany pod blokadą silnika przy każdej zmianie terminu
+     *                 utraty czasu ({@link #getClockRemainingMillis()})
+     */
+    public void setClock(GameClock clock, Runnable listener) {
+        lock.lock();
+        try {
+            this.clock = clock;
+            this.clockListener = listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Uruchamia zegar gracza na ruchu (na początku gry).
+     */
+    public void startClock() {
+        lock.lock();
+        try {
+            if (clock == null || end) return;
+            clock.start(getCurrentColor(), System.nanoTime());
+            notifyClock();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zwraca czas do utraty czasu przez gracza na ruchu.
+     *
+     * @return czas w milisekundach (zaokrąglony w górę) lub {@code -1}, jeśli zegar stoi
+     */
+    public long getClockRemainingMillis() {
+        lock.lock();
+        try {
+            if (clock == null) return -1;
+            long nanos = clock.remainingNanos(System.nanoTime());
+            return nanos < 0 ? -1 : (nanos + 999_999) / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zwraca stan zegara z chwili ostatniego ruchu.
+     *
+     * @return stan zegara lub {@code null} dla gry bez limitu czasu
+     */
+    public GameClock.Reading readClock() {
+        lock.lock();
+        try {
+            return clock != null ? clock.reading() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sprawdza, czy graczowi na ruchu skończył się czas; jeśli tak, gracz
+     * przegrywa przez rezygnację ({@link GameEngineService#resign}).
+     * Wywoływane przez timer gry w chwili upływu terminu.
+     *
+     * @return wynik rezygnacji lub {@code null}, jeśli czas się nie skończył
+     *         (termin mógł się przesunąć po ruchu gracza)
+     */
+    public MoveResult flagFall() {
+        lock.lock();
+        try {
+            if (clock == null || end || !clock.isRunning()) return null;
+            if (!clock.isFlagged(System.nanoTime())) {
+                notifyClock();
+                return null;
+            }
+            MoveResult result = GameEngineService.resign(this, currentPlayer);
+            result.setMoveNumber(++moveCount);
+            stopClock();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isTimeUp(GamePlayer player, long now) {
+        return clock != null && !end && player.equals(currentPlayer) && clock.isFlagged(now);
+    }
+
+    private void commitClock(long now, boolean pause) {
+        if (clock == null) return;
+        clock.commit(now);
+        if (pause || end) clock.stop();
+        notifyClock();
+    }
+
+    private void stopClock() {
+        if (clock == null) return;
+        clock.stop();
+        notifyClock();
+    }
+
+    private void notifyClock() {
+        if (clockListener != null) clockListener.run();
+    }
+
     /**
      * Zwraca przeciwnika podanego gracza.
      *
@@ -271,41 +508,69 @@ public class GameEngine {
     }
 
     /**
-     * Oblicza końcowe wyniki gry na podstawie terytoriów
-     * oraz liczby zbitych kamieni.
+     * Oblicza końcowe wyniki gry przy użyciu ustawionej strategii liczenia
+     * punktów i zapamiętuje zwycięzcę.
      *
      * @return wynik punktowy gry
      */
     public ScoreResult calculateScores() {
-        int blackTerritory = 0;
-        int whiteTerritory = 0;
-        Set<Position> visited = new HashSet<>();
-        int boardSize = board.getSize();
-        for (int r = 0; r < boardSize; r++) {
-            for (int c = 0; c < boardSize; c++) {
-                Position currentPos = new Position(c, r);
-                if (board.isEmpty(currentPos) && !visited.contains(currentPos)) {
-                    List<Position> region = boardService.getEmptyRegion(board, currentPos, visited);
-                    Set<StoneColor> borderingColors = boardService.getBorderingColors(board, region);
-                    if (borderingColors.size() == 1) {
-                        if (borderingColors.contains(StoneColor.BLACK)) {
-                            blackTerritory += region.size();
-                        } else if (borderingColors.contains(StoneColor.WHITE)) {
-                            whiteTerritory += region.size();
-                        }
-                    }
-                }
-            }
+        ScoreResult result = scoringStrategy.score(this);
+        this.winner = result.getWinner();
+        return result;
+    }
+
+    /**
+     * Zwraca bieżący szacunek wyniku na podstawie mapy wpływów.
+     * W przeciwieństwie do {@link #calculateScores()} nie zmienia stanu gry,
+     * więc może być wywoływana w dowolnym momencie rozgrywki.
+     *
+     * @return szacowany wynik (kamienie i pola pod wpływem gracza, z komi)
+     */
+    public ScoreResult estimateScores() {
+        lock.lock();
+        try {
+            return ScoreResult.decide(ownershipEstimator.getBlackEstimate(), ownershipEstimator.getWhiteEstimate(),
+                    scoringStrategy.getKomi(), blackPlayer, whitePlayer);
+        } finally {
+            lock.unlock();
         }
-        int finalBlackScore = blackTerritory + getBlackCaptures();
-        int finalWhiteScore = whiteTerritory + getWhiteCaptures();
-        GamePlayer winner = (finalBlackScore > finalWhiteScore) ? blackPlayer : whitePlayer;
-        this.winner = winner;
-        if (finalBlackScore == finalWhiteScore) {
-            winner = null; // Remis
-            this.winner = null;
+    }
+
+    /**
+     * Tworzy silnik gry w stanie zapisanym w migawce: z kamieniami na planszy
+     * i liczbami zbitych kamieni. Migawka nie obejmuje stanu reguły ko, więc
+     * nie jest ona sprawdzana dla pierwszego ruchu po odtworzeniu. Graczy
+     * ustawia się jak dla nowej gry ({@link #setPlayers}).
+     *
+     * @param snapshot migawka stanu gry
+     * @return silnik gry w stanie migawki
+     */
+    public static GameEngine restore(GameSnapshot snapshot) {
+        int size = snapshot.getSize();
+        Board board = BoardFactory.createBoard(size);
+        for (int point = 0; point < size * size; point++) {
+            StoneColor stone = snapshot.getStone(point);
+            if (stone != StoneColor.EMPTY) board.setStone(new Position(point % size, point / size), stone);
+        }
+        GameEngine engine = new GameEngine(board);
+        engine.blackCaptures = snapshot.getBlackCaptures();
+        engine.whiteCaptures = snapshot.getWhiteCaptures();
+        return engine;
+    }
+
+    /**
+     * Tworzy niezmienną migawkę bieżącego stanu gry. Migawka jest spójna
+     * z ruchami, bo powstaje pod tą samą blokadą co ich wykonanie.
+     *
+     * @return migawka planszy, koloru na ruchu i liczby zbitych kamieni
+     */
+    public GameSnapshot snapshot() {
+        lock.lock();
+        try {
+            return GameSnapshot.of(board, getCurrentColor(), blackCaptures, whiteCaptures);
+        } finally {
+            lock.unlock();
         }
-        return new ScoreResult(finalBlackScore, finalWhiteScore, winner);
     }
 
     //gettery i settery
@@ -339,9 +604,59 @@ public class GameEngine {
     public int getBlackCaptures() { return blackCaptures; }
 
     public int getWhiteCaptures() { return whiteCaptures; }
+
+    public int getMoveCount() { return moveCount; }
+
+    /**
+     * Ustawia, co ile ruchów wynik ruchu ma zawierać migawkę planszy
+     * ({@link MoveResult#getKeyframe()}), np. do zapisu w bazie.
+     *
+     * @param keyframeInterval liczba ruchów między migawkami ({@code 0} - bez migawek)
+     * @throws IllegalArgumentException jeśli wartość jest ujemna
+     */
+    public void setKeyframeInterval(int keyframeInterval) {
+        if (keyframeInterval < 0) throw new IllegalArgumentException("Odstęp migawek nie może być ujemny");
+        this.keyframeInterval = keyframeInterval;
+    }
     
     public GamePlayer getWinner() { return this.winner; }
 
+    public void setWinner(GamePlayer winner) { this.winner = winner; }
+
+    public OwnershipEstimator getOwnershipEstimator() { return ownershipEstimator; }
+
+    public ScoringStrategy getScoringStrategy() { return scoringStrategy; }
+
+    /**
+     * Zwraca tryb liczenia terytorium.
+     *
+     * @return tryb lub {@code null}, jeśli gra nie liczy terytorium (np. liczy obszar)
+     */
+    public ScoringMode getScoringMode() {
+        return scoringStrategy instanceof TerritoryScoring territory ? territory.getMode() : null;
+    }
+
+    /**
+     * Liczy terytorium w podanym trybie, z dotychczasowym komi
+     * (skrót dla {@link #setScoringStrategy} z {@link TerritoryScoring}).
+     *
+     * @param scoringMode tryb liczenia terytorium
+     */
+    public void setScoringMode(ScoringMode scoringMode) {
+        setScoringStrategy(new TerritoryScoring(scoringMode, scoringStrategy.getKomi()));
+    }
+
+    /**
+     * Ustawia strategię liczenia punktów (np. terytorium lub obszar).
+     *
+     * @param scoringStrategy strategia liczenia punktów
+     * @throws IllegalArgumentException jeśli strategia jest {@code null}
+     */
+    public void setScoringStrategy(ScoringStrategy scoringStrategy) {
+        if (scoringStrategy == null) throw new IllegalArgumentException("Brak strategii liczenia punktów");
+        this.scoringStrategy = scoringStrategy;
+    }
+
     public StoneColor getCurrentColor() {
         return currentPlayer != null ? currentPlayer.getColor() : StoneColor.EMPTY;
     }
@@ -0,0 +1,70 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Klasa {@code GameSnapshot} to niezmienny obraz stanu gry w danej chwili:
+ * kamienie obu kolorów, kolor gracza wykonującego następny ruch oraz liczby
+ * zbitych kamieni.
+ * <p>
+ * Migawka pozwala odtworzyć planszę bez znajomości historii ruchów,
+ * np. u obserwatora dołączającego do trwającej gry.
+ * </p>
+ */
+public final class GameSnapshot {
+
+    private final int size;
+    private final BitBoard black;
+    private final BitBoard white;
+    private final StoneColor next;
+    private final int blackCaptures;
+    private final int whiteCaptures;
+
+    public GameSnapshot(BitBoard black, BitBoard white, StoneColor next, int blackCaptures, int whiteCaptures) {
+        if (black.getSize() != white.getSize()) {
+            throw new IllegalArgumentException("Rozmiary plansz kamieni muszą być równe");
+        }
+        this.size = black.getSize();
+        this.black = black.copy();
+        this.white = white.copy();
+        this.next = next;
+        this.blackCaptures = blackCaptures;
+        this.whiteCaptures = whiteCaptures;
+    }
+
+    /**
+     * Tworzy migawkę na podstawie bieżącej planszy.
+     *
+     * @param board plansza gry
+     * @param next kolor gracza wykonującego następny ruch
+     * @param blackCaptures liczba kamieni zbitych przez czarnego
+     * @param whiteCaptures liczba kamieni zbitych przez białego
+     * @return migawka stanu gry
+     */
+    public static GameSnapshot of(Board board, StoneColor next, int blackCaptures, int whiteCaptures) {
+        return new GameSnapshot(BitBoard.of(board, StoneColor.BLACK), BitBoard.of(board, StoneColor.WHITE),
+                next, blackCaptures, whiteCaptures);
+    }
+
+    /**
+     * Zwraca kolor kamienia na polu o podanym indeksie.
+     *
+     * @param point indeks pola ({@code row * size + col})
+     * @return kolor kamienia lub {@link StoneColor#EMPTY}
+     */
+    public StoneColor getStone(int point) {
+        if (black.get(point)) return StoneColor.BLACK;
+        if (white.get(point)) return StoneColor.WHITE;
+        return StoneColor.EMPTY;
+    }
+
+    public int getSize() { return size; }
+
+    public BitBoard getBlack() { return black.copy(); }
+
+    public BitBoard getWhite() { return white.copy(); }
+
+    public StoneColor getNext() { return next; }
+
+    public int getBlackCaptures() { return blackCaptures; }
+
+    public int getWhiteCaptures() { return whiteCaptures; }
+}
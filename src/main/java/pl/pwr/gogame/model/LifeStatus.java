@@ -0,0 +1,28 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Status pola planszy ustalony podczas liczenia punktów
+ * z uwzględnieniem życia łańcuchów.
+ */
+public enum LifeStatus {
+
+    /**
+     * Kamień żywego łańcucha albo terytorium należące do żywych łańcuchów.
+     */
+    ALIVE,
+
+    /**
+     * Martwy kamień - pole przypada przeciwnikowi, a kamień liczy się jako jeniec.
+     */
+    DEAD,
+
+    /**
+     * Kamień lub wspólny oddech w seki - pole nie daje punktów żadnej ze stron.
+     */
+    SEKI,
+
+    /**
+     * Neutralne puste pole (dame) graniczące z żywymi kamieniami obu kolorów.
+     */
+    DAME
+}
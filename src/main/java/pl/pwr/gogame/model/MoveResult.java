@@ -58,6 +58,32 @@ public class MoveResult {
      */
     private final GamePlayer loser;
 
+    /**
+     * Zmiana szacowanej przynależności pól po ruchu (tylko dla poprawnych ruchów).
+     */
+    private OwnershipDelta ownershipDelta;
+
+    /**
+     * Numer ruchu w grze nadany przez silnik (tylko dla poprawnych ruchów).
+     */
+    private int moveNumber;
+
+    /**
+     * Migawka planszy zaraz po ruchu, jeśli silnik miał ją wykonać po tym ruchu.
+     */
+    private GameSnapshot keyframe;
+
+    /**
+     * Kolor gracza na ruchu zaraz po tym ruchu (tylko dla poprawnych ruchów).
+     */
+    private StoneColor nextColor = StoneColor.EMPTY;
+
+    /**
+     * Liczby kamieni zbitych przez czarnego i białego zaraz po tym ruchu.
+     */
+    private int blackCaptures;
+    private int whiteCaptures;
+
     /**
      * Tworzy obiekt wyniku ruchu z pełnym zestawem informacji.
      *
@@ -210,4 +236,49 @@ public class MoveResult {
      * @return przegrany gracz
      */
     public GamePlayer getLoser() { return loser; }
+
+    /**
+     * Zwraca zmianę szacowanej przynależności pól po ruchu.
+     *
+     * @return zmiana przynależności lub {@code null}, jeśli ruch nie zmienił planszy
+     */
+    public OwnershipDelta getOwnershipDelta() { return ownershipDelta; }
+
+    void setOwnershipDelta(OwnershipDelta ownershipDelta) { this.ownershipDelta = ownershipDelta; }
+
+    /**
+     * Zwraca numer ruchu w grze, nadany w chwili jego wykonania.
+     *
+     * @return numer ruchu (od 1) lub {@code 0}, jeśli ruch (kamień, pas lub
+     *         rezygnacja) nie został wykonany
+     */
+    public int getMoveNumber() { return moveNumber; }
+
+    void setMoveNumber(int moveNumber) { this.moveNumber = moveNumber; }
+
+    /**
+     * Zwraca migawkę planszy wykonaną pod blokadą silnika zaraz po tym ruchu.
+     *
+     * @return migawka lub {@code null}, jeśli po tym ruchu migawka nie przypada
+     */
+    public GameSnapshot getKeyframe() { return keyframe; }
+
+    void setKeyframe(GameSnapshot keyframe) { this.keyframe = keyframe; }
+
+    /**
+     * Zwraca kolor gracza na ruchu odczytany pod blokadą silnika zaraz po tym ruchu.
+     *
+     * @return kolor następnego gracza lub {@link StoneColor#EMPTY}
+     */
+    public StoneColor getNextColor() { return nextColor; }
+
+    public int getBlackCaptures() { return blackCaptures; }
+
+    public int getWhiteCaptures() { return whiteCaptures; }
+
+    void setStateAfterMove(StoneColor nextColor, int blackCaptures, int whiteCaptures) {
+        this.nextColor = nextColor;
+        this.blackCaptures = blackCaptures;
+        this.whiteCaptures = whiteCaptures;
+    }
 }
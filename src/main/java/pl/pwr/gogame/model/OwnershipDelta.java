@@ -0,0 +1,57 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Klasa {@code OwnershipDelta} opisuje zmianę szacowanej przynależności pól
+ * po jednym ruchu. Zawiera wyłącznie pola, których właściciel się zmienił,
+ * oraz bieżące szacunkowe wyniki obu graczy.
+ * <p>
+ * Pole zapisane jest jako indeks {@code row * size + col}.
+ * </p>
+ */
+public class OwnershipDelta {
+
+    /**
+     * Indeksy pól, których przynależność się zmieniła.
+     */
+    private final int[] points;
+
+    /**
+     * Nowi właściciele pól (w tej samej kolejności co {@link #points}).
+     */
+    private final StoneColor[] owners;
+
+    /**
+     * Szacowana liczba punktów czarnego (kamienie i pola pod jego wpływem).
+     */
+    private final int blackEstimate;
+
+    /**
+     * Szacowana liczba punktów białego (kamienie i pola pod jego wpływem).
+     */
+    private final int whiteEstimate;
+
+    public OwnershipDelta(int[] points, StoneColor[] owners, int blackEstimate, int whiteEstimate) {
+        if (points.length != owners.length) {
+            throw new IllegalArgumentException("Liczba pól i właścicieli musi być równa");
+        }
+        this.points = points;
+        this.owners = owners;
+        this.blackEstimate = blackEstimate;
+        this.whiteEstimate = whiteEstimate;
+    }
+
+    /**
+     * Zwraca liczbę zmienionych pól.
+     *
+     * @return liczba zmian
+     */
+    public int size() { return points.length; }
+
+    public int getPoint(int i) { return points[i]; }
+
+    public StoneColor getOwner(int i) { return owners[i]; }
+
+    public int getBlackEstimate() { return blackEstimate; }
+
+    public int getWhiteEstimate() { return whiteEstimate; }
+}
@@ -0,0 +1,91 @@
+package pl.pwr.gogame.model;
+
+import java.util.BitSet;
+
+/**
+ * Klasa {@code PassAliveResult} przechowuje wynik analizy bezwarunkowego
+ * życia (algorytm Bensona) dla jednego koloru.
+ * <p>
+ * Oba zbiory bitów indeksowane są numerem pola {@code row * size + col}.
+ * {@link #getAliveChains()} zawiera kamienie łańcuchów, których nie da się
+ * zbić nawet wtedy, gdy ich właściciel będzie tylko pasował,
+ * a {@link #getVitalRegions()} pola regionów (puste oraz kamienie przeciwnika),
+ * które dają tym łańcuchom życie.
+ * </p>
+ */
+public class PassAliveResult {
+
+    /**
+     * Kolor, dla którego wykonano analizę.
+     */
+    private final StoneColor color;
+
+    /**
+     * Rozmiar planszy, potrzebny do przeliczania pozycji na indeksy.
+     */
+    private final int size;
+
+    /**
+     * Kamienie należące do bezwarunkowo żywych łańcuchów.
+     */
+    private final BitSet aliveChains;
+
+    /**
+     * Pola regionów witalnych dla bezwarunkowo żywych łańcuchów.
+     */
+    private final BitSet vitalRegions;
+
+    /**
+     * Tworzy wynik analizy.
+     *
+     * @param color kolor analizowanych łańcuchów
+     * @param size rozmiar planszy
+     * @param aliveChains kamienie bezwarunkowo żywych łańcuchów
+     * @param vitalRegions pola regionów witalnych
+     */
+    public PassAliveResult(StoneColor color, int size, BitSet aliveChains, BitSet vitalRegions) {
+        this.color = color;
+        this.size = size;
+        this.aliveChains = aliveChains;
+        this.vitalRegions = vitalRegions;
+    }
+
+    /**
+     * Zwraca indeks pola w zbiorach bitów dla danej pozycji.
+     *
+     * @param position pozycja na planszy
+     * @return indeks {@code row * size + col}
+     */
+    public int indexOf(Position position) {
+        return position.row() * size + position.col();
+    }
+
+    /**
+     * Sprawdza, czy kamień na danej pozycji należy do bezwarunkowo żywego łańcucha.
+     *
+     * @param position pozycja na planszy
+     * @return {@code true} jeśli łańcuch jest bezwarunkowo żywy
+     */
+    public boolean isAlive(Position position) {
+        return aliveChains.get(indexOf(position));
+    }
+
+    /**
+     * Sprawdza, czy pole leży w regionie witalnym żywego łańcucha,
+     * czyli w terytorium, którego przeciwnik nie jest w stanie podważyć.
+     *
+     * @param position pozycja na planszy
+     * @return {@code true} jeśli pole leży w regionie witalnym
+     */
+    public boolean isInVitalRegion(Position position) {
+        return vitalRegions.get(indexOf(position));
+    }
+
+    public StoneColor getColor() { return color; }
+
+    public int getSize() { return size; }
+
+    public BitSet getAliveChains() { return aliveChains; }
+
+    public BitSet getVitalRegions() { return vitalRegions; }
+}
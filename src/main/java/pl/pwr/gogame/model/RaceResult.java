@@ -0,0 +1,23 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Enum {@code RaceResult} opisuje wynik wyścigu o oddechy (semeai)
+ * z perspektywy gracza, który wykonuje ruch.
+ */
+public enum RaceResult {
+
+    /**
+     * Gracz wykonujący ruch zbija łańcuch przeciwnika.
+     */
+    WIN,
+
+    /**
+     * Przeciwnik zbija łańcuch gracza wykonującego ruch.
+     */
+    LOSS,
+
+    /**
+     * Żadna strona nie może zaatakować bez utraty własnego łańcucha.
+     */
+    SEKI
+}
@@ -16,24 +16,61 @@ public class ScoreResult {
      */
     private final int whiteScore;
 
+    /**
+     * Komi - punkty doliczane białemu za drugi ruch.
+     */
+    private final double komi;
+
     /**
      * Zwycięzca gry. Może być {@code null} w przypadku remisu.
      */
     private final GamePlayer winner;
 
     /**
-     * Tworzy obiekt wyniku gry.
+     * Tworzy obiekt wyniku gry bez komi.
      *
      * @param blackScore liczba punktów gracza czarnego
      * @param whiteScore liczba punktów gracza białego
      * @param winner zwycięzca gry lub {@code null} w przypadku remisu
      */
     public ScoreResult(int blackScore, int whiteScore, GamePlayer winner) {
+        this(blackScore, whiteScore, 0, winner);
+    }
+
+    /**
+     * Tworzy obiekt wyniku gry.
+     *
+     * @param blackScore liczba punktów gracza czarnego
+     * @param whiteScore liczba punktów gracza białego (bez komi)
+     * @param komi komi doliczane białemu
+     * @param winner zwycięzca gry lub {@code null} w przypadku remisu
+     */
+    public ScoreResult(int blackScore, int whiteScore, double komi, GamePlayer winner) {
         this.blackScore = blackScore;
         this.whiteScore = whiteScore;
+        this.komi = komi;
         this.winner = winner;
     }
 
+    /**
+     * Tworzy wynik gry i wyznacza zwycięzcę, porównując wynik czarnego
+     * z wynikiem białego powiększonym o komi.
+     *
+     * @param blackScore liczba punktów gracza czarnego
+     * @param whiteScore liczba punktów gracza białego (bez komi)
+     * @param komi komi doliczane białemu
+     * @param blackPlayer gracz czarny
+     * @param whitePlayer gracz biały
+     * @return wynik gry
+     */
+    public static ScoreResult decide(int blackScore, int whiteScore, double komi,
+                                     GamePlayer blackPlayer, GamePlayer whitePlayer) {
+        double white = whiteScore + komi;
+        GamePlayer winner = blackScore > white ? blackPlayer
+                : blackScore < white ? whitePlayer : null;
+        return new ScoreResult(blackScore, whiteScore, komi, winner);
+    }
+
     /**
      * Zwraca wynik gracza czarnego.
      *
@@ -52,6 +89,24 @@ public class ScoreResult {
         return whiteScore;
     }
 
+    /**
+     * Zwraca komi doliczane białemu.
+     *
+     * @return komi
+     */
+    public double getKomi() {
+        return komi;
+    }
+
+    /**
+     * Zwraca wynik białego łącznie z komi.
+     *
+     * @return liczba punktów białego gracza powiększona o komi
+     */
+    public double getWhiteTotal() {
+        return whiteScore + komi;
+    }
+
     /**
      * Zwraca zwycięzcę gry.
      *
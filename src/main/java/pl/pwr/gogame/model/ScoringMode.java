@@ -0,0 +1,19 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Sposób klasyfikowania pustych regionów podczas liczenia punktów.
+ */
+public enum ScoringMode {
+
+    /**
+     * Region jest terytorium, jeśli graniczy z kamieniami tylko jednego koloru.
+     * Wszystkie kamienie na planszy traktowane są jako żywe.
+     */
+    SIMPLE,
+
+    /**
+     * Regiony klasyfikowane są według statusu życia łańcuchów
+     * (żywe, martwe, seki, dame) - zob. {@link LifeStatus}.
+     */
+    LIFE_STATUS
+}
@@ -0,0 +1,85 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Klasa {@code TerritoryMap} przechowuje wynik klasyfikacji planszy
+ * na potrzeby liczenia punktów: status każdego pola, jego właściciela
+ * oraz zsumowane terytoria i martwe kamienie obu graczy.
+ * <p>
+ * Tablice indeksowane są numerem pola {@code row * size + col}.
+ * </p>
+ */
+public class TerritoryMap {
+
+    /**
+     * Rozmiar planszy.
+     */
+    private final int size;
+
+    /**
+     * Status każdego pola planszy.
+     */
+    private final LifeStatus[] status;
+
+    /**
+     * Kolor gracza, któremu przypada pole ({@link StoneColor#EMPTY} dla pól neutralnych).
+     */
+    private final StoneColor[] owner;
+
+    private final int blackTerritory;
+    private final int whiteTerritory;
+    private final int deadBlackStones;
+    private final int deadWhiteStones;
+
+    /**
+     * Tworzy mapę terytoriów.
+     *
+     * @param size rozmiar planszy
+     * @param status status każdego pola
+     * @param owner właściciel każdego pola
+     * @param blackTerritory liczba pól terytorium czarnego (łącznie z polami martwych kamieni białego)
+     * @param whiteTerritory liczba pól terytorium białego (łącznie z polami martwych kamieni czarnego)
+     * @param deadBlackStones liczba martwych czarnych kamieni
+     * @param deadWhiteStones liczba martwych białych kamieni
+     */
+    public TerritoryMap(int size, LifeStatus[] status, StoneColor[] owner,
+                        int blackTerritory, int whiteTerritory,
+                        int deadBlackStones, int deadWhiteStones) {
+        this.size = size;
+        this.status = status;
+        this.owner = owner;
+        this.blackTerritory = blackTerritory;
+        this.whiteTerritory = whiteTerritory;
+        this.deadBlackStones = deadBlackStones;
+        this.deadWhiteStones = deadWhiteStones;
+    }
+
+    /**
+     * Zwraca status pola.
+     *
+     * @param position pozycja na planszy
+     * @return status pola
+     */
+    public LifeStatus getStatus(Position position) {
+        return status[position.row() * size + position.col()];
+    }
+
+    /**
+     * Zwraca kolor gracza, któremu przypada pole.
+     *
+     * @param position pozycja na planszy
+     * @return kolor właściciela lub {@link StoneColor#EMPTY} dla pól neutralnych
+     */
+    public StoneColor getOwner(Position position) {
+        return owner[position.row() * size + position.col()];
+    }
+
+    public int getSize() { return size; }
+
+    public int getBlackTerritory() { return blackTerritory; }
+
+    public int getWhiteTerritory() { return whiteTerritory; }
+
+    public int getDeadBlackStones() { return deadBlackStones; }
+
+    public int getDeadWhiteStones() { return deadWhiteStones; }
+}
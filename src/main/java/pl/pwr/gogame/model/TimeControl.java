@@ -0,0 +1,90 @@
+package pl.pwr.gogame.model;
+
+/**
+ * Klasa {@code TimeControl} opisuje tempo gry: czas podstawowy oraz
+ * sposób jego uzupełniania - byo-yomi (japońskie okresy dogrywki)
+ * lub Fischer (stały dodatek za każdy ruch).
+ * <p>
+ * Obiekt jest niezmienny i może być współdzielony przez wiele gier.
+ * </p>
+ */
+public final class TimeControl {
+
+    /**
+     * Rodzaj uzupełniania czasu.
+     */
+    public enum Type {
+        /** Po czasie podstawowym kolejne okresy; ruch w okresie go nie zużywa. */
+        BYO_YOMI,
+        /** Po każdym ruchu do czasu gracza doliczany jest stały dodatek. */
+        FISCHER
+    }
+
+    private final Type type;
+    private final long mainMillis;
+    private final int periods;
+    private final long periodMillis;
+    private final long incrementMillis;
+
+    private TimeControl(Type type, long mainMillis, int periods, long periodMillis, long incrementMillis) {
+        this.type = type;
+        this.mainMillis = mainMillis;
+        this.periods = periods;
+        this.periodMillis = periodMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    /**
+     * Tworzy tempo z byo-yomi.
+     *
+     * @param mainMillis czas podstawowy
+     * @param periods liczba okresów dogrywki
+     * @param periodMillis długość okresu
+     * @return tempo gry
+     * @throws IllegalArgumentException jeśli czas jest ujemny albo okresy nie są dodatnie,
+     *         a czas podstawowy jest zerowy
+     */
+    public static TimeControl byoYomi(long mainMillis, int periods, long periodMillis) {
+        if (mainMillis < 0 || periods < 0 || periodMillis < 0) {
+            throw new IllegalArgumentException("Parametry byo-yomi nie mogą być ujemne");
+        }
+        if (periods > 0 && periodMillis == 0) {
+            throw new IllegalArgumentException("Okres byo-yomi musi być dodatni");
+        }
+        if (mainMillis == 0 && periods == 0) {
+            throw new IllegalArgumentException("Gracz musi mieć jakikolwiek czas na grę");
+        }
+        return new TimeControl(Type.BYO_YOMI, mainMillis, periods, periodMillis, 0);
+    }
+
+    /**
+     * Tworzy tempo Fischera.
+     *
+     * @param mainMillis czas podstawowy
+     * @param incrementMillis dodatek za każdy ruch
+     * @return tempo gry
+     * @throws IllegalArgumentException jeśli czas podstawowy nie jest dodatni lub dodatek jest ujemny
+     */
+    public static TimeControl fischer(long mainMillis, long incrementMillis) {
+        if (mainMillis <= 0) throw new IllegalArgumentException("Czas podstawowy musi być dodatni");
+        if (incrementMillis < 0) throw new IllegalArgumentException("Dodatek Fischera nie może być ujemny");
+        return new TimeControl(Type.FISCHER, mainMillis, 0, 0, incrementMillis);
+    }
+
+    public Type getType() { return type; }
+
+    public long getMainMillis() { return mainMillis; }
+
+    public int getPeriods() { return periods; }
+
+    public long getPeriodMillis() { return periodMillis; }
+
+    public long getIncrementMillis() { return incrementMillis; }
+
+    @Override
+    public String toString() {
+        return type == Type.FISCHER
+                ? "Fischer " + mainMillis / 1000 + " s + " + incrementMillis / 1000 + " s"
+                : "byo-yomi " + mainMillis / 1000 + " s + " + periods + " x " + periodMillis / 1000 + " s";
+    }
+}
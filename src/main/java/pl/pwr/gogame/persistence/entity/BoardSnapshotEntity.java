@@ -0,0 +1,60 @@
+package pl.pwr.gogame.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+//To entity przechowuje migawki planszy zapisywane co kilkadziesiąt ruchów,
+//żeby odtworzenie pozycji nie wymagało powtarzania gry od pierwszego ruchu
+@Entity
+@Table(name = "board_snapshots", indexes = @Index(columnList = "game_id, moveNumber"))
+public class BoardSnapshotEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "board_snapshot_seq")
+    @SequenceGenerator(name = "board_snapshot_seq", sequenceName = "BoardSnapshotEntity_SEQ", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "game_id")
+    private GameEntity game;
+
+    //numer ruchu, po którym powstała migawka
+    @Column(nullable = false)
+    private int moveNumber;
+
+    //kamienie obu kolorów (słowa BitBoard), kolor na ruchu i liczby jeńców
+    @Lob
+    @Column(nullable = false)
+    private byte[] data;
+
+    public BoardSnapshotEntity() {
+    }
+
+    public BoardSnapshotEntity(GameEntity game, int moveNumber, byte[] data) {
+        this.game = game;
+        this.moveNumber = moveNumber;
+        this.data = data;
+    }
+
+    public GameEntity getGame() {
+        return game;
+    }
+
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
@@ -19,6 +20,8 @@ import pl.pwr.gogame.model.Board;
 import pl.pwr.gogame.model.GamePlayer;
 import pl.pwr.gogame.model.StoneColor;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.SequenceGenerator;
 
 //Entity w Springu to rzeczy, które zostaną zapisane
 //i istnieją po zakończeniu programu, czyli są persistent.
@@ -29,8 +32,11 @@ import jakarta.persistence.GeneratedValue;
 @Table(name = "games")
 public class GameEntity {
     
+    // identyfikatory z sekwencji pobierane pulami po 50 (optymalizator pooled):
+    // jedno zapytanie o sekwencję na 50 gier; nazwa i krok jak w dotychczasowym schemacie
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_seq")
+    @SequenceGenerator(name = "game_seq", sequenceName = "GameEntity_SEQ", allocationSize = 50)
     private Long id;
 
     private int boardSize;
@@ -60,6 +66,12 @@ public class GameEntity {
     @OrderBy("moveNumber ASC")
     private List<MoveEntity> moves = new ArrayList<>();
 
+    //Ruchy zakodowane w jednym polu (GameRecord) w trybie zapisu packed;
+    //null, gdy ruchy gry są w tabeli moves
+    @Lob
+    @Column(name = "move_record")
+    private byte[] moveRecord;
+
     public GameEntity(int boardSize, String blackPlayerName, StoneColor blackPlayerColor, String whitePlayerName, StoneColor whitePlayerColor, LocalDateTime startedAt) {
         this.boardSize = boardSize;
         this.blackPlayerName = blackPlayerName;
@@ -117,6 +129,14 @@ public class GameEntity {
     public List<MoveEntity> getMoves() {
         return this.moves;
     }
+
+    public byte[] getMoveRecord() {
+        return this.moveRecord;
+    }
+
+    public void setMoveRecord(byte[] moveRecord) {
+        this.moveRecord = moveRecord;
+    }
     public Long getId() {
         return this.id;
     }
@@ -5,9 +5,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import pl.pwr.gogame.model.StoneColor;
 
@@ -17,8 +19,11 @@ import pl.pwr.gogame.model.StoneColor;
 
 public class MoveEntity {
    
+    // pula 50 identyfikatorów na jedno zapytanie o sekwencję, więc wstawienia
+    // ruchów mogą być łączone w paczki JDBC
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "move_seq")
+    @SequenceGenerator(name = "move_seq", sequenceName = "MoveEntity_SEQ", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,15 @@
+package pl.pwr.gogame.persistence.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import pl.pwr.gogame.persistence.entity.BoardSnapshotEntity;
+
+public interface BoardSnapshotRepository extends JpaRepository<BoardSnapshotEntity, Long> {
+
+    Optional<BoardSnapshotEntity> findFirstByGame_IdAndMoveNumberLessThanEqualOrderByMoveNumberDesc(
+            Long gameId, int moveNumber);
+
+    boolean existsByGame_IdAndMoveNumber(Long gameId, int moveNumber);
+}
@@ -10,4 +10,8 @@ import pl.pwr.gogame.persistence.entity.MoveEntity;
 public interface MoveRepository extends JpaRepository<MoveEntity, Long> {
     
       List<MoveEntity> findByGameOrderByMoveNumber(GameEntity game);
+
+      boolean existsByGame_IdAndMoveNumber(Long gameId, int moveNumber);
+
+      List<MoveEntity> findByGame_IdAndMoveNumberBetweenOrderByMoveNumber(Long gameId, int from, int to);
 }
@@ -6,21 +6,25 @@ package pl.pwr.gogame.persistence.service;
 //zapisywane dane, a tutaj w service znajdują się metody
 //do zapisywania danych do tych tabel
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
 import pl.pwr.gogame.model.GameEngine;
 import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.GameSnapshot;
 import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.StoneColor;
 import pl.pwr.gogame.persistence.entity.GameEntity;
-import pl.pwr.gogame.persistence.entity.MoveEntity;
 import pl.pwr.gogame.persistence.entity.MoveType;
 import pl.pwr.gogame.persistence.repository.GameRepository;
-import pl.pwr.gogame.persistence.repository.MoveRepository;
 
 @Service
 
@@ -29,12 +33,40 @@ public class GamePersistenceService {
      @Autowired
     private GameReplayService replayService;
 
+    @Autowired
+    private MoveJournalWriter journalWriter;
+
+    /**
+     * Dziennik zapisu w tle lub {@code null} - wtedy ruchy są zapisywane od razu.
+     */
+    private volatile MoveJournal journal;
+
+    /**
+     * Sposób przechowywania ruchów gry.
+     */
+    public enum MoveFormat {
+        /** Wiersz tabeli {@code moves} na każdy ruch. */
+        ROWS,
+        /** Jedno pole {@code move_record} gry ({@link GameRecord}) zapisywane po jej zakończeniu. */
+        PACKED
+    }
+
+    private volatile MoveFormat moveFormat = MoveFormat.ROWS;
+
+    /**
+     * Zapisy ruchów trwających gier w trybie {@link MoveFormat#PACKED}.
+     */
+    private final Map<Long, GameRecord.Writer> records = new ConcurrentHashMap<>();
+
+    /**
+     * Co ile ruchów zapisywana jest migawka planszy ({@code 0} - wcale).
+     */
+    private volatile int snapshotInterval;
+
     private final GameRepository gameRepository;
-    private final MoveRepository moveRepository;
     
-    public GamePersistenceService(GameRepository gameRepository, MoveRepository moveRepository) {
+    public GamePersistenceService(GameRepository gameRepository) {
         this.gameRepository = gameRepository;
-        this.moveRepository = moveRepository;
     }
 
     public GameEntity startGame(GameEngine engine) {
@@ -46,42 +78,164 @@ public class GamePersistenceService {
             engine.getWhitePlayer().getColor(),
             LocalDateTime.now()
         );
-        return gameRepository.save(game);
+        GameEntity saved = gameRepository.save(game);
+        if (moveFormat == MoveFormat.PACKED) {
+            records.put(saved.getId(), new GameRecord.Writer(saved.getBoardSize()));
+        }
+        return saved;
+    }
+
+    /**
+     * Usuwa grę, która nie ruszyła (np. przegrała wyścig o identyfikator
+     * w rejestrze gier albo sesji nie udało się rozpocząć), razem z jej
+     * zapisem ruchów w pamięci - sesja porzucona bez {@link #finishGame}
+     * nie zostawia go w {@code records}.
+     *
+     * @param game gra zapisana przez {@link #startGame}
+     */
+    public void discardGame(GameEntity game) {
+        records.remove(game.getId());
+        gameRepository.delete(game);
     }
     
-    @Transactional
+    /**
+     * Uruchamia zapis ruchów i wyników gier w tle: {@link #saveMove} i
+     * {@link #finishGame} tylko dopisują wpis do dziennika, a wątek dziennika
+     * zapisuje wpisy partiami, każdą w jednej transakcji.
+     *
+     * @param capacity największa liczba wpisów oczekujących na zapis
+     * @param batchSize największa liczba wpisów w jednej transakcji
+     * @param file plik utrwalany ({@code fsync}) przed zapisem partii do bazy lub {@code null}
+     * @throws IOException jeśli nie można otworzyć lub odtworzyć pliku dziennika
+     */
+    public synchronized void startJournal(int capacity, int batchSize, Path file) throws IOException {
+        if (journal != null) return;
+        MoveJournal started = new MoveJournal(capacity, batchSize, file, this::writeJournal);
+        started.start();
+        journal = started;
+    }
+
+    /**
+     * Zapisuje oczekujące wpisy dziennika i zatrzymuje jego wątek.
+     */
+    @PreDestroy
+    public synchronized void stopJournal() {
+        MoveJournal stopped = journal;
+        if (stopped == null) return;
+        journal = null;
+        stopped.close();
+        System.out.println("Dziennik zapisu gier: zapisano " + stopped.getWrittenCount() + " wpisów w "
+                + stopped.getBatchCount() + " transakcjach, wpisy przelane przy pełnej kolejce: " + stopped.getStallCount());
+    }
+
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Ustawia sposób przechowywania ruchów nowych gier. W trybie
+     * {@link MoveFormat#PACKED} ruchy są kodowane w pamięci (ok. 2 bajty na
+     * ruch) i zapisywane jednym polem razem z wynikiem gry.
+     *
+     * @param moveFormat sposób przechowywania ruchów
+     */
+    public void setMoveFormat(MoveFormat moveFormat) {
+        this.moveFormat = moveFormat;
+    }
+
+    public MoveFormat getMoveFormat() {
+        return moveFormat;
+    }
+
+    /**
+     * Ustawia, co ile ruchów zapisywana jest migawka planszy, od której
+     * {@link GameReplayService#replayTo} odtwarza pozycję.
+     *
+     * @param snapshotInterval liczba ruchów między migawkami ({@code 0} - bez migawek)
+     * @throws IllegalArgumentException jeśli wartość jest ujemna
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        if (snapshotInterval < 0) throw new IllegalArgumentException("Odstęp migawek nie może być ujemny");
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Zapisuje migawkę planszy po ruchu o podanym numerze (przez dziennik,
+     * za ruchami gry, albo od razu).
+     *
+     * @param game gra
+     * @param moveNumber numer ostatniego ruchu ujętego w migawce
+     * @param snapshot migawka
+     */
+    public void saveSnapshot(GameEntity game, int moveNumber, GameSnapshot snapshot) {
+        append(JournalEntry.snapshot(game.getId(), moveNumber, GameRecord.encodeSnapshot(snapshot)));
+    }
+
+    /**
+     * Zapisuje ruch gry. Numer ruchu nadaje silnik gry pod blokadą ruchu
+     * ({@code MoveResult#getMoveNumber()}), więc zapis nie czyta ani nie powiększa kolekcji ruchów encji gry -
+     * kosztuje tyle samo na początku i na końcu partii.
+     *
+     * @param game gra
+     * @param move ruch
+     * @param moveNumber numer ruchu, od 1
+     */
     public void saveMove(GameEntity game, Move move, int moveNumber) {
-        MoveEntity entity = new MoveEntity();
-        
-        entity.setGame(game);
-        entity.setMoveNumber(game.getMoves().size() + 1);
-        entity.setPlayerColor(move.getPlayer().getColor());
-        entity.setCol(move.getPosition().col());
-        entity.setRow(move.getPosition().row());
-        entity.setType(MoveType.MOVE);
-        
-        game.getMoves().add(entity);
-
-        moveRepository.save(entity);
-        moveRepository.flush();
-    }
-
-    public void saveMovePassBot(GameEntity game, Move move, int moveNumber) {
-        MoveEntity entity = new MoveEntity();
-        
-        entity.setGame(game);
-        entity.setMoveNumber(game.getMoves().size() + 1);
-        entity.setPlayerColor(StoneColor.WHITE);
-        entity.setCol(-1);
-        entity.setRow(-1);
-        entity.setType(MoveType.PASS);
-        
-        game.getMoves().add(entity);
-
-        moveRepository.save(entity);
-        moveRepository.flush();
+        saveMove(game, moveNumber, move.getPlayer().getColor(), MoveType.MOVE,
+                move.getPosition().col(), move.getPosition().row());
+    }
+
+    /**
+     * Zapisuje pas lub rezygnację tak samo jak kamień ({@link #saveMove}),
+     * z numerem nadanym przez silnik gry.
+     *
+     * @param game gra
+     * @param player gracz, który spasował lub zrezygnował
+     * @param type {@link MoveType#PASS} lub {@link MoveType#RESIGN}
+     * @param moveNumber numer ruchu, od 1
+     * @throws IllegalArgumentException jeśli typ oznacza postawienie kamienia
+     */
+    public void saveAction(GameEntity game, GamePlayer player, MoveType type, int moveNumber) {
+        if (type == MoveType.MOVE) throw new IllegalArgumentException("Kamień zapisuje saveMove");
+        saveMove(game, moveNumber, player.getColor(), type, -1, -1);
+    }
+
+    private void saveMove(GameEntity game, int moveNumber, StoneColor color, MoveType type, int col, int row) {
+        GameRecord.Writer record = records.get(game.getId());
+        if (record != null) {
+            record.append(moveNumber, color, type, col, row);
+            return;
+        }
+        append(JournalEntry.move(game.getId(), moveNumber, color, col, row, type));
+    }
+
+    /**
+     * Dopisuje wpis do dziennika albo, gdy dziennik nie działa, zapisuje go od razu.
+     */
+    private void append(JournalEntry entry) {
+        MoveJournal current = journal;
+        if (current != null) {
+            current.append(entry);
+        } else {
+            journalWriter.write(List.of(entry), false);
+        }
     }
 
+    /**
+     * Zapisuje wynik gry. Z dziennikiem tylko dopisuje wpis, a grę odtwarza
+     * wątek dziennika po zapisie. Bez dziennika zapis i odtworzenie gry
+     * ({@link GameReplayService#replayGame}) wykonuje wątek wywołujący - także
+     * pętla zdarzeń serwera, która w tym czasie nie obsługuje innych połączeń;
+     * tak samo jak {@link #saveMove} w tym trybie, przeznaczonym do testów
+     * i małych instalacji ({@code gogame.persistence.journal.enabled=false}).
+     *
+     * @param game gra
+     * @param winner zwycięzca lub {@code null} przy remisie
+     */
     public void finishGame(GameEntity game, GamePlayer winner) {
          if (winner != null) {
         game.setWinner(winner.getName());
@@ -89,10 +243,36 @@ public class GamePersistenceService {
         game.setWinner("DRAW");
         }
     game.setFinishedAt(LocalDateTime.now());
+    GameRecord.Writer record = records.remove(game.getId());
+    byte[] packed = record != null ? record.toByteArray() : null;
+
+    MoveJournal current = journal;
+    if (current != null) {
+        // zakończenie trafia do bazy po wszystkich ruchach gry
+        current.append(JournalEntry.finish(game.getId(), game.getWinner(), game.getFinishedAt(), packed));
+        return;
+    }
+    game.setMoveRecord(packed);
     gameRepository.save(game);
 
     replayService.replayGame(game.getId());
     }
+
+    /**
+     * Zapisuje partię wpisów dziennika, a po zatwierdzeniu odtwarza
+     * zakończone w niej gry (jak {@link #finishGame} bez dziennika).
+     */
+    private void writeJournal(List<JournalEntry> batch, boolean recovery) {
+        journalWriter.write(batch, recovery);
+        for (JournalEntry entry : batch) {
+            if (entry.kind() != JournalEntry.Kind.FINISH) continue;
+            try {
+                replayService.replayGame(entry.gameId());
+            } catch (RuntimeException e) {
+                System.err.println("Nie można odtworzyć gry " + entry.gameId() + ": " + e.getMessage());
+            }
+        }
+    }
     
 
-}
\ No newline at end of file
+}
\ No newline at end of file
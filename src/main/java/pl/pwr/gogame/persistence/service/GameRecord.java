@@ -0,0 +1,226 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.protocol.SnapshotFrame;
+
+/**
+ * Klasa {@code GameRecord} koduje listę ruchów gry jako jeden zwarty ciąg
+ * bajtów (kolumna {@code move_record} tabeli {@code games}) zamiast wiersza
+ * tabeli {@code moves} na każdy ruch.
+ * <p>
+ * Format: bajt wersji, varint rozmiaru planszy, a potem varint na ruch:
+ * {@code (wartość << 1) | kolor}, gdzie kolor to {@code 0} dla czarnego
+ * i {@code 1} dla białego, a wartość to {@code 0} dla pasa, {@code 1}
+ * dla rezygnacji i {@code 2 + row * size + col} dla kamienia. Ruch na
+ * planszy 19x19 zajmuje najwyżej 2 bajty.
+ * </p>
+ * <p>
+ * Migawki planszy (co kilkadziesiąt ruchów, tabela {@code board_snapshots})
+ * zapisywane są tak jak dane ramki {@code SNAPSHOT} protokołu binarnego:
+ * słowa {@code BitBoard} obu kolorów i liczby zbitych kamieni.
+ * </p>
+ */
+public final class GameRecord {
+
+    /**
+     * Wersja formatu zapisywana w pierwszym bajcie.
+     */
+    public static final int VERSION = 1;
+
+    private static final int PASS = 0;
+    private static final int RESIGN = 1;
+    private static final int FIRST_POINT = 2;
+
+    private GameRecord() {}
+
+    /**
+     * Koduje migawkę planszy do zapisu w bazie.
+     *
+     * @param snapshot migawka
+     * @return bajty migawki (ok. 100 dla planszy 19x19)
+     */
+    public static byte[] encodeSnapshot(GameSnapshot snapshot) {
+        ByteBuffer frame = SnapshotFrame.encode(snapshot);
+        // pomijamy nagłówek ramki: długość i kod
+        BinaryProtocol.readVarint(frame);
+        frame.get();
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        return data;
+    }
+
+    /**
+     * Dekoduje migawkę zapisaną przez {@link #encodeSnapshot}.
+     *
+     * @param data bajty migawki
+     * @return migawka
+     * @throws IllegalArgumentException jeśli dane są uszkodzone
+     */
+    public static GameSnapshot decodeSnapshot(byte[] data) {
+        return SnapshotFrame.decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Koduje kolejne ruchy gry. Metody są synchronizowane, bo ruchy obu
+     * graczy dopisują różne wątki - i mogą to zrobić w innej kolejności,
+     * niż silnik nadał numery, więc ruch z dalszym numerem czeka, aż
+     * zostaną dopisane wcześniejsze.
+     */
+    public static final class Writer {
+
+        private final int size;
+        private ByteBuffer buffer;
+        private int moveCount;
+        private final Map<Integer, Integer> pending = new TreeMap<>();
+
+        /**
+         * @param size rozmiar planszy
+         */
+        public Writer(int size) {
+            this.size = size;
+            this.buffer = ByteBuffer.allocate(64);
+            buffer.put((byte) VERSION);
+            BinaryProtocol.writeVarint(buffer, size);
+        }
+
+        /**
+         * Dopisuje ruch o podanym numerze.
+         *
+         * @param moveNumber numer ruchu, od 1
+         * @param color kolor gracza
+         * @param type rodzaj ruchu
+         * @param col kolumna (dla kamienia)
+         * @param row wiersz (dla kamienia)
+         * @throws IllegalArgumentException jeśli pole leży poza planszą
+         *         lub ruch o tym numerze został już dopisany
+         */
+        public synchronized void append(int moveNumber, StoneColor color, MoveType type, int col, int row) {
+            int code = encode(color, type, col, row);
+            if (moveNumber <= moveCount || pending.containsKey(moveNumber)) {
+                throw new IllegalArgumentException("Powtórzony numer ruchu: " + moveNumber);
+            }
+            if (moveNumber > moveCount + 1) {
+                pending.put(moveNumber, code);
+                return;
+            }
+            write(code);
+            Integer next;
+            while ((next = pending.remove(moveCount + 1)) != null) write(next);
+        }
+
+        private int encode(StoneColor color, MoveType type, int col, int row) {
+            int value;
+            if (type == MoveType.PASS) {
+                value = PASS;
+            } else if (type == MoveType.RESIGN) {
+                value = RESIGN;
+            } else {
+                if (col < 0 || col >= size || row < 0 || row >= size) {
+                    throw new IllegalArgumentException("Pole poza planszą: " + col + "," + row);
+                }
+                value = FIRST_POINT + row * size + col;
+            }
+            return value << 1 | (color == StoneColor.WHITE ? 1 : 0);
+        }
+
+        private void write(int code) {
+            if (buffer.remaining() < 5) {
+                buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.capacity() * 2))
+                        .position(buffer.position());
+            }
+            BinaryProtocol.writeVarint(buffer, code);
+            moveCount++;
+        }
+
+        public synchronized int getMoveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Zwraca zakodowany zapis gry. Ruchy czekające na brakujący numer
+         * (np. gdy zapis ruchu się nie powiódł) dopisywane są na końcu,
+         * w kolejności numerów.
+         *
+         * @return bajty zapisu
+         */
+        public synchronized byte[] toByteArray() {
+            ByteBuffer out = ByteBuffer.allocate(buffer.position() + pending.size() * 5);
+            out.put(buffer.array(), 0, buffer.position());
+            for (int code : pending.values()) BinaryProtocol.writeVarint(out, code);
+            return Arrays.copyOf(out.array(), out.position());
+        }
+    }
+
+    /**
+     * Dekoduje zapis gry ruch po ruchu, bez budowania listy ruchów.
+     * Po każdym udanym {@link #next()} metody dostępowe opisują bieżący ruch.
+     */
+    public static final class Reader {
+
+        private final ByteBuffer data;
+        private final int size;
+        private StoneColor color;
+        private MoveType type;
+        private int col;
+        private int row;
+
+        /**
+         * @param record bajty zapisu
+         * @throws IllegalArgumentException jeśli nagłówek zapisu jest niepoprawny
+         */
+        public Reader(byte[] record) {
+            this.data = ByteBuffer.wrap(record);
+            if (!data.hasRemaining() || data.get() != VERSION) {
+                throw new IllegalArgumentException("Nieobsługiwana wersja zapisu gry");
+            }
+            this.size = BinaryProtocol.readVarint(data);
+            if (size <= 0) throw new IllegalArgumentException("Niepoprawny rozmiar planszy w zapisie gry");
+        }
+
+        /**
+         * Przechodzi do kolejnego ruchu.
+         *
+         * @return {@code false}, jeśli zapis się skończył
+         * @throws IllegalArgumentException jeśli zapis jest uszkodzony
+         */
+        public boolean next() {
+            if (!data.hasRemaining()) return false;
+            int code = BinaryProtocol.readVarint(data);
+            if (code < 0) throw new IllegalArgumentException("Urwany zapis gry");
+            color = (code & 1) == 0 ? StoneColor.BLACK : StoneColor.WHITE;
+            int value = code >>> 1;
+            col = -1;
+            row = -1;
+            if (value == PASS) {
+                type = MoveType.PASS;
+            } else if (value == RESIGN) {
+                type = MoveType.RESIGN;
+            } else {
+                int point = value - FIRST_POINT;
+                if (point >= size * size) throw new IllegalArgumentException("Pole poza planszą w zapisie gry");
+                type = MoveType.MOVE;
+                col = point % size;
+                row = point / size;
+            }
+            return true;
+        }
+
+        public int getSize() { return size; }
+
+        public StoneColor getColor() { return color; }
+
+        public MoveType getType() { return type; }
+
+        public int getCol() { return col; }
+
+        public int getRow() { return row; }
+    }
+}
@@ -8,14 +8,17 @@ import org.springframework.stereotype.Service;
 import pl.pwr.gogame.model.BoardFactory;
 import pl.pwr.gogame.model.GameEngine;
 import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.GameSnapshot;
 import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.MoveResult;
 import pl.pwr.gogame.model.Position;
 import pl.pwr.gogame.model.ScoreResult;
 import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.BoardSnapshotEntity;
 import pl.pwr.gogame.persistence.entity.GameEntity;
 import pl.pwr.gogame.persistence.entity.MoveEntity;
 import pl.pwr.gogame.persistence.entity.MoveType;
+import pl.pwr.gogame.persistence.repository.BoardSnapshotRepository;
 import pl.pwr.gogame.persistence.repository.GameRepository;
 import pl.pwr.gogame.persistence.repository.MoveRepository;
 
@@ -25,11 +28,14 @@ public class GameReplayService {
 
     private final GameRepository gameRepo;
     private final MoveRepository moveRepo;
+    private final BoardSnapshotRepository snapshotRepo;
 
     public GameReplayService(GameRepository gameRepo,
-                             MoveRepository moveRepo) {
+                             MoveRepository moveRepo,
+                             BoardSnapshotRepository snapshotRepo) {
         this.gameRepo = gameRepo;
         this.moveRepo = moveRepo;
+        this.snapshotRepo = snapshotRepo;
     }
 
        public Optional<GameEntity> findGameById(Long gameId) {
@@ -45,17 +51,103 @@ public class GameReplayService {
                 BoardFactory.createBoard(game.getBoardSize())
         );
 
-        List<MoveEntity> moves =
-            moveRepo.findByGameOrderByMoveNumber(game);
-
-        for (MoveEntity m : moves) {
+        forEachMove(game, (color, type, col, row) -> {
+            if (type != MoveType.MOVE) return;
             Move move = new Move(
-                new Position(m.getCol(), m.getRow()),
-                new GamePlayer("", m.getPlayerColor())
+                new Position(col, row),
+                new GamePlayer("", color)
             );
             engine.applyMove(move);
+        });
+
+        return engine;
+    }
+
+    /**
+     * Ruch odczytany z bazy (z tabeli {@code moves} albo z pola {@code move_record}).
+     */
+    @FunctionalInterface
+    interface MoveVisitor {
+        void visit(StoneColor color, MoveType type, int col, int row);
+    }
+
+    /**
+     * Przekazuje ruchy gry w kolejności rozegrania. Gra zapisana w trybie
+     * packed jest dekodowana strumieniowo, ruch po ruchu, z jednego pola
+     * wczytanego razem z grą; pozostałe gry czytają wiersze tabeli {@code moves}.
+     */
+    void forEachMove(GameEntity game, MoveVisitor visitor) {
+        forEachMove(game, 0, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Przekazuje ruchy gry o numerach od {@code after + 1} do {@code upTo}.
+     */
+    void forEachMove(GameEntity game, int after, int upTo, MoveVisitor visitor) {
+        byte[] record = game.getMoveRecord();
+        if (record != null) {
+            GameRecord.Reader reader = new GameRecord.Reader(record);
+            // pominięcie początku to samo dekodowanie varintów, bez wykonywania ruchów
+            for (int number = 1; number <= upTo && reader.next(); number++) {
+                if (number <= after) continue;
+                visitor.visit(reader.getColor(), reader.getType(), reader.getCol(), reader.getRow());
+            }
+            return;
+        }
+        List<MoveEntity> moves = after == 0 && upTo == Integer.MAX_VALUE
+                ? moveRepo.findByGameOrderByMoveNumber(game)
+                : moveRepo.findByGame_IdAndMoveNumberBetweenOrderByMoveNumber(game.getId(), after + 1, upTo);
+        for (MoveEntity m : moves) {
+            visitor.visit(m.getPlayerColor(), m.getType(), m.getCol(), m.getRow());
+        }
+    }
+
+    /**
+     * Odtwarza pozycję gry po ruchu o podanym numerze. Zaczyna od najbliższej
+     * wcześniejszej migawki planszy i wykonuje tylko ruchy zagrane po niej,
+     * więc koszt zależy od odstępu migawek, a nie od długości gry.
+     *
+     * @param gameId identyfikator gry
+     * @param moveNumber numer ruchu ({@code 0} - pusta plansza); numer większy
+     *                   od liczby ruchów daje pozycję końcową
+     * @return silnik gry w pozycji po tym ruchu
+     * @throws IllegalArgumentException jeśli gra nie istnieje lub numer ruchu jest ujemny
+     */
+    public GameEngine replayTo(Long gameId, int moveNumber) {
+        if (moveNumber < 0) throw new IllegalArgumentException("Numer ruchu nie może być ujemny: " + moveNumber);
+        GameEntity game = gameRepo.findById(gameId)
+                .orElseThrow(() -> new IllegalArgumentException("Game not found with id: " + gameId));
+
+        GamePlayer black = new GamePlayer(game.getBlackPlayerName(), game.getBlackPlayerColor());
+        GamePlayer white = new GamePlayer(game.getWhitePlayerName(), game.getWhitePlayerColor());
+        BoardSnapshotEntity keyframe = moveNumber > 0
+                ? snapshotRepo.findFirstByGame_IdAndMoveNumberLessThanEqualOrderByMoveNumberDesc(gameId, moveNumber)
+                        .orElse(null)
+                : null;
+
+        GameEngine engine;
+        int after = 0;
+        if (keyframe != null) {
+            GameSnapshot snapshot = GameRecord.decodeSnapshot(keyframe.getData());
+            engine = GameEngine.restore(snapshot);
+            engine.setPlayers(black, white);
+            engine.setCurrentPlayer(snapshot.getNext() == StoneColor.WHITE ? white : black);
+            after = keyframe.getMoveNumber();
+        } else {
+            engine = new GameEngine(BoardFactory.createBoard(game.getBoardSize()));
+            engine.setPlayers(black, white);
         }
 
+        forEachMove(game, after, moveNumber, (color, type, col, row) -> {
+            GamePlayer player = (color == StoneColor.BLACK) ? black : white;
+            // gry zapisane przed numerowaniem pasów ich nie mają, więc kolejność graczy bierzemy z zapisu ruchów
+            engine.setCurrentPlayer(player);
+            switch (type) {
+                case MOVE -> engine.applyMove(new Move(new Position(col, row), player));
+                case PASS -> engine.pass(player);
+                case RESIGN -> engine.resign(player);
+            }
+        });
         return engine;
     }
 
@@ -82,15 +174,13 @@ public class GameReplayService {
     System.out.println(engine.getBoard());
 
     
-    List<MoveEntity> moves = moveRepo.findByGameOrderByMoveNumber(game);
-
-    for (MoveEntity m : moves) {
-        GamePlayer player = (m.getPlayerColor() == StoneColor.BLACK) ? black : white;
+    forEachMove(game, (color, type, col, row) -> {
+        GamePlayer player = (color == StoneColor.BLACK) ? black : white;
         MoveResult result;
 
-        switch (m.getType()) {
+        switch (type) {
             case MOVE -> {
-                Move move = new Move(new Position(m.getCol(), m.getRow()), player);
+                Move move = new Move(new Position(col, row), player);
                 result = engine.applyMove(move);
                 if (!result.isOk()) {
                     System.out.println("WARNING: Move could not be applied: " + move);
@@ -109,14 +199,14 @@ public class GameReplayService {
                 }
             }
             default -> {
-                System.out.println("Unknown move type: " + m.getType());
-                continue;
+                System.out.println("Unknown move type: " + type);
+                return;
             }
         }
 
-        System.out.println("\nBoard after " + m.getType() + " by " + player.getName() + ":");
+        System.out.println("\nBoard after " + type + " by " + player.getName() + ":");
         System.out.println(engine.getBoard());
-    }
+    });
 
     ScoreResult score = engine.calculateScores();
     System.out.println("\nFinal score:");
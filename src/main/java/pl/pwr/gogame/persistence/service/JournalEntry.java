@@ -0,0 +1,59 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.time.LocalDateTime;
+
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
+
+/**
+ * Wpis dziennika zapisu gier ({@link MoveJournal}): ruch, migawka planszy
+ * albo zakończenie gry.
+ * Wpis nie odwołuje się do encji, więc można go bezpiecznie przekazać
+ * wątkowi zapisującemu i zapisać w pliku dziennika.
+ *
+ * @param kind rodzaj wpisu
+ * @param gameId identyfikator gry w bazie danych
+ * @param moveNumber numer ruchu (dla ruchu i migawki)
+ * @param color kolor gracza (dla ruchu)
+ * @param col kolumna (dla ruchu; {@code -1} dla pasa)
+ * @param row wiersz (dla ruchu; {@code -1} dla pasa)
+ * @param type rodzaj ruchu (dla ruchu)
+ * @param winner zwycięzca lub {@code DRAW} (dla zakończenia)
+ * @param finishedAt czas zakończenia (dla zakończenia)
+ * @param record ruchy gry zakodowane przez {@link GameRecord} lub {@code null}
+ *               (dla zakończenia w trybie zapisu packed) albo zakodowana
+ *               migawka planszy (dla migawki)
+ */
+public record JournalEntry(Kind kind, long gameId, int moveNumber, StoneColor color, int col, int row,
+                           MoveType type, String winner, LocalDateTime finishedAt, byte[] record) {
+
+    /**
+     * Rodzaj wpisu.
+     */
+    public enum Kind {
+        MOVE,
+        FINISH,
+        SNAPSHOT
+    }
+
+    /**
+     * Tworzy wpis ruchu.
+     */
+    public static JournalEntry move(long gameId, int moveNumber, StoneColor color, int col, int row, MoveType type) {
+        return new JournalEntry(Kind.MOVE, gameId, moveNumber, color, col, row, type, null, null, null);
+    }
+
+    /**
+     * Tworzy wpis migawki planszy po ruchu o podanym numerze.
+     */
+    public static JournalEntry snapshot(long gameId, int moveNumber, byte[] data) {
+        return new JournalEntry(Kind.SNAPSHOT, gameId, moveNumber, null, 0, 0, null, null, null, data);
+    }
+
+    /**
+     * Tworzy wpis zakończenia gry.
+     */
+    public static JournalEntry finish(long gameId, String winner, LocalDateTime finishedAt, byte[] record) {
+        return new JournalEntry(Kind.FINISH, gameId, 0, null, 0, 0, null, winner, finishedAt, record);
+    }
+}
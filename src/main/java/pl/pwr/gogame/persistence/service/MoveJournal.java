@@ -0,0 +1,391 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
+
+/**
+ * Klasa {@code MoveJournal} zapisuje ruchy i wyniki gier w tle (write-behind).
+ * <p>
+ * Wątek gry tylko dopisuje wpis do ograniczonej kolejki w pamięci, więc
+ * odpowiedź dla graczy nie czeka na bazę danych. Jeden wątek zapisujący
+ * pobiera wpisy partiami i przekazuje każdą partię do zapisu w jednej
+ * transakcji ({@link Sink}). Kolejka jest wspólna, a wątek zapisujący jeden,
+ * więc wpisy każdej gry trafiają do bazy w kolejności dopisania, a zakończenie
+ * gry - po wszystkich jej ruchach.
+ * </p>
+ * <p>
+ * Dopisywanie nigdy nie blokuje (wołają je m.in. wątki pętli zdarzeń). Wpis,
+ * który nie mieści się w pełnej kolejce, trafia do wątku przelewowego, który
+ * czeka na miejsce zamiast wątku gry; dopóki przelew nie jest pusty, kolejne
+ * wpisy idą za nim, więc kolejność zostaje zachowana. Ruchy nie giną, a każde
+ * przelanie jest liczone ({@link #getStallCount()}).
+ * </p>
+ * <p>
+ * Opcjonalnie każda partia jest przed zapisem do bazy dopisywana do pliku
+ * dziennika i utrwalana na dysku ({@code fsync}). Plik jest czyszczony, gdy
+ * wszystkie zapisane w nim wpisy są już w bazie; jeśli po awarii lub
+ * niedostępności bazy zostały w nim wpisy, są one ponownie zapisywane przy
+ * starcie ({@link #start()}), z pominięciem ruchów, które już są w bazie.
+ * </p>
+ */
+public final class MoveJournal implements Closeable {
+
+    /**
+     * Zapis partii wpisów w jednej transakcji.
+     */
+    public interface Sink {
+
+        /**
+         * @param batch wpisy w kolejności dopisania
+         * @param recovery {@code true} przy odtwarzaniu z pliku - ruchy
+         *                 obecne już w bazie należy pominąć
+         * @throws Exception jeśli zapis się nie powiódł (partia zostanie ponowiona)
+         */
+        void write(List<JournalEntry> batch, boolean recovery) throws Exception;
+    }
+
+    /** Znacznik końca pracy wątku zapisującego. */
+    private static final JournalEntry STOP = JournalEntry.finish(-1, null, null, null);
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final BlockingQueue<JournalEntry> queue;
+    private final int maxBatch;
+    private final Path file;
+    private final Sink sink;
+    private final Thread writer;
+    private final ExecutorService overflow;
+    private final AtomicInteger overflowing = new AtomicInteger();
+    private FileChannel channel;
+    private volatile boolean closing;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+
+    /**
+     * @param capacity największa liczba wpisów oczekujących na zapis
+     * @param maxBatch największa liczba wpisów w jednej transakcji
+     * @param file plik dziennika utrwalanego przed zapisem do bazy lub {@code null}
+     * @param sink zapis partii do bazy
+     * @throws IllegalArgumentException jeśli pojemność lub rozmiar partii nie są dodatnie
+     */
+    public MoveJournal(int capacity, int maxBatch, Path file, Sink sink) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Pojemność dziennika i rozmiar partii muszą być dodatnie");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.file = file;
+        this.sink = sink;
+        this.writer = new Thread(this::writeLoop, "move-journal");
+        this.writer.setDaemon(true);
+        this.overflow = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "move-journal-overflow");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Odtwarza wpisy pozostałe w pliku dziennika i uruchamia wątek zapisujący.
+     *
+     * @throws IOException jeśli nie można otworzyć pliku dziennika
+     */
+    public void start() throws IOException {
+        if (file != null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            recover();
+        }
+        writer.start();
+    }
+
+    /**
+     * Dopisuje wpis do zapisu w tle bez blokowania. Przy pełnej kolejce wpis
+     * czeka na miejsce w wątku przelewowym, a nie w wątku wywołującym.
+     *
+     * @param entry wpis
+     * @throws IllegalStateException jeśli dziennik jest zamykany
+     */
+    public void append(JournalEntry entry) {
+        if (closing) throw new IllegalStateException("Dziennik zapisu gier jest zamknięty");
+        // wpis nie może wyprzedzić wpisów czekających już w przelewie
+        if (overflowing.get() == 0 && queue.offer(entry)) return;
+        stalls.increment();
+        overflowing.incrementAndGet();
+        try {
+            overflow.execute(() -> {
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("Dziennik zapisu gier: przerwano oczekiwanie na miejsce, wpis gry "
+                            + entry.gameId() + " nie zostanie zapisany");
+                } finally {
+                    overflowing.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            overflowing.decrementAndGet();
+            throw new IllegalStateException("Dziennik zapisu gier jest zamknięty", e);
+        }
+    }
+
+    /**
+     * Zapisuje wszystkie oczekujące wpisy i zatrzymuje wątek zapisujący.
+     */
+    @Override
+    public void close() {
+        if (closing) return;
+        closing = true;
+        try {
+            // wpisy z przelewu trafiają do kolejki przed znacznikiem końca
+            overflow.shutdown();
+            overflow.awaitTermination(30, TimeUnit.SECONDS);
+            queue.put(STOP);
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            System.err.println("Dziennik zapisu gier: niezapisane wpisy przy zamknięciu: " + queue.size());
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // plik i tak jest zamykany
+            }
+        }
+    }
+
+    /**
+     * Zwraca liczbę wpisów oczekujących na zapis.
+     *
+     * @return głębokość kolejki
+     */
+    public int depth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Zwraca, ile wpisów nie zmieściło się w kolejce i czekało na miejsce
+     * w wątku przelewowym.
+     *
+     * @return liczba przelanych wpisów
+     */
+    public long getStallCount() {
+        return stalls.sum();
+    }
+
+    /**
+     * Zwraca liczbę wpisów czekających w wątku przelewowym.
+     *
+     * @return liczba wpisów poza kolejką
+     */
+    public int overflowDepth() {
+        return overflowing.get();
+    }
+
+    private void writeLoop() {
+        List<JournalEntry> batch = new ArrayList<>(maxBatch);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+            } catch (InterruptedException e) {
+                break;
+            }
+            int end = batch.indexOf(STOP);
+            if (end >= 0) {
+                // po znaczniku końca nie ma już wpisów (dopisywanie jest zablokowane)
+                batch.subList(end, batch.size()).clear();
+                stop = true;
+            }
+            if (!batch.isEmpty()) {
+                persist(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Utrwala partię w pliku (jeśli jest), a potem zapisuje ją w bazie,
+     * ponawiając zapis do skutku (lub do zamknięcia dziennika).
+     */
+    private void persist(List<JournalEntry> batch) {
+        if (channel != null) {
+            try {
+                appendToFile(batch);
+            } catch (IOException e) {
+                System.err.println("Dziennik zapisu gier: błąd zapisu pliku " + file + ": " + e.getMessage());
+            }
+        }
+        long delay = 100;
+        while (true) {
+            try {
+                sink.write(batch, false);
+                break;
+            } catch (Exception e) {
+                System.err.println("Dziennik zapisu gier: zapis " + batch.size()
+                        + " wpisów nie powiódł się, ponawiam: " + e.getMessage());
+                if (closing && delay >= MAX_RETRY_DELAY_MILLIS) {
+                    System.err.println("Dziennik zapisu gier: porzucam partię przy zamknięciu"
+                            + (channel != null ? " (zostaje w pliku " + file + ")" : ""));
+                    return;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(MAX_RETRY_DELAY_MILLIS, delay * 2);
+            }
+        }
+        written.add(batch.size());
+        batches.increment();
+        if (channel != null && (queue.isEmpty() || queue.peek() == STOP)) {
+            // wszystko, co jest w pliku, jest już w bazie (po znaczniku końca nic nie dochodzi)
+            try {
+                channel.truncate(0);
+            } catch (IOException e) {
+                System.err.println("Dziennik zapisu gier: nie można wyczyścić pliku " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void appendToFile(List<JournalEntry> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (JournalEntry entry : batch) {
+            writeEntry(out, entry);
+        }
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        channel.position(channel.size());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(false);
+    }
+
+    /**
+     * Zapisuje w bazie wpisy pozostałe w pliku po poprzednim uruchomieniu.
+     */
+    private void recover() throws IOException {
+        if (channel.size() == 0) return;
+        List<JournalEntry> entries = new ArrayList<>();
+        channel.position(0);
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(channel));
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            while (true) entries.add(readEntry(in));
+        } catch (EOFException e) {
+            // koniec pliku lub niedopisany ostatni wpis
+        }
+        System.out.println("Dziennik zapisu gier: odtwarzanie " + entries.size() + " wpisów z " + file);
+        for (int i = 0; i < entries.size(); i += maxBatch) {
+            List<JournalEntry> batch = entries.subList(i, Math.min(entries.size(), i + maxBatch));
+            try {
+                sink.write(batch, true);
+            } catch (Exception e) {
+                throw new IOException("Nie można odtworzyć dziennika zapisu gier", e);
+            }
+        }
+        channel.truncate(0);
+    }
+
+    private static void writeEntry(DataOutputStream out, JournalEntry entry) throws IOException {
+        out.writeByte(entry.kind().ordinal());
+        out.writeLong(entry.gameId());
+        switch (entry.kind()) {
+            case MOVE -> {
+                out.writeInt(entry.moveNumber());
+                out.writeByte(entry.color().ordinal());
+                out.writeInt(entry.col());
+                out.writeInt(entry.row());
+                out.writeByte(entry.type().ordinal());
+            }
+            case SNAPSHOT -> {
+                out.writeInt(entry.moveNumber());
+                writeBytes(out, entry.record());
+            }
+            case FINISH -> {
+                out.writeUTF(entry.winner());
+                out.writeLong(entry.finishedAt().toEpochSecond(ZoneOffset.UTC));
+                writeBytes(out, entry.record());
+            }
+        }
+    }
+
+    private static JournalEntry readEntry(DataInputStream in) throws IOException {
+        JournalEntry.Kind kind = JournalEntry.Kind.values()[in.readByte()];
+        long gameId = in.readLong();
+        switch (kind) {
+            case MOVE -> {
+                int moveNumber = in.readInt();
+                StoneColor color = StoneColor.values()[in.readByte()];
+                int col = in.readInt();
+                int row = in.readInt();
+                MoveType type = MoveType.values()[in.readByte()];
+                return JournalEntry.move(gameId, moveNumber, color, col, row, type);
+            }
+            case FINISH -> {
+                String winner = in.readUTF();
+                LocalDateTime finishedAt = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+                return JournalEntry.finish(gameId, winner, finishedAt, readBytes(in));
+            }
+            default -> {
+                int moveNumber = in.readInt();
+                return JournalEntry.snapshot(gameId, moveNumber, readBytes(in));
+            }
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes != null ? bytes.length : -1);
+        if (bytes != null) out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.transaction.Transactional;
+import pl.pwr.gogame.persistence.entity.BoardSnapshotEntity;
+import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.persistence.entity.MoveEntity;
+import pl.pwr.gogame.persistence.repository.BoardSnapshotRepository;
+import pl.pwr.gogame.persistence.repository.GameRepository;
+import pl.pwr.gogame.persistence.repository.MoveRepository;
+
+/**
+ * Klasa {@code MoveJournalWriter} zapisuje partię wpisów dziennika
+ * ({@link MoveJournal}) w jednej transakcji.
+ * <p>
+ * Jest osobnym komponentem, a nie metodą {@link GamePersistenceService},
+ * bo wywołanie metody {@code @Transactional} z tej samej klasy pomija
+ * transakcję Springa.
+ * </p>
+ */
+@Service
+public class MoveJournalWriter {
+
+    private final GameRepository gameRepository;
+    private final MoveRepository moveRepository;
+    private final BoardSnapshotRepository snapshotRepository;
+
+    public MoveJournalWriter(GameRepository gameRepository, MoveRepository moveRepository,
+                             BoardSnapshotRepository snapshotRepository) {
+        this.gameRepository = gameRepository;
+        this.moveRepository = moveRepository;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    /**
+     * Zapisuje wpisy w kolejności. Ruch odwołuje się do gry przez referencję
+     * (bez wczytywania gry i jej ruchów), zakończenie gry ustawia zwycięzcę
+     * i czas zakończenia (oraz zapis ruchów w trybie packed), a migawka
+     * planszy trafia do tabeli {@code board_snapshots}. Ruchy są
+     * utrwalane razem, więc przy włączonym {@code hibernate.jdbc.batch_size}
+     * partia to kilka wstawień JDBC.
+     *
+     * @param batch wpisy do zapisania
+     * @param recovery {@code true} przy odtwarzaniu z pliku - pomija ruchy już zapisane
+     */
+    @Transactional
+    public void write(List<JournalEntry> batch, boolean recovery) {
+        List<MoveEntity> moves = new ArrayList<>(batch.size());
+        List<BoardSnapshotEntity> snapshots = new ArrayList<>();
+        for (JournalEntry entry : batch) {
+            if (entry.kind() == JournalEntry.Kind.SNAPSHOT) {
+                if (recovery && snapshotRepository.existsByGame_IdAndMoveNumber(entry.gameId(), entry.moveNumber())) {
+                    continue;
+                }
+                snapshots.add(new BoardSnapshotEntity(gameRepository.getReferenceById(entry.gameId()),
+                        entry.moveNumber(), entry.record()));
+                continue;
+            }
+            if (entry.kind() == JournalEntry.Kind.FINISH) {
+                GameEntity game = gameRepository.findById(entry.gameId()).orElse(null);
+                if (game == null) continue;
+                game.setWinner(entry.winner());
+                game.setFinishedAt(entry.finishedAt());
+                if (entry.record() != null) game.setMoveRecord(entry.record());
+                continue;
+            }
+            if (recovery && moveRepository.existsByGame_IdAndMoveNumber(entry.gameId(), entry.moveNumber())) {
+                continue;
+            }
+            MoveEntity move = new MoveEntity();
+            move.setGame(gameRepository.getReferenceById(entry.gameId()));
+            move.setMoveNumber(entry.moveNumber());
+            move.setPlayerColor(entry.color());
+            move.setCol(entry.col());
+            move.setRow(entry.row());
+            move.setType(entry.type());
+            moves.add(move);
+        }
+        moveRepository.saveAll(moves);
+        if (!snapshots.isEmpty()) snapshotRepository.saveAll(snapshots);
+    }
+}
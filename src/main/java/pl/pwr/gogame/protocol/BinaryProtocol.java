@@ -0,0 +1,222 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Klasa {@code BinaryProtocol} definiuje zwarty protokół binarny,
+ * alternatywny dla komend tekstowych, wspólny dla serwera i klientów.
+ * <p>
+ * Klient wybiera go zaraz po połączeniu, wysyłając bajty
+ * {@link #PREFACE} i {@link #VERSION}; serwer odpowiada ramką {@link #HELLO}.
+ * Wcześniej serwer zdąży wysłać jedną linię tekstową
+ * ({@code REQUEST_GAME_MODE}), którą klient binarny pomija.
+ * </p>
+ * <p>
+ * Ramka ma postać {@code <długość: varint><kod: 1 bajt><dane>}, gdzie długość
+ * obejmuje kod i dane. Liczby (m.in. indeksy pól {@code row * size + col})
+ * zapisywane są jako varinty: 7 bitów na bajt, najstarszy bit oznacza
+ * kontynuację.
+ * </p>
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Pierwszy bajt wysyłany przez klienta binarnego (nie może rozpoczynać komendy tekstowej).
+     */
+    public static final byte PREFACE = 0x00;
+
+    /**
+     * Wersja protokołu binarnego.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Maksymalna długość ramki (kod i dane).
+     */
+    public static final int MAX_FRAME = 64 * 1024;
+
+    // --- kody ramek w obu kierunkach ---
+
+    /** Linia protokołu tekstowego w UTF-8 (komendy i komunikaty bez własnego kodu). */
+    public static final int LINE = 0x01;
+
+    // --- klient -> serwer ---
+
+    /** Ruch: {@code <indeks pola: varint>}. */
+    public static final int MOVE = 0x10;
+
+    /** Pas. */
+    public static final int PASS = 0x11;
+
+    /** Rezygnacja. */
+    public static final int RESIGN = 0x12;
+
+    /** Odpowiedź na {@link #PING}. */
+    public static final int PONG = 0x13;
+
+    // --- serwer -> klient ---
+
+    /** Potwierdzenie protokołu: {@code <wersja: 1 bajt>}. */
+    public static final int HELLO = 0x02;
+
+    /** Sprawdzenie, czy klient żyje; klient odpowiada ramką {@link #PONG}. */
+    public static final int PING = 0x03;
+
+    /**
+     * Wynik ruchu: {@code <pole><kolor><następny><zbite czarnego><zbite białego>
+     * <liczba zbitych><pola zbitych...><1 jeśli jest szacunek>[<czarny><biały>
+     * <liczba zmian><pole><właściciel>...]}; kolory jako bajty (0 puste, 1 czarny, 2 biały).
+     */
+    public static final int MOVE_FRAME = 0x20;
+
+    /**
+     * Migawka stanu gry: {@code <rozmiar><następny><zbite czarnego><zbite białego>
+     * <słowa czarnych><słowa białych>}; słowa jak w {@code BitBoard#toLongArray()}.
+     */
+    public static final int SNAPSHOT = 0x21;
+
+    private BinaryProtocol() {}
+
+    /**
+     * Zwraca liczbę bajtów varinta dla nieujemnej liczby.
+     *
+     * @param value wartość
+     * @return liczba bajtów
+     */
+    public static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Zapisuje nieujemną liczbę jako varint.
+     *
+     * @param buffer bufor docelowy
+     * @param value wartość
+     */
+    public static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Odczytuje varint. Protokół zapisuje wyłącznie liczby nieujemne, więc
+     * piąty bajt może nieść najwyżej 3 bity ({@code 0x07}); dłuższy varint
+     * lub wartość, która nie mieści się w nieujemnym {@code int}, jest błędem
+     * protokołu, a nie brakiem bajtów.
+     *
+     * @param buffer bufor źródłowy
+     * @return wartość (nieujemna) lub {@code -1}, jeśli w buforze brakuje
+     *         bajtów (pozycja bufora nie jest wtedy zmieniana)
+     * @throws IllegalArgumentException jeśli varint jest niepoprawny
+     */
+    public static int readVarint(ByteBuffer buffer) {
+        int start = buffer.position();
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(start);
+                return -1;
+            }
+            byte b = buffer.get();
+            if (shift == 28 && (b & 0xFF) > 0x07) {
+                throw new IllegalArgumentException("Niepoprawny varint");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Niepoprawny varint");
+    }
+
+    public static byte colorCode(StoneColor color) {
+        return color == StoneColor.BLACK ? (byte) 1 : color == StoneColor.WHITE ? (byte) 2 : (byte) 0;
+    }
+
+    public static StoneColor colorOf(int code) {
+        return code == 1 ? StoneColor.BLACK : code == 2 ? StoneColor.WHITE : StoneColor.EMPTY;
+    }
+
+    /**
+     * Rozpoczyna ramkę: zapisuje długość i kod.
+     *
+     * @param buffer bufor docelowy
+     * @param opcode kod ramki
+     * @param payloadLength długość danych
+     */
+    public static void writeHeader(ByteBuffer buffer, int opcode, int payloadLength) {
+        writeVarint(buffer, payloadLength + 1);
+        buffer.put((byte) opcode);
+    }
+
+    /**
+     * Koduje ramkę bez danych (np. {@link #PASS}).
+     *
+     * @param opcode kod ramki
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encodeEmpty(int opcode) {
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+        writeHeader(buffer, opcode, 0);
+        return buffer.flip();
+    }
+
+    /**
+     * Koduje ramkę {@link #MOVE}.
+     *
+     * @param buffer bufor docelowy
+     * @param point indeks pola
+     */
+    public static void writeMove(ByteBuffer buffer, int point) {
+        writeHeader(buffer, MOVE, varintSize(point));
+        writeVarint(buffer, point);
+    }
+
+    /**
+     * Koduje ramkę {@link #LINE}.
+     *
+     * @param line treść linii
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encodeLine(String line) {
+        byte[] text = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(text.length + 6);
+        writeHeader(buffer, LINE, text.length);
+        buffer.put(text);
+        return buffer.flip();
+    }
+
+    /**
+     * Koduje ramkę {@link #HELLO}.
+     *
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encodeHello() {
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+        writeHeader(buffer, HELLO, 1);
+        buffer.put(VERSION);
+        return buffer.flip();
+    }
+
+    /**
+     * Dekoduje dane ramki {@link #LINE}.
+     *
+     * @param payload dane ramki
+     * @return treść linii
+     */
+    public static String readLine(ByteBuffer payload) {
+        String line = new String(payload.array(), payload.arrayOffset() + payload.position(),
+                payload.remaining(), StandardCharsets.UTF_8);
+        payload.position(payload.limit());
+        return line;
+    }
+}
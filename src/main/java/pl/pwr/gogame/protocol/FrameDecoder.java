@@ -0,0 +1,64 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Klasa {@code FrameDecoder} dzieli strumień bajtów na ramki protokołu
+ * binarnego. Niepełne ramki są przechowywane w jednym buforze, używanym
+ * ponownie, a dane ramki przekazywane są jako widok tego bufora,
+ * więc dekodowanie nie alokuje pamięci.
+ */
+public class FrameDecoder {
+
+    private final ByteBuffer pending;
+
+    public FrameDecoder() {
+        // największa ramka i jej nagłówek długości
+        this.pending = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME + 5);
+    }
+
+    /**
+     * Dekoduje wszystkie kompletne ramki z bufora wejściowego.
+     *
+     * @param in odebrane bajty (od pozycji do limitu); zostaną skonsumowane
+     * @param listener odbiorca ramek
+     * @throws IllegalArgumentException jeśli długość ramki jest niepoprawna,
+     *         ramka jest pusta lub za długa
+     */
+    public void decode(ByteBuffer in, FrameListener listener) {
+        while (in.hasRemaining()) {
+            int chunk = Math.min(in.remaining(), pending.remaining());
+            if (chunk == 0) {
+                // nie powinno się zdarzyć: bufor mieści największą ramkę z nagłówkiem
+                throw new IllegalArgumentException("Przepełniony bufor ramek");
+            }
+            int limit = in.limit();
+            in.limit(in.position() + chunk);
+            pending.put(in);
+            in.limit(limit);
+
+            pending.flip();
+            while (pending.hasRemaining()) {
+                int start = pending.position();
+                int length = BinaryProtocol.readVarint(pending);
+                // -1 oznacza wyłącznie niepełny nagłówek; niepoprawny varint rzuca wyjątek
+                if (length < 0) break;
+                if (length == 0 || length > BinaryProtocol.MAX_FRAME) {
+                    throw new IllegalArgumentException("Niepoprawna długość ramki: " + length);
+                }
+                if (pending.remaining() < length) {
+                    pending.position(start);
+                    break;
+                }
+                int end = pending.position() + length;
+                int opcode = pending.get() & 0xFF;
+                int savedLimit = pending.limit();
+                pending.limit(end);
+                listener.onFrame(opcode, pending);
+                pending.limit(savedLimit);
+                pending.position(end);
+            }
+            pending.compact();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Odbiorca ramek zdekodowanych przez {@link FrameDecoder}.
+ */
+public interface FrameListener {
+
+    /**
+     * Wywoływane dla każdej kompletnej ramki. Bufor z danymi jest używany
+     * ponownie, więc dane trzeba odczytać przed powrotem z metody.
+     *
+     * @param opcode kod ramki
+     * @param payload dane ramki (od pozycji do limitu)
+     */
+    void onFrame(int opcode, ByteBuffer payload);
+}
@@ -0,0 +1,147 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Klasa {@code MoveFrame} to zdekodowana ramka {@link BinaryProtocol#MOVE_FRAME}.
+ * Obiekt jest używany ponownie dla kolejnych ramek: tablice rosną tylko
+ * wtedy, gdy ramka ma więcej pól niż poprzednie.
+ */
+public class MoveFrame {
+
+    private int point;
+    private StoneColor color;
+    private StoneColor next;
+    private int blackCaptures;
+    private int whiteCaptures;
+    private int[] captured = new int[8];
+    private int capturedCount;
+    private boolean hasOwnership;
+    private int blackEstimate;
+    private int whiteEstimate;
+    private int[] ownershipPoints = new int[32];
+    private byte[] ownershipOwners = new byte[32];
+    private int ownershipCount;
+
+    /**
+     * Koduje ramkę wyniku ruchu.
+     *
+     * @param point indeks pola ruchu
+     * @param color kolor ruchu
+     * @param next kolor gracza, który wykonuje następny ruch
+     * @param blackCaptures liczba kamieni zbitych przez czarnego
+     * @param whiteCaptures liczba kamieni zbitych przez białego
+     * @param captured indeksy zbitych kamieni
+     * @param capturedCount liczba zbitych kamieni
+     * @param ownership zmiany szacunku (indeks i kolor na przemian) lub {@code null}
+     * @param ownershipCount liczba zmian szacunku
+     * @param blackEstimate szacunek czarnego
+     * @param whiteEstimate szacunek białego
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encode(int point, StoneColor color, StoneColor next, int blackCaptures, int whiteCaptures,
+                                    int[] captured, int capturedCount, int[] ownership, int ownershipCount,
+                                    int blackEstimate, int whiteEstimate) {
+        int length = BinaryProtocol.varintSize(point) + 2
+                + BinaryProtocol.varintSize(blackCaptures) + BinaryProtocol.varintSize(whiteCaptures)
+                + BinaryProtocol.varintSize(capturedCount) + 1;
+        for (int i = 0; i < capturedCount; i++) length += BinaryProtocol.varintSize(captured[i]);
+        if (ownership != null) {
+            length += BinaryProtocol.varintSize(blackEstimate) + BinaryProtocol.varintSize(whiteEstimate)
+                    + BinaryProtocol.varintSize(ownershipCount);
+            for (int i = 0; i < ownershipCount; i++) length += BinaryProtocol.varintSize(ownership[2 * i]) + 1;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length + 5);
+        BinaryProtocol.writeHeader(buffer, BinaryProtocol.MOVE_FRAME, length);
+        BinaryProtocol.writeVarint(buffer, point);
+        buffer.put(BinaryProtocol.colorCode(color));
+        buffer.put(BinaryProtocol.colorCode(next));
+        BinaryProtocol.writeVarint(buffer, blackCaptures);
+        BinaryProtocol.writeVarint(buffer, whiteCaptures);
+        BinaryProtocol.writeVarint(buffer, capturedCount);
+        for (int i = 0; i < capturedCount; i++) BinaryProtocol.writeVarint(buffer, captured[i]);
+        if (ownership == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            BinaryProtocol.writeVarint(buffer, blackEstimate);
+            BinaryProtocol.writeVarint(buffer, whiteEstimate);
+            BinaryProtocol.writeVarint(buffer, ownershipCount);
+            for (int i = 0; i < ownershipCount; i++) {
+                BinaryProtocol.writeVarint(buffer, ownership[2 * i]);
+                buffer.put((byte) ownership[2 * i + 1]);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Dekoduje dane ramki do tego obiektu (bez alokacji, o ile tablice
+     * są wystarczająco duże).
+     *
+     * @param payload dane ramki
+     * @throws IllegalArgumentException jeśli ramka jest niekompletna
+     */
+    public void decode(ByteBuffer payload) {
+        point = read(payload);
+        color = BinaryProtocol.colorOf(payload.get());
+        next = BinaryProtocol.colorOf(payload.get());
+        blackCaptures = read(payload);
+        whiteCaptures = read(payload);
+        capturedCount = read(payload);
+        if (captured.length < capturedCount) captured = new int[Math.max(capturedCount, captured.length * 2)];
+        for (int i = 0; i < capturedCount; i++) captured[i] = read(payload);
+        hasOwnership = payload.get() != 0;
+        ownershipCount = 0;
+        if (hasOwnership) {
+            blackEstimate = read(payload);
+            whiteEstimate = read(payload);
+            ownershipCount = read(payload);
+            if (ownershipPoints.length < ownershipCount) {
+                int grown = Math.max(ownershipCount, ownershipPoints.length * 2);
+                ownershipPoints = Arrays.copyOf(ownershipPoints, grown);
+                ownershipOwners = Arrays.copyOf(ownershipOwners, grown);
+            }
+            for (int i = 0; i < ownershipCount; i++) {
+                ownershipPoints[i] = read(payload);
+                ownershipOwners[i] = payload.get();
+            }
+        }
+    }
+
+    private static int read(ByteBuffer payload) {
+        int value = BinaryProtocol.readVarint(payload);
+        if (value < 0) throw new IllegalArgumentException("Niekompletna ramka ruchu");
+        return value;
+    }
+
+    public int getPoint() { return point; }
+
+    public StoneColor getColor() { return color; }
+
+    public StoneColor getNext() { return next; }
+
+    public int getBlackCaptures() { return blackCaptures; }
+
+    public int getWhiteCaptures() { return whiteCaptures; }
+
+    public int getCapturedCount() { return capturedCount; }
+
+    public int getCaptured(int i) { return captured[i]; }
+
+    public boolean hasOwnership() { return hasOwnership; }
+
+    public int getBlackEstimate() { return blackEstimate; }
+
+    public int getWhiteEstimate() { return whiteEstimate; }
+
+    public int getOwnershipCount() { return ownershipCount; }
+
+    public int getOwnershipPoint(int i) { return ownershipPoints[i]; }
+
+    public StoneColor getOwnershipOwner(int i) { return BinaryProtocol.colorOf(ownershipOwners[i]); }
+}
@@ -0,0 +1,70 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+
+import pl.pwr.gogame.model.BitBoard;
+import pl.pwr.gogame.model.GameSnapshot;
+
+/**
+ * Klasa {@code SnapshotFrame} koduje i dekoduje ramkę {@link BinaryProtocol#SNAPSHOT}.
+ * Kamienie każdego koloru zapisywane są jako słowa {@link BitBoard}
+ * (plansza 19x19 to 2 x 6 słów), niezależnie od liczby kamieni na planszy.
+ */
+public final class SnapshotFrame {
+
+    private SnapshotFrame() {}
+
+    /**
+     * Koduje migawkę stanu gry.
+     *
+     * @param snapshot migawka
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encode(GameSnapshot snapshot) {
+        long[] black = snapshot.getBlack().toLongArray();
+        long[] white = snapshot.getWhite().toLongArray();
+        int length = BinaryProtocol.varintSize(snapshot.getSize()) + 1
+                + BinaryProtocol.varintSize(snapshot.getBlackCaptures())
+                + BinaryProtocol.varintSize(snapshot.getWhiteCaptures())
+                + 8 * (black.length + white.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(length + 5);
+        BinaryProtocol.writeHeader(buffer, BinaryProtocol.SNAPSHOT, length);
+        BinaryProtocol.writeVarint(buffer, snapshot.getSize());
+        buffer.put(BinaryProtocol.colorCode(snapshot.getNext()));
+        BinaryProtocol.writeVarint(buffer, snapshot.getBlackCaptures());
+        BinaryProtocol.writeVarint(buffer, snapshot.getWhiteCaptures());
+        for (long word : black) buffer.putLong(word);
+        for (long word : white) buffer.putLong(word);
+        return buffer.flip();
+    }
+
+    /**
+     * Dekoduje dane ramki migawki.
+     *
+     * @param payload dane ramki
+     * @return migawka stanu gry
+     * @throws IllegalArgumentException jeśli ramka jest niekompletna
+     */
+    public static GameSnapshot decode(ByteBuffer payload) {
+        int size = read(payload);
+        if (size < 1 || size > 25) throw new IllegalArgumentException("Niepoprawny rozmiar planszy: " + size);
+        int next = payload.get();
+        int blackCaptures = read(payload);
+        int whiteCaptures = read(payload);
+        int words = (size * size + 63) >>> 6;
+        if (payload.remaining() < 16 * words) throw new IllegalArgumentException("Niekompletna ramka migawki");
+        long[] black = new long[words];
+        long[] white = new long[words];
+        for (int i = 0; i < words; i++) black[i] = payload.getLong();
+        for (int i = 0; i < words; i++) white[i] = payload.getLong();
+        return new GameSnapshot(BitBoard.fromLongArray(size, black), BitBoard.fromLongArray(size, white),
+                BinaryProtocol.colorOf(next), blackCaptures, whiteCaptures);
+    }
+
+    private static int read(ByteBuffer payload) {
+        int value = BinaryProtocol.readVarint(payload);
+        if (value < 0) throw new IllegalArgumentException("Niekompletna ramka migawki");
+        return value;
+    }
+}
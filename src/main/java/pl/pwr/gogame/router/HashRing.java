@@ -0,0 +1,157 @@
+package pl.pwr.gogame.router;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Klasa {@code HashRing} to pierścień spójnego haszowania, który przypisuje
+ * identyfikatory gier do węzłów klastra.
+ * <p>
+ * Każdy węzeł zajmuje na pierścieniu wiele punktów (węzłów wirtualnych),
+ * a gra trafia do właściciela pierwszego punktu za skrótem swojego
+ * identyfikatora. Dodanie węzła przenosi na niego tylko około {@code 1/n}
+ * nowych gier, a pozostałe zachowują dotychczasowy przydział.
+ * </p>
+ * <p>
+ * Pierścień jest niezmienny: zmiana węzłów tworzy nowy obiekt, więc można
+ * go czytać z wielu wątków bez blokad.
+ * </p>
+ */
+public final class HashRing {
+
+    /**
+     * Domyślna liczba punktów pierścienia na węzeł.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final List<Node> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final Node[] owners;
+
+    /**
+     * @param nodes węzły klastra
+     * @param virtualNodes liczba punktów pierścienia na węzeł
+     * @throws IllegalArgumentException jeśli liczba punktów nie jest dodatnia
+     */
+    public HashRing(Collection<Node> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) throw new IllegalArgumentException("Liczba węzłów wirtualnych musi być dodatnia");
+        Set<Node> unique = new LinkedHashSet<>(nodes);
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(unique));
+        this.virtualNodes = virtualNodes;
+
+        int count = unique.size() * virtualNodes;
+        long[][] entries = new long[count][];
+        Node[] byIndex = unique.toArray(new Node[0]);
+        int k = 0;
+        for (int n = 0; n < byIndex.length; n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[k++] = new long[] {hash(byIndex[n] + "#" + v), n};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[count];
+        this.owners = new Node[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = byIndex[(int) entries[i][1]];
+        }
+    }
+
+    /**
+     * Zwraca pierścień z dodanym węzłem.
+     *
+     * @param node nowy węzeł
+     * @return nowy pierścień
+     */
+    public HashRing withNode(Node node) {
+        List<Node> next = new ArrayList<>(nodes);
+        next.add(node);
+        return new HashRing(next, virtualNodes);
+    }
+
+    /**
+     * Zwraca pierścień bez podanego węzła.
+     *
+     * @param node usuwany węzeł
+     * @return nowy pierścień
+     */
+    public HashRing withoutNode(Node node) {
+        List<Node> next = new ArrayList<>(nodes);
+        next.remove(node);
+        return new HashRing(next, virtualNodes);
+    }
+
+    /**
+     * Zwraca węzeł, do którego należy gra.
+     *
+     * @param gameId identyfikator gry
+     * @return węzeł lub {@code null}, jeśli pierścień jest pusty
+     */
+    public Node nodeFor(long gameId) {
+        if (points.length == 0) return null;
+        int i = Arrays.binarySearch(points, hash(gameId));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * Zwraca część pierścienia (a więc i nowych gier) przypadającą na węzeł.
+     *
+     * @param node węzeł
+     * @return udział od {@code 0} do {@code 1}
+     */
+    public double share(Node node) {
+        if (!nodes.contains(node)) return 0;
+        if (nodes.size() == 1) return 1;
+        double owned = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (!owners[i].equals(node)) continue;
+            // punkt i obejmuje skróty od poprzedniego punktu (wyłącznie) do siebie;
+            // różnica liczona modulo 2^64 obsługuje też przejście przez zero
+            long arc = points[i] - points[i == 0 ? points.length - 1 : i - 1];
+            owned += (arc >>> 1) / 0x1p63;
+        }
+        return owned;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * Miesza bity identyfikatora (funkcja końcowa MurmurHash3), by kolejne
+     * identyfikatory rozkładały się równomiernie na pierścieniu.
+     */
+    static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Skrót tekstu: FNV-1a, a następnie mieszanie bitów.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return hash(h);
+    }
+}
@@ -0,0 +1,38 @@
+package pl.pwr.gogame.router;
+
+/**
+ * Adres serwera gry (węzła klastra), do którego router kieruje połączenia.
+ *
+ * @param host adres serwera
+ * @param port port serwera
+ */
+public record Node(String host, int port) {
+
+    /**
+     * Odczytuje adres w postaci {@code host:port}.
+     *
+     * @param address adres węzła
+     * @return węzeł
+     * @throws IllegalArgumentException jeśli adres nie ma postaci {@code host:port}
+     */
+    public static Node parse(String address) {
+        String value = address.trim();
+        int colon = value.lastIndexOf(':');
+        if (colon <= 0 || colon == value.length() - 1) {
+            throw new IllegalArgumentException("Adres węzła musi mieć postać host:port: " + address);
+        }
+        int port;
+        try {
+            port = Integer.parseInt(value.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Niepoprawny port węzła: " + address);
+        }
+        if (port <= 0 || port > 65535) throw new IllegalArgumentException("Niepoprawny port węzła: " + address);
+        return new Node(value.substring(0, colon), port);
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,311 @@
+package pl.pwr.gogame.router;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import pl.pwr.gogame.model.BoardFactory;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.server.Command;
+import pl.pwr.gogame.server.CommandParser;
+import pl.pwr.gogame.server.GameSession;
+
+/**
+ * Klasa {@code RoutedConnection} obsługuje jedno połączenie klienta routera.
+ * <p>
+ * Do chwili wyboru gry router sam rozmawia z klientem tak jak lobby serwera
+ * ({@code REQUEST_GAME_MODE}, {@code REQUEST_BOARD_SIZE}, {@code LIST_GAMES}),
+ * zapamiętując komendy zmieniające ustawienia klienta ({@code SET_PROTOCOL},
+ * {@code SET_RATING}). Po wyborze gry łączy się z węzłem, powtarza mu te komendy
+ * i wysyła {@code ROUTE <stół> <rozmiar> <tryb>} (albo {@code RESUME}/{@code SPECTATE}),
+ * poprzedzone {@code ROUTER_AUTH <sekret>}, bez którego węzeł nie przyjmie {@code ROUTE},
+ * a następnie przekazuje bajty w obie strony dwoma wątkami. Pierwszą linię węzła
+ * ({@code REQUEST_GAME_MODE}) pomija, bo klient dostał ją już od routera.
+ * </p>
+ */
+final class RoutedConnection implements Runnable {
+
+    private static final byte[] GREETING = "REQUEST_GAME_MODE\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Czas na wybór gry, po którym milczący klient jest rozłączany.
+     */
+    private static final int PREAMBLE_TIMEOUT_MILLIS = 120_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+
+    /**
+     * Bufor wejścia przed wyborem gry (dłuższe linie zamykają połączenie).
+     */
+    private static final int PREAMBLE_BUFFER = 16 * 1024;
+
+    private final Router router;
+    private final Socket client;
+    private final ThreadFactory threads;
+
+    private final ByteBuffer input = ByteBuffer.allocate(PREAMBLE_BUFFER);
+    private final Command command = new Command();
+    private final List<String> replay = new ArrayList<>();
+    private boolean sniffed;
+    private boolean binary;
+    private byte version;
+    private String gameMode;
+
+    RoutedConnection(Router router, Socket client, ThreadFactory threads) {
+        this.router = router;
+        this.client = client;
+        this.threads = threads;
+        input.flip();
+    }
+
+    @Override
+    public void run() {
+        Router.Placement placement = null;
+        Socket backend = null;
+        try {
+            client.setTcpNoDelay(true);
+            client.setSoTimeout(PREAMBLE_TIMEOUT_MILLIS);
+            InputStream in = client.getInputStream();
+            OutputStream out = client.getOutputStream();
+            out.write(GREETING);
+            out.flush();
+
+            String route = null;
+            while (route == null) {
+                String line = nextLine(in);
+                if (line == null) return;
+                CommandParser.parse(line, command);
+                switch (command.getType()) {
+                    case SET_PROTOCOL, SET_RATING -> replay.add(line);
+                    case SET_GAME_MODE -> {
+                        if (gameMode == null && command.hasWord()) {
+                            gameMode = command.getWord();
+                            reply(out, "REQUEST_BOARD_SIZE");
+                        }
+                    }
+                    case SET_BOARD_SIZE -> {
+                        if (gameMode != null && validSize(command)) {
+                            int size = command.getInt(0);
+                            placement = router.newTable(gameMode, size);
+                            route = "ROUTE " + (placement != null ? placement.id : 0) + " " + size + " " + gameMode;
+                        }
+                    }
+                    case RESUME -> {
+                        long id = command.hasWord() ? GameSession.gameIdOf(command.getWord()) : -1;
+                        if (id < 0) {
+                            reply(out, "RESUME_FAILED");
+                        } else {
+                            placement = router.find(id);
+                            route = line;
+                        }
+                    }
+                    case SPECTATE -> {
+                        if (command.isValid()) {
+                            placement = router.find(command.getLong(0));
+                            route = line;
+                        } else {
+                            reply(out, "TEXT BŁĄD: nie ma takiej gry");
+                        }
+                    }
+                    case LIST_GAMES -> reply(out, router.listGames());
+                    default -> { } // PONG i komendy gry przed jej wybraniem
+                }
+            }
+            if (placement == null) {
+                reply(out, "TEXT BŁĄD: brak dostępnych serwerów gry");
+                return;
+            }
+
+            backend = new Socket();
+            try {
+                backend.connect(new InetSocketAddress(placement.node.host(), placement.node.port()),
+                        CONNECT_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                System.err.println("Węzeł " + placement.node + " jest niedostępny: " + e.getMessage());
+                reply(out, "TEXT BŁĄD: serwer gry jest niedostępny");
+                return;
+            }
+            backend.setTcpNoDelay(true);
+            OutputStream backendOut = backend.getOutputStream();
+            backendOut.write(handshake(route));
+            backendOut.flush();
+
+            client.setSoTimeout(0);
+            Socket node = backend;
+            threads.newThread(() -> toClient(node, out)).start();
+            copy(in, backendOut);
+        } catch (IOException e) {
+            // klient lub węzeł zamknął połączenie
+        } finally {
+            close(client);
+            close(backend);
+            if (placement != null) router.release(placement);
+        }
+    }
+
+    /**
+     * Buduje początek strumienia do węzła: wybór protokołu binarnego,
+     * zapamiętane komendy, komendę wyboru gry i resztę odebranych już bajtów.
+     */
+    private byte[] handshake(String route) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        if (binary) {
+            head.write(BinaryProtocol.PREFACE);
+            head.write(version);
+        }
+        String secret = router.getSecret();
+        // tylko przed ROUTE: RESUME i SPECTATE nie potrzebują zaufania węzła
+        if (secret != null && route.startsWith("ROUTE ")) head.write(encode("ROUTER_AUTH " + secret));
+        for (String line : replay) head.write(encode(line));
+        head.write(encode(route));
+        head.write(input.array(), input.position(), input.remaining());
+        return head.toByteArray();
+    }
+
+    /**
+     * Przekazuje dane od węzła do klienta, pomijając pierwszą linię węzła.
+     */
+    private void toClient(Socket node, OutputStream out) {
+        try {
+            InputStream in = node.getInputStream();
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') { }
+            copy(in, out);
+        } catch (IOException e) {
+            // połączenie zamknięte
+        } finally {
+            close(node);
+            close(client);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            out.write(chunk, 0, read);
+            out.flush();
+        }
+    }
+
+    private static boolean validSize(Command command) {
+        if (!command.isValid()) return false;
+        try {
+            BoardFactory.createBoard(command.getInt(0));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Zwraca kolejną komendę klienta (linię tekstową lub treść ramki {@code LINE}).
+     *
+     * @return linia lub {@code null}, jeśli klient zamknął połączenie
+     */
+    private String nextLine(InputStream in) throws IOException {
+        while (true) {
+            if (!sniffed && input.hasRemaining()) {
+                // klient binarny zaczyna od bajtów PREFACE i VERSION
+                if (input.get(input.position()) != BinaryProtocol.PREFACE) {
+                    sniffed = true;
+                } else if (input.remaining() >= 2) {
+                    input.get();
+                    version = input.get();
+                    binary = true;
+                    sniffed = true;
+                }
+            }
+            if (sniffed) {
+                String line = binary ? frameLine() : textLine();
+                if (line != null) return line;
+            }
+            if (!fill(in)) return null;
+        }
+    }
+
+    private String textLine() {
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (input.get(i) != '\n') continue;
+            int end = i > input.position() && input.get(i - 1) == '\r' ? i - 1 : i;
+            String line = new String(input.array(), input.position(), end - input.position(), StandardCharsets.UTF_8);
+            input.position(i + 1);
+            return line;
+        }
+        return null;
+    }
+
+    private String frameLine() throws IOException {
+        while (input.hasRemaining()) {
+            int start = input.position();
+            int length;
+            try {
+                length = BinaryProtocol.readVarint(input);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Niepoprawna ramka od klienta", e);
+            }
+            if (length < 0) return null;
+            if (length == 0 || length > BinaryProtocol.MAX_FRAME) throw new IOException("Niepoprawna długość ramki");
+            if (input.remaining() < length) {
+                input.position(start);
+                return null;
+            }
+            int opcode = input.get() & 0xFF;
+            if (opcode == BinaryProtocol.LINE) {
+                String line = new String(input.array(), input.position(), length - 1, StandardCharsets.UTF_8);
+                input.position(input.position() + length - 1);
+                return line;
+            }
+            // ruchy i PONG przed wybraniem gry pomijamy
+            input.position(input.position() + length - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Doczytuje dane od klienta do bufora.
+     *
+     * @return {@code false}, jeśli klient zamknął połączenie
+     */
+    private boolean fill(InputStream in) throws IOException {
+        input.compact();
+        try {
+            if (!input.hasRemaining()) throw new IOException("Zbyt długa komenda przed wyborem gry");
+            int read = in.read(input.array(), input.position(), input.remaining());
+            if (read < 0) return false;
+            input.position(input.position() + read);
+            return true;
+        } finally {
+            input.flip();
+        }
+    }
+
+    private byte[] encode(String line) {
+        if (!binary) return (line + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = BinaryProtocol.encodeLine(line);
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return bytes;
+    }
+
+    private void reply(OutputStream out, String line) throws IOException {
+        out.write(encode(line));
+        out.flush();
+    }
+
+    private static void close(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // i tak zamykamy
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package pl.pwr.gogame.router;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.pwr.gogame.server.HandlerThreads;
+
+/**
+ * Klasa {@code Router} to lekki router przed kilkoma serwerami gry
+ * (węzłami), z których każdy trzyma swoje gry w pamięci.
+ * <p>
+ * Router przeprowadza z klientem początek rozmowy z lobby (tryb gry
+ * i rozmiar planszy), przydziela nowej grze numer stołu unikalny w klastrze
+ * i wybiera węzeł przez spójne haszowanie tego numeru ({@link HashRing}).
+ * Dwaj kolejni gracze wybierający grę z graczem na tej samej planszy
+ * dostają ten sam stół, więc trafiają do tego samego węzła, który tworzy
+ * grę o identyfikatorze równym numerowi stołu. Od tej chwili router tylko
+ * przekazuje bajty w obie strony (w protokole tekstowym i binarnym).
+ * </p>
+ * <p>
+ * {@code RESUME <token>} i {@code SPECTATE <id>} kierowane są do węzła,
+ * na którym toczy się gra (token zawiera identyfikator gry), a
+ * {@code LIST_GAMES} zbiera gry ze wszystkich węzłów. Dodanie węzła
+ * ({@link #addNode(Node)}) zmienia przydział tylko nowych gier; trwające gry
+ * pamiętają swój węzeł, dopóki mają połączenia (i jeszcze przez czas
+ * na powrót rozłączonego gracza).
+ * </p>
+ */
+public final class Router implements Closeable {
+
+    /**
+     * Stół: gra przydzielona do węzła wraz z liczbą połączeń, które jej używają.
+     */
+    static final class Placement {
+        final long id;
+        final Node node;
+        final AtomicInteger connections = new AtomicInteger();
+        /** Kubełek oczekującego stołu gry dwóch graczy ({@code null} dla pozostałych). */
+        final String bucket;
+
+        Placement(long id, Node node, String bucket) {
+            this.id = id;
+            this.node = node;
+            this.bucket = bucket;
+        }
+    }
+
+    private final int port;
+    private final ThreadFactory threads;
+    private final long graceMillis;
+    private volatile String secret;
+    private volatile HashRing ring;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Kolejne numery stołów. Zaczynają się od bieżącego czasu w milisekundach,
+     * więc po ponownym uruchomieniu routera nie powtarzają numerów gier,
+     * które mogą jeszcze trwać na węzłach.
+     */
+    private final AtomicLong nextTable = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Przydział stołów do węzłów (numer stołu -> stół).
+     */
+    private final Map<Long, Placement> placements = new ConcurrentHashMap<>();
+
+    /**
+     * Stoły gier dwóch graczy czekające na drugiego gracza, według trybu
+     * i rozmiaru planszy (chronione własnym monitorem).
+     */
+    private final Map<String, Placement> waitingTables = new HashMap<>();
+
+    private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "router-timers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param port port, na którym router przyjmuje klientów
+     * @param ring początkowy pierścień węzłów
+     * @param graceMillis czas, przez jaki stół bez połączeń pamięta swój węzeł
+     *                    (powinien być nie krótszy niż czas na powrót gracza na węzłach)
+     * @param threads fabryka wątków obsługujących połączenia (dwa na klienta)
+     */
+    public Router(int port, HashRing ring, long graceMillis, ThreadFactory threads) {
+        if (graceMillis < 0) throw new IllegalArgumentException("Czas pamiętania stołu nie może być ujemny");
+        this.port = port;
+        this.ring = ring;
+        this.graceMillis = graceMillis;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(option(args, "port", "58900"));
+        List<Node> nodes = new ArrayList<>();
+        for (String address : option(args, "nodes", "localhost:58901").split(",")) {
+            if (!address.isBlank()) nodes.add(Node.parse(address));
+        }
+        int virtualNodes = Integer.parseInt(option(args, "virtualNodes", String.valueOf(HashRing.DEFAULT_VIRTUAL_NODES)));
+        long grace = Long.parseLong(option(args, "graceSeconds", "120"));
+        ThreadFactory threads = HandlerThreads.create(option(args, "threads", "platform"), "router-");
+
+        Router router = new Router(port, new HashRing(nodes, virtualNodes), grace * 1000L, threads);
+        router.setSecret(option(args, "secret", System.getenv().getOrDefault("GOGAME_ROUTER_SECRET", "")));
+        Thread console = new Thread(router::readConsole, "router-console");
+        console.setDaemon(true);
+        console.start();
+        router.run();
+    }
+
+    /**
+     * Zwraca wartość opcji {@code --nazwa=wartość} lub wartość domyślną.
+     */
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Przyjmuje połączenia klientów w pętli; każde obsługuje {@link RoutedConnection}.
+     *
+     * @throws IOException jeśli nie można otworzyć portu
+     */
+    public void run() throws IOException {
+        try (ServerSocket socket = new ServerSocket(port)) {
+            serverSocket = socket;
+            System.out.println("Router gry Go działa na porcie " + port + ", węzły: " + ring.getNodes());
+            printShares();
+            while (!socket.isClosed()) {
+                Socket client;
+                try {
+                    client = socket.accept();
+                } catch (IOException e) {
+                    if (socket.isClosed()) break;
+                    throw e;
+                }
+                threads.newThread(new RoutedConnection(this, client, threads)).start();
+            }
+        }
+    }
+
+    /**
+     * Odczytuje polecenia administracyjne ze standardowego wejścia:
+     * {@code ADD host:port}, {@code REMOVE host:port}, {@code NODES}.
+     */
+    private void readConsole() {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                try {
+                    switch (words[0].toUpperCase()) {
+                        case "ADD" -> addNode(Node.parse(words[1]));
+                        case "REMOVE" -> removeNode(Node.parse(words[1]));
+                        case "NODES" -> printShares();
+                        case "" -> { }
+                        default -> System.out.println("Polecenia: ADD host:port, REMOVE host:port, NODES");
+                    }
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    System.out.println("Niepoprawne polecenie: " + line);
+                }
+            }
+        } catch (IOException e) {
+            // brak konsoli - router działa dalej
+        }
+    }
+
+    /**
+     * Dodaje węzeł. Przejmuje on część nowych gier; trwające gry zostają na swoich węzłach.
+     *
+     * @param node nowy węzeł
+     */
+    public synchronized void addNode(Node node) {
+        if (ring.getNodes().contains(node)) return;
+        ring = ring.withNode(node);
+        System.out.println("Dodano węzeł " + node);
+        printShares();
+    }
+
+    /**
+     * Usuwa węzeł z przydziału nowych gier; trwające na nim gry nadal są obsługiwane.
+     *
+     * @param node usuwany węzeł
+     */
+    public synchronized void removeNode(Node node) {
+        ring = ring.withoutNode(node);
+        System.out.println("Usunięto węzeł " + node);
+        printShares();
+    }
+
+    /**
+     * Ustawia sekret, którym router uwierzytelnia się na węzłach
+     * ({@code ROUTER_AUTH}); musi być równy {@code gogame.router.secret} węzłów.
+     *
+     * @param secret sekret współdzielony z węzłami; pusty - bez uwierzytelnienia
+     */
+    public void setSecret(String secret) {
+        this.secret = secret == null || secret.isBlank() ? null : secret.trim();
+    }
+
+    String getSecret() {
+        return secret;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Zwraca liczbę stołów, które router pamięta.
+     *
+     * @return liczba stołów
+     */
+    public int placementCount() {
+        return placements.size();
+    }
+
+    private void printShares() {
+        HashRing current = ring;
+        for (Node node : current.getNodes()) {
+            System.out.printf("  %s: %.1f%% nowych gier%n", node, 100 * current.share(node));
+        }
+    }
+
+    /**
+     * Przydziela stół nowej gry. Gra z botem dostaje własny stół, a gracz
+     * wybierający grę z graczem dosiada się do czekającego stołu o tym samym
+     * trybie i rozmiarze planszy albo zakłada nowy.
+     *
+     * @param gameMode tryb gry
+     * @param boardSize rozmiar planszy
+     * @return stół (z zarejestrowanym połączeniem) lub {@code null}, jeśli nie ma węzłów
+     */
+    Placement newTable(String gameMode, int boardSize) {
+        if ("BOT".equalsIgnoreCase(gameMode)) {
+            return place(nextTable.getAndIncrement(), null);
+        }
+        String bucket = gameMode.toUpperCase() + ":" + boardSize;
+        synchronized (waitingTables) {
+            Placement waiting = waitingTables.remove(bucket);
+            if (waiting != null) {
+                if (waiting.connections.incrementAndGet() > 1) return waiting;
+                // pierwszy gracz właśnie się rozłączył - stół zwalnia release()
+                waiting.connections.decrementAndGet();
+            }
+            Placement table = place(nextTable.getAndIncrement(), bucket);
+            if (table != null) waitingTables.put(bucket, table);
+            return table;
+        }
+    }
+
+    private Placement place(long id, String bucket) {
+        Node node = ring.nodeFor(id);
+        if (node == null) return null;
+        Placement placement = new Placement(id, node, bucket);
+        placement.connections.incrementAndGet();
+        placements.put(id, placement);
+        return placement;
+    }
+
+    /**
+     * Odnajduje węzeł trwającej gry (dla {@code RESUME} i {@code SPECTATE}).
+     * Gra nieznana routerowi (np. po jego ponownym uruchomieniu) jest
+     * szukana według bieżącego pierścienia.
+     *
+     * @param gameId identyfikator gry
+     * @return stół (z zarejestrowanym połączeniem) lub {@code null}, jeśli nie ma węzłów
+     */
+    Placement find(long gameId) {
+        while (true) {
+            Placement placement = placements.get(gameId);
+            if (placement == null) {
+                Node node = ring.nodeFor(gameId);
+                if (node == null) return null;
+                placement = new Placement(gameId, node, null);
+                Placement existing = placements.putIfAbsent(gameId, placement);
+                if (existing != null) placement = existing;
+            }
+            int before = placement.connections.getAndIncrement();
+            // stół usunięty w międzyczasie - spróbuj ponownie
+            if (before >= 0 && placements.get(gameId) == placement) return placement;
+            placement.connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Zwalnia połączenie stołu. Stół bez połączeń jest zapominany po czasie
+     * na powrót graczy; czekający stół gry dwóch graczy - od razu.
+     *
+     * @param placement stół
+     */
+    void release(Placement placement) {
+        if (placement.connections.decrementAndGet() > 0) return;
+        if (placement.bucket != null) {
+            synchronized (waitingTables) {
+                waitingTables.remove(placement.bucket, placement);
+            }
+        }
+        timers.schedule(() -> forget(placement), graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void forget(Placement placement) {
+        // stół zapominamy tylko, jeśli nikt do niego nie wrócił
+        if (placement.connections.compareAndSet(0, Integer.MIN_VALUE)) {
+            placements.remove(placement.id, placement);
+        }
+    }
+
+    /**
+     * Zbiera listę gier ze wszystkich węzłów ({@code LIST_GAMES}).
+     *
+     * @return linia {@code GAMES id:rozmiar:obserwatorzy ...}
+     */
+    String listGames() {
+        StringBuilder games = new StringBuilder("GAMES");
+        for (Node node : ring.getNodes()) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(node.host(), node.port()), 2000);
+                socket.setSoTimeout(2000);
+                OutputStream out = socket.getOutputStream();
+                out.write("LIST_GAMES\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("GAMES")) {
+                        games.append(line, "GAMES".length(), line.length());
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Węzeł " + node + " nie odpowiada na LIST_GAMES: " + e.getMessage());
+            }
+        }
+        return games.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        timers.shutdownNow();
+        ServerSocket socket = serverSocket;
+        if (socket != null) socket.close();
+    }
+}
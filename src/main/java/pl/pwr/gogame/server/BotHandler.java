@@ -1,20 +1,24 @@
 package pl.pwr.gogame.server;
 
-import java.net.Socket;
+import java.util.BitSet;
 import java.util.Random;
 
 import pl.pwr.gogame.model.Board; // Import the missing ScoreResult class
-import pl.pwr.gogame.model.GameEngine;
 import pl.pwr.gogame.model.GamePlayer;
 import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.MoveResult;
 import pl.pwr.gogame.model.Position;
 import pl.pwr.gogame.model.ScoreResult;
-import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
 import pl.pwr.gogame.persistence.service.GamePersistenceService;
+import pl.pwr.gogame.service.BoardService;
+import pl.pwr.gogame.service.TacticalReader;
 
-public class BotHandler extends ClientHandler {
+public class BotHandler extends ClientHandler implements Runnable {
     private final Random random = new Random();
+    private final BoardService boardService = new BoardService();
+    private final TacticalReader tacticalReader = new TacticalReader();
 
     private volatile boolean running = true;
 
@@ -23,12 +27,19 @@ public class BotHandler extends ClientHandler {
     running = false;
     }
 
- public BotHandler(Socket socket,GameEngine engine, GamePlayer botPlayer, Board board, GamePersistenceService persistenceService, GameEntity gameEntity) {
-    super(socket, engine, botPlayer, board, persistenceService, gameEntity); // Bot nie potrzebuje socketu, więc przekazujemy `null`
+ public BotHandler(GameSession session, GamePlayer botPlayer, GamePersistenceService persistenceService) {
+    super(session, botPlayer, persistenceService); // Bot nie potrzebuje połączenia
 }
     @Override
     public void run() {
         System.out.println("Bot dołączył do gry jako " + player.getName());
+        try {
+            System.out.println("BOT: Czekam 2 sekundy przed rozpoczęciem...");
+            Thread.sleep(2000); // Bot czeka 2 sekundy
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("BOT: Wątek został przerwany podczas oczekiwania.");
+        }
         while (running && !engine.isEnd()) {
              //System.out.println("BOT: Aktualny gracz to: " + engine.getCurrentPlayer().getName());
              if (engine.getCurrentPlayer() == null) break;
@@ -42,6 +53,8 @@ public class BotHandler extends ClientHandler {
             }
         }
 
+        // po rezygnacji lub przegranej na czas zwycięzca jest już znany
+        if (engine.getWinner() == null) {
           ScoreResult scores = engine.calculateScores();
                     String scoreMessage = ResponseFormatter.formatScores(scores);
 
@@ -49,6 +62,9 @@ public class BotHandler extends ClientHandler {
                     if (opponent != null) {
                         opponent.sendText(scoreMessage);
                     }
+                    broadcast("TEXT " + scoreMessage);
+        }
+          session.finish();
     }
     protected void handleDisconnect() {
         // Bot nie wymaga obsługi rozłączenia
@@ -61,16 +77,10 @@ private void makeMove() {
     Board board = engine.getBoard();
     int size = board.getSize();
     Position move = null;
+    // pola w bezwarunkowym terytorium którejkolwiek strony - ruch tam niczego nie zmienia
+    BitSet futile = findFutilePoints(board);
       if (lastMove == null) {
-        while (true) {
-            int col = random.nextInt(size);
-            int row = random.nextInt(size);
-            Position pos = new Position(col, row);
-            if (board.isEmpty(pos)) {
-                move = pos;
-                break;
-            }
-        }
+        move = randomEmptyPosition(board, futile);
     }
 
     // Jeśli bot wykonał już ruch, szukaj pola obok ostatniego ruchu
@@ -90,7 +100,8 @@ private void makeMove() {
             int newCol = lastMove.col() + dir[0];
             int newRow = lastMove.row() + dir[1];
             Position pos = new Position(newCol, newRow);
-            if (newCol >= 0 && newCol < size && newRow >= 0 && newRow < size && board.isEmpty(pos)) {
+            if (newCol >= 0 && newCol < size && newRow >= 0 && newRow < size && board.isEmpty(pos)
+                    && !futile.get(newRow * size + newCol)) {
                 if(pos != lastMove){
                 move = pos;
                 System.out.println("BOT: Szukam pola obok ostatniego ruchu: " + lastMove + ", znalazłem: " + move);
@@ -102,15 +113,13 @@ private void makeMove() {
 
     // Jeśli nie znaleziono pola obok, szukaj pierwszego pustego pola na planszy
     if (move == null) {
-        while (true) {
-            int col = random.nextInt(size);
-            int row = random.nextInt(size);
-            Position pos = new Position(col, row);
-            if (board.isEmpty(pos)) { // Sprawdź, czy ruch jest poprawny
-                move = pos;
-                break;
-            }
-        }
+        move = randomEmptyPosition(board, futile);
+    }
+
+    // Unikaj ruchów, po których własny łańcuch da się od razu zbić (atari, przegrana drabinka)
+    if (move != null && tacticalReader.isBlunder(board, move, player.getColor())) {
+        System.out.println("BOT: Ruch " + move + " to błąd taktyczny, szukam innego.");
+        move = safeRandomPosition(board, futile);
     }
 
     System.out.println("BOT: Wybrany ruch: " + (move != null ? move : "PASS"));
@@ -120,17 +129,9 @@ private void makeMove() {
         lastMove = move; // Zaktualizuj ostatnią pozycję
         if (result.isOk()) {
             attempts = 0; // Resetuj licznik prób po udanym ruchu
-            persistenceService.saveMove(gameEntity, botMove, size);
-            
-            sendMove(botMove, result);
-            if (opponent != null) {
-                opponent.sendMove(botMove, result);
-            }
-            ClientHandler current = engine.getCurrentPlayer() == player ? this : opponent;
-            ClientHandler waiting = current == this ? opponent : this;
+            recordMove(botMove, result);
 
-            current.send("YOUR_TURN");
-            waiting.send("OPPONENT_TURN");
+            publishMove(botMove, result);
         }
         else if (attempts < 10) {
             System.out.println("BOT: Ruch nie został zaakceptowany: " + result.getErrorMessage());
@@ -146,18 +147,57 @@ private void makeMove() {
         }
     } else {
         System.out.println("BOT: Spasowałem.");
-        engine.pass(player);
+        MoveResult result = engine.pass(player);
+        recordAction(MoveType.PASS, result);
         sendPass(player);
+        broadcast("PASS " + player.getColor());
+    }
+    }
+/**
+ * Wyznacza pola, na których ruch bota jest bezcelowy: regiony witalne
+ * bezwarunkowo żywych grup obu kolorów (analiza Bensona).
+ */
+private BitSet findFutilePoints(Board board) {
+    BitSet futile = (BitSet) boardService.findPassAliveChains(board, StoneColor.BLACK).getVitalRegions().clone();
+    futile.or(boardService.findPassAliveChains(board, StoneColor.WHITE).getVitalRegions());
+    return futile;
+}
+
+/**
+ * Losuje puste pole spoza bezcelowych regionów. Gdy losowanie nie trafi,
+ * przegląda planszę po kolei; zwraca {@code null}, jeśli nie ma już
+ * sensownego ruchu (bot wtedy pasuje).
+ */
+private Position randomEmptyPosition(Board board, BitSet futile) {
+    int size = board.getSize();
+    for (int i = 0; i < size * size; i++) {
+        int col = random.nextInt(size);
+        int row = random.nextInt(size);
+        if (board.getStone(col, row) == StoneColor.EMPTY && !futile.get(row * size + col)) {
+            return new Position(col, row);
+        }
     }
+    for (int row = 0; row < size; row++) {
+        for (int col = 0; col < size; col++) {
+            if (board.getStone(col, row) == StoneColor.EMPTY && !futile.get(row * size + col)) {
+                return new Position(col, row);
+            }
+        }
     }
-@Override
-protected void waitForOut() {
-    try {
-        System.out.println("BOT: Czekam 2 sekundy przed rozpoczęciem...");
-        Thread.sleep(2000); // Bot czeka 2 sekundy
-    } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        System.err.println("BOT: Wątek został przerwany podczas oczekiwania.");
+    return null;
+}
+
+/**
+ * Losuje puste pole, na którym ruch nie jest błędem taktycznym.
+ * Zwraca {@code null}, jeśli po kilku próbach nie znaleziono takiego pola.
+ */
+private Position safeRandomPosition(Board board, BitSet futile) {
+    int size = board.getSize();
+    for (int i = 0; i < size * size; i++) {
+        Position candidate = randomEmptyPosition(board, futile);
+        if (candidate == null) return null;
+        if (!tacticalReader.isBlunder(board, candidate, player.getColor())) return candidate;
     }
+    return null;
+}
 }
-}
\ No newline at end of file
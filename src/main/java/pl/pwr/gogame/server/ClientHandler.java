@@ -2,65 +2,99 @@
 // sluzy do obslugi klienta w serwerze gry Go
 package pl.pwr.gogame.server;
 
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.Scanner;
 
-import org.springframework.boot.SpringApplication;
-
-import pl.pwr.gogame.ApplicationContextProvider;
 import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.BoardFactory;
+import pl.pwr.gogame.model.GameClock;
 import pl.pwr.gogame.model.GameEngine;
 import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.GameSnapshot;
 import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.MoveResult;
 import pl.pwr.gogame.model.Position;
 import pl.pwr.gogame.model.ScoreResult;
+import pl.pwr.gogame.model.StoneColor;
 import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.persistence.entity.MoveType;
 import pl.pwr.gogame.persistence.service.GamePersistenceService;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.server.net.Connection;
+import pl.pwr.gogame.server.net.LineHandler;
+import pl.pwr.gogame.server.net.TimingWheel;
 
 /**
  * Klasa {@code ClientHandler} odpowiada za obsługę pojedynczego klienta
- * po stronie serwera gry Go. Każda instancja działa w osobnym wątku
- * i przetwarza komunikację pomiędzy serwerem a jednym graczem.
+ * po stronie serwera gry Go. Każda instancja przetwarza komunikację
+ * pomiędzy serwerem a jednym graczem; linie od klienta dostarcza
+ * warstwa transportowa ({@link Connection}), kolejno dla danego połączenia.
  *
  * Odpowiada za:
  * <ul>
+ *   <li>wybór trybu gry i rozmiaru planszy oraz dołączenie do {@link Lobby}</li>
+ *   <li>obserwowanie trwającej gry ({@code LIST_GAMES}, {@code SPECTATE <id>})</li>
+ *   <li>powrót do gry po zerwaniu połączenia ({@code RESUME <token>})</li>
  *   <li>odbieranie komend od klienta</li>
  *   <li>delegowanie logiki do {@link GameEngine}</li>
  *   <li>wysyłanie komunikatów do klienta oraz przeciwnika</li>
  *   <li>synchronizację stanu gry pomiędzy graczami</li>
  * </ul>
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements LineHandler {
 
     private volatile boolean running = true;
 
     public final GamePersistenceService persistenceService;
-    protected final GameEntity gameEntity;
-    private int moveNumber = 0;
+    protected volatile GameEntity gameEntity;
+
+    /**
+     * Bieżące połączenie z klientem ({@code null} dla bota i dla gracza,
+     * który rozłączył się i może jeszcze wrócić).
+     */
+    private volatile Connection connection;
+
+    /**
+     * Połączenie, dla którego utworzono ten handler. Po wznowieniu gry
+     * gracz korzysta z nowego połączenia, a zamknięcie starego jest ignorowane.
+     */
+    private Connection openedConnection;
+
+    /**
+     * Handler gracza, do którego gry wrócił klient tego połączenia
+     * ({@code RESUME}); wszystkie zdarzenia połączenia są mu przekazywane.
+     */
+    private volatile ClientHandler resumed;
+
+    /**
+     * Odliczanie czasu na powrót rozłączonego gracza (chronione monitorem handlera).
+     */
+    private TimingWheel.Timeout graceTimer;
+
+    /**
+     * Lobby, do którego gracz dołącza po połączeniu ({@code null} dla bota).
+     */
+    private final Lobby lobby;
 
     /**
-     * Gniazdo sieciowe połączone z klientem.
+     * Sesja gry, do której przypisano gracza.
      */
-    private final Socket socket;
+    protected volatile GameSession session;
 
     /**
      * Silnik gry zarządzający logiką rozgrywki.
      */
-    protected final GameEngine engine;
+    protected volatile GameEngine engine;
 
     /**
      * Gracz obsługiwany przez ten handler.
      */
-    protected final GamePlayer player;
+    protected volatile GamePlayer player;
 
     /**
      * Plansza gry.
      */
-    private final Board board;
+    private volatile Board board;
 
     /**
      * Handler przeciwnika.
@@ -68,9 +102,43 @@ public class ClientHandler implements Runnable {
     protected ClientHandler opponent;
 
     /**
-     * Strumień wyjściowy do wysyłania danych do klienta.
+     * Wybrany przez klienta tryb gry ({@code null}, dopóki nie został wybrany).
+     */
+    private String gameMode;
+
+    /**
+     * Ranking podany przez klienta ({@code SET_RATING}), według którego
+     * dobierany jest przeciwnik.
+     */
+    private int rating = Matchmaker.DEFAULT_RATING;
+
+    /**
+     * Numer stołu przydzielony przez router ({@code ROUTE}); {@code 0},
+     * jeśli klient połączył się bezpośrednio i czeka w kolejce.
+     */
+    private volatile long table;
+
+    /**
+     * Połączenie uwierzytelnione sekretem routera ({@code ROUTER_AUTH});
+     * tylko takie może wybrać stół (jeden raz) komendą {@code ROUTE}.
+     */
+    private boolean fromRouter;
+
+    /**
+     * Informacja, czy klient wybrał już tryb i rozmiar planszy i trafił do lobby.
+     */
+    private boolean joined = false;
+
+    /**
+     * Klient wybrał protokół ramek ({@code SET_PROTOCOL FRAMES}): wynik
+     * ruchu wysyłany jest jako jedna linia {@code MOVE_FRAME}.
+     */
+    private volatile boolean frameProtocol = false;
+
+    /**
+     * Grupa obserwatorów gry, którą ogląda klient ({@code null}, jeśli nie obserwuje).
      */
-    private PrintWriter out;
+    private volatile SpectatorGroup spectating;
 
     //potrzebna flaga by pierwszy gracz nie mógł robić ruchów zanim drugi nie dołączy 
     boolean gameStarted = false;
@@ -79,60 +147,440 @@ public class ClientHandler implements Runnable {
     private boolean gameEndNotified = false;
 
     /**
-     * Tworzy nowy {@code ClientHandler}.
+     * Komenda wypełniana ponownie dla każdej linii lub ramki od klienta
+     * (linie jednego połączenia obsługiwane są kolejno).
+     */
+    private final Command command = new Command();
+
+    /**
+     * Limit komend klienta ({@code null} bez limitu, np. dla bota). Należy
+     * do gracza, a nie do połączenia, więc ponowne połączenie go nie odnawia.
+     */
+    private final RateLimiter.Budget budget;
+
+    /**
+     * Tworzy nowy {@code ClientHandler} dla połączonego klienta.
+     * Gra zostanie przypisana przez {@link Lobby} po wyborze trybu i rozmiaru planszy.
      *
-     * @param socket gniazdo klienta
-     * @param engine silnik gry
+     * @param lobby lobby serwera
+     * @param persistenceService serwis zapisu gier
+     */
+    public ClientHandler(Lobby lobby, GamePersistenceService persistenceService) {
+        this.lobby = lobby;
+        this.persistenceService = persistenceService;
+        RateLimiter limiter = lobby.getRateLimiter();
+        this.budget = limiter != null ? limiter.newBudget() : null;
+    }
+
+    /**
+     * Tworzy handler od razu przypisany do gry (np. dla bota, bez połączenia).
+     *
+     * @param session sesja gry
      * @param player gracz
-     * @param board plansza gry
+     * @param persistenceService serwis zapisu gier
      */
-    public ClientHandler(Socket socket, GameEngine engine, GamePlayer player, Board board, GamePersistenceService persistenceService, GameEntity gameEntity) {
-        this.socket = socket;
-        this.engine = engine;
-        this.player = player;
-        this.board = board;
+    protected ClientHandler(GameSession session, GamePlayer player, GamePersistenceService persistenceService) {
+        this.lobby = null;
         this.persistenceService = persistenceService;
-        this.gameEntity = gameEntity;
+        this.budget = null;
+        bind(session, player);
+    }
+
+    /**
+     * Wywoływane po nawiązaniu połączenia; prosi klienta o wybór trybu gry.
+     */
+    @Override
+    public void onOpen(Connection connection) {
+        this.connection = connection;
+        this.openedConnection = connection;
+        // Wyślij żądanie wyboru trybu gry
+        send("REQUEST_GAME_MODE");
+    }
+
+    /**
+     * Obsługuje linię od klienta. Przed dołączeniem do lobby oczekuje kolejno
+     * na wybór trybu gry i rozmiaru planszy, potem przekazuje komendy do gry.
+     */
+    @Override
+    public void onLine(String line) {
+        ClientHandler target = resumed;
+        if (target != null) {
+            target.onLine(line);
+            return;
+        }
+        if (!running) return;
+        CommandParser.parse(line, command);
+        onCommand(command);
     }
 
     /**
-     * Główna pętla wątku obsługującego klienta.
-     * Odbiera komendy z gniazda i przekazuje je do obsługi.
+     * Obsługuje linię odebraną jako bajty; komenda parsowana jest
+     * bezpośrednio z bufora połączenia, bez tworzenia napisu.
      */
     @Override
-    public void run() {
-        try (Scanner in = new Scanner(socket.getInputStream());
-             PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)) {
+    public void onLine(ByteBuffer line) {
+        ClientHandler target = resumed;
+        if (target != null) {
+            target.onLine(line);
+            return;
+        }
+        if (!running) return;
+        CommandParser.parse(line, command);
+        onCommand(command);
+    }
 
-            this.out = writer;
+    private void onCommand(Command command) {
+        if (!admit(RateLimiter.categoryOf(command.getType()))) return;
+        // odpowiedź na PING - aktywność zarejestrowała już warstwa transportowa
+        if (command.getType() == Command.Type.PONG) return;
+        if (command.getType() == Command.Type.SET_PROTOCOL) {
+            setProtocol(command);
+            return;
+        }
+        if (spectating != null) {
+            sendText("Tryb obserwatora: komendy są ignorowane.");
+            return;
+        }
+        if (!joined) {
+            negotiateGame(command);
+            return;
+        }
+        handleCommand(command);
+    }
 
-            // Używamy nowej klasy do sformatowania powitania
-            send(ResponseFormatter.formatWelcome(board));
-            sendConfigBoardsize();
+    /**
+     * Obsługuje ramkę protokołu binarnego. Ruch dekodowany jest bezpośrednio
+     * z indeksu pola, bez parsowania tekstu.
+     */
+    @Override
+    public void onFrame(int opcode, ByteBuffer payload) {
+        ClientHandler target = resumed;
+        if (target != null) {
+            target.onFrame(opcode, payload);
+            return;
+        }
+        if (!running) return;
+        boolean gameFrame = opcode == BinaryProtocol.MOVE || opcode == BinaryProtocol.PASS
+                || opcode == BinaryProtocol.RESIGN;
+        if (!admit(gameFrame ? RateLimiter.Category.GAME : RateLimiter.Category.LOBBY)) return;
+        if (spectating != null) {
+            sendText("Tryb obserwatora: komendy są ignorowane.");
+            return;
+        }
+        if (!joined) {
+            sendText("Najpierw wybierz tryb gry i rozmiar planszy.");
+            return;
+        }
+        switch (opcode) {
+            case BinaryProtocol.MOVE -> {
+                int point;
+                try {
+                    point = BinaryProtocol.readVarint(payload);
+                } catch (IllegalArgumentException e) {
+                    sendText("BŁĄD WEJŚCIA: niepoprawna ramka");
+                    return;
+                }
+                if (point < 0 || board == null || point >= board.getSize() * board.getSize()) {
+                    sendText("BŁĄD WEJŚCIA: niepoprawne pole");
+                    return;
+                }
+                command.setMove(point % board.getSize(), point / board.getSize());
+            }
+            case BinaryProtocol.PASS -> command.set(Command.Type.PASS);
+            case BinaryProtocol.RESIGN -> command.set(Command.Type.RESIGN);
+            default -> {
+                sendText("BŁĄD: nieznany kod ramki " + opcode);
+                return;
+            }
+        }
+        handleCommand(command);
+    }
 
-            // Jeśli przeciwnik jeszcze nie dołączył — poinformuj gracza, że czekamy
-            if (opponent == null) {
-                send("OCZEKIWANIE: Oczekiwanie na dołączenie przeciwnika...");
+    /**
+     * Rozlicza komendę w limicie klienta. Komenda ponad limit jest pomijana
+     * (z jednym ostrzeżeniem na serię), a przy uporczywym zalewaniu serwera
+     * połączenie jest zrywane; gracz w trakcie gry może wrócić przez {@code RESUME}.
+     *
+     * @param category kategoria komendy
+     * @return {@code true}, jeśli komendę należy wykonać
+     */
+    private boolean admit(RateLimiter.Category category) {
+        RateLimiter.Budget b = budget;
+        if (b == null) return true;
+        switch (b.acquire(category)) {
+            case ACCEPT -> {
+                return true;
+            }
+            case THROTTLE -> {
+                if (b.startThrottling()) sendText("BŁĄD: zbyt wiele komend, zwolnij.");
+                return false;
+            }
+            default -> {
+                Connection c = connection;
+                if (c != null && c.isOpen()) {
+                    System.err.println("Zrywam połączenie zalewające serwer komendami: " + c);
+                    c.close();
+                }
+                return false;
             }
+        }
+    }
+
+    /**
+     * Wywoływane po zamknięciu połączenia.
+     */
+    @Override
+    public void onClose() {
+        SpectatorGroup spectators = spectating;
+        if (spectators != null) {
+            running = false;
+            spectators.remove(openedConnection);
+            return;
+        }
+        ClientHandler target = resumed;
+        (target != null ? target : this).handleDisconnect(openedConnection);
+    }
+
+    /**
+     * Przełącza sposób wysyłania wyników ruchów: {@code SET_PROTOCOL FRAMES}
+     * (jedna ramka na ruch) lub {@code SET_PROTOCOL LINES} (osobne linie).
+     *
+     * @param command komenda od klienta
+     */
+    private void setProtocol(Command command) {
+        if (command.wordEquals("FRAMES")) {
+            frameProtocol = true;
+            send("PROTOCOL FRAMES");
+        } else if (command.wordEquals("LINES")) {
+            frameProtocol = false;
+            send("PROTOCOL LINES");
+        } else {
+            sendText("BŁĄD: nieznany protokół");
+        }
+    }
 
-            while (running && in.hasNextLine()) {
-                String command = in.nextLine();
-                handleCommand(command);
+    /**
+     * Obsługuje linię otrzymaną przed dołączeniem do gry: tryb gry,
+     * następnie rozmiar planszy, po czym dołącza klienta do lobby.
+     * Ranking ({@code SET_RATING}) można podać w dowolnej chwili przed
+     * wyborem rozmiaru. Inne linie są ignorowane.
+     *
+     * @param command komenda od klienta
+     */
+    private void negotiateGame(Command command) {
+        switch (command.getType()) {
+            case LIST_GAMES -> {
+                send(formatGames());
+                return;
+            }
+            case SPECTATE -> {
+                spectate(command);
+                return;
+            }
+            case RESUME -> {
+                resumeGame(command);
+                return;
+            }
+            case SET_RATING -> {
+                if (command.isValid()) {
+                    rating = command.getInt(0);
+                } else {
+                    sendText("BŁĄD WEJŚCIA: " + command.getError());
+                }
+                return;
+            }
+            case ROUTER_AUTH -> {
+                fromRouter = command.hasWord() && lobby.isRouterSecret(command.getWord());
+                if (!fromRouter) sendText("BŁĄD: niepoprawny sekret routera");
+                return;
+            }
+            case ROUTE -> {
+                routeGame(command);
+                return;
+            }
+            default -> { }
+        }
+        if (gameMode == null) {
+            if (command.getType() == Command.Type.SET_GAME_MODE && command.hasWord()) {
+                gameMode = command.getWord();
+                // Wyślij żądanie wyboru rozmiaru planszy
+                send("REQUEST_BOARD_SIZE");
             }
+            return;
+        }
+        if (command.getType() != Command.Type.SET_BOARD_SIZE) return;
 
-        } catch (IOException e) {
-            System.err.println("Gracz rozłączony: " + player.getName());
-        } finally {
-            handleDisconnect();
+        int boardSize;
+        try {
+            if (!command.isValid()) throw new IllegalArgumentException(command.getError());
+            boardSize = BoardFactory.createBoard(command.getInt(0)).getSize();
+        } catch (IllegalArgumentException e) {
+            // ignoruj i czekaj dalej
+            System.out.println("Nieprawidłowy rozmiar otrzymany od klienta: " + e.getMessage());
+            return;
+        }
+
+        joined = true;
+        send("OCZEKIWANIE: Oczekiwanie na dołączenie przeciwnika...");
+        lobby.join(this, gameMode, boardSize, rating);
+    }
+
+    /**
+     * Obsługuje {@code ROUTE <stół> <rozmiar> <tryb>} wysłane przez router
+     * w imieniu klienta, który wybrał już tryb i rozmiar planszy u routera.
+     *
+     * @param command komenda {@code ROUTE}
+     */
+    private void routeGame(Command command) {
+        if (!fromRouter) {
+            // numer stołu staje się identyfikatorem gry, więc ufamy mu tylko od routera
+            sendText("BŁĄD: komenda ROUTE jest przyjmowana tylko od routera");
+            return;
         }
+        // uwierzytelnienie dotyczy jednej komendy ROUTE
+        fromRouter = false;
+        int boardSize;
+        try {
+            if (!command.isValid()) throw new IllegalArgumentException(command.getError());
+            boardSize = BoardFactory.createBoard(command.getInt(1)).getSize();
+        } catch (IllegalArgumentException e) {
+            sendText("BŁĄD WEJŚCIA: " + e.getMessage());
+            return;
+        }
+        gameMode = command.getWord();
+        table = command.getLong(0);
+        joined = true;
+        send("OCZEKIWANIE: Oczekiwanie na dołączenie przeciwnika...");
+        lobby.joinTable(this, gameMode, boardSize, table);
+    }
+
+    /**
+     * Dołącza klienta jako obserwatora gry o podanym identyfikatorze.
+     * Klient dostaje {@code SPECTATING <id> <rozmiar>}, a następnie migawkę
+     * planszy i kolejne zdarzenia gry (ruchy jako {@code MOVE_FRAME}).
+     *
+     * @param command komenda {@code SPECTATE <id>}
+     */
+    private void spectate(Command command) {
+        // niepoprawny identyfikator traktujemy jak nieistniejącą grę
+        GameSession watched = command.isValid() ? lobby.getRegistry().get(command.getLong(0)) : null;
+        if (watched == null) {
+            sendText("BŁĄD: nie ma takiej gry");
+            return;
+        }
+        Connection c = connection;
+        if (c == null) return;
+        send("SPECTATING " + watched.getId() + " " + watched.getBoard().getSize());
+        if (watched.getSpectators().add(c)) {
+            spectating = watched.getSpectators();
+        } else {
+            sendText("Gra zakończona.");
+        }
+    }
+
+    /**
+     * Obsługuje {@code RESUME <token>}: przekazuje to połączenie graczowi,
+     * do którego należy token. Odtąd ten handler tylko przekazuje zdarzenia.
+     *
+     * @param command komenda {@code RESUME <token>}
+     */
+    private void resumeGame(Command command) {
+        String token = command.getWord();
+        GameSession game = token != null ? lobby.getRegistry().findByToken(token) : null;
+        ClientHandler target = game != null ? game.findHandler(token) : null;
+        Connection c = connection;
+        if (c == null) return;
+        if (target == null || !target.resume(c, frameProtocol)) {
+            send("RESUME_FAILED");
+            return;
+        }
+        resumed = target;
+    }
+
+    /**
+     * Wznawia grę na nowym połączeniu: zamyka poprzednie (np. półotwarte)
+     * połączenie i wysyła jedną migawkę planszy zamiast historii ruchów,
+     * a następnie informację o turze.
+     *
+     * @param newConnection nowe połączenie gracza
+     * @param frames czy klient wybrał protokół ramek
+     * @return {@code false}, jeśli gra już się zakończyła
+     */
+    private boolean resume(Connection newConnection, boolean frames) {
+        Connection previous;
+        synchronized (this) {
+            if (!running || session == null || session.isFinished()) return false;
+            previous = connection;
+            connection = newConnection;
+            frameProtocol = frames;
+            if (graceTimer != null) {
+                graceTimer.cancel();
+                graceTimer = null;
+            }
+        }
+        if (previous != null) previous.close();
+
+        send("RESUMED " + board.getSize() + " " + player.getColor());
+        GameSnapshot snapshot = engine.snapshot();
+        if (newConnection.isBinary()) {
+            newConnection.sendFrame(ResponseFormatter.encodeSnapshot(snapshot));
+        } else {
+            send(ResponseFormatter.formatSnapshot(snapshot));
+        }
+        send(engine.getCurrentPlayer() == player ? "YOUR_TURN" : "OPPONENT_TURN");
+        GameClock.Reading clock = engine.readClock();
+        if (clock != null) send(ResponseFormatter.formatClock(clock));
+        if (opponent != null) opponent.sendText("Przeciwnik wrócił do gry.");
+        return true;
+    }
+
+    /**
+     * Formatuje listę trwających gier:
+     * {@code GAMES <id>:<rozmiar>:<obserwatorzy> ...}.
+     */
+    private String formatGames() {
+        StringBuilder sb = new StringBuilder("GAMES");
+        for (GameSession s : lobby.getRegistry().getSessions()) {
+            sb.append(' ').append(s.getId())
+              .append(':').append(s.getBoard().getSize())
+              .append(':').append(s.getSpectators().size());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Przypisuje handler do utworzonej gry i wysyła klientowi konfigurację planszy.
+     * Wywoływane przez {@link Lobby}.
+     *
+     * @param session sesja gry
+     * @param player gracz obsługiwany przez handler
+     */
+    void attach(GameSession session, GamePlayer player) {
+        bind(session, player);
+        send(ResponseFormatter.formatWelcome(board));
+        sendConfigBoardsize();
+        send("CONFIG COLOR " + player.getColor());
+        send("SESSION " + session.getToken(player.getColor()));
+    }
+
+    private void bind(GameSession session, GamePlayer player) {
+        this.session = session;
+        this.engine = session.getEngine();
+        this.board = session.getBoard();
+        this.gameEntity = session.getGameEntity();
+        this.player = player;
     }
 
     /**
      * Obsługuje pojedynczą komendę otrzymaną od klienta.
      *
-     * @param command treść komendy
+     * @param command komenda z linii tekstowej lub ramki binarnej
      */
-    private void handleCommand(String command) {
+    private void handleCommand(Command command) {
+        if (session == null) {
+            sendText("Oczekiwanie na przeciwnika.");
+            return;
+        }
         try {
 
             // Jeśli silnik zgłasza koniec gry, blokujemy wszystkie dalsze komendy
@@ -145,8 +593,7 @@ public class ClientHandler implements Runnable {
                         opponent.sendText("Gra zakończona.");
                     }
 
-                    engine.setEnd(true); 
-                    persistenceService.finishGame(gameEntity, engine.getWinner());
+                    session.finish();
 
                     gameEndNotified = true;
 
@@ -155,11 +602,6 @@ public class ClientHandler implements Runnable {
                     if (opponent != null) {
                     opponent.shutdownHandler();
                     }
-
-                    SpringApplication.exit(
-                        ApplicationContextProvider.getContext(),
-                        () -> 0
-                    );
                 }
                 return;
             }
@@ -169,31 +611,25 @@ public class ClientHandler implements Runnable {
                 return;
             }
 
-            command = command.trim();
+            Command.Type type = command.getType();
 
             // negocjacja: oznaczanie pól/grup jako martwe
-            if (command.toUpperCase().startsWith("NEGOTIATE_MARK")) {
+            if (type == Command.Type.NEGOTIATE_MARK) {
                 // format: NEGOTIATE_MARK col row
-                String[] parts = command.split("\\s+");
-                if (parts.length >= 3) {
-                    try {
-                        int col = Integer.parseInt(parts[1]);
-                        int row = Integer.parseInt(parts[2]);
-                        Position pos = new Position(col, row);
-                        engine.markNegotiationPosition(player, pos);
-                        // send raw protocol notifications so client can react to them directly
-                        send("NEGOTATE_MARKED " + col + " " + row);
-                        if (opponent != null) opponent.send("OPPONENT_NEGOTATE_MARKED " + col + " " + row);
-                    } catch (NumberFormatException ex) {
-                        sendText("BŁĄD: niepoprawne współrzędne negocjacji");
-                    }
-                } else {
-                    sendText("BŁĄD: NEGOTIATE_MARK wymaga dwóch argumentów: kolumna wiersz");
+                if (!command.isValid()) {
+                    sendText("BŁĄD: " + command.getError());
+                    return;
                 }
+                int col = command.getInt(0);
+                int row = command.getInt(1);
+                engine.markNegotiationPosition(player, new Position(col, row));
+                // send raw protocol notifications so client can react to them directly
+                send("NEGOTATE_MARKED " + col + " " + row);
+                if (opponent != null) opponent.send("OPPONENT_NEGOTATE_MARKED " + col + " " + row);
                 return;
             }
 
-            if (command.equalsIgnoreCase("NEGOTIATE_DONE")) {
+            if (type == Command.Type.NEGOTIATE_DONE) {
                 // gracz zakończył oznaczanie; sprawdź czy obie strony już skończyły
                 boolean finished = engine.finishNegotiationFor(player);
                 if (!finished) {
@@ -213,6 +649,7 @@ public class ClientHandler implements Runnable {
                     String scoreMessage = ResponseFormatter.formatScores(scores);
                     sendText(scoreMessage);
                     if (opponent != null) opponent.sendText(scoreMessage);
+                    broadcast("TEXT " + scoreMessage);
                 } else if (!engine.getLastNegotiationSucceeded()) {
                     // negocjacje nie przyniosły konsensusu - kontynuujemy grę
                     sendText("NEGOTIATION_FAILED: Brak zgody, gra trwa dalej.");
@@ -228,20 +665,24 @@ public class ClientHandler implements Runnable {
             }
 
             // Obsługa rezygnacji
-            if (command.equalsIgnoreCase("resign")) {
+            if (type == Command.Type.RESIGN) {
                 MoveResult resignResult = engine.resign(player);
+                recordAction(MoveType.RESIGN, resignResult);
                 if (opponent != null) {
                     opponent.sendResign(resignResult);
                 }
+                broadcast(formatResign(resignResult));
                 return;
             }
 
-            if (command.equalsIgnoreCase("pass") || command.equals("pas")) {
+            if (type == Command.Type.PASS) {
                 MoveResult result = engine.pass(player);
 
                 if (result.isOk()) {
+                    recordAction(MoveType.PASS, result);
                     sendPass(player);
                     if (opponent != null) opponent.sendPass(player);
+                    broadcast("PASS " + player.getColor());
                 }
                 // Jeśli pass uruchomił negocjację
                 if (result.isNegotiation()) {
@@ -256,6 +697,7 @@ public class ClientHandler implements Runnable {
                     if (opponent != null) {
                         opponent.sendText(scoreMessage);
                     }
+                    broadcast("TEXT " + scoreMessage);
                 } else {
                     notifyPlayers(null, null);
                     ClientHandler current = engine.getCurrentPlayer() == player ? this : opponent;
@@ -267,34 +709,122 @@ public class ClientHandler implements Runnable {
                 return;
             }
 
-            // Parsowanie i wykonanie ruchu
-            Move move = CommandParser.parseMove(command, this.player);
+            // Wykonanie ruchu (komendy lobby nie mają znaczenia w trakcie gry)
+            if (type != Command.Type.MOVE || !command.isValid()) {
+                sendText("BŁĄD WEJŚCIA: " + (command.isValid() ? CommandParser.MISSING_COORDINATES : command.getError()));
+                return;
+            }
+            Move move = new Move(new Position(command.getInt(0), command.getInt(1)), this.player);
             MoveResult result = engine.applyMove(move);
 
             if (result.isOk()) {
-                //Ruch wysyłamy do GUI funkcją sendMove 
-                sendMove(move, result);
-                if (opponent != null) {
-                    opponent.sendMove(move, result);
-                }
-
-                persistenceService.saveMove(gameEntity, move, moveNumber++);
+                recordMove(move, result);
+                publishMove(move, result);
+            } else {
+                //Funkcją sendText wysyłamy błąd do terminala
+                sendText(ResponseFormatter.formatMoveResult(result));
             }
+        } catch (IllegalArgumentException e) {
+            sendText("BŁĄD WEJŚCIA: " + e.getMessage());
+        } finally {
+            // zakończona gra jest od razu zapisywana i usuwana z rejestru
+            if (engine.isEnd()) {
+                session.finish();
+            }
+        }
+    }
 
-            //Funkcją sendText wysyłamy ruch do terminala
-            sendText(ResponseFormatter.formatMoveResult(result));
+    /**
+     * Zapisuje wykonany ruch, a co kilkadziesiąt ruchów także migawkę planszy
+     * (do szybkiego odtwarzania pozycji z bazy).
+     *
+     * @param move wykonany ruch
+     * @param result wynik ruchu z numerem nadanym przez silnik
+     */
+    protected void recordMove(Move move, MoveResult result) {
+        persistenceService.saveMove(gameEntity, move, result.getMoveNumber());
+        // silnik wykonuje migawkę pod blokadą ruchu, więc zawsze odpowiada jego numerowi
+        GameSnapshot keyframe = result.getKeyframe();
+        if (keyframe != null) {
+            persistenceService.saveSnapshot(gameEntity, result.getMoveNumber(), keyframe);
+        }
+    }
 
-            if (result.isOk()) {
-                notifyPlayers(null, null);
-                ClientHandler current = engine.getCurrentPlayer() == player ? this : opponent;
-                ClientHandler waiting = current == this ? opponent : this;
+    /**
+     * Zapisuje pas lub rezygnację tego gracza tą samą drogą co kamienie,
+     * z numerem nadanym przez silnik ({@code 0} - nic nie zostało wykonane).
+     *
+     * @param type {@link MoveType#PASS} lub {@link MoveType#RESIGN}
+     * @param result wynik pasu lub rezygnacji
+     */
+    protected void recordAction(MoveType type, MoveResult result) {
+        if (result.getMoveNumber() > 0) {
+            persistenceService.saveAction(gameEntity, player, type, result.getMoveNumber());
+        }
+    }
 
-                current.send("YOUR_TURN");
-                waiting.send("OPPONENT_TURN");
-            }
-        } catch (IllegalArgumentException e) {
-            sendText("BŁĄD WEJŚCIA: " + e.getMessage());
+    /**
+     * Wysyła wynik poprawnego ruchu obu graczom i obserwatorom. Ramki
+     * (tekstowa {@code MOVE_FRAME} i binarna) kodowane są raz, tylko jeśli
+     * któryś z odbiorców ich używa; gracze bez ramek dostają dotychczasową
+     * sekwencję linii.
+     *
+     * @param move wykonany ruch
+     * @param result wynik ruchu
+     */
+    protected void publishMove(Move move, MoveResult result) {
+        SpectatorGroup spectators = session.getSpectators();
+        boolean watched = spectators.size() > 0;
+        boolean anyFrames = watched || frameProtocol || (opponent != null && opponent.frameProtocol);
+        boolean anyBinary = watched || isBinary() || (opponent != null && opponent.isBinary());
+        int size = engine.getBoard().getSize();
+        String frame = anyFrames ? ResponseFormatter.formatMoveFrame(move, result, size) : null;
+        ByteBuffer binaryFrame = anyBinary ? ResponseFormatter.encodeMoveFrame(move, result, size) : null;
+
+        sendMoveOutcome(move, result, frame, binaryFrame, true);
+        if (opponent != null) {
+            opponent.sendMoveOutcome(move, result, frame, binaryFrame, false);
+        }
+        if (watched) {
+            spectators.publish(frame, binaryFrame);
+        }
+    }
+
+    /**
+     * Wysyła linię protokołu obserwatorom gry.
+     *
+     * @param line treść linii
+     */
+    protected void broadcast(String line) {
+        GameSession s = session;
+        if (s != null) s.getSpectators().publishLine(line);
+    }
+
+    private void sendMoveOutcome(Move move, MoveResult result, String frame, ByteBuffer binaryFrame, boolean mover) {
+        // połączenie może zniknąć (rozłączenie) lub zmienić się (wznowienie) w innym wątku,
+        // a ramki zostały zakodowane według stanu sprzed tej chwili
+        Connection c = connection;
+        if (c == null) return;
+        if (c.isBinary()) {
+            c.sendFrame(binaryFrame != null ? binaryFrame
+                    : ResponseFormatter.encodeMoveFrame(move, result, engine.getBoard().getSize()));
+            return;
+        }
+        if (frameProtocol) {
+            c.send(frame != null ? frame : ResponseFormatter.formatMoveFrame(move, result, engine.getBoard().getSize()));
+            return;
         }
+        //Ruch wysyłamy do GUI funkcją sendMove
+        sendMove(move, result);
+        if (mover) {
+            sendText(ResponseFormatter.formatMoveResult(result));
+        }
+        // tura według stanu zaraz po tym ruchu, tak jak w ramkach
+        StoneColor next = result.getNextColor();
+        GamePlayer nextPlayer = next == StoneColor.BLACK ? engine.getBlackPlayer()
+                : next == StoneColor.WHITE ? engine.getWhitePlayer() : null;
+        sendText(ResponseFormatter.formatStatus(nextPlayer, next));
+        send(next == player.getColor() ? "YOUR_TURN" : "OPPONENT_TURN");
     }
 
     /**
@@ -332,6 +862,11 @@ public class ClientHandler implements Runnable {
         for (Position pos : captured) {
             send("CAPTURE " + pos.col() + " " + pos.row());
         }
+
+        //zmiana szacowanej przynależności pól (tylko pola, które się zmieniły)
+        if (result.getOwnershipDelta() != null) {
+            send(ResponseFormatter.formatOwnership(result.getOwnershipDelta()));
+        }
     }
 
     //wysyłanie PASS do GUI lub terminala
@@ -341,7 +876,31 @@ public class ClientHandler implements Runnable {
 
     //wysyłanie RESIGN do GUI lub terminala
     private void sendResign(MoveResult result) {
-        send("RESIGN " + result.getLoser().getColor() + " " + result.getWinner().getColor());
+        send(formatResign(result));
+    }
+
+    private static String formatResign(MoveResult result) {
+        return "RESIGN " + result.getLoser().getColor() + " " + result.getWinner().getColor();
+    }
+
+    /**
+     * Kończy grę przegraną tego gracza na czas. Wywoływane przez
+     * {@link GameClockTimer} po rezygnacji ogłoszonej przez silnik.
+     *
+     * @param result wynik rezygnacji
+     */
+    void loseOnTime(MoveResult result) {
+        String message = "Koniec czasu: " + player.getColor() + " przegrywa na czas.";
+        recordAction(MoveType.RESIGN, result);
+        sendText(message);
+        sendResign(result);
+        if (opponent != null) {
+            opponent.sendText(message);
+            opponent.sendResign(result);
+        }
+        broadcast("TEXT " + message);
+        broadcast(formatResign(result));
+        session.finish();
     }
 
     /** Wysyłanie tekstu do GUI lub terminala */
@@ -357,17 +916,48 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * Obsługuje rozłączenie klienta.
+     * Obsługuje rozłączenie klienta. W trwającej grze gracz ma czas
+     * ({@link Lobby#getResumeGraceMillis()}) na powrót; gra kończy się
+     * dopiero po jego upływie.
+     *
+     * @param closed zamknięte połączenie
      */
-    private void handleDisconnect() {
-        try {
-            socket.close();
-        } catch (IOException ignored) {}
+    private void handleDisconnect(Connection closed) {
+        if (session == null) {
+            running = false;
+            lobby.leave(this);
+            return;
+        }
+        synchronized (this) {
+            // klient wrócił już do gry na nowym połączeniu
+            if (closed != connection) return;
+            connection = null;
+            long grace = lobby != null ? lobby.getResumeGraceMillis() : 0;
+            if (grace > 0 && running && !session.isFinished() && !engine.isEnd()) {
+                graceTimer = lobby.schedule(this::abandon, grace);
+                if (opponent != null) {
+                    opponent.sendText("Przeciwnik rozłączył się. Oczekiwanie " + grace / 1000 + " s na jego powrót.");
+                }
+                return;
+            }
+        }
+        abandon();
+    }
 
+    /**
+     * Kończy grę rozłączonego gracza, który nie wrócił na czas.
+     */
+    private void abandon() {
+        synchronized (this) {
+            if (connection != null) return;
+            running = false;
+            graceTimer = null;
+        }
         if (opponent != null) {
             opponent.send("Przeciwnik rozłączył się. Gra zakończona.");
             opponent.shutdownHandler();
         }
+        session.finish();
     }
 
     /**
@@ -384,9 +974,6 @@ public class ClientHandler implements Runnable {
                 this.opponent.opponent = this;
                 this.opponent.gameStarted = true;
 
-                waitForOut();
-                this.opponent.waitForOut();
-
                 send("GAME_START");
                 this.opponent.send("GAME_START");
                 send("YOUR_TURN");
@@ -400,34 +987,51 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * Oczekuje na inicjalizację strumienia wyjściowego {@link #out}.
+     * Wysyła surową wiadomość tekstową do klienta.
+     *
+     * @param message treść wiadomości
      */
-    protected void waitForOut() {
-        int waited = 0;
-        while (this.out == null && waited < 5000) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException ignored) {}
-            waited += 50;
+    public void send(String message) {
+        Connection c = connection;
+        if (c != null) {
+            c.send(message);
         }
     }
 
     /**
-     * Wysyła surową wiadomość tekstową do klienta.
+     * Zwraca numer stołu przydzielony przez router.
      *
-     * @param message treść wiadomości
+     * @return numer stołu lub {@code 0}, jeśli gracz czeka w kolejce serwera
      */
-    public void send(String message) {
-        if (out != null) {
-            out.println(message);
-        }
+    long getTable() {
+        return table;
+    }
+
+    /**
+     * Informuje, czy klient jest połączony (np. czy gracz z kolejki
+     * nie rozłączył się przed dobraniem przeciwnika).
+     *
+     * @return {@code true}, jeśli połączenie jest otwarte
+     */
+    boolean isConnected() {
+        Connection c = connection;
+        return c != null && c.isOpen();
+    }
+
+    /**
+     * Informuje, czy klient używa protokołu binarnego.
+     *
+     * @return {@code true} dla połączenia binarnego
+     */
+    protected boolean isBinary() {
+        Connection c = connection;
+        return c != null && c.isBinary();
     }
 
     protected void shutdownHandler() {
     running = false;
-    try {
-        socket.close();   // this will break Scanner.hasNextLine()
-    } catch (IOException ignored) {}
+    Connection c = connection;
+    if (c != null) c.close();   // wysyła zaległe dane i zamyka połączenie
     }
 
 }
\ No newline at end of file
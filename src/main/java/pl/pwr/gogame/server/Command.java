@@ -0,0 +1,191 @@
+package pl.pwr.gogame.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Klasa {@code Command} to zdekodowana komenda klienta: rodzaj komendy,
+ * argumenty liczbowe oraz położenie argumentu tekstowego w linii źródłowej.
+ * <p>
+ * Obiekt jest używany ponownie dla kolejnych linii jednego połączenia
+ * (wypełnia go {@link CommandParser}), więc parsowanie nie tworzy
+ * pośrednich napisów. Błąd składni opisuje {@link #getError()} zamiast wyjątku.
+ * Po powrocie z obsługi linii obiekt nie może być już odczytywany,
+ * bo bufor źródłowy może zostać nadpisany.
+ * </p>
+ */
+public final class Command {
+
+    /**
+     * Rodzaj komendy.
+     */
+    public enum Type {
+        /** Ruch: {@code <kolumna> <wiersz>} (także każda nierozpoznana komenda). */
+        MOVE,
+        /** {@code pass} lub {@code pas}. */
+        PASS,
+        /** {@code resign}. */
+        RESIGN,
+        /** {@code NEGOTIATE_MARK <kolumna> <wiersz>}. */
+        NEGOTIATE_MARK,
+        /** {@code NEGOTIATE_DONE}. */
+        NEGOTIATE_DONE,
+        /** {@code SET_PROTOCOL FRAMES|LINES}. */
+        SET_PROTOCOL,
+        /** {@code SET_GAME_MODE <tryb>}. */
+        SET_GAME_MODE,
+        /** {@code SET_BOARD_SIZE <rozmiar>}. */
+        SET_BOARD_SIZE,
+        /** {@code SET_RATING <ranking>} - przed dołączeniem do kolejki. */
+        SET_RATING,
+        /** {@code LIST_GAMES}. */
+        LIST_GAMES,
+        /** {@code SPECTATE <id gry>}. */
+        SPECTATE,
+        /** {@code RESUME <token>}. */
+        RESUME,
+        /** {@code PONG} - odpowiedź na {@code PING} serwera. */
+        PONG,
+        /** {@code ROUTE <stół> <rozmiar> <tryb>} - dołączenie do gry przydzielonej przez router. */
+        ROUTE,
+        /** {@code ROUTER_AUTH <sekret>} - uwierzytelnienie połączenia przekazywanego przez router. */
+        ROUTER_AUTH
+    }
+
+    /**
+     * Maksymalna liczba zapamiętywanych słów linii (nadmiarowe są pomijane).
+     */
+    static final int MAX_TOKENS = 4;
+
+    private Type type;
+    private String error;
+    private final long[] numbers = new long[2];
+    private int numberCount;
+    private int wordStart;
+    private int wordEnd;
+
+    /**
+     * Źródło: tekst albo bajty linii (dokładnie jedno z nich jest ustawione).
+     */
+    private CharSequence chars;
+    private ByteBuffer bytes;
+    private int offset;
+    private int length;
+
+    final int[] tokenStart = new int[MAX_TOKENS];
+    final int[] tokenEnd = new int[MAX_TOKENS];
+    int tokenCount;
+
+    void reset(CharSequence chars, ByteBuffer bytes, int offset, int length) {
+        this.chars = chars;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        type = Type.MOVE;
+        error = null;
+        numberCount = 0;
+        wordStart = wordEnd = 0;
+        tokenCount = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Zwraca znak (dla bajtów: bajt bez znaku) linii źródłowej.
+     */
+    int at(int i) {
+        return chars != null ? chars.charAt(offset + i) : bytes.get(offset + i) & 0xFF;
+    }
+
+    void setType(Type type) {
+        this.type = type;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    void addNumber(long value) {
+        numbers[numberCount++] = value;
+    }
+
+    void setWord(int start, int end) {
+        this.wordStart = start;
+        this.wordEnd = end;
+    }
+
+    /**
+     * Ustawia ruch zdekodowany z ramki binarnej.
+     *
+     * @param col kolumna
+     * @param row wiersz
+     */
+    void setMove(int col, int row) {
+        reset("", null, 0, 0);
+        addNumber(col);
+        addNumber(row);
+    }
+
+    /**
+     * Ustawia komendę bez argumentów (np. z ramki binarnej).
+     *
+     * @param type rodzaj komendy
+     */
+    void set(Type type) {
+        reset("", null, 0, 0);
+        this.type = type;
+    }
+
+    public Type getType() { return type; }
+
+    /**
+     * @return {@code true}, jeśli komenda jest poprawna
+     */
+    public boolean isValid() { return error == null; }
+
+    /**
+     * @return opis błędu składni lub {@code null}
+     */
+    public String getError() { return error; }
+
+    /**
+     * @return liczba odczytanych argumentów liczbowych
+     */
+    public int getNumberCount() { return numberCount; }
+
+    public int getInt(int i) { return (int) numbers[i]; }
+
+    public long getLong(int i) { return numbers[i]; }
+
+    /**
+     * @return {@code true}, jeśli komenda ma argument tekstowy
+     */
+    public boolean hasWord() { return wordEnd > wordStart; }
+
+    /**
+     * Porównuje argument tekstowy z podanym słowem (bez rozróżniania
+     * wielkości liter ASCII i bez tworzenia napisu).
+     *
+     * @param expected oczekiwane słowo
+     * @return {@code true}, jeśli argument jest równy słowu
+     */
+    public boolean wordEquals(String expected) {
+        return CommandParser.matches(this, wordStart, wordEnd, expected);
+    }
+
+    /**
+     * Zwraca argument tekstowy jako napis (tworzy nowy obiekt, więc służy
+     * tylko do rzadkich komend, np. wyboru trybu gry).
+     *
+     * @return argument tekstowy lub {@code null}
+     */
+    public String getWord() {
+        if (!hasWord()) return null;
+        if (chars != null) return chars.subSequence(offset + wordStart, offset + wordEnd).toString();
+        byte[] word = new byte[wordEnd - wordStart];
+        for (int i = 0; i < word.length; i++) word[i] = bytes.get(offset + wordStart + i);
+        return new String(word, StandardCharsets.UTF_8);
+    }
+}
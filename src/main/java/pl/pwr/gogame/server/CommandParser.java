@@ -3,10 +3,9 @@ package pl.pwr.gogame.server;
 // Parsowanie komend od klienta w grze Go
 // Wzorzec: Adapter
 
-import pl.pwr.gogame.model.Board;
-import pl.pwr.gogame.model.MoveResult;
+import java.nio.ByteBuffer;
+
 import pl.pwr.gogame.model.GamePlayer;
-import pl.pwr.gogame.model.StoneColor;
 import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.Position;
 
@@ -19,9 +18,193 @@ import pl.pwr.gogame.model.Position;
  * Realizuje wzorzec projektowy <b>Adapter</b>, adaptując dane wejściowe
  * w postaci tekstu na obiekty takie jak {@link Move}.
  * </p>
+ * <p>
+ * Linia dzielona jest na słowa bezpośrednio w {@link CharSequence} lub
+ * buforze bajtów, a wynik trafia do używanego ponownie obiektu
+ * {@link Command}: bez pośrednich napisów, {@code split} i wyjątków
+ * dla niepoprawnych danych. Słowa kluczowe porównywane są bez rozróżniania
+ * wielkości liter.
+ * </p>
  */
 public class CommandParser {
 
+    static final String EMPTY_COMMAND = "Pusta komenda";
+    static final String MISSING_COORDINATES = "Wymagane dwie współrzędne (x y)";
+    static final String NOT_A_NUMBER = "Współrzędne muszą być liczbami";
+    static final String NEGOTIATE_ARGUMENTS = "NEGOTIATE_MARK wymaga dwóch argumentów: kolumna wiersz";
+    static final String NEGOTIATE_NUMBERS = "niepoprawne współrzędne negocjacji";
+    static final int MAX_RATING = 5000;
+
+    /**
+     * Parsuje linię tekstu.
+     *
+     * @param line linia od klienta (bez znaku końca linii)
+     * @param out obiekt wypełniany wynikiem
+     * @return {@code true}, jeśli komenda jest poprawna
+     */
+    public static boolean parse(CharSequence line, Command out) {
+        out.reset(line, null, 0, line.length());
+        return parse(out);
+    }
+
+    /**
+     * Parsuje linię zapisaną w buforze (UTF-8, od pozycji do limitu).
+     * Pozycja bufora nie jest zmieniana.
+     *
+     * @param line bajty linii
+     * @param out obiekt wypełniany wynikiem
+     * @return {@code true}, jeśli komenda jest poprawna
+     */
+    public static boolean parse(ByteBuffer line, Command out) {
+        out.reset(null, line, line.position(), line.remaining());
+        return parse(out);
+    }
+
+    private static boolean parse(Command c) {
+        tokenize(c);
+        if (c.tokenCount == 0) {
+            c.setError(EMPTY_COMMAND);
+            return false;
+        }
+        int start = c.tokenStart[0];
+        int end = c.tokenEnd[0];
+
+        if (matches(c, start, end, "pass") || matches(c, start, end, "pas")) {
+            c.setType(Command.Type.PASS);
+        } else if (matches(c, start, end, "resign")) {
+            c.setType(Command.Type.RESIGN);
+        } else if (matches(c, start, end, "NEGOTIATE_MARK")) {
+            c.setType(Command.Type.NEGOTIATE_MARK);
+            if (c.tokenCount < 3) {
+                c.setError(NEGOTIATE_ARGUMENTS);
+            } else if (!number(c, 1, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                    || !number(c, 2, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                c.setError(NEGOTIATE_NUMBERS);
+            }
+        } else if (matches(c, start, end, "NEGOTIATE_DONE")) {
+            c.setType(Command.Type.NEGOTIATE_DONE);
+        } else if (matches(c, start, end, "SET_PROTOCOL")) {
+            c.setType(Command.Type.SET_PROTOCOL);
+            word(c);
+        } else if (matches(c, start, end, "SET_GAME_MODE")) {
+            c.setType(Command.Type.SET_GAME_MODE);
+            word(c);
+        } else if (matches(c, start, end, "SET_BOARD_SIZE")) {
+            c.setType(Command.Type.SET_BOARD_SIZE);
+            if (c.tokenCount < 2 || !number(c, 1, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                c.setError("Nieprawidłowy rozmiar planszy");
+            }
+        } else if (matches(c, start, end, "SET_RATING")) {
+            c.setType(Command.Type.SET_RATING);
+            if (c.tokenCount < 2 || !number(c, 1, 0, MAX_RATING)) {
+                c.setError("Ranking musi być liczbą z przedziału 0.." + MAX_RATING);
+            }
+        } else if (matches(c, start, end, "LIST_GAMES")) {
+            c.setType(Command.Type.LIST_GAMES);
+        } else if (matches(c, start, end, "SPECTATE")) {
+            c.setType(Command.Type.SPECTATE);
+            if (c.tokenCount < 2 || !number(c, 1, 0, Long.MAX_VALUE)) {
+                c.setError("Niepoprawny identyfikator gry");
+            }
+        } else if (matches(c, start, end, "PONG")) {
+            c.setType(Command.Type.PONG);
+        } else if (matches(c, start, end, "RESUME")) {
+            c.setType(Command.Type.RESUME);
+            word(c);
+        } else if (matches(c, start, end, "ROUTE")) {
+            c.setType(Command.Type.ROUTE);
+            if (c.tokenCount < 4 || !number(c, 1, 1, Long.MAX_VALUE)
+                    || !number(c, 2, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                c.setError("ROUTE wymaga argumentów: stół rozmiar tryb");
+            } else {
+                c.setWord(c.tokenStart[3], c.tokenEnd[3]);
+            }
+        } else if (matches(c, start, end, "ROUTER_AUTH")) {
+            c.setType(Command.Type.ROUTER_AUTH);
+            word(c);
+        } else {
+            // każda inna linia to próba ruchu "kolumna wiersz"
+            c.setType(Command.Type.MOVE);
+            if (c.tokenCount < 2) {
+                c.setError(MISSING_COORDINATES);
+            } else if (!number(c, 0, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                    || !number(c, 1, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                c.setError(NOT_A_NUMBER);
+            }
+        }
+        return c.isValid();
+    }
+
+    /**
+     * Dzieli linię na słowa oddzielone spacjami lub tabulatorami.
+     */
+    private static void tokenize(Command c) {
+        int length = c.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isSpace(c.at(i))) i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && !isSpace(c.at(i))) i++;
+            if (c.tokenCount < Command.MAX_TOKENS) {
+                c.tokenStart[c.tokenCount] = start;
+                c.tokenEnd[c.tokenCount] = i;
+            }
+            c.tokenCount++;
+        }
+    }
+
+    private static boolean isSpace(int ch) {
+        return ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n';
+    }
+
+    private static void word(Command c) {
+        if (c.tokenCount >= 2) c.setWord(c.tokenStart[1], c.tokenEnd[1]);
+    }
+
+    /**
+     * Odczytuje słowo o podanym numerze jako liczbę całkowitą z zakresu.
+     *
+     * @return {@code false}, jeśli słowo nie jest liczbą z zakresu
+     */
+    private static boolean number(Command c, int token, long min, long max) {
+        if (token >= Command.MAX_TOKENS) return false;
+        int i = c.tokenStart[token];
+        int end = c.tokenEnd[token];
+        boolean negative = false;
+        if (c.at(i) == '-' || c.at(i) == '+') {
+            negative = c.at(i) == '-';
+            i++;
+        }
+        // maksymalnie 18 cyfr - wartość mieści się w long bez przepełnienia
+        if (i == end || end - i > 18) return false;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = c.at(i) - '0';
+            if (digit < 0 || digit > 9) return false;
+            value = value * 10 + digit;
+        }
+        if (negative) value = -value;
+        if (value < min || value > max) return false;
+        c.addNumber(value);
+        return true;
+    }
+
+    /**
+     * Porównuje fragment linii ze słowem bez rozróżniania wielkości liter ASCII.
+     */
+    static boolean matches(Command c, int start, int end, String keyword) {
+        if (end - start != keyword.length()) return false;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (lower(c.at(start + i)) != lower(keyword.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static int lower(int ch) {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+    }
+
     /**
      * Parsuje komendę tekstową reprezentującą ruch gracza CMD.
      *
@@ -41,27 +224,13 @@ public class CommandParser {
      * @throws IllegalArgumentException jeśli komenda jest niepoprawna
      */
     public static Move parseMove(String command, GamePlayer player) {
-
-        //sprawdzamy czy komenda to resign. W tym przypadku
-        //zwracamy specjalny obiekt Move bedacy nullem
-        command = command.trim().toLowerCase();
-        if (command.equals("resign")) return null;
-
-        if (command == null || command.isBlank()) {
-            throw new IllegalArgumentException("Pusta komenda");
-        }
-
-        String[] parts = command.trim().split("\\s+");
-        if (parts.length < 2) {
-            throw new IllegalArgumentException("Wymagane dwie współrzędne (x y)");
-        }
-
-        try {
-            int col = Integer.parseInt(parts[0]);
-            int row = Integer.parseInt(parts[1]);
-            return new Move(new Position(col, row), player);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Współrzędne muszą być liczbami");
+        Command parsed = new Command();
+        parse(command, parsed);
+        if (parsed.getType() == Command.Type.RESIGN) return null;
+        if (parsed.getType() != Command.Type.MOVE) {
+            throw new IllegalArgumentException(MISSING_COORDINATES);
         }
+        if (!parsed.isValid()) throw new IllegalArgumentException(parsed.getError());
+        return new Move(new Position(parsed.getInt(0), parsed.getInt(1)), player);
     }
 }
@@ -0,0 +1,76 @@
+package pl.pwr.gogame.server;
+
+import pl.pwr.gogame.model.GameClock;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.MoveResult;
+import pl.pwr.gogame.server.net.TimingWheel;
+
+/**
+ * Klasa {@code GameClockTimer} pilnuje terminu utraty czasu w jednej grze.
+ * <p>
+ * Gra ma co najwyżej jedno zadanie we wspólnym kole czasowym lobby,
+ * zaplanowane na chwilę, w której graczowi na ruchu skończy się czas.
+ * Po każdym ruchu silnik zgłasza nowy termin ({@link #onClockChange()}),
+ * a poprzednie zadanie jest anulowane, więc koszt zegara nie zależy
+ * od liczby trwających gier ani ruchów.
+ * </p>
+ * <p>
+ * Zadanie nie rozstrzyga samo o końcu czasu: {@link GameEngine#flagFall()}
+ * sprawdza zegar ponownie pod blokadą silnika, więc ruch wykonany tuż
+ * przed terminem wygrywa z timerem.
+ * </p>
+ */
+class GameClockTimer {
+
+    private final GameSession session;
+    private final Lobby lobby;
+    private TimingWheel.Timeout timeout;
+
+    GameClockTimer(GameSession session, Lobby lobby) {
+        this.session = session;
+        this.lobby = lobby;
+    }
+
+    /**
+     * Wywoływane przez silnik (pod jego blokadą) przy każdej zmianie zegara:
+     * przestawia termin i wysyła stan zegara graczom oraz obserwatorom.
+     */
+    void onClockChange() {
+        GameEngine engine = session.getEngine();
+        arm(engine.getClockRemainingMillis());
+        GameClock.Reading reading = engine.readClock();
+        if (reading == null) return;
+        String line = ResponseFormatter.formatClock(reading);
+        ClientHandler black = session.getBlack();
+        ClientHandler white = session.getWhite();
+        if (black != null) black.send(line);
+        if (white != null) white.send(line);
+        session.getSpectators().publishLine(line);
+    }
+
+    /**
+     * Planuje sprawdzenie zegara po podanym czasie.
+     *
+     * @param remainingMillis czas do utraty czasu lub {@code -1}, jeśli zegar stoi
+     */
+    private synchronized void arm(long remainingMillis) {
+        if (timeout != null) timeout.cancel();
+        timeout = remainingMillis >= 0 ? lobby.schedule(this::fire, remainingMillis) : null;
+    }
+
+    /**
+     * Sprawdza zegar w terminie utraty czasu (poza wątkiem koła czasowego).
+     */
+    private void fire() {
+        if (session.isFinished()) return;
+        MoveResult result = session.getEngine().flagFall();
+        if (result == null) return;
+        ClientHandler loser = result.getLoser().equals(session.getEngine().getBlackPlayer())
+                ? session.getBlack() : session.getWhite();
+        if (loser != null) {
+            loser.loseOnTime(result);
+        } else {
+            session.finish();
+        }
+    }
+}
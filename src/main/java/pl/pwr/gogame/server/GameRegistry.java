@@ -0,0 +1,118 @@
+package pl.pwr.gogame.server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Klasa {@code GameRegistry} przechowuje wszystkie trwające gry na serwerze.
+ * <p>
+ * Gry indeksowane są identyfikatorem sesji; rejestr jest bezpieczny
+ * wątkowo i nie blokuje się przy odczycie, więc wiele gier może być
+ * tworzonych i kończonych równolegle.
+ * </p>
+ */
+public class GameRegistry {
+
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Sesje indeksowane tokenami graczy (do wznawiania gry po rozłączeniu).
+     */
+    private final Map<String, GameSession> byToken = new ConcurrentHashMap<>();
+
+    /**
+     * Przydziela identyfikator nowej sesji gry.
+     *
+     * @return unikalny identyfikator
+     */
+    public long nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Rejestruje sesję gry. Trwająca gra nigdy nie jest zastępowana.
+     *
+     * @param session sesja gry
+     * @throws IllegalArgumentException jeśli gra o tym identyfikatorze
+     *         (lub z tym tokenem) jest już zarejestrowana
+     */
+    public void register(GameSession session) {
+        if (sessions.putIfAbsent(session.getId(), session) != null) {
+            throw new IllegalArgumentException("Gra o identyfikatorze " + session.getId() + " już trwa");
+        }
+        String black = session.getToken(StoneColor.BLACK);
+        String white = session.getToken(StoneColor.WHITE);
+        if (byToken.putIfAbsent(black, session) != null) {
+            sessions.remove(session.getId(), session);
+            throw new IllegalArgumentException("Powtórzony token sesji gry " + session.getId());
+        }
+        if (byToken.putIfAbsent(white, session) != null) {
+            byToken.remove(black, session);
+            sessions.remove(session.getId(), session);
+            throw new IllegalArgumentException("Powtórzony token sesji gry " + session.getId());
+        }
+    }
+
+    /**
+     * Usuwa sesję gry z rejestru.
+     *
+     * @param session sesja gry
+     */
+    public void remove(GameSession session) {
+        sessions.remove(session.getId(), session);
+        byToken.remove(session.getToken(StoneColor.BLACK), session);
+        byToken.remove(session.getToken(StoneColor.WHITE), session);
+    }
+
+    /**
+     * Zwraca sesję o podanym identyfikatorze.
+     *
+     * @param id identyfikator sesji
+     * @return sesja lub {@code null}, jeśli gra nie istnieje lub już się zakończyła
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Zwraca trwającą sesję, do której należy token gracza.
+     *
+     * @param token token sesji
+     * @return sesja lub {@code null}, jeśli token jest nieznany albo gra się zakończyła
+     */
+    public GameSession findByToken(String token) {
+        return byToken.get(token);
+    }
+
+    /**
+     * Kończy i usuwa gry, których silnik zgłasza koniec, a które nie zostały
+     * jeszcze zamknięte przez handlery (np. bot zakończył grę bez odpowiedzi
+     * przeciwnika).
+     *
+     * @return liczba usuniętych gier
+     */
+    public int evictFinished() {
+        int evicted = 0;
+        for (GameSession session : sessions.values()) {
+            if (session.getEngine().isEnd()) {
+                session.finish();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public Collection<GameSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+}
@@ -0,0 +1,163 @@
+package pl.pwr.gogame.server;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.persistence.service.GamePersistenceService;
+
+/**
+ * Klasa {@code GameSession} reprezentuje jedną trwającą grę na serwerze:
+ * silnik gry, planszę, zapis w bazie danych, handlery obu graczy
+ * oraz obserwatorów ({@link SpectatorGroup}).
+ * <p>
+ * Sesja jest rejestrowana w {@link GameRegistry} w chwili utworzenia
+ * i usuwana z niego przy zakończeniu gry ({@link #finish()}).
+ * </p>
+ * <p>
+ * Każdy gracz dostaje losowy token sesji (poprzedzony identyfikatorem gry),
+ * którym po zerwaniu połączenia może wrócić do gry ({@code RESUME <token>}).
+ * </p>
+ */
+public class GameSession {
+
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    private final long id;
+    private final GameEngine engine;
+    private final Board board;
+    private final GameEntity gameEntity;
+    private final GamePersistenceService persistenceService;
+    private final GameRegistry registry;
+    private final SpectatorGroup spectators;
+    private final String blackToken;
+    private final String whiteToken;
+
+    private volatile ClientHandler black;
+    private volatile ClientHandler white;
+
+    /**
+     * Informacja, czy gra została już zakończona i wyrejestrowana.
+     */
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    public GameSession(long id, GameEngine engine, GameEntity gameEntity,
+                       GamePersistenceService persistenceService, GameRegistry registry,
+                       SpectatorGroup spectators) {
+        this.id = id;
+        this.engine = engine;
+        this.board = engine.getBoard();
+        this.gameEntity = gameEntity;
+        this.persistenceService = persistenceService;
+        this.registry = registry;
+        this.spectators = spectators;
+        this.blackToken = newToken(id);
+        this.whiteToken = newToken(id);
+    }
+
+    /**
+     * Kończy grę: zapisuje zwycięzcę w bazie danych, usuwa sesję z rejestru
+     * i kończy transmisję dla obserwatorów.
+     * Kolejne wywołania nie mają efektu, więc metodę mogą bezpiecznie
+     * wywołać obaj gracze.
+     */
+    public void finish() {
+        if (!finished.compareAndSet(false, true)) return;
+        engine.setEnd(true);
+        try {
+            persistenceService.finishGame(gameEntity, engine.getWinner());
+        } finally {
+            registry.remove(this);
+            spectators.closeAll();
+        }
+    }
+
+    /**
+     * Porzuca grę, której nie udało się rozpocząć: usuwa sesję z rejestru,
+     * a grę z bazy danych (bez wyniku i bez {@code finishGame}). Nie ma
+     * efektu, jeśli gra została już zakończona.
+     */
+    void discard() {
+        if (!finished.compareAndSet(false, true)) return;
+        engine.setEnd(true);
+        try {
+            persistenceService.discardGame(gameEntity);
+        } finally {
+            registry.remove(this);
+            spectators.closeAll();
+        }
+    }
+
+    public boolean isFinished() { return finished.get(); }
+
+    public long getId() { return id; }
+
+    public GameEngine getEngine() { return engine; }
+
+    public Board getBoard() { return board; }
+
+    public GameEntity getGameEntity() { return gameEntity; }
+
+    /**
+     * Zwraca token sesji gracza danego koloru.
+     *
+     * @param color kolor gracza
+     * @return token sesji
+     */
+    public String getToken(StoneColor color) {
+        return color == StoneColor.BLACK ? blackToken : whiteToken;
+    }
+
+    /**
+     * Zwraca handler gracza, do którego należy token.
+     *
+     * @param token token sesji
+     * @return handler gracza lub {@code null}, jeśli token nie pasuje
+     */
+    public ClientHandler findHandler(String token) {
+        if (blackToken.equals(token)) return black;
+        if (whiteToken.equals(token)) return white;
+        return null;
+    }
+
+    /**
+     * Tworzy token {@code <id gry>-<losowe bajty>}; identyfikator pozwala
+     * routerowi skierować {@code RESUME} do serwera, na którym toczy się gra.
+     */
+    private static String newToken(long id) {
+        byte[] bytes = new byte[16];
+        TOKENS.nextBytes(bytes);
+        return id + "-" + HexFormat.of().formatHex(bytes);
+    }
+
+    /**
+     * Odczytuje identyfikator gry z tokenu sesji.
+     *
+     * @param token token sesji
+     * @return identyfikator gry lub {@code -1}, jeśli token nie ma poprawnej postaci
+     */
+    public static long gameIdOf(String token) {
+        int dash = token.indexOf('-');
+        if (dash <= 0) return -1;
+        try {
+            return Long.parseLong(token, 0, dash, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public SpectatorGroup getSpectators() { return spectators; }
+
+    public ClientHandler getBlack() { return black; }
+
+    public ClientHandler getWhite() { return white; }
+
+    void setHandlers(ClientHandler black, ClientHandler white) {
+        this.black = black;
+        this.white = white;
+    }
+}
@@ -0,0 +1,53 @@
+package pl.pwr.gogame.server;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Klasa {@code HandlerThreads} tworzy fabryki wątków dla handlerów
+ * klientów i botów w wybranym trybie: {@code platform} (zwykłe wątki
+ * systemowe) lub {@code virtual} (wątki wirtualne, wymagają Javy 21).
+ * <p>
+ * Wątki wirtualne pozwalają zachować blokujące gniazda i model
+ * wątek na połączenie przy tysiącach jednoczesnych klientów.
+ * Projekt kompiluje się domyślnie dla Javy 17, dlatego fabryka wątków
+ * wirtualnych ({@code Thread.ofVirtual()}) pobierana jest refleksyjnie.
+ * </p>
+ */
+public final class HandlerThreads {
+
+    private HandlerThreads() {}
+
+    /**
+     * Tworzy fabrykę wątków dla podanego trybu.
+     *
+     * @param mode {@code platform} lub {@code virtual}
+     * @param prefix prefiks nazw tworzonych wątków
+     * @return fabryka wątków
+     * @throws IllegalArgumentException jeśli tryb jest nieznany albo wątki
+     *         wirtualne nie są dostępne w tej wersji Javy
+     */
+    public static ThreadFactory create(String mode, String prefix) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            return virtual(prefix);
+        }
+        if ("platform".equalsIgnoreCase(mode)) {
+            AtomicInteger counter = new AtomicInteger();
+            return task -> new Thread(task, prefix + counter.getAndIncrement());
+        }
+        throw new IllegalArgumentException("Nieznany tryb wątków: " + mode);
+    }
+
+    private static ThreadFactory virtual(String prefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                    "Wątki wirtualne wymagają Javy 21 (obecnie " + Runtime.version() + ")", e);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package pl.pwr.gogame.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.BoardFactory;
+import pl.pwr.gogame.model.GameClock;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.model.TimeControl;
+import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.persistence.service.GamePersistenceService;
+import pl.pwr.gogame.server.net.TimingWheel;
+import pl.pwr.gogame.service.ScoringStrategy;
+
+/**
+ * Klasa {@code Lobby} łączy połączonych graczy w gry.
+ * <p>
+ * Gracz wybierający grę z botem od razu otrzymuje nową grę. Gracze
+ * wybierający grę z innym graczem czekają w kolejce {@link Matchmaker},
+ * który dobiera przeciwnika o podobnym rankingu dla tego samego rozmiaru
+ * planszy. Każda utworzona gra jest rejestrowana w {@link GameRegistry}.
+ * </p>
+ * <p>
+ * Jeśli ustawiono tempo gry ({@link #setTimeControl(TimeControl)}), każda
+ * nowa gra dostaje zegar, którego terminy odlicza wspólne koło czasowe.
+ * Komendy każdego klienta ogranicza {@link RateLimiter}.
+ * </p>
+ */
+public class Lobby {
+
+    private final GameRegistry registry;
+    private final GamePersistenceService persistenceService;
+
+    /**
+     * Dostarcza strategię liczenia punktów dla każdej nowej gry.
+     */
+    private final Supplier<ScoringStrategy> scoringStrategies;
+
+    /**
+     * Fabryka wątków, w których działają boty.
+     */
+    private final ThreadFactory botThreads;
+
+    /**
+     * Wspólna pula wątków rozsyłających zdarzenia gier do obserwatorów.
+     */
+    private final Executor spectatorPool;
+
+    /**
+     * Długość kolejki wyjściowej, powyżej której obserwator jest pomijany.
+     */
+    private final int spectatorQueueLimit;
+
+    /**
+     * Czas (w milisekundach), przez jaki gra czeka na powrót rozłączonego
+     * gracza; {@code 0} kończy grę od razu.
+     */
+    private final long resumeGraceMillis;
+
+    /**
+     * Koło czasowe odliczające czas na powrót rozłączonych graczy
+     * (wspólne z nadzorem bezczynnych połączeń).
+     */
+    private final TimingWheel timers;
+
+    /**
+     * Wątek wykonujący zadania, których termin minął (np. zakończenie
+     * i zapis porzuconej gry), by nie blokować wątku koła czasowego.
+     */
+    private final ExecutorService timerTasks = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "lobby-timers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Wątki rozpoczynające gry. Utworzenie gry zapisuje ją w bazie, więc nie
+     * może odbywać się w wątku pętli zdarzeń, który obsługuje tysiące połączeń.
+     */
+    private final ExecutorService starters = newStarterPool();
+
+    /**
+     * Tempo nowych gier ({@code null} - gra bez limitu czasu).
+     */
+    private volatile TimeControl timeControl;
+
+    /**
+     * Limity komend nowych połączeń ({@code null} - bez limitu).
+     */
+    private volatile RateLimiter rateLimiter = RateLimiter.defaults();
+
+    /**
+     * Kolejka graczy oczekujących na przeciwnika.
+     */
+    private final Matchmaker matchmaker;
+
+    /**
+     * Gracze czekający na drugiego gracza stołu przydzielonego przez router
+     * ({@code ROUTE}), indeksowani numerem stołu.
+     */
+    private final Map<Long, ClientHandler> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Sekret, którym router uwierzytelnia przekazywane połączenia
+     * ({@code ROUTER_AUTH}); {@code null} - komenda {@code ROUTE} jest odrzucana.
+     */
+    private volatile byte[] routerSecret;
+
+    /**
+     * Odstęp (w milisekundach) między przeglądami rejestru w poszukiwaniu
+     * gier zakończonych bez zamknięcia przez handlery.
+     */
+    static final long EVICTION_INTERVAL_MILLIS = 30_000;
+
+    /**
+     * Czy przegląd zakończonych gier jest zaplanowany na kole czasowym.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public Lobby(GameRegistry registry, GamePersistenceService persistenceService,
+                 Supplier<ScoringStrategy> scoringStrategies) {
+        this(registry, persistenceService, scoringStrategies, Thread::new);
+    }
+
+    public Lobby(GameRegistry registry, GamePersistenceService persistenceService,
+                 Supplier<ScoringStrategy> scoringStrategies, ThreadFactory botThreads) {
+        this(registry, persistenceService, scoringStrategies, botThreads, SpectatorGroup.newFanOutPool(2), 64, 60_000,
+                new TimingWheel("lobby-wheel", 100, 512));
+    }
+
+    public Lobby(GameRegistry registry, GamePersistenceService persistenceService,
+                 Supplier<ScoringStrategy> scoringStrategies, ThreadFactory botThreads,
+                 Executor spectatorPool, int spectatorQueueLimit, long resumeGraceMillis,
+                 TimingWheel timers) {
+        if (resumeGraceMillis < 0) throw new IllegalArgumentException("Czas na powrót gracza nie może być ujemny");
+        this.registry = registry;
+        this.persistenceService = persistenceService;
+        this.scoringStrategies = scoringStrategies;
+        this.botThreads = botThreads;
+        this.spectatorPool = spectatorPool;
+        this.spectatorQueueLimit = spectatorQueueLimit;
+        this.resumeGraceMillis = resumeGraceMillis;
+        this.timers = timers;
+        this.matchmaker = new Matchmaker(timers, starters, this::startPlayerGame);
+    }
+
+    /**
+     * Dodaje gracza do lobby z domyślnym rankingiem.
+     *
+     * @param handler handler gracza
+     * @param gameMode tryb gry ({@code BOT} lub {@code PLAYER})
+     * @param boardSize rozmiar planszy
+     * @throws IllegalArgumentException jeśli rozmiar planszy jest niedozwolony
+     */
+    public void join(ClientHandler handler, String gameMode, int boardSize) {
+        join(handler, gameMode, boardSize, Matchmaker.DEFAULT_RATING);
+    }
+
+    /**
+     * Dodaje gracza do lobby. Gra z botem rozpoczyna się od razu, a gracz
+     * wybierający grę z innym graczem czeka w kolejce na przeciwnika.
+     *
+     * @param handler handler gracza
+     * @param gameMode tryb gry ({@code BOT} lub {@code PLAYER})
+     * @param boardSize rozmiar planszy
+     * @param rating ranking gracza
+     * @throws IllegalArgumentException jeśli rozmiar planszy jest niedozwolony
+     */
+    public void join(ClientHandler handler, String gameMode, int boardSize, int rating) {
+        if ("BOT".equalsIgnoreCase(gameMode)) {
+            long id = registry.nextId();
+            startAsync(() -> startBotGame(handler, boardSize, id), handler);
+            return;
+        }
+        matchmaker.enqueue(handler, gameMode, boardSize, rating);
+    }
+
+    /**
+     * Dodaje gracza do stołu przydzielonego przez router. Stół ma numer
+     * unikalny w całym klastrze i staje się identyfikatorem gry. Gra z botem
+     * rozpoczyna się od razu, a gra dwóch graczy - gdy do stołu dołączy drugi
+     * gracz (pierwszy gra czarnymi); kolejka z rankingiem jest pomijana,
+     * bo przeciwnika dobrał już router. Gra jest tworzona w tle; jeśli się
+     * nie uda (np. stół o tym numerze już trwa na tym węźle), gracze dostają
+     * komunikat o błędzie.
+     *
+     * @param handler handler gracza
+     * @param gameMode tryb gry ({@code BOT} lub {@code PLAYER})
+     * @param boardSize rozmiar planszy
+     * @param table numer stołu
+     */
+    public void joinTable(ClientHandler handler, String gameMode, int boardSize, long table) {
+        if ("BOT".equalsIgnoreCase(gameMode)) {
+            startAsync(() -> startBotGame(handler, boardSize, table), handler);
+            return;
+        }
+        ClientHandler[] partner = new ClientHandler[1];
+        tables.compute(table, (id, waiting) -> {
+            if (waiting == null || !waiting.isConnected()) return handler;
+            partner[0] = waiting;
+            return null;
+        });
+        ClientHandler black = partner[0];
+        if (black != null) {
+            startAsync(() -> startPlayerGame(black, handler, boardSize, table), black, handler);
+        }
+    }
+
+    /**
+     * Usuwa gracza z kolejki oczekujących lub ze stołu (np. po rozłączeniu).
+     *
+     * @param handler handler gracza
+     */
+    public void leave(ClientHandler handler) {
+        matchmaker.leave(handler);
+        long table = handler.getTable();
+        if (table != 0) tables.remove(table, handler);
+    }
+
+    /**
+     * Zwraca liczbę graczy oczekujących na przeciwnika.
+     *
+     * @return liczba oczekujących graczy
+     */
+    public int waitingCount() {
+        return matchmaker.size();
+    }
+
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    public GameRegistry getRegistry() {
+        return registry;
+    }
+
+    public long getResumeGraceMillis() {
+        return resumeGraceMillis;
+    }
+
+    /**
+     * Ustawia tempo dla nowo tworzonych gier.
+     *
+     * @param timeControl tempo gry lub {@code null} dla gier bez limitu czasu
+     */
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    /**
+     * Ustawia limity komend dla nowych połączeń.
+     *
+     * @param rateLimiter ogranicznik lub {@code null}, by nie ograniczać klientów
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Ustawia sekret routera. Tylko połączenie, które poda go w
+     * {@code ROUTER_AUTH}, może wybrać stół komendą {@code ROUTE}.
+     *
+     * @param secret sekret współdzielony z routerem; pusty lub {@code null}
+     *               wyłącza przyjmowanie gier od routera
+     */
+    public void setRouterSecret(String secret) {
+        this.routerSecret = secret == null || secret.isBlank() ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sprawdza sekret podany przez połączenie (w stałym czasie).
+     *
+     * @param secret podany sekret
+     * @return {@code true}, jeśli sekret routera jest ustawiony i zgodny
+     */
+    boolean isRouterSecret(String secret) {
+        byte[] expected = routerSecret;
+        return expected != null && secret != null
+                && MessageDigest.isEqual(expected, secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Uruchamia zadanie po upływie podanego czasu (np. koniec czasu na powrót gracza).
+     *
+     * @param task zadanie
+     * @param delayMillis opóźnienie w milisekundach
+     * @return uchwyt pozwalający anulować zadanie
+     */
+    TimingWheel.Timeout schedule(Runnable task, long delayMillis) {
+        return timers.schedule(() -> timerTasks.execute(task), delayMillis);
+    }
+
+    private static ExecutorService newStarterPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), task -> {
+            Thread thread = new Thread(task, "game-start-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rozpoczyna grę w wątku {@link #starters}. Gracze dostają początek gry
+     * z tego wątku, a jeśli gry nie udało się utworzyć - komunikat o błędzie.
+     *
+     * @param start utworzenie i rozpoczęcie gry
+     * @param players gracze czekający na grę
+     */
+    private void startAsync(Runnable start, ClientHandler... players) {
+        starters.execute(() -> {
+            try {
+                start.run();
+            } catch (IllegalArgumentException e) {
+                System.err.println("Nie udało się rozpocząć gry: " + e.getMessage());
+                for (ClientHandler player : players) player.sendText("BŁĄD: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Nie udało się rozpocząć gry: " + e.getMessage());
+                for (ClientHandler player : players) player.sendText("BŁĄD: nie udało się rozpocząć gry");
+            }
+        });
+    }
+
+    private void startPlayerGame(ClientHandler blackHandler, ClientHandler whiteHandler, int boardSize) {
+        startPlayerGame(blackHandler, whiteHandler, boardSize, registry.nextId());
+    }
+
+    private void startPlayerGame(ClientHandler blackHandler, ClientHandler whiteHandler, int boardSize, long id) {
+        GamePlayer blackPlayer = new GamePlayer("BlackPlayer", StoneColor.BLACK);
+        GamePlayer whitePlayer = new GamePlayer("WhitePlayer", StoneColor.WHITE);
+        GameSession session = createSession(id, boardSize, blackPlayer, whitePlayer);
+        try {
+            blackHandler.attach(session, blackPlayer);
+            whiteHandler.attach(session, whitePlayer);
+            session.setHandlers(blackHandler, whiteHandler);
+
+            // Po podłączeniu obu handlerów — uruchom zegar (zanim gracze dostaną GAME_START),
+            // ustaw przeciwników i rozpocznij grę
+            session.getEngine().startClock();
+            blackHandler.setOpponent(whiteHandler);
+        } catch (RuntimeException e) {
+            session.discard();
+            throw e;
+        }
+        System.out.println("Rozpoczęto grę " + session.getId() + " (" + boardSize + "x" + boardSize
+                + "), aktywnych gier: " + registry.size());
+    }
+
+    private void startBotGame(ClientHandler humanHandler, int boardSize, long id) {
+        GamePlayer blackPlayer = new GamePlayer("BlackPlayer", StoneColor.BLACK);
+        GamePlayer botPlayer = new GamePlayer("WhitePlayer", StoneColor.WHITE);
+        GameSession session = createSession(id, boardSize, blackPlayer, botPlayer);
+        try {
+            humanHandler.attach(session, blackPlayer);
+            BotHandler bot = new BotHandler(session, botPlayer, persistenceService);
+            session.setHandlers(humanHandler, bot);
+
+            botThreads.newThread(bot).start();
+            // zegar rusza, zanim gracze dostaną GAME_START
+            session.getEngine().startClock();
+            humanHandler.setOpponent(bot);
+        } catch (RuntimeException e) {
+            session.discard();
+            throw e;
+        }
+        System.out.println("Rozpoczęto grę " + session.getId() + " z botem, aktywnych gier: " + registry.size());
+    }
+
+    private GameSession createSession(long id, int boardSize, GamePlayer blackPlayer, GamePlayer whitePlayer) {
+        // rejestr i tak odrzuci powtórzony identyfikator; tu unikamy zapisu gry w bazie
+        if (registry.get(id) != null) throw new IllegalArgumentException("Gra o identyfikatorze " + id + " już trwa");
+
+        Board board = BoardFactory.createBoard(boardSize);
+        GameEngine engine = new GameEngine(board);
+        engine.setScoringStrategy(scoringStrategies.get());
+        engine.setKeyframeInterval(persistenceService.getSnapshotInterval());
+        engine.setPlayers(blackPlayer, whitePlayer);
+
+        // Obsługa bazy danych (w wątku starters, nie w pętli zdarzeń)
+        GameEntity gameEntity = persistenceService.startGame(engine);
+
+        GameSession session;
+        try {
+            session = new GameSession(id, engine, gameEntity, persistenceService, registry,
+                    new SpectatorGroup(engine, spectatorPool, spectatorQueueLimit));
+            TimeControl control = timeControl;
+            if (control != null) {
+                GameClockTimer clockTimer = new GameClockTimer(session, this);
+                engine.setClock(new GameClock(control), clockTimer::onClockChange);
+            }
+            registry.register(session);
+        } catch (RuntimeException e) {
+            // np. wyścig o ten sam identyfikator - gra nie ruszyła, więc nie zostawiamy jej w bazie
+            persistenceService.discardGame(gameEntity);
+            throw e;
+        }
+        if (evicting.compareAndSet(false, true)) scheduleEviction();
+        return session;
+    }
+
+    private void scheduleEviction() {
+        schedule(this::evictFinished, EVICTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Usuwa z rejestru gry zakończone bez zamknięcia przez handlery.
+     * Gry zamykane przez {@link GameSession#finish()} znikają z rejestru od razu,
+     * więc przegląd odbywa się rzadko, w tle, a nie przy każdej nowej grze.
+     */
+    private void evictFinished() {
+        try {
+            registry.evictFinished();
+        } catch (RuntimeException e) {
+            System.err.println("Błąd usuwania zakończonych gier: " + e.getMessage());
+        } finally {
+            // przegląd działa, dopóki są gry; createSession uruchamia go ponownie
+            if (registry.size() > 0) {
+                scheduleEviction();
+            } else {
+                evicting.set(false);
+                if (registry.size() > 0 && evicting.compareAndSet(false, true)) scheduleEviction();
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package pl.pwr.gogame.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import pl.pwr.gogame.server.net.TimingWheel;
+
+/**
+ * Klasa {@code Matchmaker} dobiera w pary graczy czekających na grę
+ * z innym graczem.
+ * <p>
+ * Oczekujący trafiają do kubełków według rozmiaru planszy i trybu gry,
+ * a w kubełku są uporządkowani według rankingu ({@link TreeSet},
+ * dodanie i usunięcie w O(log n)). Pary tworzone są partiami w ticku
+ * koła czasowego: jedno przejście po kubełku łączy sąsiadów w rankingu,
+ * jeśli różnica mieści się w oknie obu graczy. Okno zaczyna się od
+ * {@code initialWindow} i rośnie o {@code widenPerSecond} za każdą sekundę
+ * oczekiwania (do {@code maxWindow}), więc gracz bez bliskiego przeciwnika
+ * w końcu dostaje dalszego.
+ * </p>
+ * <p>
+ * Dołączenie i opuszczenie kolejki nie blokują się: zgłoszenia trafiają do
+ * kolejki, którą przetwarza tick, a kubełki należą wyłącznie do wątku
+ * dobierającego. Czas oczekiwania na przeciwnika zbiera {@link WaitStats}.
+ * </p>
+ */
+public final class Matchmaker {
+
+    /**
+     * Ranking gracza, który go nie podał.
+     */
+    public static final int DEFAULT_RATING = 1500;
+
+    private static final int WAITING = 0;
+    private static final int MATCHED = 1;
+    private static final int CANCELLED = 2;
+
+    /**
+     * Co ile czasu wypisywane są statystyki kolejki.
+     */
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Rozpoczyna grę dobranej pary.
+     */
+    interface Pairing {
+        void start(ClientHandler black, ClientHandler white, int boardSize);
+    }
+
+    /**
+     * Zgłoszenie jednego gracza.
+     */
+    private static final class Ticket {
+        private final ClientHandler handler;
+        private final Bucket bucket;
+        private final int rating;
+        private final long joined = System.nanoTime();
+        private final long seq;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Ticket(ClientHandler handler, Bucket bucket, int rating, long seq) {
+            this.handler = handler;
+            this.bucket = bucket;
+            this.rating = rating;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Klucz kubełka.
+     */
+    private record Bucket(int boardSize, String mode) {}
+
+    private static final Comparator<Ticket> BY_RATING =
+            Comparator.<Ticket>comparingInt(t -> t.rating).thenComparingLong(t -> t.seq);
+
+    private final TimingWheel timers;
+    private final Pairing pairing;
+    private final Queue<Ticket> joins = new ConcurrentLinkedQueue<>();
+    private final Map<ClientHandler, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong nextSeq = new AtomicLong();
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final WaitStats waitStats = new WaitStats();
+
+    /**
+     * Wątek dobierający pary (poza wątkiem koła czasowego).
+     */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "matchmaker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Wątki rozpoczynające dobrane gry: zapis nowej gry w bazie nie blokuje
+     * dobierania ani pętli zdarzeń klientów.
+     */
+    private final Executor starters;
+
+    private volatile long tickMillis = 250;
+    private volatile int initialWindow = 100;
+    private volatile int widenPerSecond = 25;
+    private volatile int maxWindow = 1000;
+
+    // pola poniżej używane wyłącznie w wątku dobierającym
+    private final Map<Bucket, TreeSet<Ticket>> buckets = new HashMap<>();
+    private long lastReport = System.nanoTime();
+    private long matchedSinceReport;
+
+    /**
+     * @param timers koło czasowe odmierzające ticki
+     * @param starters wykonawca rozpoczynający dobrane gry (wspólny z lobby)
+     * @param pairing rozpoczyna grę dobranej pary
+     */
+    Matchmaker(TimingWheel timers, Executor starters, Pairing pairing) {
+        this.timers = timers;
+        this.starters = starters;
+        this.pairing = pairing;
+    }
+
+    /**
+     * Ustawia odstęp między kolejnymi partiami dobierania.
+     *
+     * @param tickMillis odstęp w milisekundach
+     * @throws IllegalArgumentException jeśli odstęp nie jest dodatni
+     */
+    public void setTickMillis(long tickMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Odstęp dobierania musi być dodatni");
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Ustawia okno rankingu, w którym szukany jest przeciwnik.
+     *
+     * @param initialWindow największa różnica rankingu zaraz po dołączeniu
+     * @param widenPerSecond przyrost okna za każdą sekundę oczekiwania
+     * @param maxWindow największe okno
+     * @throws IllegalArgumentException jeśli wartości są ujemne
+     *         lub okno początkowe jest większe od największego
+     */
+    public void setRatingWindow(int initialWindow, int widenPerSecond, int maxWindow) {
+        if (initialWindow < 0 || widenPerSecond < 0) {
+            throw new IllegalArgumentException("Okno rankingu nie może być ujemne");
+        }
+        if (maxWindow < initialWindow) {
+            throw new IllegalArgumentException("Największe okno rankingu nie może być mniejsze od początkowego");
+        }
+        this.initialWindow = initialWindow;
+        this.widenPerSecond = widenPerSecond;
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * Dodaje gracza do kolejki. Gra zostanie rozpoczęta w najbliższym ticku,
+     * w którym znajdzie się przeciwnik.
+     *
+     * @param handler handler gracza
+     * @param gameMode tryb gry
+     * @param boardSize rozmiar planszy
+     * @param rating ranking gracza
+     */
+    void enqueue(ClientHandler handler, String gameMode, int boardSize, int rating) {
+        Ticket ticket = new Ticket(handler, new Bucket(boardSize, gameMode.toUpperCase()), rating,
+                nextSeq.getAndIncrement());
+        tickets.put(handler, ticket);
+        waiting.incrementAndGet();
+        joins.add(ticket);
+        if (ticking.compareAndSet(false, true)) schedule();
+    }
+
+    /**
+     * Usuwa gracza z kolejki (np. po rozłączeniu).
+     *
+     * @param handler handler gracza
+     */
+    void leave(ClientHandler handler) {
+        Ticket ticket = tickets.remove(handler);
+        if (ticket != null && ticket.state.compareAndSet(WAITING, CANCELLED)) {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Zwraca liczbę graczy oczekujących na przeciwnika.
+     *
+     * @return liczba oczekujących graczy
+     */
+    public int size() {
+        return waiting.get();
+    }
+
+    public WaitStats getWaitStats() {
+        return waitStats;
+    }
+
+    private void schedule() {
+        timers.schedule(() -> worker.execute(this::tick), tickMillis);
+    }
+
+    private void tick() {
+        try {
+            transferJoins();
+            long now = System.nanoTime();
+            for (TreeSet<Ticket> bucket : buckets.values()) {
+                match(bucket, now);
+            }
+            buckets.values().removeIf(TreeSet::isEmpty);
+            report(now);
+        } catch (RuntimeException e) {
+            System.err.println("Błąd dobierania graczy: " + e.getMessage());
+        } finally {
+            // tick działa, dopóki ktoś czeka; enqueue uruchamia go ponownie
+            if (waiting.get() > 0) {
+                schedule();
+            } else {
+                ticking.set(false);
+                if (waiting.get() > 0 && ticking.compareAndSet(false, true)) schedule();
+            }
+        }
+    }
+
+    private void transferJoins() {
+        Ticket ticket;
+        while ((ticket = joins.poll()) != null) {
+            if (ticket.state.get() != WAITING) continue;
+            buckets.computeIfAbsent(ticket.bucket, b -> new TreeSet<>(BY_RATING)).add(ticket);
+        }
+    }
+
+    /**
+     * Łączy w pary sąsiadów w rankingu, których różnica mieści się w oknach obu graczy.
+     */
+    private void match(TreeSet<Ticket> bucket, long now) {
+        List<Ticket> done = new ArrayList<>();
+        List<Ticket> pairs = new ArrayList<>();
+        Ticket previous = null;
+        for (Ticket ticket : bucket) {
+            if (ticket.state.get() != WAITING || !ticket.handler.isConnected()) {
+                if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                    tickets.remove(ticket.handler, ticket);
+                    waiting.decrementAndGet();
+                }
+                done.add(ticket);
+                continue;
+            }
+            if (previous != null && ticket.rating - previous.rating
+                    <= Math.min(window(previous, now), window(ticket, now))
+                    && claim(previous, ticket)) {
+                done.add(previous);
+                done.add(ticket);
+                pairs.add(previous);
+                pairs.add(ticket);
+                previous = null;
+            } else {
+                previous = ticket;
+            }
+        }
+        for (Ticket ticket : done) bucket.remove(ticket);
+
+        for (int i = 0; i < pairs.size(); i += 2) {
+            Ticket a = pairs.get(i);
+            Ticket b = pairs.get(i + 1);
+            waitStats.record(TimeUnit.NANOSECONDS.toMillis(now - a.joined));
+            waitStats.record(TimeUnit.NANOSECONDS.toMillis(now - b.joined));
+            matchedSinceReport++;
+            // dłużej czekający gracz gra czarnymi
+            Ticket black = a.seq < b.seq ? a : b;
+            Ticket white = black == a ? b : a;
+            starters.execute(() -> start(black.handler, white.handler, black.bucket.boardSize()));
+        }
+    }
+
+    private void start(ClientHandler black, ClientHandler white, int boardSize) {
+        try {
+            pairing.start(black, white, boardSize);
+        } catch (RuntimeException e) {
+            System.err.println("Nie udało się rozpocząć gry: " + e.getMessage());
+            black.sendText("BŁĄD: nie udało się rozpocząć gry");
+            white.sendText("BŁĄD: nie udało się rozpocząć gry");
+        }
+    }
+
+    /**
+     * Oznacza oba zgłoszenia jako dobrane; gracz mógł właśnie opuścić kolejkę.
+     */
+    private boolean claim(Ticket a, Ticket b) {
+        if (!a.state.compareAndSet(WAITING, MATCHED)) return false;
+        if (!b.state.compareAndSet(WAITING, MATCHED)) {
+            a.state.set(WAITING);
+            return false;
+        }
+        tickets.remove(a.handler, a);
+        tickets.remove(b.handler, b);
+        waiting.addAndGet(-2);
+        return true;
+    }
+
+    private long window(Ticket ticket, long now) {
+        long waitedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - ticket.joined);
+        return Math.min(maxWindow, initialWindow + waitedSeconds * widenPerSecond);
+    }
+
+    private void report(long now) {
+        if (now - lastReport < REPORT_INTERVAL_NANOS) return;
+        lastReport = now;
+        if (matchedSinceReport == 0) return;
+        System.out.println("Dobieranie graczy: " + matchedSinceReport + " gier w ostatniej minucie, oczekujących: "
+                + waiting.get() + ", czas oczekiwania: " + waitStats);
+        matchedSinceReport = 0;
+    }
+
+    /**
+     * Rozkład czasu oczekiwania na przeciwnika: histogram w przedziałach
+     * potęg dwójki milisekund (błąd percentyla najwyżej dwukrotny),
+     * aktualizowany bez blokad i odczytywany z dowolnego wątku.
+     */
+    public static final class WaitStats {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        void record(long millis) {
+            histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis)));
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+        }
+
+        /**
+         * Zwraca liczbę graczy, którzy doczekali się przeciwnika.
+         *
+         * @return liczba pomiarów
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalMillis.sum() / n;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis.get();
+        }
+
+        /**
+         * Zwraca górne oszacowanie percentyla czasu oczekiwania.
+         *
+         * @param quantile kwantyl z przedziału (0, 1], np. {@code 0.99}
+         * @return czas w milisekundach
+         */
+        public long percentileMillis(double quantile) {
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = histogram.get(i);
+                n += snapshot[i];
+            }
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && seen > 0) return Math.min(i == 0 ? 0 : (1L << i) - 1, getMaxMillis());
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + getCount() + " średnio=" + getMeanMillis() + " ms p50<=" + percentileMillis(0.5)
+                    + " ms p99<=" + percentileMillis(0.99) + " ms max=" + getMaxMillis() + " ms";
+        }
+    }
+}
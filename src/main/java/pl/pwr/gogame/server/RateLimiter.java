@@ -0,0 +1,225 @@
+package pl.pwr.gogame.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Klasa {@code RateLimiter} ogranicza liczbę komend, które jeden klient
+ * może wysłać w jednostce czasu, zanim dotrą do silnika gry.
+ * <p>
+ * Każde połączenie ma własny {@link Budget}: osobny kubełek żetonów dla
+ * każdej kategorii komend ({@link Category}) i wspólny dla wszystkich komend.
+ * Kubełek pozwala na chwilowy zryw ({@link #BURST_SECONDS} sekund limitu),
+ * a potem na średnio {@code perSecond} komend na sekundę. Komenda ponad
+ * limit jest odrzucana bez wykonania i bez odpowiedzi (klient dostaje
+ * jedno ostrzeżenie na serię odrzuceń), więc zalew komend nie zajmuje
+ * silnika gry ani gniazda przeciwnika. Odrzucenia zużywają osobny kubełek
+ * nadużyć; po jego wyczerpaniu połączenie jest zrywane.
+ * </p>
+ * <p>
+ * Kubełek to jedna liczba {@link AtomicLong} - teoretyczny czas przybycia
+ * następnej komendy (algorytm GCRA, równoważny kubełkowi żetonów), więc
+ * sprawdzenie limitu to jedna operacja CAS bez blokad i bez wątku
+ * uzupełniającego żetony.
+ * </p>
+ */
+public final class RateLimiter {
+
+    /**
+     * Na ile sekund limitu wystarcza zapas na zryw.
+     */
+    public static final int BURST_SECONDS = 2;
+
+    /**
+     * Kategoria komend z osobnym limitem.
+     */
+    public enum Category {
+        /** Ruchy (także niepoprawne), pasy i rezygnacje. */
+        GAME,
+        /** Oznaczanie martwych grup i zatwierdzanie negocjacji. */
+        NEGOTIATION,
+        /** Komendy lobby i pozostałe. */
+        LOBBY
+    }
+
+    /**
+     * Decyzja dla jednej komendy.
+     */
+    public enum Decision {
+        /** Komenda mieści się w limicie. */
+        ACCEPT,
+        /** Komenda przekracza limit i jest pomijana. */
+        THROTTLE,
+        /** Klient przekracza limit uporczywie - połączenie należy zerwać. */
+        DISCONNECT
+    }
+
+    private final long[] intervals = new long[Category.values().length];
+    private final long totalInterval;
+    private final long abuseInterval;
+    private final int abuseLimit;
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    /**
+     * @param gamePerSecond limit komend kategorii {@link Category#GAME} ({@code 0} - bez limitu)
+     * @param negotiationPerSecond limit komend kategorii {@link Category#NEGOTIATION}
+     * @param lobbyPerSecond limit komend kategorii {@link Category#LOBBY}
+     * @param totalPerSecond limit wszystkich komend połączenia
+     * @param abuseLimit liczba odrzuconych komend (uzupełniana o jedną na sekundę),
+     *                   po której połączenie jest zrywane ({@code 0} - nigdy)
+     * @throws IllegalArgumentException jeśli któraś wartość jest ujemna
+     */
+    public RateLimiter(double gamePerSecond, double negotiationPerSecond, double lobbyPerSecond,
+                       double totalPerSecond, int abuseLimit) {
+        if (gamePerSecond < 0 || negotiationPerSecond < 0 || lobbyPerSecond < 0 || totalPerSecond < 0
+                || abuseLimit < 0) {
+            throw new IllegalArgumentException("Limity komend nie mogą być ujemne");
+        }
+        intervals[Category.GAME.ordinal()] = interval(gamePerSecond);
+        intervals[Category.NEGOTIATION.ordinal()] = interval(negotiationPerSecond);
+        intervals[Category.LOBBY.ordinal()] = interval(lobbyPerSecond);
+        this.totalInterval = interval(totalPerSecond);
+        this.abuseInterval = abuseLimit > 0 ? TimeUnit.SECONDS.toNanos(1) : 0;
+        this.abuseLimit = abuseLimit;
+    }
+
+    /**
+     * Tworzy ogranicznik z domyślnymi limitami, z dużym zapasem dla gracza
+     * klikającego w planszę.
+     *
+     * @return ogranicznik
+     */
+    public static RateLimiter defaults() {
+        return new RateLimiter(20, 50, 10, 100, 200);
+    }
+
+    /**
+     * Tworzy budżet dla nowego połączenia (lub gracza).
+     *
+     * @return budżet komend
+     */
+    public Budget newBudget() {
+        return new Budget();
+    }
+
+    /**
+     * Zwraca kategorię komendy.
+     *
+     * @param type rodzaj komendy
+     * @return kategoria limitu
+     */
+    public static Category categoryOf(Command.Type type) {
+        return switch (type) {
+            case MOVE, PASS, RESIGN -> Category.GAME;
+            case NEGOTIATE_MARK, NEGOTIATE_DONE -> Category.NEGOTIATION;
+            default -> Category.LOBBY;
+        };
+    }
+
+    /**
+     * Zwraca łączną liczbę odrzuconych komend.
+     *
+     * @return liczba odrzuconych komend
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Zwraca liczbę połączeń zerwanych za nadużycia.
+     *
+     * @return liczba zerwanych połączeń
+     */
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    private static long interval(double perSecond) {
+        return perSecond > 0 ? Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond)) : 0;
+    }
+
+    /**
+     * Pojemność kubełka: zapas na {@link #BURST_SECONDS} sekund, co najmniej jedna komenda.
+     */
+    private static long capacity(long interval) {
+        return Math.max(interval, TimeUnit.SECONDS.toNanos(BURST_SECONDS));
+    }
+
+    /**
+     * Pobiera miejsce z kubełka, jeśli w nim jest.
+     *
+     * @param tat teoretyczny czas przybycia następnej komendy
+     * @param interval odstęp między komendami przy limicie ({@code 0} - bez limitu)
+     * @param capacity pojemność kubełka w nanosekundach
+     * @param now bieżący czas
+     * @return {@code true}, jeśli komenda mieści się w limicie
+     */
+    private static boolean tryAcquire(AtomicLong tat, long interval, long capacity, long now) {
+        if (interval == 0) return true;
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > capacity) return false;
+            if (tat.compareAndSet(current, next)) return true;
+        }
+    }
+
+    /**
+     * Budżet komend jednego klienta. Może być używany z wielu wątków.
+     */
+    public final class Budget {
+        private final AtomicLong[] categories = new AtomicLong[Category.values().length];
+        private final AtomicLong total;
+        private final AtomicLong abuse;
+        private final AtomicBoolean throttling = new AtomicBoolean();
+
+        private Budget() {
+            long now = System.nanoTime();
+            for (int i = 0; i < categories.length; i++) categories[i] = new AtomicLong(now);
+            total = new AtomicLong(now);
+            abuse = new AtomicLong(now);
+        }
+
+        /**
+         * Rozlicza jedną komendę klienta.
+         *
+         * @param category kategoria komendy
+         * @return decyzja dla komendy
+         */
+        public Decision acquire(Category category) {
+            return acquire(category, System.nanoTime());
+        }
+
+        Decision acquire(Category category, long now) {
+            long interval = intervals[category.ordinal()];
+            AtomicLong bucket = categories[category.ordinal()];
+            if (tryAcquire(bucket, interval, capacity(interval), now)) {
+                if (tryAcquire(total, totalInterval, capacity(totalInterval), now)) {
+                    throttling.set(false);
+                    return Decision.ACCEPT;
+                }
+                // odrzucona komenda nie może zużywać limitu swojej kategorii
+                if (interval != 0) bucket.addAndGet(-interval);
+            }
+            throttled.increment();
+            if (abuseLimit > 0 && !tryAcquire(abuse, abuseInterval, abuseInterval * abuseLimit, now)) {
+                disconnected.increment();
+                return Decision.DISCONNECT;
+            }
+            return Decision.THROTTLE;
+        }
+
+        /**
+         * Informuje, czy to pierwsze odrzucenie w serii (by ostrzec klienta tylko raz).
+         *
+         * @return {@code true} dla pierwszego odrzucenia od ostatniej przyjętej komendy
+         */
+        public boolean startThrottling() {
+            return throttling.compareAndSet(false, true);
+        }
+    }
+}
@@ -3,11 +3,22 @@ package pl.pwr.gogame.server;
 // Formatuje odpowiedzi serwera gry Go dla klienta CMD
 // Wzorzec: Adapter
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameClock;
 import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.model.Move;
 import pl.pwr.gogame.model.MoveResult;
+import pl.pwr.gogame.model.OwnershipDelta;
+import pl.pwr.gogame.model.Position;
 import pl.pwr.gogame.model.ScoreResult;
 import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.protocol.MoveFrame;
+import pl.pwr.gogame.protocol.SnapshotFrame;
 
 /**
  * Klasa {@code ResponseFormatter} odpowiada za formatowanie komunikatów
@@ -84,6 +95,14 @@ public class ResponseFormatter {
           .append(scores.getWhiteScore())
           .append(" punktów.")
           .append(System.lineSeparator());
+        if (scores.getKomi() != 0) {
+            sb.append("TEXT Komi: ")
+              .append(scores.getKomi())
+              .append(", wynik białego z komi: ")
+              .append(scores.getWhiteTotal())
+              .append(" punktów.")
+              .append(System.lineSeparator());
+        }
 
         GamePlayer winner = scores.getWinner();
         if (winner != null) {
@@ -97,4 +116,158 @@ public class ResponseFormatter {
         }
         return sb.toString();
     }
+
+    /**
+     * Formatuje zmianę szacowanej przynależności pól w zwartej postaci:
+     * {@code OWNERSHIP <czarny> <biały> <indeks><B|W|.> ...},
+     * gdzie indeks pola to {@code row * size + col}.
+     *
+     * @param delta zmiana przynależności po ruchu
+     * @return komunikat protokołu
+     */
+    public static String formatOwnership(OwnershipDelta delta) {
+        StringBuilder sb = new StringBuilder(16 + delta.size() * 5);
+        sb.append("OWNERSHIP ");
+        appendOwnership(sb, delta);
+        return sb.toString();
+    }
+
+    /**
+     * Formatuje cały wynik poprawnego ruchu jako jedną ramkę (jedna linia,
+     * jeden zapis do gniazda) zamiast osobnych linii {@code MOVE},
+     * {@code CAPTURE}, {@code TEXT}, {@code OWNERSHIP} i informacji o turze:
+     * {@code MOVE_FRAME <col> <row> <kolor> <następny> <zbite czarnego> <zbite białego>
+     * <indeksy zbitych po przecinku lub -> [<czarny> <biały> <indeks><B|W|.> ...]}.
+     * Ramka nie zależy od odbiorcy, więc jest kodowana raz dla obu graczy.
+     * Stan po ruchu pochodzi wyłącznie z wyniku ruchu, odczytanego pod blokadą
+     * silnika, a nie z silnika, w którym przeciwnik mógł już zagrać.
+     *
+     * @param move wykonany ruch
+     * @param result wynik ruchu
+     * @param size rozmiar planszy
+     * @return komunikat protokołu
+     */
+    public static String formatMoveFrame(Move move, MoveResult result, int size) {
+        Position pos = move.getPosition();
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("MOVE_FRAME ")
+          .append(pos.col()).append(' ')
+          .append(pos.row()).append(' ')
+          .append(move.getPlayer().getColor()).append(' ')
+          .append(result.getNextColor()).append(' ')
+          .append(result.getBlackCaptures()).append(' ')
+          .append(result.getWhiteCaptures()).append(' ');
+        if (result.getCapturedPositions().isEmpty()) {
+            sb.append('-');
+        } else {
+            boolean first = true;
+            for (Position captured : result.getCapturedPositions()) {
+                if (!first) sb.append(',');
+                sb.append(captured.row() * size + captured.col());
+                first = false;
+            }
+        }
+        if (result.getOwnershipDelta() != null) {
+            sb.append(' ');
+            appendOwnership(sb, result.getOwnershipDelta());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Koduje wynik poprawnego ruchu jako binarną ramkę
+     * {@link BinaryProtocol#MOVE_FRAME}
+     * (te same dane co {@link #formatMoveFrame}).
+     *
+     * @param move wykonany ruch
+     * @param result wynik ruchu
+     * @param size rozmiar planszy
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encodeMoveFrame(Move move, MoveResult result, int size) {
+        Position pos = move.getPosition();
+
+        List<Position> capturedPositions = result.getCapturedPositions();
+        int[] captured = new int[capturedPositions.size()];
+        for (int i = 0; i < captured.length; i++) {
+            Position p = capturedPositions.get(i);
+            captured[i] = p.row() * size + p.col();
+        }
+
+        OwnershipDelta delta = result.getOwnershipDelta();
+        int[] ownership = null;
+        int ownershipCount = 0;
+        if (delta != null) {
+            ownershipCount = delta.size();
+            ownership = new int[2 * ownershipCount];
+            for (int i = 0; i < ownershipCount; i++) {
+                ownership[2 * i] = delta.getPoint(i);
+                ownership[2 * i + 1] = BinaryProtocol.colorCode(delta.getOwner(i));
+            }
+        }
+        return MoveFrame.encode(pos.row() * size + pos.col(), move.getPlayer().getColor(), result.getNextColor(),
+                result.getBlackCaptures(), result.getWhiteCaptures(), captured, captured.length,
+                ownership, ownershipCount,
+                delta != null ? delta.getBlackEstimate() : 0, delta != null ? delta.getWhiteEstimate() : 0);
+    }
+
+    /**
+     * Formatuje migawkę stanu gry (np. dla obserwatora dołączającego do gry):
+     * {@code SNAPSHOT <rozmiar> <następny> <zbite czarnego> <zbite białego> <pola>},
+     * gdzie pola to {@code size * size} znaków {@code B}, {@code W} lub {@code .}
+     * w kolejności indeksów {@code row * size + col}.
+     *
+     * @param snapshot migawka stanu gry
+     * @return komunikat protokołu
+     */
+    public static String formatSnapshot(GameSnapshot snapshot) {
+        int points = snapshot.getSize() * snapshot.getSize();
+        StringBuilder sb = new StringBuilder(32 + points);
+        sb.append("SNAPSHOT ")
+          .append(snapshot.getSize()).append(' ')
+          .append(snapshot.getNext()).append(' ')
+          .append(snapshot.getBlackCaptures()).append(' ')
+          .append(snapshot.getWhiteCaptures()).append(' ');
+        for (int i = 0; i < points; i++) {
+            StoneColor stone = snapshot.getStone(i);
+            sb.append(stone == StoneColor.BLACK ? 'B' : stone == StoneColor.WHITE ? 'W' : '.');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Koduje migawkę stanu gry jako binarną ramkę {@link BinaryProtocol#SNAPSHOT}.
+     *
+     * @param snapshot migawka stanu gry
+     * @return bufor gotowy do zapisu
+     */
+    public static ByteBuffer encodeSnapshot(GameSnapshot snapshot) {
+        return SnapshotFrame.encode(snapshot);
+    }
+
+    /**
+     * Formatuje stan zegara gry:
+     * {@code CLOCK <kolor na ruchu|NONE> <czas czarnego> <okresy czarnego> <czas białego> <okresy białego>},
+     * gdzie czasy podane są w milisekundach według stanu z ostatniego ruchu.
+     *
+     * @param reading stan zegara
+     * @return komunikat protokołu
+     */
+    public static String formatClock(GameClock.Reading reading) {
+        return "CLOCK " + (reading.running() != null ? reading.running() : "NONE")
+                + " " + reading.blackMillis() + " " + reading.blackPeriods()
+                + " " + reading.whiteMillis() + " " + reading.whitePeriods();
+    }
+
+    private static void appendOwnership(StringBuilder sb, OwnershipDelta delta) {
+        sb.append(delta.getBlackEstimate())
+          .append(' ')
+          .append(delta.getWhiteEstimate());
+        for (int i = 0; i < delta.size(); i++) {
+            StoneColor owner = delta.getOwner(i);
+            sb.append(' ')
+              .append(delta.getPoint(i))
+              .append(owner == StoneColor.BLACK ? 'B' : owner == StoneColor.WHITE ? 'W' : '.');
+        }
+    }
 }
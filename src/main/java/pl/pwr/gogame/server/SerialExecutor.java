@@ -0,0 +1,60 @@
+package pl.pwr.gogame.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Klasa {@code SerialExecutor} wykonuje zadania jedno po drugim, w kolejności
+ * zgłoszenia, korzystając z wątków wspólnej puli. Dzięki temu wiele gier
+ * może rozsyłać zdarzenia równolegle, a zdarzenia jednej gry nigdy się
+ * nie wyprzedzają.
+ * <p>
+ * Zgłoszenie zadania nie blokuje się i nie czeka na jego wykonanie.
+ * Po {@link #BATCH} zadaniach wątek puli jest oddawany innym grom.
+ * </p>
+ */
+final class SerialExecutor implements Executor {
+
+    /**
+     * Maksymalna liczba zadań wykonywanych za jednym przydziałem wątku puli.
+     */
+    private static final int BATCH = 64;
+
+    private final Executor pool;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    SerialExecutor(Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Błąd rozsyłania zdarzenia: " + e.getMessage());
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty()) schedule();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package pl.pwr.gogame.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.server.net.Connection;
+
+/**
+ * Klasa {@code SpectatorGroup} rozsyła zdarzenia jednej gry do obserwatorów
+ * (połączeń tylko do odczytu).
+ * <p>
+ * Każde zdarzenie kodowane jest raz - jako linia tekstowa i ramka binarna -
+ * a wszyscy obserwatorzy dostają widoki tych samych, niezmiennych buforów.
+ * Rozsyłanie odbywa się w osobnej puli wątków ({@link SerialExecutor}
+ * na grę), więc gracz wykonujący ruch tylko zgłasza zadanie i nie czeka
+ * na obserwatorów.
+ * </p>
+ * <p>
+ * Obserwator, którego kolejka wyjściowa przekroczy {@code queueLimit},
+ * jest pomijany. Gdy jego kolejka opadnie do jednej czwartej limitu,
+ * zamiast pominiętych ruchów dostaje migawkę bieżącego stanu gry.
+ * Migawka powstaje w chwili rozsyłania, więc może już zawierać ruch
+ * z kolejnego zdarzenia; ponowne zastosowanie ruchu nie zmienia planszy.
+ * </p>
+ */
+public class SpectatorGroup {
+
+    private static final class Spectator {
+        final Connection connection;
+        boolean lagging;
+
+        Spectator(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * Migawka kodowana leniwie, najwyżej raz na zdarzenie.
+     */
+    private final class Snapshot {
+        private ByteBuffer text;
+        private ByteBuffer binary;
+        private GameSnapshot snapshot;
+
+        ByteBuffer encoded(boolean binaryConnection) {
+            if (snapshot == null) snapshot = engine.snapshot();
+            if (binaryConnection) {
+                if (binary == null) binary = ResponseFormatter.encodeSnapshot(snapshot);
+                return binary;
+            }
+            if (text == null) text = encodeLine(ResponseFormatter.formatSnapshot(snapshot));
+            return text;
+        }
+    }
+
+    private final GameEngine engine;
+    private final Executor fanOut;
+    private final int queueLimit;
+
+    /**
+     * Obserwatorzy; lista używana wyłącznie w zadaniach {@link #fanOut}.
+     */
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param engine silnik gry (źródło migawek)
+     * @param pool wspólna pula wątków rozsyłających
+     * @param queueLimit długość kolejki wyjściowej, powyżej której obserwator jest pomijany
+     * @throws IllegalArgumentException jeśli limit jest mniejszy niż 4
+     */
+    public SpectatorGroup(GameEngine engine, Executor pool, int queueLimit) {
+        if (queueLimit < 4) throw new IllegalArgumentException("Limit kolejki obserwatora musi wynosić co najmniej 4");
+        this.engine = engine;
+        this.fanOut = new SerialExecutor(pool);
+        this.queueLimit = queueLimit;
+    }
+
+    /**
+     * Tworzy wspólną pulę wątków rozsyłających (wątki demony).
+     *
+     * @param threads liczba wątków
+     * @return pula wątków
+     * @throws IllegalArgumentException jeśli liczba wątków nie jest dodatnia
+     */
+    public static ExecutorService newFanOutPool(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Liczba wątków rozsyłających musi być dodatnia");
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "spectators-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Dodaje obserwatora; najpierw otrzyma on migawkę bieżącego stanu gry.
+     *
+     * @param connection połączenie obserwatora
+     * @return {@code false}, jeśli gra już się zakończyła
+     */
+    public boolean add(Connection connection) {
+        if (closed) return false;
+        count.incrementAndGet();
+        fanOut.execute(() -> {
+            if (closed) {
+                // gra zakończyła się przed dodaniem obserwatora
+                count.decrementAndGet();
+                connection.close();
+                return;
+            }
+            spectators.add(new Spectator(connection));
+            connection.sendFrame(new Snapshot().encoded(connection.isBinary()));
+        });
+        return true;
+    }
+
+    /**
+     * Usuwa obserwatora (np. po rozłączeniu).
+     *
+     * @param connection połączenie obserwatora
+     */
+    public void remove(Connection connection) {
+        fanOut.execute(() -> {
+            if (spectators.removeIf(s -> s.connection == connection)) count.decrementAndGet();
+        });
+    }
+
+    /**
+     * Rozsyła wynik ruchu zakodowany wcześniej dla graczy.
+     *
+     * @param line linia tekstowa ({@code MOVE_FRAME ...})
+     * @param frame ramka binarna
+     */
+    public void publish(String line, ByteBuffer frame) {
+        if (count.get() == 0) return;
+        fanOut.execute(() -> deliver(encodeLine(line), frame));
+    }
+
+    /**
+     * Rozsyła linię protokołu tekstowego (np. {@code PASS}, {@code RESIGN}, wynik gry).
+     *
+     * @param line treść linii
+     */
+    public void publishLine(String line) {
+        if (count.get() == 0) return;
+        fanOut.execute(() -> deliver(encodeLine(line), BinaryProtocol.encodeLine(line)));
+    }
+
+    private void deliver(ByteBuffer text, ByteBuffer binary) {
+        Snapshot snapshot = null;
+        Iterator<Spectator> it = spectators.iterator();
+        while (it.hasNext()) {
+            Spectator spectator = it.next();
+            Connection connection = spectator.connection;
+            if (!connection.isOpen()) {
+                it.remove();
+                count.decrementAndGet();
+                continue;
+            }
+            int queued = connection.queuedCount();
+            if (spectator.lagging) {
+                if (queued > queueLimit / 4) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                // migawka zawiera już bieżące zdarzenie
+                if (snapshot == null) snapshot = new Snapshot();
+                spectator.lagging = false;
+                connection.sendFrame(snapshot.encoded(connection.isBinary()));
+                continue;
+            }
+            if (queued >= queueLimit) {
+                spectator.lagging = true;
+                skipped.incrementAndGet();
+                continue;
+            }
+            connection.sendFrame(connection.isBinary() ? binary : text);
+        }
+    }
+
+    /**
+     * Kończy transmisję: zamyka połączenia obserwatorów po wysłaniu
+     * oczekujących zdarzeń. Wywoływane przy zakończeniu gry.
+     */
+    public void closeAll() {
+        closed = true;
+        fanOut.execute(() -> {
+            for (Spectator spectator : spectators) spectator.connection.close();
+            count.addAndGet(-spectators.size());
+            spectators.clear();
+        });
+    }
+
+    /**
+     * Zwraca liczbę obserwatorów gry.
+     *
+     * @return liczba obserwatorów
+     */
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Zwraca liczbę zdarzeń pominiętych u obserwatorów, którzy nie nadążali z odbiorem.
+     *
+     * @return liczba pominiętych zdarzeń
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    private static ByteBuffer encodeLine(String line) {
+        return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,234 @@
+package pl.pwr.gogame.server.net;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.protocol.FrameDecoder;
+import pl.pwr.gogame.protocol.FrameListener;
+
+/**
+ * Klasa {@code BlockingConnection} obsługuje połączenie w modelu
+ * wątek na połączenie: osobny wątek blokuje się na odczycie z gniazda
+ * i przekazuje kolejne linie do {@link LineHandler}.
+ * <p>
+ * Wysyłane linie trafiają do ograniczonej {@link OutboundQueue}, którą
+ * opróżnia osobny wątek zapisujący, więc {@link #send(String)} nigdy nie
+ * blokuje się na wolnym kliencie. Gdy klient nie odbiera odpowiedzi,
+ * wątek czytający wstrzymuje odczyt kolejnych komend.
+ * </p>
+ * <p>
+ * Jeśli pierwszy odebrany bajt to {@link BinaryProtocol#PREFACE},
+ * połączenie przechodzi na protokół binarny.
+ * </p>
+ */
+public class BlockingConnection implements Connection, Runnable {
+
+    private final Socket socket;
+    private final LineHandler handler;
+    private final OutboundQueue outbound;
+    private final ThreadFactory writerThreads;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean binary;
+    private final IdleMonitor idleMonitor;
+    private IdleMonitor.Watch idle;
+
+    /**
+     * Tworzy połączenie z domyślnym limitem kolejki wyjściowej.
+     *
+     * @param socket gniazdo klienta
+     * @param handler odbiorca zdarzeń połączenia
+     */
+    public BlockingConnection(Socket socket, LineHandler handler) {
+        this(socket, handler, Thread::new, 1024, SlowConsumerPolicy.COALESCE);
+    }
+
+    /**
+     * Tworzy połączenie dla zaakceptowanego gniazda.
+     *
+     * @param socket gniazdo klienta
+     * @param handler odbiorca zdarzeń połączenia
+     * @param writerThreads fabryka wątku zapisującego
+     * @param outboundLimit maksymalna liczba linii oczekujących na wysłanie
+     * @param policy polityka dla klienta, który nie nadąża z odbiorem
+     */
+    public BlockingConnection(Socket socket, LineHandler handler, ThreadFactory writerThreads,
+                              int outboundLimit, SlowConsumerPolicy policy) {
+        this(socket, handler, writerThreads, outboundLimit, policy, null);
+    }
+
+    /**
+     * Tworzy połączenie z nadzorem bezczynności. Zerwanie martwego
+     * połączenia zamyka gniazdo, co przerywa blokujący odczyt.
+     *
+     * @param socket gniazdo klienta
+     * @param handler odbiorca zdarzeń połączenia
+     * @param writerThreads fabryka wątku zapisującego
+     * @param outboundLimit maksymalna liczba linii oczekujących na wysłanie
+     * @param policy polityka dla klienta, który nie nadąża z odbiorem
+     * @param idleMonitor nadzór bezczynności ({@code null} wyłącza {@code PING} i limit bezczynności)
+     */
+    public BlockingConnection(Socket socket, LineHandler handler, ThreadFactory writerThreads,
+                              int outboundLimit, SlowConsumerPolicy policy, IdleMonitor idleMonitor) {
+        this.socket = socket;
+        this.handler = handler;
+        this.writerThreads = writerThreads;
+        this.outbound = new OutboundQueue(outboundLimit, policy);
+        this.idleMonitor = idleMonitor;
+    }
+
+    /**
+     * Pętla odczytu: blokuje się na gnieździe aż do rozłączenia klienta.
+     */
+    @Override
+    public void run() {
+        writerThreads.newThread(this::writeLoop).start();
+        if (idleMonitor != null) idle = idleMonitor.watch(this, this::abort);
+        handler.onOpen(this);
+        try (PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), 1)) {
+            int first = in.read();
+            if (first == BinaryProtocol.PREFACE) {
+                readFrames(in);
+            } else if (first >= 0) {
+                in.unread(first);
+                readLines(in);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Niepoprawna ramka od klienta: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Klient rozłączony: " + socket.getRemoteSocketAddress());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeNow();
+        }
+    }
+
+    private void readLines(InputStream stream) throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while (!closed.get() && (line = in.readLine()) != null) {
+            if (idle != null) idle.touch();
+            handler.onLine(line);
+            // klient nie odbiera odpowiedzi - nie czytamy kolejnych komend
+            outbound.awaitBelowLowWater();
+        }
+    }
+
+    private void readFrames(InputStream in) throws IOException, InterruptedException {
+        if (in.read() != BinaryProtocol.VERSION) {
+            System.err.println("Nieobsługiwana wersja protokołu binarnego");
+            return;
+        }
+        binary = true;
+        sendFrame(BinaryProtocol.encodeHello());
+
+        FrameDecoder decoder = new FrameDecoder();
+        FrameListener frames = (opcode, payload) -> {
+            if (opcode == BinaryProtocol.LINE) handler.onLine(payload);
+            else if (opcode != BinaryProtocol.PONG) handler.onFrame(opcode, payload);
+        };
+        byte[] chunk = new byte[8192];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        int read;
+        while (!closed.get() && (read = in.read(chunk)) >= 0) {
+            if (idle != null) idle.touch();
+            buffer.clear().limit(read);
+            decoder.decode(buffer, frames);
+            outbound.awaitBelowLowWater();
+        }
+    }
+
+    /**
+     * Pętla zapisu: wysyła linie z kolejki, opróżniając bufor gniazda
+     * dopiero wtedy, gdy kolejka jest pusta (wiele linii w jednym zapisie).
+     */
+    private void writeLoop() {
+        try {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+            ByteBuffer data;
+            while ((data = outbound.take()) != null) {
+                out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                if (outbound.isEmpty()) out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // gniazdo zamknięte - wątek czytający zakończy połączenie
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        abort();
+    }
+
+    @Override
+    public void send(String message) {
+        if (binary) {
+            enqueue(outbound.offer(BinaryProtocol.encodeLine(message), OutboundQueue.isInformational(message)));
+        } else {
+            enqueue(outbound.offer(message));
+        }
+    }
+
+    @Override
+    public void sendFrame(ByteBuffer frame) {
+        enqueue(outbound.offer(frame.duplicate(), false));
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public int queuedCount() {
+        return outbound.size();
+    }
+
+    private void enqueue(OutboundQueue.Offer offer) {
+        if (offer == OutboundQueue.Offer.OVERFLOW) {
+            System.err.println("Klient nie odbiera danych, rozłączanie: " + socket.getRemoteSocketAddress());
+            abort();
+        }
+    }
+
+    /**
+     * Zamyka połączenie po wysłaniu oczekujących linii.
+     */
+    @Override
+    public void close() {
+        outbound.finish();
+    }
+
+    /**
+     * Zamyka gniazdo bez wysyłania oczekujących linii; wątek czytający
+     * zakończy wtedy pętlę i wywoła {@link LineHandler#onClose()}.
+     */
+    private void abort() {
+        outbound.close();
+        try {
+            socket.close();   // przerywa blokujący odczyt w run()
+        } catch (IOException ignored) {}
+    }
+
+    private void closeNow() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (idle != null) idle.stop();
+        abort();
+        handler.onClose();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get() && !outbound.isFinishing();
+    }
+}
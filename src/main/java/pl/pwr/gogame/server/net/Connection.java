@@ -0,0 +1,58 @@
+package pl.pwr.gogame.server.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interfejs {@code Connection} reprezentuje połączenie z klientem niezależnie
+ * od sposobu obsługi gniazd (wątek na połączenie lub pętla zdarzeń NIO).
+ * <p>
+ * Metody mogą być wywoływane z dowolnego wątku, np. gdy handler jednego
+ * gracza wysyła komunikat do przeciwnika.
+ * </p>
+ */
+public interface Connection {
+
+    /**
+     * Wysyła jedną linię protokołu tekstowego (znak końca linii dodawany jest automatycznie).
+     *
+     * @param message treść linii
+     */
+    void send(String message);
+
+    /**
+     * Wysyła gotowe, zakodowane dane: ramkę protokołu binarnego albo, dla
+     * klienta tekstowego, linię zakończoną znakiem nowej linii. Bufor nie
+     * jest modyfikowany, więc te same dane mogą zostać wysłane wielu odbiorcom.
+     *
+     * @param frame zakodowane dane (od pozycji do limitu)
+     */
+    void sendFrame(ByteBuffer frame);
+
+    /**
+     * Informuje, czy klient wybrał protokół binarny.
+     *
+     * @return {@code true} dla połączenia binarnego
+     */
+    boolean isBinary();
+
+    /**
+     * Zwraca liczbę komunikatów oczekujących na wysłanie, np. by pominąć
+     * klienta, który nie nadąża z odbiorem.
+     *
+     * @return długość kolejki wyjściowej
+     */
+    int queuedCount();
+
+    /**
+     * Zamyka połączenie po wysłaniu oczekujących komunikatów.
+     * Po zamknięciu wywoływane jest {@link LineHandler#onClose()}.
+     */
+    void close();
+
+    /**
+     * Informuje, czy połączenie jest otwarte.
+     *
+     * @return {@code true} jeśli połączenie nie zostało zamknięte
+     */
+    boolean isOpen();
+}
@@ -0,0 +1,118 @@
+package pl.pwr.gogame.server.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import pl.pwr.gogame.protocol.BinaryProtocol;
+
+/**
+ * Klasa {@code IdleMonitor} wykrywa martwe połączenia (np. półotwarte
+ * po zniknięciu klienta bez zamknięcia gniazda).
+ * <p>
+ * Każde połączenie ma jedno zadanie w {@link TimingWheel}, wykonywane co
+ * {@code heartbeatMillis}. Jeśli od ostatniego odczytu minęło co najmniej
+ * tyle czasu, serwer wysyła {@code PING} (ramkę {@link BinaryProtocol#PING}
+ * klientowi binarnemu), na który klient odpowiada {@code PONG}. Każde dane
+ * od klienta liczą się jako aktywność. Po {@code idleTimeoutMillis} bez
+ * żadnych danych połączenie jest zrywane bez wysyłania zaległych linii,
+ * a handler dostaje zwykłe {@link LineHandler#onClose()}.
+ * </p>
+ * <p>
+ * Odczyt zapisuje tylko znacznik czasu - nie przestawia timera, więc
+ * koszt nadzoru nie zależy od liczby komend klienta.
+ * </p>
+ */
+public final class IdleMonitor {
+
+    private static final ByteBuffer TEXT_PING = ByteBuffer.wrap("PING\n".getBytes(StandardCharsets.US_ASCII));
+    private static final ByteBuffer BINARY_PING = BinaryProtocol.encodeEmpty(BinaryProtocol.PING);
+
+    private final TimingWheel wheel;
+    private final long heartbeatMillis;
+    private final long heartbeatNanos;
+    private final long idleTimeoutNanos;
+
+    /**
+     * @param wheel koło czasowe, w którym planowane są kontrole
+     * @param heartbeatMillis czas bez danych od klienta, po którym wysyłany jest {@code PING}
+     * @param idleTimeoutMillis czas bez danych od klienta, po którym połączenie jest zrywane
+     * @throws IllegalArgumentException jeśli czasy nie są dodatnie
+     *         lub limit bezczynności jest krótszy niż odstęp {@code PING}
+     */
+    public IdleMonitor(TimingWheel wheel, long heartbeatMillis, long idleTimeoutMillis) {
+        if (heartbeatMillis <= 0) throw new IllegalArgumentException("Odstęp PING musi być dodatni");
+        if (idleTimeoutMillis < heartbeatMillis) {
+            throw new IllegalArgumentException("Limit bezczynności nie może być krótszy niż odstęp PING");
+        }
+        this.wheel = wheel;
+        this.heartbeatMillis = heartbeatMillis;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    /**
+     * Rozpoczyna nadzór połączenia.
+     *
+     * @param connection nadzorowane połączenie
+     * @param expire zrywa połączenie bez wysyłania zaległych danych
+     * @return uchwyt, przez który połączenie zgłasza odczyty i kończy nadzór
+     */
+    Watch watch(Connection connection, Runnable expire) {
+        Watch watch = new Watch(connection, expire);
+        watch.schedule();
+        return watch;
+    }
+
+    /**
+     * Nadzór jednego połączenia.
+     */
+    final class Watch implements Runnable {
+        private final Connection connection;
+        private final Runnable expire;
+        private volatile long lastRead = System.nanoTime();
+        private volatile TimingWheel.Timeout timeout;
+        private volatile boolean stopped;
+
+        private Watch(Connection connection, Runnable expire) {
+            this.connection = connection;
+            this.expire = expire;
+        }
+
+        /**
+         * Zapisuje czas odczytu danych od klienta.
+         */
+        void touch() {
+            lastRead = System.nanoTime();
+        }
+
+        /**
+         * Kończy nadzór (po zamknięciu połączenia).
+         */
+        void stop() {
+            stopped = true;
+            TimingWheel.Timeout t = timeout;
+            if (t != null) t.cancel();
+        }
+
+        private void schedule() {
+            timeout = wheel.schedule(this, heartbeatMillis);
+        }
+
+        @Override
+        public void run() {
+            if (stopped || !connection.isOpen()) return;
+            long idle = System.nanoTime() - lastRead;
+            if (idle >= idleTimeoutNanos) {
+                System.err.println("Brak danych od klienta przez " + TimeUnit.NANOSECONDS.toSeconds(idle)
+                        + " s, zrywanie połączenia");
+                expire.run();
+                return;
+            }
+            if (idle >= heartbeatNanos) {
+                connection.sendFrame(connection.isBinary() ? BINARY_PING : TEXT_PING);
+            }
+            schedule();
+        }
+    }
+}
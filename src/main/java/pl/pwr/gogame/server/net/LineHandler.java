@@ -0,0 +1,60 @@
+package pl.pwr.gogame.server.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Interfejs {@code LineHandler} odbiera zdarzenia z połączenia:
+ * otwarcie, kolejne linie protokołu (lub ramki protokołu binarnego)
+ * oraz zamknięcie.
+ * <p>
+ * Dla jednego połączenia metody wywoływane są sekwencyjnie
+ * (nigdy równolegle), w kolejności odebrania linii.
+ * </p>
+ */
+public interface LineHandler {
+
+    /**
+     * Wywoływane po nawiązaniu połączenia.
+     *
+     * @param connection nowe połączenie
+     */
+    void onOpen(Connection connection);
+
+    /**
+     * Wywoływane dla każdej odebranej linii (bez znaku końca linii).
+     *
+     * @param line treść linii
+     */
+    void onLine(String line);
+
+    /**
+     * Wywoływane dla linii odebranej jako bajty UTF-8 (od pozycji do limitu).
+     * Bufor jest używany ponownie przez połączenie, więc nie wolno go
+     * zachowywać po powrocie z metody. Domyślnie linia jest dekodowana
+     * i przekazywana do {@link #onLine(String)}; handler może parsować
+     * ją bezpośrednio z bufora, bez tworzenia napisu.
+     *
+     * @param line bajty linii (bez znaku końca linii)
+     */
+    default void onLine(ByteBuffer line) {
+        onLine(StandardCharsets.UTF_8.decode(line).toString());
+    }
+
+    /**
+     * Wywoływane dla ramki protokołu binarnego innej niż linia tekstowa
+     * (ramki {@code LINE} trafiają do {@link #onLine(ByteBuffer)}).
+     * Bufor jest używany ponownie, więc dane trzeba odczytać przed powrotem.
+     * Domyślnie ramki są ignorowane.
+     *
+     * @param opcode kod ramki
+     * @param payload dane ramki
+     */
+    default void onFrame(int opcode, ByteBuffer payload) {
+    }
+
+    /**
+     * Wywoływane jednokrotnie po zamknięciu połączenia.
+     */
+    void onClose();
+}
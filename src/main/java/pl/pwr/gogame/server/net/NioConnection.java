@@ -0,0 +1,290 @@
+package pl.pwr.gogame.server.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pl.pwr.gogame.protocol.BinaryProtocol;
+import pl.pwr.gogame.protocol.FrameDecoder;
+import pl.pwr.gogame.protocol.FrameListener;
+
+/**
+ * Klasa {@code NioConnection} reprezentuje nieblokujące połączenie
+ * obsługiwane przez {@link NioEventLoop}.
+ * <p>
+ * Odebrane bajty są dzielone na linie w buforze połączenia, który jest
+ * używany ponownie (powiększany tylko do {@link #MAX_LINE} bajtów).
+ * Wysyłane linie trafiają do ograniczonej {@link OutboundQueue} opróżnianej
+ * w wątku pętli. Dopóki klient nie odbierze zaległych odpowiedzi,
+ * odczyt jego kolejnych komend jest wstrzymany.
+ * </p>
+ * <p>
+ * Jeśli pierwszy odebrany bajt to {@link BinaryProtocol#PREFACE},
+ * połączenie przechodzi na protokół binarny.
+ * </p>
+ * <p>
+ * Opcjonalny {@link IdleMonitor} zrywa połączenie, od którego przez
+ * dłuższy czas nie napłynęły żadne dane.
+ * </p>
+ */
+final class NioConnection implements Connection {
+
+    /**
+     * Maksymalna długość linii; dłuższa linia powoduje zamknięcie połączenia.
+     */
+    static final int MAX_LINE = 4096;
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final LineHandler handler;
+
+    /**
+     * Bufor bieżącej (niepełnej) linii.
+     */
+    private byte[] line = new byte[128];
+    private int lineLength;
+    /**
+     * Widok bufora linii przekazywany do {@link LineHandler#onLine(ByteBuffer)}.
+     */
+    private ByteBuffer lineView = ByteBuffer.wrap(line);
+
+    private final OutboundQueue outbound;
+
+    /**
+     * Tablica używana ponownie przy zapisie wielu linii jednym wywołaniem.
+     */
+    private final ByteBuffer[] batch = new ByteBuffer[16];
+    /**
+     * Czy sprawdzono już pierwszy bajt od klienta.
+     */
+    private boolean sniffed;
+    private boolean awaitingVersion;
+    private volatile boolean binary;
+    private FrameDecoder decoder;
+    private final FrameListener frames = this::onFrame;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * Nadzór bezczynności ({@code null}, jeśli wyłączony).
+     */
+    private final IdleMonitor.Watch idle;
+
+    NioConnection(NioEventLoop loop, SocketChannel channel, SelectionKey key, LineHandler handler,
+                  OutboundQueue outbound, IdleMonitor monitor) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.handler = handler;
+        this.outbound = outbound;
+        this.idle = monitor != null ? monitor.watch(this, this::abort) : null;
+    }
+
+    /**
+     * Odczytuje dostępne dane i przekazuje handlerowi kompletne linie.
+     * Wywoływane w wątku pętli.
+     */
+    void read(ByteBuffer buffer) {
+        buffer.clear();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            closeNow();
+            return;
+        }
+        if (read < 0) {
+            closeNow();
+            return;
+        }
+        if (idle != null) idle.touch();
+        buffer.flip();
+        if (!sniffed && buffer.hasRemaining()) {
+            sniffed = true;
+            if (buffer.get(buffer.position()) == BinaryProtocol.PREFACE) {
+                buffer.get();
+                awaitingVersion = true;
+            }
+        }
+        if (awaitingVersion && buffer.hasRemaining()) {
+            awaitingVersion = false;
+            startBinary(buffer.get());
+        }
+        if (binary) {
+            try {
+                decoder.decode(buffer, frames);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Niepoprawna ramka od klienta, zamykanie połączenia: " + e.getMessage());
+                closeNow();
+                return;
+            }
+        } else {
+            readLines(buffer);
+        }
+        // klient nie odbiera odpowiedzi - wstrzymaj odczyt jego komend
+        if (!closed.get() && outbound.isAboveHighWater()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    private void startBinary(byte version) {
+        if (version != BinaryProtocol.VERSION) {
+            System.err.println("Nieobsługiwana wersja protokołu binarnego: " + version);
+            closeNow();
+            return;
+        }
+        decoder = new FrameDecoder();
+        binary = true;
+        sendFrame(BinaryProtocol.encodeHello());
+    }
+
+    private void onFrame(int opcode, ByteBuffer payload) {
+        if (closed.get()) return;
+        if (opcode == BinaryProtocol.LINE) {
+            handler.onLine(payload);
+        } else if (opcode != BinaryProtocol.PONG) {
+            handler.onFrame(opcode, payload);
+        }
+    }
+
+    private void readLines(ByteBuffer buffer) {
+        while (buffer.hasRemaining() && !closed.get()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                int length = lineLength;
+                lineLength = 0;
+                handler.onLine(lineView.clear().limit(length));
+            } else if (b != '\r') {
+                if (lineLength == line.length) {
+                    if (line.length >= MAX_LINE) {
+                        System.err.println("Zbyt długa linia od klienta, zamykanie połączenia");
+                        closeNow();
+                        return;
+                    }
+                    byte[] grown = new byte[Math.min(MAX_LINE, line.length * 2)];
+                    System.arraycopy(line, 0, grown, 0, lineLength);
+                    line = grown;
+                    lineView = ByteBuffer.wrap(line);
+                }
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    @Override
+    public void send(String message) {
+        if (closed.get()) return;
+        if (binary) {
+            enqueue(outbound.offer(BinaryProtocol.encodeLine(message), OutboundQueue.isInformational(message)));
+        } else {
+            enqueue(outbound.offer(message));
+        }
+    }
+
+    @Override
+    public void sendFrame(ByteBuffer frame) {
+        if (closed.get()) return;
+        enqueue(outbound.offer(frame.duplicate(), false));
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public int queuedCount() {
+        return outbound.size();
+    }
+
+    private void enqueue(OutboundQueue.Offer offer) {
+        switch (offer) {
+            case QUEUED -> scheduleFlush();
+            case OVERFLOW -> {
+                System.err.println("Klient nie odbiera danych, rozłączanie");
+                abort();
+            }
+            case DROPPED -> { }
+        }
+    }
+
+    @Override
+    public void close() {
+        outbound.finish();
+        scheduleFlush();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get() && !outbound.isFinishing();
+    }
+
+    /**
+     * Zamyka połączenie bez wysyłania oczekujących linii.
+     */
+    private void abort() {
+        outbound.close();
+        if (loop.inEventLoop()) closeNow();
+        else loop.execute(this::closeNow);
+    }
+
+    private void scheduleFlush() {
+        if (loop.inEventLoop()) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Zapisuje oczekujące dane. Gdy gniazdo nie przyjmuje więcej danych,
+     * włącza zainteresowanie zapisem i kończy; reszta zostanie wysłana,
+     * gdy selektor zgłosi gotowość. Wywoływane w wątku pętli.
+     */
+    void flush() {
+        if (closed.get()) return;
+        try {
+            int n;
+            while ((n = outbound.peekBatch(batch)) > 0) {
+                channel.write(batch, 0, n);
+                boolean partial = batch[n - 1].hasRemaining();
+                outbound.removeWritten();
+                if (partial) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            int ops = key.interestOps() & ~SelectionKey.OP_WRITE;
+            if (outbound.isBelowLowWater()) ops |= SelectionKey.OP_READ;
+            key.interestOps(ops);
+        } catch (IOException e) {
+            closeNow();
+            return;
+        } finally {
+            Arrays.fill(batch, null);
+        }
+        if (outbound.isFinishing()) closeNow();
+    }
+
+    /**
+     * Natychmiast zamyka kanał i powiadamia handler.
+     */
+    void closeNow() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (idle != null) idle.stop();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+        outbound.close();
+        handler.onClose();
+    }
+}
@@ -0,0 +1,138 @@
+package pl.pwr.gogame.server.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Klasa {@code NioEventLoop} to pojedynczy wątek obsługujący wiele połączeń
+ * przez {@link Selector}. Odczyt, dekodowanie linii, wywołania handlerów
+ * oraz zapis do gniazd odbywają się w tym wątku; inne wątki przekazują
+ * mu pracę przez kolejkę zadań.
+ */
+final class NioEventLoop implements Runnable {
+
+    /**
+     * Rozmiar bufora odczytu współdzielonego przez wszystkie połączenia pętli.
+     */
+    static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Bufor odczytu używany ponownie przy każdym odczycie (dane są od razu
+     * dekodowane do bufora linii połączenia).
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private final int outboundLimit;
+    private final SlowConsumerPolicy policy;
+    private final IdleMonitor idleMonitor;
+
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    NioEventLoop(int outboundLimit, SlowConsumerPolicy policy, IdleMonitor idleMonitor) throws IOException {
+        this.selector = Selector.open();
+        this.outboundLimit = outboundLimit;
+        this.policy = policy;
+        this.idleMonitor = idleMonitor;
+    }
+
+    /**
+     * Rejestruje nowe połączenie w tej pętli.
+     */
+    void register(SocketChannel channel, LineHandler handler) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, channel, key, handler,
+                        new OutboundQueue(outboundLimit, policy), idleMonitor);
+                key.attach(connection);
+                handler.onOpen(connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {}
+            }
+        });
+    }
+
+    /**
+     * Zleca wykonanie zadania w wątku pętli.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("Błąd selektora: " + e.getMessage());
+                continue;
+            }
+            runTasks();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                if (!key.isValid()) continue;
+                try {
+                    if (key.isReadable()) connection.read(readBuffer);
+                    if (key.isValid() && key.isWritable()) connection.flush();
+                } catch (RuntimeException e) {
+                    // błąd obsługi jednego połączenia nie może zatrzymać pętli i pozostałych połączeń
+                    System.err.println("Błąd obsługi połączenia, zamykanie: " + e);
+                    e.printStackTrace();
+                    key.cancel();
+                    try {
+                        connection.closeNow();
+                    } catch (RuntimeException closeError) {
+                        closeError.printStackTrace();
+                    }
+                }
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) connection.closeNow();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // błąd jednego połączenia nie może zatrzymać pętli
+                e.printStackTrace();
+            }
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,110 @@
+package pl.pwr.gogame.server.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.Supplier;
+
+/**
+ * Klasa {@code NioServer} przyjmuje połączenia i rozdziela je między
+ * niewielką liczbę pętli zdarzeń ({@link NioEventLoop}) opartych na selektorze.
+ * <p>
+ * Zamiast wątku na każdego klienta serwer używa jednego wątku akceptującego
+ * i kilku wątków pętli, więc bezczynne połączenia praktycznie nie zużywają
+ * zasobów.
+ * </p>
+ */
+public class NioServer implements Closeable {
+
+    private final int port;
+    private final NioEventLoop[] loops;
+    private final Supplier<LineHandler> handlers;
+    private ServerSocketChannel serverChannel;
+    private int next;
+
+    /**
+     * Tworzy serwer NIO z domyślnym limitem kolejki wyjściowej.
+     *
+     * @param port port nasłuchiwania
+     * @param eventLoops liczba wątków pętli zdarzeń
+     * @param handlers fabryka handlerów dla nowych połączeń
+     * @throws IOException jeśli nie można otworzyć selektora
+     */
+    public NioServer(int port, int eventLoops, Supplier<LineHandler> handlers) throws IOException {
+        this(port, eventLoops, handlers, 1024, SlowConsumerPolicy.COALESCE);
+    }
+
+    /**
+     * Tworzy serwer NIO.
+     *
+     * @param port port nasłuchiwania
+     * @param eventLoops liczba wątków pętli zdarzeń
+     * @param handlers fabryka handlerów dla nowych połączeń
+     * @param outboundLimit maksymalna liczba linii oczekujących na wysłanie do jednego klienta
+     * @param policy polityka dla klientów, którzy nie nadążają z odbiorem
+     * @throws IOException jeśli nie można otworzyć selektora
+     * @throws IllegalArgumentException jeśli liczba pętli jest mniejsza niż 1
+     */
+    public NioServer(int port, int eventLoops, Supplier<LineHandler> handlers,
+                     int outboundLimit, SlowConsumerPolicy policy) throws IOException {
+        this(port, eventLoops, handlers, outboundLimit, policy, null);
+    }
+
+    /**
+     * Tworzy serwer NIO z nadzorem bezczynnych połączeń.
+     *
+     * @param port port nasłuchiwania
+     * @param eventLoops liczba wątków pętli zdarzeń
+     * @param handlers fabryka handlerów dla nowych połączeń
+     * @param outboundLimit maksymalna liczba linii oczekujących na wysłanie do jednego klienta
+     * @param policy polityka dla klientów, którzy nie nadążają z odbiorem
+     * @param idleMonitor nadzór bezczynności ({@code null} wyłącza {@code PING} i limit bezczynności)
+     * @throws IOException jeśli nie można otworzyć selektora
+     * @throws IllegalArgumentException jeśli liczba pętli jest mniejsza niż 1
+     */
+    public NioServer(int port, int eventLoops, Supplier<LineHandler> handlers,
+                     int outboundLimit, SlowConsumerPolicy policy, IdleMonitor idleMonitor) throws IOException {
+        if (eventLoops < 1) throw new IllegalArgumentException("Wymagana jest co najmniej jedna pętla zdarzeń");
+        this.port = port;
+        this.handlers = handlers;
+        this.loops = new NioEventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) loops[i] = new NioEventLoop(outboundLimit, policy, idleMonitor);
+    }
+
+    /**
+     * Uruchamia pętle zdarzeń i przyjmuje połączenia w bieżącym wątku
+     * aż do zamknięcia serwera.
+     *
+     * @throws IOException jeśli nie można otworzyć gniazda serwera
+     */
+    public void run() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "nio-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        System.out.println("Serwer Go (NIO, pętli: " + loops.length + ") działa na porcie " + port + "...");
+
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) break;
+                throw e;
+            }
+            loops[next].register(channel, handlers.get());
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverChannel != null) serverChannel.close();
+        for (NioEventLoop loop : loops) loop.shutdown();
+    }
+}
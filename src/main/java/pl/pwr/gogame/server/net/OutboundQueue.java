@@ -0,0 +1,311 @@
+package pl.pwr.gogame.server.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Klasa {@code OutboundQueue} to ograniczona kolejka wyjściowa jednego
+ * połączenia. Dowolny wątek może do niej dopisywać linie, a opróżnia ją
+ * tylko wątek zapisujący połączenia, więc wysyłający nigdy nie czeka
+ * na wolnego klienta.
+ * <p>
+ * Po przekroczeniu limitu stosowana jest {@link SlowConsumerPolicy}.
+ * Progi {@link #isAboveHighWater()} i {@link #isBelowLowWater()} służą
+ * do wstrzymywania odczytu komend od klienta, który nie odbiera odpowiedzi.
+ * </p>
+ */
+final class OutboundQueue {
+
+    /**
+     * Wynik dopisania linii do kolejki.
+     */
+    enum Offer {
+        /** Linia czeka na wysłanie. */
+        QUEUED,
+        /** Linia została odrzucona (komunikat informacyjny albo kolejka zamknięta). */
+        DROPPED,
+        /** Limit został przekroczony; połączenie należy zamknąć. */
+        OVERFLOW
+    }
+
+    private static final class Entry {
+        final ByteBuffer data;
+        final boolean droppable;
+
+        Entry(ByteBuffer data, boolean droppable) {
+            this.data = data;
+            this.droppable = droppable;
+        }
+    }
+
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    /**
+     * Po zamknięciu kolejka nie przyjmuje nowych linii.
+     */
+    private boolean closed;
+
+    /**
+     * Kolejka ma zostać opróżniona, a potem zamknięta.
+     */
+    private boolean finishing;
+    private long droppedCount;
+
+    /**
+     * @param capacity maksymalna liczba oczekujących linii
+     * @param policy polityka dla wolnych klientów
+     * @throws IllegalArgumentException jeśli limit jest mniejszy niż 4
+     */
+    OutboundQueue(int capacity, SlowConsumerPolicy policy) {
+        if (capacity < 4) throw new IllegalArgumentException("Limit kolejki wyjściowej musi wynosić co najmniej 4");
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Dopisuje linię do kolejki (znak końca linii dodawany jest automatycznie).
+     *
+     * @param line treść linii
+     * @return wynik operacji
+     */
+    Offer offer(String line) {
+        return offer(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)), isInformational(line));
+    }
+
+    /**
+     * Informuje, czy linia jest komunikatem informacyjnym, który można
+     * pominąć u wolnego klienta.
+     *
+     * @param line treść linii
+     * @return {@code true} dla linii {@code TEXT}
+     */
+    static boolean isInformational(String line) {
+        return line.startsWith("TEXT ");
+    }
+
+    /**
+     * Dopisuje zakodowane dane do kolejki.
+     *
+     * @param data dane do wysłania (bufor na wyłączność kolejki)
+     * @param droppable czy dane można pominąć u wolnego klienta
+     * @return wynik operacji
+     */
+    Offer offer(ByteBuffer data, boolean droppable) {
+        lock.lock();
+        try {
+            if (closed || finishing) return Offer.DROPPED;
+            if (entries.size() >= capacity) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) return Offer.OVERFLOW;
+                if (droppable) {
+                    droppedCount++;
+                    return Offer.DROPPED;
+                }
+                removeDroppable();
+                if (entries.size() >= 2 * capacity) return Offer.OVERFLOW;
+            }
+            entries.add(new Entry(data, droppable));
+            notEmpty.signal();
+            return Offer.QUEUED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa oczekujące komunikaty informacyjne, których wysyłanie
+     * jeszcze się nie rozpoczęło.
+     */
+    private void removeDroppable() {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.droppable && entry.data.position() == 0) {
+                it.remove();
+                droppedCount++;
+            }
+        }
+    }
+
+    /**
+     * Kopiuje (bez usuwania) początkowe bufory kolejki do tablicy,
+     * tak by można je było zapisać jednym wywołaniem systemowym.
+     *
+     * @param batch tablica docelowa
+     * @return liczba skopiowanych buforów
+     */
+    int peekBatch(ByteBuffer[] batch) {
+        lock.lock();
+        try {
+            int n = 0;
+            for (Entry entry : entries) {
+                if (n == batch.length) break;
+                batch[n++] = entry.data;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa z początku kolejki bufory, które zostały w całości zapisane.
+     */
+    void removeWritten() {
+        lock.lock();
+        try {
+            while (!entries.isEmpty() && !entries.peekFirst().data.hasRemaining()) {
+                entries.pollFirst();
+            }
+            signalIfDrained();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pobiera następny bufor do zapisu, czekając, aż się pojawi.
+     *
+     * @return bufor albo {@code null}, jeśli kolejka została zamknięta
+     *         lub opróżniona po {@link #finish()}
+     * @throws InterruptedException jeśli wątek został przerwany
+     */
+    ByteBuffer take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (entries.isEmpty()) {
+                if (closed || finishing) return null;
+                notEmpty.await();
+            }
+            ByteBuffer data = entries.pollFirst().data;
+            signalIfDrained();
+            return data;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Czeka, aż liczba oczekujących linii spadnie do dolnego progu
+     * (lub kolejka zostanie zamknięta).
+     *
+     * @throws InterruptedException jeśli wątek został przerwany
+     */
+    void awaitBelowLowWater() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed && entries.size() > lowWater()) {
+                drained.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalIfDrained() {
+        if (entries.size() <= lowWater()) drained.signalAll();
+    }
+
+    private int lowWater() {
+        return capacity / 4;
+    }
+
+    boolean isAboveHighWater() {
+        lock.lock();
+        try {
+            return entries.size() >= capacity * 3 / 4;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isBelowLowWater() {
+        lock.lock();
+        try {
+            return entries.size() <= lowWater();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return entries.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zamyka kolejkę po wysłaniu wszystkich oczekujących linii.
+     */
+    void finish() {
+        lock.lock();
+        try {
+            finishing = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Informuje, czy kolejka przestała przyjmować nowe linie
+     * (po {@link #finish()} lub {@link #close()}).
+     */
+    boolean isFinishing() {
+        lock.lock();
+        try {
+            return finishing || closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zamyka kolejkę natychmiast, porzucając oczekujące linie.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            entries.clear();
+            notEmpty.signalAll();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zwraca liczbę odrzuconych komunikatów informacyjnych.
+     *
+     * @return liczba odrzuconych linii
+     */
+    long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
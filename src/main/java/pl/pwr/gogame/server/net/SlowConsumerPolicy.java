@@ -0,0 +1,20 @@
+package pl.pwr.gogame.server.net;
+
+/**
+ * Polityka postępowania z klientem, który nie nadąża z odbieraniem danych
+ * (kolejka wyjściowa połączenia osiągnęła limit).
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Komunikaty informacyjne ({@code TEXT}) oczekujące w kolejce są
+     * usuwane, a nowe odrzucane; komunikaty stanu gry są zachowywane
+     * do podwójnego limitu, po którego przekroczeniu klient jest rozłączany.
+     */
+    COALESCE,
+
+    /**
+     * Po osiągnięciu limitu klient jest od razu rozłączany.
+     */
+    DISCONNECT
+}
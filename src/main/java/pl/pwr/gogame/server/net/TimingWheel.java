@@ -0,0 +1,244 @@
+package pl.pwr.gogame.server.net;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Klasa {@code TimingWheel} to haszowane koło czasowe: jeden wątek obsługuje
+ * dowolnie wiele zadań opóźnionych (np. kontrolę bezczynności dziesiątek
+ * tysięcy połączeń) zamiast osobnego timera na każde gniazdo.
+ * <p>
+ * Koło ma {@code wheelSize} kubełków, a wskazówka przesuwa się o jeden
+ * kubełek co {@code tickMillis}. Zadanie trafia do kubełka
+ * {@code (termin / tick) mod wheelSize} z licznikiem pełnych obrotów,
+ * więc dodanie i anulowanie kosztują O(1), niezależnie od liczby zadań.
+ * Zadania wykonywane są z dokładnością do jednego ticku.
+ * </p>
+ * <p>
+ * {@link #schedule(Runnable, long)} i {@link Timeout#cancel()} nie blokują się:
+ * zgłoszenia trafiają do kolejek, które wątek koła przetwarza przy każdym
+ * ticku. Zadania wykonywane są w wątku koła, więc muszą być krótkie
+ * (dłuższą pracę należy przekazać do innego wykonawcy).
+ * </p>
+ */
+public final class TimingWheel implements Closeable {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * Maksymalna liczba nowych zadań przenoszonych do kubełków w jednym ticku,
+     * by zalew zgłoszeń nie opóźnił wykonania zadań.
+     */
+    private static final int MAX_TRANSFER = 100_000;
+
+    /**
+     * Uchwyt zaplanowanego zadania.
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+        /** Termin w nanosekundach od uruchomienia koła. */
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // pola poniżej używane wyłącznie w wątku koła
+        private long rounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Anuluje zadanie, jeśli jeszcze się nie wykonało.
+         *
+         * @return {@code true}, jeśli zadanie zostało anulowane
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            wheel.size.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) return;
+            wheel.size.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Błąd zadania koła czasowego: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Kubełek: dwukierunkowa lista zadań (usuwanie w O(1)).
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) timeout.prev.next = next;
+            if (next != null) next.prev = timeout.prev;
+            if (timeout == head) head = next;
+            if (timeout == tail) tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                if (timeout.rounds <= 0) {
+                    Timeout next = remove(timeout);
+                    timeout.expire();
+                    timeout = next;
+                } else {
+                    timeout.rounds--;
+                    timeout = timeout.next;
+                }
+            }
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Numer bieżącego ticku (tylko wątek koła).
+     */
+    private long tick;
+
+    /**
+     * Tworzy koło i uruchamia jego wątek (demon).
+     *
+     * @param name nazwa wątku
+     * @param tickMillis długość ticku w milisekundach
+     * @param wheelSize liczba kubełków (zaokrąglana w górę do potęgi dwójki)
+     * @throws IllegalArgumentException jeśli parametry nie są dodatnie
+     */
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Długość ticku musi być dodatnia");
+        if (wheelSize <= 0 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("Liczba kubełków musi należeć do przedziału 1..2^20");
+        }
+        int buckets = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (wheelSize == 1) buckets = 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) wheel[i] = new Bucket();
+        this.mask = buckets - 1;
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Planuje wykonanie zadania po upływie podanego czasu.
+     *
+     * @param task zadanie (wykonywane w wątku koła)
+     * @param delayMillis opóźnienie w milisekundach
+     * @return uchwyt pozwalający anulować zadanie
+     * @throws IllegalStateException jeśli koło zostało zamknięte
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (!running) throw new IllegalStateException("Koło czasowe zostało zamknięte");
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(this, task, deadline);
+        size.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Zwraca przybliżoną liczbę zaplanowanych (niewykonanych) zadań.
+     *
+     * @return liczba zadań
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while ((sleep = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(sleep);
+                if (!running) return;
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        for (int i = 0; i < MAX_TRANSFER && (timeout = pending.poll()) != null; i++) {
+            if (timeout.isCancelled()) continue;
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = (due - tick) / wheel.length;
+            // zadanie spóźnione wykonuje się w bieżącym ticku
+            long slot = Math.max(due, tick);
+            wheel[(int) (slot & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    /**
+     * Zatrzymuje wątek koła; niewykonane zadania są porzucane.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+}
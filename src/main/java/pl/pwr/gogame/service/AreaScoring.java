@@ -0,0 +1,63 @@
+package pl.pwr.gogame.service;
+
+import pl.pwr.gogame.model.BitBoard;
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.ScoreResult;
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Strategia liczenia obszaru (zasady chińskie): wynik gracza to liczba jego
+ * kamieni na planszy plus puste pola osiągalne wyłącznie od jego kamieni.
+ * <p>
+ * Liczenie nie korzysta z licznika zbitych kamieni, więc wystarczy sama
+ * plansza. Puste pola osiągalne od każdego koloru wyznaczane są rozlewaniem
+ * na {@link BitBoard} - bez budowania list regionów - co pozwala szybko
+ * liczyć punkty np. przy masowym odtwarzaniu zapisanych gier.
+ * </p>
+ */
+public class AreaScoring implements ScoringStrategy {
+
+    /**
+     * Komi doliczane białemu.
+     */
+    private final double komi;
+
+    /**
+     * Tworzy strategię liczenia obszaru.
+     *
+     * @param komi komi doliczane białemu
+     */
+    public AreaScoring(double komi) {
+        this.komi = komi;
+    }
+
+    @Override
+    public ScoreResult score(GameEngine engine) {
+        Board board = engine.getBoard();
+        BitBoard black = BitBoard.of(board, StoneColor.BLACK);
+        BitBoard white = BitBoard.of(board, StoneColor.WHITE);
+        BitBoard empty = BitBoard.of(board, StoneColor.EMPTY);
+
+        //pola osiągalne od kamieni danego koloru przez puste pola
+        BitBoard blackReach = black.copy();
+        blackReach.floodWithin(empty);
+        blackReach.and(empty);
+        BitBoard whiteReach = white.copy();
+        whiteReach.floodWithin(empty);
+        whiteReach.and(empty);
+
+        //pole osiągalne od obu kolorów jest neutralne
+        BitBoard blackOnly = blackReach.copy();
+        blackOnly.andNot(whiteReach);
+        whiteReach.andNot(blackReach);
+
+        int blackScore = black.cardinality() + blackOnly.cardinality();
+        int whiteScore = white.cardinality() + whiteReach.cardinality();
+        return ScoreResult.decide(blackScore, whiteScore, komi,
+                engine.getBlackPlayer(), engine.getWhitePlayer());
+    }
+
+    @Override
+    public double getKomi() { return komi; }
+}
@@ -1,6 +1,8 @@
 package pl.pwr.gogame.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -8,6 +10,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.PassAliveResult;
 import pl.pwr.gogame.model.Position;
 import pl.pwr.gogame.model.StoneColor;
 
@@ -186,4 +189,227 @@ public class BoardService {
 
         return colors;
     }
+
+    /**
+     * Wyznacza łańcuchy danego koloru, które są bezwarunkowo żywe
+     * (ang. pass-alive) według algorytmu Bensona.
+     * <p>
+     * Plansza dzielona jest na łańcuchy koloru {@code color} oraz regiony,
+     * czyli spójne obszary pól niebędących kamieniami tego koloru.
+     * Region jest witalny dla łańcucha, jeśli każde jego puste pole
+     * jest oddechem tego łańcucha. Następnie na przemian odrzucane są
+     * łańcuchy mające mniej niż dwa witalne regiony oraz regiony
+     * graniczące z odrzuconym łańcuchem, aż do ustalenia się wyniku.
+     * Odrzucanie prowadzone jest listą roboczą, więc cały algorytm działa
+     * w czasie liniowym względem liczby pól planszy.
+     * </p>
+     *
+     * @param board plansza gry
+     * @param color kolor analizowanych łańcuchów
+     * @return kamienie bezwarunkowo żywych łańcuchów oraz ich witalne regiony
+     */
+    public PassAliveResult findPassAliveChains(Board board, StoneColor color) {
+        int size = board.getSize();
+        int n = size * size;
+        boolean[] own = new boolean[n];
+        boolean[] empty = new boolean[n];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                StoneColor stone = board.getStone(c, r);
+                own[r * size + c] = stone == color;
+                empty[r * size + c] = stone == StoneColor.EMPTY;
+            }
+        }
+
+        //łańcuchy to spójne obszary kamieni koloru color, regiony - wszystkie pozostałe obszary
+        int[] chainOf = new int[n];
+        int[] chainPoints = new int[n];
+        int[] chainStart = new int[n + 1];
+        int chains = labelComponents(own, true, size, chainOf, chainPoints, chainStart);
+
+        int[] regionOf = new int[n];
+        int[] regionPoints = new int[n];
+        int[] regionStart = new int[n + 1];
+        int regions = labelComponents(own, false, size, regionOf, regionPoints, regionStart);
+
+        //pary (region, łańcuch graniczący) - każde pole ma najwyżej 4 sąsiadów,
+        //więc par jest co najwyżej 4n; pary jednego regionu leżą obok siebie
+        int[] pairRegion = new int[4 * n];
+        int[] pairChain = new int[4 * n];
+        boolean[] pairVital = new boolean[4 * n];
+        int[] regionPairStart = new int[regions + 1];
+        int pairs = 0;
+
+        int[] borderStamp = new int[chains];
+        int[] libertyStamp = new int[chains];
+        int[] libertyCount = new int[chains];
+        Arrays.fill(borderStamp, -1);
+        Arrays.fill(libertyStamp, -1);
+        int[] adjacent = new int[4];
+
+        for (int region = 0; region < regions; region++) {
+            regionPairStart[region] = pairs;
+            int emptyCount = 0;
+            for (int k = regionStart[region]; k < regionStart[region + 1]; k++) {
+                int point = regionPoints[k];
+                int count = neighborsOf(point, size, adjacent);
+                if (empty[point]) emptyCount++;
+                for (int j = 0; j < count; j++) {
+                    int neighbor = adjacent[j];
+                    if (!own[neighbor]) continue;
+                    int chain = chainOf[neighbor];
+                    if (borderStamp[chain] != region) {
+                        borderStamp[chain] = region;
+                        pairRegion[pairs] = region;
+                        pairChain[pairs] = chain;
+                        pairs++;
+                    }
+                    //puste pole liczymy jako oddech łańcucha tylko raz,
+                    //nawet jeśli łańcuch dotyka go z kilku stron
+                    if (empty[point] && libertyStamp[chain] != point) {
+                        libertyStamp[chain] = point;
+                        libertyCount[chain]++;
+                    }
+                }
+            }
+            //liczniki oddechów zerujemy od razu, bo oddechy w regionie mają tylko łańcuchy z nim graniczące
+            for (int p = regionPairStart[region]; p < pairs; p++) {
+                int chain = pairChain[p];
+                pairVital[p] = emptyCount > 0 && libertyCount[chain] == emptyCount;
+                libertyCount[chain] = 0;
+            }
+        }
+        regionPairStart[regions] = pairs;
+
+        //odwrotny indeks: pary należące do danego łańcucha
+        int[] chainPairStart = new int[chains + 1];
+        for (int p = 0; p < pairs; p++) chainPairStart[pairChain[p] + 1]++;
+        for (int chain = 0; chain < chains; chain++) chainPairStart[chain + 1] += chainPairStart[chain];
+        int[] chainPairs = new int[pairs];
+        int[] fill = Arrays.copyOf(chainPairStart, chains);
+        for (int p = 0; p < pairs; p++) chainPairs[fill[pairChain[p]]++] = p;
+
+        int[] vitalCount = new int[chains];
+        for (int p = 0; p < pairs; p++) {
+            if (pairVital[p]) vitalCount[pairChain[p]]++;
+        }
+
+        boolean[] chainAlive = new boolean[chains];
+        boolean[] regionAlive = new boolean[regions];
+        Arrays.fill(chainAlive, true);
+        Arrays.fill(regionAlive, true);
+
+        int[] worklist = new int[chains];
+        int top = 0;
+        for (int chain = 0; chain < chains; chain++) {
+            if (vitalCount[chain] < 2) {
+                chainAlive[chain] = false;
+                worklist[top++] = chain;
+            }
+        }
+
+        while (top > 0) {
+            int chain = worklist[--top];
+            //region graniczący z odrzuconym łańcuchem przestaje być bezpieczny
+            for (int k = chainPairStart[chain]; k < chainPairStart[chain + 1]; k++) {
+                int region = pairRegion[chainPairs[k]];
+                if (!regionAlive[region]) continue;
+                regionAlive[region] = false;
+                for (int p = regionPairStart[region]; p < regionPairStart[region + 1]; p++) {
+                    if (!pairVital[p]) continue;
+                    int other = pairChain[p];
+                    vitalCount[other]--;
+                    if (chainAlive[other] && vitalCount[other] < 2) {
+                        chainAlive[other] = false;
+                        worklist[top++] = other;
+                    }
+                }
+            }
+        }
+
+        BitSet aliveChains = new BitSet(n);
+        for (int chain = 0; chain < chains; chain++) {
+            if (!chainAlive[chain]) continue;
+            for (int k = chainStart[chain]; k < chainStart[chain + 1]; k++) {
+                aliveChains.set(chainPoints[k]);
+            }
+        }
+
+        BitSet vitalRegions = new BitSet(n);
+        for (int region = 0; region < regions; region++) {
+            if (!regionAlive[region]) continue;
+            boolean vital = false;
+            for (int p = regionPairStart[region]; p < regionPairStart[region + 1] && !vital; p++) {
+                vital = pairVital[p] && chainAlive[pairChain[p]];
+            }
+            if (!vital) continue;
+            for (int k = regionStart[region]; k < regionStart[region + 1]; k++) {
+                vitalRegions.set(regionPoints[k]);
+            }
+        }
+
+        return new PassAliveResult(color, size, aliveChains, vitalRegions);
+    }
+
+    /**
+     * Dzieli pola planszy na spójne składowe złożone z pól,
+     * dla których {@code mask[i] == wanted}. Punkty każdej składowej
+     * zapisywane są kolejno w tablicy {@code points}, a składowa
+     * {@code k} zajmuje w niej zakres {@code start[k]..start[k + 1]}.
+     *
+     * @param mask przynależność pól
+     * @param wanted szukana wartość maski
+     * @param size rozmiar planszy
+     * @param componentOf numer składowej dla każdego pola (lub -1)
+     * @param points punkty składowych w kolejności przeszukiwania
+     * @param start początki składowych w tablicy {@code points}
+     * @return liczba znalezionych składowych
+     */
+    static int labelComponents(boolean[] mask, boolean wanted, int size,
+                                int[] componentOf, int[] points, int[] start) {
+        int n = size * size;
+        Arrays.fill(componentOf, -1);
+        int[] adjacent = new int[4];
+        int components = 0;
+        int written = 0;
+        for (int seed = 0; seed < n; seed++) {
+            if (mask[seed] != wanted || componentOf[seed] >= 0) continue;
+            start[components] = written;
+            componentOf[seed] = components;
+            points[written++] = seed;
+            //tablica points służy jednocześnie jako kolejka przeszukiwania wszerz
+            for (int read = start[components]; read < written; read++) {
+                int count = neighborsOf(points[read], size, adjacent);
+                for (int j = 0; j < count; j++) {
+                    int neighbor = adjacent[j];
+                    if (mask[neighbor] == wanted && componentOf[neighbor] < 0) {
+                        componentOf[neighbor] = components;
+                        points[written++] = neighbor;
+                    }
+                }
+            }
+            components++;
+        }
+        start[components] = written;
+        return components;
+    }
+
+    /**
+     * Zapisuje indeksy sąsiadów pola do tablicy {@code out}.
+     *
+     * @param index indeks pola {@code row * size + col}
+     * @param size rozmiar planszy
+     * @param out tablica o długości co najmniej 4
+     * @return liczba sąsiadów
+     */
+    static int neighborsOf(int index, int size, int[] out) {
+        int col = index % size;
+        int row = index / size;
+        int count = 0;
+        if (row > 0) out[count++] = index - size;
+        if (row < size - 1) out[count++] = index + size;
+        if (col > 0) out[count++] = index - 1;
+        if (col < size - 1) out[count++] = index + 1;
+        return count;
+    }
 }
@@ -140,6 +140,7 @@ public class GameEngineService {
         GamePlayer winner = engine.getOpponentPlayer(player);
         engine.setCurrentPlayer(null); // Blokuje dalsze ruchy
         engine.setEnd(true);
+        engine.setWinner(winner);
         return MoveResult.resign(player, winner);
     }
 
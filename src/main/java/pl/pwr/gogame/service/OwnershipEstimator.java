@@ -0,0 +1,253 @@
+package pl.pwr.gogame.service;
+
+import java.util.Collection;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.OwnershipDelta;
+import pl.pwr.gogame.model.Position;
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Klasa {@code OwnershipEstimator} utrzymuje przybliżoną mapę wpływów
+ * i przynależności pól w trakcie gry.
+ * <p>
+ * Każdy kamień wpływa na pola w odległości (manhattańskiej) co najwyżej
+ * {@link #RADIUS}, z wagą malejącą wraz z odległością: czarne dodatnio,
+ * białe ujemnie. Puste pole należy do gracza, którego wpływ na nim
+ * przekracza {@link #THRESHOLD}; pole z kamieniem należy do jego koloru.
+ * </p>
+ * <p>
+ * Mapa jest aktualizowana przyrostowo: postawienie lub zdjęcie kamienia
+ * zmienia wpływ tylko w jego otoczeniu (co najwyżej {@code 2R(R+1)+1} pól),
+ * więc koszt ruchu jest ograniczony stałą razy liczba zmienionych kamieni.
+ * Estymator nie modyfikuje planszy ani stanu silnika gry.
+ * </p>
+ */
+public class OwnershipEstimator {
+
+    /**
+     * Zasięg wpływu kamienia.
+     */
+    static final int RADIUS = 3;
+
+    /**
+     * Minimalny wpływ, od którego puste pole uznawane jest za czyjeś.
+     */
+    static final int THRESHOLD = 3;
+
+    private final int size;
+
+    /**
+     * Kamienie na planszy: 1 - czarny, -1 - biały, 0 - puste pole.
+     */
+    private final byte[] stones;
+
+    /**
+     * Suma wpływów kamieni dla każdego pola.
+     */
+    private final int[] influence;
+
+    /**
+     * Aktualny właściciel pola: 1 - czarny, -1 - biały, 0 - nikt.
+     */
+    private final byte[] owner;
+
+    /**
+     * Przesunięcia i wagi otoczenia kamienia (wspólne dla wszystkich pól).
+     */
+    private final int[] kernelCol;
+    private final int[] kernelRow;
+    private final int[] kernelWeight;
+
+    /**
+     * Pola do ponownej oceny po bieżącej zmianie (bez powtórzeń dzięki znacznikom).
+     */
+    private final int[] dirty;
+    private final int[] dirtyMark;
+    private int dirtyCount;
+    private int mark;
+
+    private int blackOwned;
+    private int whiteOwned;
+
+    /**
+     * Tworzy estymator dla pustej planszy o podanym rozmiarze.
+     *
+     * @param size rozmiar planszy
+     */
+    public OwnershipEstimator(int size) {
+        this.size = size;
+        int n = size * size;
+        this.stones = new byte[n];
+        this.influence = new int[n];
+        this.owner = new byte[n];
+        this.dirty = new int[n];
+        this.dirtyMark = new int[n];
+
+        int kernelSize = 2 * RADIUS * (RADIUS + 1) + 1;
+        kernelCol = new int[kernelSize];
+        kernelRow = new int[kernelSize];
+        kernelWeight = new int[kernelSize];
+        int k = 0;
+        for (int dr = -RADIUS; dr <= RADIUS; dr++) {
+            for (int dc = -RADIUS; dc <= RADIUS; dc++) {
+                int distance = Math.abs(dr) + Math.abs(dc);
+                if (distance > RADIUS) continue;
+                kernelCol[k] = dc;
+                kernelRow[k] = dr;
+                kernelWeight[k] = RADIUS + 1 - distance;
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Tworzy estymator zgodny z aktualnym stanem planszy.
+     *
+     * @param board plansza gry
+     * @return estymator
+     */
+    public static OwnershipEstimator of(Board board) {
+        OwnershipEstimator estimator = new OwnershipEstimator(board.getSize());
+        estimator.beginChange();
+        for (int r = 0; r < board.getSize(); r++) {
+            for (int c = 0; c < board.getSize(); c++) {
+                StoneColor color = board.getStone(c, r);
+                if (color != StoneColor.EMPTY) estimator.setStone(r * board.getSize() + c, color);
+            }
+        }
+        estimator.commitChange();
+        return estimator;
+    }
+
+    /**
+     * Uwzględnia ruch: postawiony kamień oraz zbite kamienie przeciwnika.
+     *
+     * @param position pozycja postawionego kamienia
+     * @param color kolor postawionego kamienia
+     * @param captured pozycje zbitych kamieni
+     * @return pola, których przynależność się zmieniła
+     */
+    public OwnershipDelta applyMove(Position position, StoneColor color, Collection<Position> captured) {
+        beginChange();
+        setStone(indexOf(position), color);
+        for (Position p : captured) {
+            setStone(indexOf(p), StoneColor.EMPTY);
+        }
+        return commitChange();
+    }
+
+    /**
+     * Uwzględnia zdjęcie kamieni z planszy (np. po negocjacji martwych grup).
+     *
+     * @param removed pozycje zdjętych kamieni
+     * @return pola, których przynależność się zmieniła
+     */
+    public OwnershipDelta removeStones(Collection<Position> removed) {
+        beginChange();
+        for (Position p : removed) {
+            setStone(indexOf(p), StoneColor.EMPTY);
+        }
+        return commitChange();
+    }
+
+    /**
+     * Zwraca szacowanego właściciela pola.
+     *
+     * @param position pozycja pola
+     * @return kolor właściciela lub {@link StoneColor#EMPTY}
+     */
+    public StoneColor getOwner(Position position) {
+        return toColor(owner[indexOf(position)]);
+    }
+
+    public int getBlackEstimate() { return blackOwned; }
+
+    public int getWhiteEstimate() { return whiteOwned; }
+
+    public int getSize() { return size; }
+
+    private void beginChange() {
+        dirtyCount = 0;
+        mark++;
+    }
+
+    /**
+     * Zmienia zawartość pola i nanosi różnicę wpływu na jego otoczenie.
+     */
+    private void setStone(int index, StoneColor color) {
+        byte value = toValue(color);
+        int diff = value - stones[index];
+        if (diff == 0) return;
+        stones[index] = value;
+        int col = index % size;
+        int row = index / size;
+        for (int k = 0; k < kernelWeight.length; k++) {
+            int c = col + kernelCol[k];
+            int r = row + kernelRow[k];
+            if (c < 0 || c >= size || r < 0 || r >= size) continue;
+            int target = r * size + c;
+            influence[target] += diff * kernelWeight[k];
+            if (dirtyMark[target] != mark) {
+                dirtyMark[target] = mark;
+                dirty[dirtyCount++] = target;
+            }
+        }
+    }
+
+    /**
+     * Ponownie ocenia pola dotknięte zmianą i zwraca te, których właściciel się zmienił.
+     */
+    private OwnershipDelta commitChange() {
+        int changed = 0;
+        for (int i = 0; i < dirtyCount; i++) {
+            int index = dirty[i];
+            byte next = evaluate(index);
+            if (next != owner[index]) {
+                count(owner[index], -1);
+                count(next, 1);
+                owner[index] = next;
+                dirty[changed++] = index;
+            }
+        }
+        int[] points = new int[changed];
+        StoneColor[] owners = new StoneColor[changed];
+        for (int i = 0; i < changed; i++) {
+            points[i] = dirty[i];
+            owners[i] = toColor(owner[dirty[i]]);
+        }
+        return new OwnershipDelta(points, owners, blackOwned, whiteOwned);
+    }
+
+    private byte evaluate(int index) {
+        if (stones[index] != 0) return stones[index];
+        int value = influence[index];
+        if (value >= THRESHOLD) return 1;
+        if (value <= -THRESHOLD) return -1;
+        return 0;
+    }
+
+    private void count(byte value, int delta) {
+        if (value > 0) blackOwned += delta;
+        else if (value < 0) whiteOwned += delta;
+    }
+
+    private int indexOf(Position position) {
+        if (position.col() < 0 || position.col() >= size || position.row() < 0 || position.row() >= size) {
+            throw new IllegalArgumentException("Pozycja poza planszą: " + position);
+        }
+        return position.row() * size + position.col();
+    }
+
+    private static byte toValue(StoneColor color) {
+        if (color == StoneColor.BLACK) return 1;
+        if (color == StoneColor.WHITE) return -1;
+        return 0;
+    }
+
+    private static StoneColor toColor(byte value) {
+        if (value > 0) return StoneColor.BLACK;
+        if (value < 0) return StoneColor.WHITE;
+        return StoneColor.EMPTY;
+    }
+}
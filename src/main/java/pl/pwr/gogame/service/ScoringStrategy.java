@@ -0,0 +1,31 @@
+package pl.pwr.gogame.service;
+
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.ScoreResult;
+
+/**
+ * Interfejs {@code ScoringStrategy} opisuje sposób liczenia punktów
+ * na koniec gry (np. liczenie terytorium lub obszaru).
+ * <p>
+ * Wzorzec projektowy: <b>Strategy</b> - {@link GameEngine} deleguje liczenie
+ * punktów do wybranej strategii, którą można podmienić bez zmiany silnika.
+ * </p>
+ */
+public interface ScoringStrategy {
+
+    /**
+     * Oblicza wynik gry dla aktualnego stanu silnika.
+     * Strategia nie modyfikuje planszy ani stanu silnika.
+     *
+     * @param engine silnik gry
+     * @return wynik punktowy z wyznaczonym zwycięzcą
+     */
+    ScoreResult score(GameEngine engine);
+
+    /**
+     * Zwraca komi doliczane białemu.
+     *
+     * @return komi
+     */
+    double getKomi();
+}
@@ -0,0 +1,494 @@
+package pl.pwr.gogame.service;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.Position;
+import pl.pwr.gogame.model.RaceResult;
+import pl.pwr.gogame.model.StoneColor;
+
+/**
+ * Klasa {@code TacticalReader} odpowiada na taktyczne pytania o łańcuchy:
+ * czy łańcuch da się zbić drabinką, czy obrońca może uciec oraz kto wygrywa
+ * wyścig o oddechy (semeai).
+ * <p>
+ * Czytanie odbywa się na własnej kopii planszy w tablicy bajtów z ruchami
+ * wykonywanymi i cofanymi w miejscu (make/unmake). Wszystkie bufory
+ * są przydzielane raz dla danego rozmiaru planszy, więc samo czytanie
+ * nie alokuje pamięci. Wyniki zapamiętywane są w tablicy indeksowanej
+ * skrótem Zobrista pozycji, dzięki czemu powtórne pytania (np. z kolejnych
+ * symulacji bota) są natychmiastowe.
+ * </p>
+ * <p>
+ * Czytanie drabinek jest ograniczone do {@link #MAX_DEPTH} półruchów
+ * i nie uwzględnia reguły ko; gdy limit zostanie przekroczony, łańcuch
+ * uznawany jest za bezpieczny.
+ * </p>
+ */
+public class TacticalReader {
+
+    /**
+     * Maksymalna głębokość czytania drabinki (w półruchach).
+     */
+    static final int MAX_DEPTH = 60;
+
+    private static final int CACHE_BITS = 14;
+    private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+    private static final byte CAPTURED = 1;
+    private static final byte SAFE = 2;
+
+    private static final byte EMPTY = 0;
+    private static final byte BLACK = 1;
+    private static final byte WHITE = 2;
+
+    private int size;
+    private byte[] cells;
+
+    /**
+     * Sąsiedzi pól w układzie CSR: sąsiedzi pola {@code p} to
+     * {@code adjacency[4p .. 4p + degree[p] - 1]}.
+     */
+    private int[] adjacency;
+    private int[] degree;
+
+    /**
+     * Klucze Zobrista: pola czarne, pola białe oraz klucze łańcucha,
+     * o który pytamy, dla ruchu atakującego i obrońcy.
+     */
+    private long[] zobrist;
+    private long hash;
+
+    /**
+     * Stos cofania: zbite kamienie, ich liczba i postawiony kamień.
+     */
+    private int[] undo;
+    private int undoTop;
+
+    //bufory robocze przeszukiwania łańcuchów (znaczniki zamiast czyszczenia)
+    private int[] stack;
+    private int[] stoneMark;
+    private int[] libertyMark;
+    private int mark;
+
+    //bufory per głębokość: oddechy, sąsiedzi przeciwnika, kandydaci ruchów
+    private int[][] libertyBuf;
+    private int[][] adjacentBuf;
+    private int[][] moveBuf;
+
+    private final long[] cacheKeys = new long[1 << CACHE_BITS];
+    private final byte[] cacheValues = new byte[1 << CACHE_BITS];
+
+    /**
+     * Informacja, czy bieżące poddrzewo przekroczyło limit głębokości
+     * (takich wyników nie zapisujemy w pamięci podręcznej).
+     */
+    private boolean hitLimit;
+
+    /**
+     * Wczytuje stan planszy do wewnętrznej reprezentacji.
+     *
+     * @param board plansza gry
+     */
+    public void load(Board board) {
+        int boardSize = board.getSize();
+        if (boardSize != size) resize(boardSize);
+        hash = 0;
+        undoTop = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int p = r * size + c;
+                cells[p] = toCell(board.getStone(c, r));
+                if (cells[p] != EMPTY) hash ^= key(p, cells[p]);
+            }
+        }
+    }
+
+    /**
+     * Sprawdza, czy łańcuch można zbić, gdy ruch ma atakujący
+     * (przeciwnik koloru łańcucha).
+     *
+     * @param board plansza gry
+     * @param chain dowolny kamień łańcucha
+     * @return {@code true} jeśli łańcuch zostanie zbity mimo obrony
+     * @throws IllegalArgumentException jeśli na podanym polu nie ma kamienia
+     */
+    public boolean canCapture(Board board, Position chain) {
+        load(board);
+        return attackerWins(stoneAt(chain), 0);
+    }
+
+    /**
+     * Sprawdza, czy łańcuch może uniknąć zbicia, gdy ruch ma jego właściciel.
+     *
+     * @param board plansza gry
+     * @param chain dowolny kamień łańcucha
+     * @return {@code true} jeśli istnieje obrona
+     * @throws IllegalArgumentException jeśli na podanym polu nie ma kamienia
+     */
+    public boolean canEscape(Board board, Position chain) {
+        load(board);
+        return !defenderLoses(stoneAt(chain), 0);
+    }
+
+    /**
+     * Sprawdza, czy ruch jest błędem taktycznym: jest niedozwolony albo
+     * łańcuch, do którego dołącza kamień, przeciwnik może od razu zbić
+     * (np. wejście w atari lub w przegraną drabinkę).
+     *
+     * @param board plansza gry
+     * @param move pole ruchu
+     * @param color kolor kamienia
+     * @return {@code true} jeśli ruchu należy unikać
+     */
+    public boolean isBlunder(Board board, Position move, StoneColor color) {
+        load(board);
+        int p = indexOf(move);
+        if (!play(p, toCell(color))) return true;
+        //ruch zbijający zawsze zostawiamy - nawet jeśli kamień trafia w atari (np. ko)
+        boolean lost = undo[undoTop - 2] == 0 && attackerWins(p, 0);
+        unplay();
+        return lost;
+    }
+
+    /**
+     * Rozstrzyga wyścig o oddechy dwóch sąsiadujących łańcuchów bez oczu.
+     * Ruch ma właściciel łańcucha {@code chain}. Liczone są oddechy
+     * wyłączne obu łańcuchów oraz oddechy wspólne.
+     *
+     * @param board plansza gry
+     * @param chain łańcuch gracza wykonującego ruch
+     * @param opponentChain łańcuch przeciwnika
+     * @return wynik wyścigu z perspektywy gracza wykonującego ruch
+     * @throws IllegalArgumentException jeśli łańcuchy nie są przeciwnych kolorów
+     */
+    public RaceResult semeai(Board board, Position chain, Position opponentChain) {
+        load(board);
+        int own = stoneAt(chain);
+        int other = stoneAt(opponentChain);
+        if (cells[own] == cells[other]) {
+            throw new IllegalArgumentException("Łańcuchy w semeai muszą mieć różne kolory");
+        }
+
+        //oddechy własnego łańcucha oznaczamy, a potem liczymy przecięcie z oddechami przeciwnika
+        int ownLiberties = scanChain(own, Integer.MAX_VALUE, null);
+        int ownMark = mark;
+        int otherLiberties = 0;
+        int shared = 0;
+        int top = 0;
+        mark++;
+        stack[top++] = other;
+        stoneMark[other] = mark;
+        byte color = cells[other];
+        while (top > 0) {
+            int s = stack[--top];
+            for (int i = 0; i < degree[s]; i++) {
+                int nb = adjacency[4 * s + i];
+                if (cells[nb] == color && stoneMark[nb] != mark) {
+                    stoneMark[nb] = mark;
+                    stack[top++] = nb;
+                } else if (cells[nb] == EMPTY && libertyMark[nb] != mark) {
+                    boolean isShared = libertyMark[nb] == ownMark;
+                    libertyMark[nb] = mark;
+                    otherLiberties++;
+                    if (isShared) shared++;
+                }
+            }
+        }
+
+        int ownExclusive = ownLiberties - shared;
+        int otherExclusive = otherLiberties - shared;
+        if (shared <= 1) {
+            return ownExclusive >= otherExclusive ? RaceResult.WIN : RaceResult.LOSS;
+        }
+        //przy co najmniej dwóch wspólnych oddechach wchodzący w nie sam traci oddech
+        if (ownExclusive >= otherExclusive + shared - 1) return RaceResult.WIN;
+        if (otherExclusive >= ownExclusive + shared) return RaceResult.LOSS;
+        return RaceResult.SEKI;
+    }
+
+    //czytanie drabinek
+
+    /**
+     * Ruch ma atakujący. Zwraca {@code true}, jeśli łańcuch zostanie zbity.
+     */
+    private boolean attackerWins(int chain, int depth) {
+        int[] libs = libertyBuf[depth];
+        int liberties = scanChain(chain, 3, libs);
+        if (liberties <= 1) return true;
+        if (liberties >= 3) return false;
+
+        long key = hash ^ zobrist[2 * cells.length + chain];
+        byte cached = lookup(key);
+        if (cached != 0) return cached == CAPTURED;
+        if (depth >= MAX_DEPTH) {
+            hitLimit = true;
+            return false;
+        }
+
+        boolean parentLimit = hitLimit;
+        hitLimit = false;
+        byte attacker = opposite(cells[chain]);
+        boolean captured = false;
+        for (int i = 0; i < 2 && !captured; i++) {
+            if (play(libs[i], attacker)) {
+                captured = defenderLoses(chain, depth + 1);
+                unplay();
+            }
+        }
+        if (!hitLimit) store(key, captured ? CAPTURED : SAFE);
+        hitLimit |= parentLimit;
+        return captured;
+    }
+
+    /**
+     * Ruch ma obrońca. Zwraca {@code true}, jeśli łańcuch zostanie zbity
+     * niezależnie od obrony.
+     */
+    private boolean defenderLoses(int chain, int depth) {
+        int[] libs = libertyBuf[depth];
+        int liberties = scanChain(chain, 2, libs);
+        if (liberties == 0) return true;
+        if (liberties >= 2) return false;
+
+        long key = hash ^ zobrist[3 * cells.length + chain];
+        byte cached = lookup(key);
+        if (cached != 0) return cached == CAPTURED;
+        if (depth >= MAX_DEPTH) {
+            hitLimit = true;
+            return false;
+        }
+
+        int[] moves = moveBuf[depth];
+        int moveCount = 0;
+        moves[moveCount++] = libs[0];
+
+        //zbicie sąsiedniego łańcucha przeciwnika w atari również jest obroną
+        int[] adjacent = adjacentBuf[depth];
+        int adjacentCount = collectAdjacentEnemies(chain, adjacent);
+        for (int i = 0; i < adjacentCount; i++) {
+            if (scanChain(adjacent[i], 2, libs) == 1 && !contains(moves, moveCount, libs[0])) {
+                moves[moveCount++] = libs[0];
+            }
+        }
+
+        boolean parentLimit = hitLimit;
+        hitLimit = false;
+        byte defender = cells[chain];
+        boolean escaped = false;
+        for (int i = 0; i < moveCount && !escaped; i++) {
+            if (!play(moves[i], defender)) continue;
+            int after = scanChain(chain, 3, libertyBuf[depth + 1]);
+            if (after >= 3) {
+                escaped = true;
+            } else if (after == 2) {
+                escaped = !attackerWins(chain, depth + 1);
+            }
+            unplay();
+        }
+        if (!hitLimit) store(key, escaped ? SAFE : CAPTURED);
+        hitLimit |= parentLimit;
+        return !escaped;
+    }
+
+    //plansza make/unmake
+
+    /**
+     * Stawia kamień i zdejmuje zbite łańcuchy przeciwnika.
+     * Zwraca {@code false} (bez zmiany planszy), jeśli ruch jest niedozwolony.
+     */
+    private boolean play(int p, byte color) {
+        if (cells[p] != EMPTY) return false;
+        cells[p] = color;
+        hash ^= key(p, color);
+        byte enemy = opposite(color);
+        int captured = 0;
+        for (int i = 0; i < degree[p]; i++) {
+            int nb = adjacency[4 * p + i];
+            if (cells[nb] == enemy && scanChain(nb, 1, null) == 0) {
+                captured += removeChain(nb, enemy);
+            }
+        }
+        if (captured == 0 && scanChain(p, 1, null) == 0) {
+            cells[p] = EMPTY;
+            hash ^= key(p, color);
+            return false;
+        }
+        undo[undoTop++] = captured;
+        undo[undoTop++] = p * 4 + color;
+        return true;
+    }
+
+    /**
+     * Cofa ostatni ruch wykonany przez {@link #play(int, byte)}.
+     */
+    private void unplay() {
+        int entry = undo[--undoTop];
+        int p = entry >> 2;
+        byte color = (byte) (entry & 3);
+        cells[p] = EMPTY;
+        hash ^= key(p, color);
+        byte enemy = opposite(color);
+        int captured = undo[--undoTop];
+        for (int i = 0; i < captured; i++) {
+            int s = undo[--undoTop];
+            cells[s] = enemy;
+            hash ^= key(s, enemy);
+        }
+    }
+
+    private int removeChain(int start, byte color) {
+        int top = 0;
+        int removed = 0;
+        stack[top++] = start;
+        cells[start] = EMPTY;
+        hash ^= key(start, color);
+        while (top > 0) {
+            int s = stack[--top];
+            undo[undoTop++] = s;
+            removed++;
+            for (int i = 0; i < degree[s]; i++) {
+                int nb = adjacency[4 * s + i];
+                if (cells[nb] == color) {
+                    cells[nb] = EMPTY;
+                    hash ^= key(nb, color);
+                    stack[top++] = nb;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Przegląda łańcuch i liczy jego oddechy, przerywając po znalezieniu
+     * {@code max} oddechów. Pierwsze znalezione oddechy zapisuje do {@code out}.
+     */
+    private int scanChain(int start, int max, int[] out) {
+        mark++;
+        byte color = cells[start];
+        int top = 0;
+        int liberties = 0;
+        stack[top++] = start;
+        stoneMark[start] = mark;
+        while (top > 0) {
+            int s = stack[--top];
+            for (int i = 0; i < degree[s]; i++) {
+                int nb = adjacency[4 * s + i];
+                if (cells[nb] == color) {
+                    if (stoneMark[nb] != mark) {
+                        stoneMark[nb] = mark;
+                        stack[top++] = nb;
+                    }
+                } else if (cells[nb] == EMPTY && libertyMark[nb] != mark) {
+                    libertyMark[nb] = mark;
+                    if (out != null && liberties < out.length) out[liberties] = nb;
+                    if (++liberties >= max) return liberties;
+                }
+            }
+        }
+        return liberties;
+    }
+
+    /**
+     * Zbiera po jednym kamieniu z każdego pola przeciwnika sąsiadującego z łańcuchem.
+     */
+    private int collectAdjacentEnemies(int chain, int[] out) {
+        mark++;
+        byte color = cells[chain];
+        byte enemy = opposite(color);
+        int top = 0;
+        int count = 0;
+        stack[top++] = chain;
+        stoneMark[chain] = mark;
+        while (top > 0) {
+            int s = stack[--top];
+            for (int i = 0; i < degree[s]; i++) {
+                int nb = adjacency[4 * s + i];
+                if (stoneMark[nb] == mark) continue;
+                if (cells[nb] == color) {
+                    stoneMark[nb] = mark;
+                    stack[top++] = nb;
+                } else if (cells[nb] == enemy) {
+                    stoneMark[nb] = mark;
+                    out[count++] = nb;
+                }
+            }
+        }
+        return count;
+    }
+
+    //pamięć podręczna
+
+    private byte lookup(long key) {
+        int slot = (int) (key ^ (key >>> 32)) & CACHE_MASK;
+        return cacheKeys[slot] == key ? cacheValues[slot] : 0;
+    }
+
+    private void store(long key, byte value) {
+        int slot = (int) (key ^ (key >>> 32)) & CACHE_MASK;
+        cacheKeys[slot] = key;
+        cacheValues[slot] = value;
+    }
+
+    //pomocnicze
+
+    private void resize(int boardSize) {
+        size = boardSize;
+        int n = size * size;
+        cells = new byte[n];
+        adjacency = new int[4 * n];
+        degree = new int[n];
+        int[] neighbors = new int[4];
+        for (int p = 0; p < n; p++) {
+            degree[p] = BoardService.neighborsOf(p, size, neighbors);
+            System.arraycopy(neighbors, 0, adjacency, 4 * p, degree[p]);
+        }
+        //stałe ziarno: te same pozycje zawsze mają te same skróty
+        Random random = new Random(0x5EED_60L + size);
+        zobrist = new long[4 * n];
+        for (int i = 0; i < zobrist.length; i++) zobrist[i] = random.nextLong();
+        undo = new int[4 * n + 4 * MAX_DEPTH];
+        stack = new int[n];
+        stoneMark = new int[n];
+        libertyMark = new int[n];
+        mark = 0;
+        libertyBuf = new int[MAX_DEPTH + 2][Math.max(3, n)];
+        adjacentBuf = new int[MAX_DEPTH + 1][n];
+        moveBuf = new int[MAX_DEPTH + 1][n + 1];
+        Arrays.fill(cacheKeys, 0);
+    }
+
+    private long key(int p, byte color) {
+        return zobrist[(color - 1) * size * size + p];
+    }
+
+    private int stoneAt(Position position) {
+        int p = indexOf(position);
+        if (cells[p] == EMPTY) throw new IllegalArgumentException("Brak kamienia na polu " + position);
+        return p;
+    }
+
+    private int indexOf(Position position) {
+        if (position.col() < 0 || position.col() >= size || position.row() < 0 || position.row() >= size) {
+            throw new IllegalArgumentException("Pozycja poza planszą: " + position);
+        }
+        return position.row() * size + position.col();
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private static byte toCell(StoneColor color) {
+        if (color == StoneColor.BLACK) return BLACK;
+        if (color == StoneColor.WHITE) return WHITE;
+        return EMPTY;
+    }
+
+    private static byte opposite(byte color) {
+        return color == BLACK ? WHITE : BLACK;
+    }
+}
@@ -0,0 +1,95 @@
+package pl.pwr.gogame.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.Position;
+import pl.pwr.gogame.model.ScoreResult;
+import pl.pwr.gogame.model.ScoringMode;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.model.TerritoryMap;
+
+/**
+ * Strategia liczenia terytorium (zasady japońskie): wynik gracza to
+ * otoczone przez niego puste pola plus zbite kamienie przeciwnika.
+ * Sposób klasyfikowania regionów określa {@link ScoringMode}.
+ */
+public class TerritoryScoring implements ScoringStrategy {
+
+    /**
+     * Sposób klasyfikowania regionów.
+     */
+    private final ScoringMode mode;
+
+    /**
+     * Komi doliczane białemu.
+     */
+    private final double komi;
+
+    private final BoardService boardService = new BoardService();
+    private final TerritoryService territoryService = new TerritoryService(boardService);
+
+    /**
+     * Tworzy strategię liczenia terytorium.
+     *
+     * @param mode sposób klasyfikowania regionów
+     * @param komi komi doliczane białemu
+     */
+    public TerritoryScoring(ScoringMode mode, double komi) {
+        this.mode = mode;
+        this.komi = komi;
+    }
+
+    /**
+     * Oblicza wynik na podstawie terytoriów oraz liczby zbitych kamieni.
+     * W trybie {@link ScoringMode#LIFE_STATUS} martwe kamienie liczone są
+     * jako jeńcy i terytorium przeciwnika, a regiony seki nie dają punktów.
+     *
+     * @param engine silnik gry
+     * @return wynik punktowy gry
+     */
+    @Override
+    public ScoreResult score(GameEngine engine) {
+        Board board = engine.getBoard();
+        int blackScore;
+        int whiteScore;
+        if (mode == ScoringMode.LIFE_STATUS) {
+            TerritoryMap territory = territoryService.analyze(board);
+            blackScore = territory.getBlackTerritory() + engine.getBlackCaptures() + territory.getDeadWhiteStones();
+            whiteScore = territory.getWhiteTerritory() + engine.getWhiteCaptures() + territory.getDeadBlackStones();
+        } else {
+            int blackTerritory = 0;
+            int whiteTerritory = 0;
+            Set<Position> visited = new HashSet<>();
+            int boardSize = board.getSize();
+            for (int r = 0; r < boardSize; r++) {
+                for (int c = 0; c < boardSize; c++) {
+                    Position currentPos = new Position(c, r);
+                    if (board.isEmpty(currentPos) && !visited.contains(currentPos)) {
+                        List<Position> region = boardService.getEmptyRegion(board, currentPos, visited);
+                        Set<StoneColor> borderingColors = boardService.getBorderingColors(board, region);
+                        if (borderingColors.size() == 1) {
+                            if (borderingColors.contains(StoneColor.BLACK)) {
+                                blackTerritory += region.size();
+                            } else if (borderingColors.contains(StoneColor.WHITE)) {
+                                whiteTerritory += region.size();
+                            }
+                        }
+                    }
+                }
+            }
+            blackScore = blackTerritory + engine.getBlackCaptures();
+            whiteScore = whiteTerritory + engine.getWhiteCaptures();
+        }
+        return ScoreResult.decide(blackScore, whiteScore, komi,
+                engine.getBlackPlayer(), engine.getWhitePlayer());
+    }
+
+    @Override
+    public double getKomi() { return komi; }
+
+    public ScoringMode getMode() { return mode; }
+}
@@ -0,0 +1,304 @@
+package pl.pwr.gogame.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.LifeStatus;
+import pl.pwr.gogame.model.PassAliveResult;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.model.TerritoryMap;
+
+/**
+ * Serwis {@code TerritoryService} klasyfikuje pola planszy na potrzeby
+ * liczenia punktów z uwzględnieniem życia łańcuchów.
+ * <p>
+ * Każdy łańcuch otrzymuje status żywy, martwy albo seki, a puste regiony
+ * (połączone z polami martwych kamieni) stają się terytorium, dame
+ * lub wspólnymi oddechami seki. Wszystkie kroki to przejścia po tablicach
+ * indeksowanych numerem pola, więc koszt analizy jest liniowy
+ * względem rozmiaru planszy - wystarczająco tani zarówno na koniec gry,
+ * jak i do bieżącej oceny pozycji.
+ * </p>
+ * <p>
+ * Klasyfikacja łańcuchów jest heurystyczna (poza wynikiem Bensona):
+ * <ul>
+ *   <li>łańcuch bezwarunkowo żywy lub mający co najmniej dwa oczy jest żywy,</li>
+ *   <li>łańcuch w regionie witalnym bezwarunkowo żywej grupy przeciwnika jest martwy,</li>
+ *   <li>dwa słabe, zamknięte łańcuchy przeciwnych kolorów dzielące oddech w małym regionie są w seki,</li>
+ *   <li>słaby łańcuch zamknięty przez przeciwnika w niewielkim obszarze bez żadnej silnej
+ *       grupy swojego koloru jest martwy,</li>
+ *   <li>pozostałe łańcuchy uznajemy za żywe, by nie odbierać punktów bez powodu.</li>
+ * </ul>
+ * </p>
+ */
+public class TerritoryService {
+
+    /**
+     * Jednokolorowy region o co najmniej tylu polach liczymy jako dwa oczy.
+     */
+    private static final int TWO_EYE_REGION_SIZE = 7;
+
+    /**
+     * Największy pusty region, którego wspólne oddechy mogą tworzyć seki.
+     */
+    private static final int MAX_SEKI_REGION_SIZE = 6;
+
+    /**
+     * Serwis pomocniczy operujący na planszy.
+     */
+    private final BoardService boardService;
+
+    /**
+     * Tworzy nowy serwis klasyfikacji terytoriów.
+     *
+     * @param boardService serwis operujący na planszy
+     */
+    public TerritoryService(BoardService boardService) {
+        this.boardService = boardService;
+    }
+
+    /**
+     * Klasyfikuje wszystkie pola planszy i zlicza terytoria oraz martwe kamienie.
+     * Plansza nie jest modyfikowana.
+     *
+     * @param board plansza gry
+     * @return mapa terytoriów
+     */
+    public TerritoryMap analyze(Board board) {
+        int size = board.getSize();
+        int n = size * size;
+        boolean[] black = new boolean[n];
+        boolean[] white = new boolean[n];
+        boolean[] empty = new boolean[n];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                StoneColor stone = board.getStone(c, r);
+                black[r * size + c] = stone == StoneColor.BLACK;
+                white[r * size + c] = stone == StoneColor.WHITE;
+                empty[r * size + c] = stone == StoneColor.EMPTY;
+            }
+        }
+
+        PassAliveResult blackLife = boardService.findPassAliveChains(board, StoneColor.BLACK);
+        PassAliveResult whiteLife = boardService.findPassAliveChains(board, StoneColor.WHITE);
+        BitSet blackAlive = blackLife.getAliveChains();
+        BitSet whiteAlive = whiteLife.getAliveChains();
+        BitSet blackVital = blackLife.getVitalRegions();
+        BitSet whiteVital = whiteLife.getVitalRegions();
+
+        int[] points = new int[n];
+        int[] start = new int[n + 1];
+
+        //numeracja łańcuchów: najpierw czarne, potem białe
+        int[] chainOf = new int[n];
+        int[] whiteChainOf = new int[n];
+        int blackChains = BoardService.labelComponents(black, true, size, chainOf, points, start);
+        int whiteChains = BoardService.labelComponents(white, true, size, whiteChainOf, points, start);
+        int chains = blackChains + whiteChains;
+        int[] chainRep = new int[chains];
+        for (int i = n - 1; i >= 0; i--) {
+            if (white[i]) chainOf[i] = blackChains + whiteChainOf[i];
+            if (!empty[i]) chainRep[chainOf[i]] = i;
+        }
+
+        //puste regiony: oddechy i oczy łańcuchów
+        int[] emptyOf = new int[n];
+        int[] emptyPoints = new int[n];
+        int[] emptyStart = new int[n + 1];
+        int emptyRegions = BoardService.labelComponents(empty, true, size, emptyOf, emptyPoints, emptyStart);
+
+        int[] liberties = new int[chains];
+        int[] libertyStamp = new int[chains];
+        int[] eyeValue = new int[chains];
+        int[] regionStamp = new int[chains];
+        //łańcuch z oddechem w dużym regionie ma gdzie uciec - nie jest w seki
+        boolean[] openLiberty = new boolean[chains];
+        Arrays.fill(libertyStamp, -1);
+        Arrays.fill(regionStamp, -1);
+        int[] borderChains = new int[4 * n];
+        int[] adjacent = new int[4];
+
+        for (int region = 0; region < emptyRegions; region++) {
+            boolean touchesBlack = false;
+            boolean touchesWhite = false;
+            int borders = 0;
+            int regionSize = emptyStart[region + 1] - emptyStart[region];
+            for (int k = emptyStart[region]; k < emptyStart[region + 1]; k++) {
+                int point = emptyPoints[k];
+                int count = BoardService.neighborsOf(point, size, adjacent);
+                for (int j = 0; j < count; j++) {
+                    int neighbor = adjacent[j];
+                    if (empty[neighbor]) continue;
+                    int chain = chainOf[neighbor];
+                    touchesBlack |= black[neighbor];
+                    touchesWhite |= white[neighbor];
+                    if (libertyStamp[chain] != point) {
+                        libertyStamp[chain] = point;
+                        liberties[chain]++;
+                    }
+                    if (regionStamp[chain] != region) {
+                        regionStamp[chain] = region;
+                        borderChains[borders++] = chain;
+                        openLiberty[chain] |= regionSize > MAX_SEKI_REGION_SIZE;
+                    }
+                }
+            }
+            //region otoczony jednym kolorem to oko dla wszystkich łańcuchów, które go otaczają
+            if (touchesBlack != touchesWhite) {
+                int value = regionSize >= TWO_EYE_REGION_SIZE ? 2 : 1;
+                for (int b = 0; b < borders; b++) {
+                    eyeValue[borderChains[b]] += value;
+                }
+            }
+        }
+
+        boolean[] strong = new boolean[chains];
+        for (int chain = 0; chain < chains; chain++) {
+            int rep = chainRep[chain];
+            boolean benson = chain < blackChains ? blackAlive.get(rep) : whiteAlive.get(rep);
+            strong[chain] = benson || eyeValue[chain] >= 2;
+        }
+
+        //obszary zamknięte przez przeciwnika: składowe pól bez kamieni danego koloru
+        int[] nonBlackOf = new int[n];
+        int nonBlack = BoardService.labelComponents(black, false, size, nonBlackOf, points, start);
+        int[] nonBlackArea = areas(start, nonBlack);
+        int[] nonWhiteOf = new int[n];
+        int nonWhite = BoardService.labelComponents(white, false, size, nonWhiteOf, points, start);
+        int[] nonWhiteArea = areas(start, nonWhite);
+
+        boolean[] nonBlackHasStrongWhite = new boolean[nonBlack];
+        boolean[] nonWhiteHasStrongBlack = new boolean[nonWhite];
+        for (int chain = 0; chain < chains; chain++) {
+            if (!strong[chain]) continue;
+            int rep = chainRep[chain];
+            if (chain < blackChains) nonWhiteHasStrongBlack[nonWhiteOf[rep]] = true;
+            else nonBlackHasStrongWhite[nonBlackOf[rep]] = true;
+        }
+
+        LifeStatus[] chainStatus = new LifeStatus[chains];
+        for (int chain = 0; chain < chains; chain++) {
+            int rep = chainRep[chain];
+            if (strong[chain]) {
+                chainStatus[chain] = LifeStatus.ALIVE;
+            } else if (chain < blackChains ? whiteVital.get(rep) : blackVital.get(rep)) {
+                chainStatus[chain] = LifeStatus.DEAD;
+            }
+        }
+
+        //seki: słabe łańcuchy obu kolorów z co najmniej dwoma oddechami, wszystkimi w małych regionach,
+        //które dzielą ze sobą oddech
+        for (int region = 0; region < emptyRegions; region++) {
+            if (emptyStart[region + 1] - emptyStart[region] > MAX_SEKI_REGION_SIZE) continue;
+            for (int k = emptyStart[region]; k < emptyStart[region + 1]; k++) {
+                int count = BoardService.neighborsOf(emptyPoints[k], size, adjacent);
+                int blackCandidate = -1;
+                int whiteCandidate = -1;
+                for (int j = 0; j < count; j++) {
+                    int neighbor = adjacent[j];
+                    if (empty[neighbor]) continue;
+                    int chain = chainOf[neighbor];
+                    boolean candidate = !strong[chain] && chainStatus[chain] != LifeStatus.DEAD
+                            && liberties[chain] >= 2 && !openLiberty[chain];
+                    if (!candidate) continue;
+                    if (chain < blackChains) blackCandidate = chain;
+                    else whiteCandidate = chain;
+                }
+                if (blackCandidate >= 0 && whiteCandidate >= 0) {
+                    chainStatus[blackCandidate] = LifeStatus.SEKI;
+                    chainStatus[whiteCandidate] = LifeStatus.SEKI;
+                }
+            }
+        }
+
+        int maxDeadArea = n / 4;
+        for (int chain = 0; chain < chains; chain++) {
+            if (chainStatus[chain] != null) continue;
+            int rep = chainRep[chain];
+            boolean enclosed;
+            if (chain < blackChains) {
+                int area = nonWhiteOf[rep];
+                enclosed = !nonWhiteHasStrongBlack[area] && nonWhiteArea[area] <= maxDeadArea;
+            } else {
+                int area = nonBlackOf[rep];
+                enclosed = !nonBlackHasStrongWhite[area] && nonBlackArea[area] <= maxDeadArea;
+            }
+            chainStatus[chain] = enclosed ? LifeStatus.DEAD : LifeStatus.ALIVE;
+        }
+
+        //terytoria: składowe pól pustych i martwych kamieni
+        boolean[] open = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            open[i] = empty[i] || chainStatus[chainOf[i]] == LifeStatus.DEAD;
+        }
+        int[] areaOf = new int[n];
+        int areas = BoardService.labelComponents(open, true, size, areaOf, points, start);
+
+        LifeStatus[] status = new LifeStatus[n];
+        StoneColor[] owner = new StoneColor[n];
+        int blackTerritory = 0;
+        int whiteTerritory = 0;
+        int deadBlack = 0;
+        int deadWhite = 0;
+
+        for (int area = 0; area < areas; area++) {
+            boolean touchesBlack = false;
+            boolean touchesWhite = false;
+            boolean touchesSeki = false;
+            for (int k = start[area]; k < start[area + 1]; k++) {
+                int count = BoardService.neighborsOf(points[k], size, adjacent);
+                for (int j = 0; j < count; j++) {
+                    int neighbor = adjacent[j];
+                    if (open[neighbor]) continue;
+                    touchesBlack |= black[neighbor];
+                    touchesWhite |= white[neighbor];
+                    touchesSeki |= chainStatus[chainOf[neighbor]] == LifeStatus.SEKI;
+                }
+            }
+            StoneColor areaOwner = StoneColor.EMPTY;
+            if (!touchesSeki && touchesBlack != touchesWhite) {
+                areaOwner = touchesBlack ? StoneColor.BLACK : StoneColor.WHITE;
+            }
+            for (int k = start[area]; k < start[area + 1]; k++) {
+                int point = points[k];
+                if (empty[point]) {
+                    owner[point] = areaOwner;
+                    status[point] = areaOwner != StoneColor.EMPTY ? LifeStatus.ALIVE
+                            : touchesSeki ? LifeStatus.SEKI : LifeStatus.DAME;
+                } else if ((black[point] ? StoneColor.BLACK : StoneColor.WHITE) == areaOwner) {
+                    //"martwy" kamień otoczony wyłącznie własnymi żywymi kamieniami jest w rzeczywistości żywy
+                    owner[point] = areaOwner;
+                    status[point] = LifeStatus.ALIVE;
+                    continue;
+                } else {
+                    owner[point] = black[point] ? StoneColor.WHITE : StoneColor.BLACK;
+                    status[point] = LifeStatus.DEAD;
+                    if (black[point]) deadBlack++;
+                    else deadWhite++;
+                }
+                if (areaOwner == StoneColor.BLACK) blackTerritory++;
+                else if (areaOwner == StoneColor.WHITE) whiteTerritory++;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (open[i]) continue;
+            status[i] = chainStatus[chainOf[i]];
+            owner[i] = black[i] ? StoneColor.BLACK : StoneColor.WHITE;
+        }
+
+        return new TerritoryMap(size, status, owner, blackTerritory, whiteTerritory, deadBlack, deadWhite);
+    }
+
+    /**
+     * Zamienia tablicę początków składowych na ich rozmiary.
+     */
+    private int[] areas(int[] start, int components) {
+        int[] area = new int[components];
+        for (int k = 0; k < components; k++) {
+            area[k] = start[k + 1] - start[k];
+        }
+        return area;
+    }
+}
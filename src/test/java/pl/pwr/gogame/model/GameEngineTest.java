@@ -6,11 +6,17 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import pl.pwr.gogame.service.AreaScoring;
 import pl.pwr.gogame.service.BoardService;
+import pl.pwr.gogame.service.TacticalReader;
+import pl.pwr.gogame.service.TerritoryScoring;
+import pl.pwr.gogame.service.TerritoryService;
 
 public class GameEngineTest {
 
@@ -393,6 +399,43 @@ void testShouldDetectSeparateEmptyRegions() {
     assertEquals(18, leftRegion.size());
     assertEquals(54, rightRegion.size());
     }
+    @Test
+    void testShouldFindPassAliveGroupWithTwoEyes() {
+        // Czarna grupa w rogu z dwoma oczami na (0,0) i (2,0)
+        //   0 1 2 3 4
+        // 0 . B . B .
+        // 1 B B B B .
+        BoardService service = new BoardService();
+        board.setStone(new Position(1, 0), StoneColor.BLACK);
+        board.setStone(new Position(3, 0), StoneColor.BLACK);
+        for (int c = 0; c <= 3; c++) {
+            board.setStone(new Position(c, 1), StoneColor.BLACK);
+        }
+
+        PassAliveResult result = service.findPassAliveChains(board, StoneColor.BLACK);
+
+        assertTrue(result.isAlive(new Position(1, 0)), "Grupa z dwoma oczami powinna być bezwarunkowo żywa");
+        assertTrue(result.isInVitalRegion(new Position(0, 0)));
+        assertTrue(result.isInVitalRegion(new Position(2, 0)));
+        assertFalse(result.isInVitalRegion(new Position(4, 0)), "Otwarta przestrzeń nie jest regionem witalnym");
+        assertEquals(6, result.getAliveChains().cardinality());
+    }
+
+    @Test
+    void testShouldNotFindPassAliveGroupWithOneEye() {
+        // Ta sama grupa, ale bez kamienia na (3,0) - zostaje tylko jedno oko
+        BoardService service = new BoardService();
+        board.setStone(new Position(1, 0), StoneColor.BLACK);
+        for (int c = 0; c <= 3; c++) {
+            board.setStone(new Position(c, 1), StoneColor.BLACK);
+        }
+
+        PassAliveResult result = service.findPassAliveChains(board, StoneColor.BLACK);
+
+        assertTrue(result.getAliveChains().isEmpty(), "Grupa z jednym okiem nie jest bezwarunkowo żywa");
+        assertTrue(result.getVitalRegions().isEmpty());
+    }
+
    @Test
     void testShouldCalculateScoresCorrectlyOn9x9Board() {
         // Ustawiamy scenariusz zakończonej gry na planszy 9x9
@@ -431,4 +474,247 @@ void testShouldDetectSeparateEmptyRegions() {
         // Sprawdzamy, czy zwycięzca został poprawnie określony
         assertEquals(blackPlayer, scores.getWinner(), "Zwycięzcą powinien być czarny gracz");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testShouldCountSurroundedDeadStoneInLifeStatusMode() {
+        // Ten sam układ co wyżej, ale w terytorium czarnego stoi martwy biały kamień na (0,0)
+        board.setStone(new Position(0, 2), StoneColor.BLACK);
+        board.setStone(new Position(1, 2), StoneColor.BLACK);
+        board.setStone(new Position(2, 2), StoneColor.BLACK);
+        board.setStone(new Position(2, 1), StoneColor.BLACK);
+        board.setStone(new Position(2, 0), StoneColor.BLACK);
+        board.setStone(new Position(0, 0), StoneColor.WHITE);
+        board.setStone(new Position(7, 8), StoneColor.WHITE);
+        board.setStone(new Position(8, 7), StoneColor.WHITE);
+
+        // W trybie prostym region z białym kamieniem jest neutralny
+        ScoreResult simple = gameEngine.calculateScores();
+        assertEquals(0, simple.getBlackScore());
+
+        gameEngine.setScoringMode(ScoringMode.LIFE_STATUS);
+        ScoreResult scores = gameEngine.calculateScores();
+
+        // 3 puste pola + pole martwego kamienia + 1 jeniec
+        assertEquals(5, scores.getBlackScore(), "Martwy kamień powinien dać czarnemu terytorium i jeńca");
+        assertEquals(1, scores.getWhiteScore());
+    }
+
+    @Test
+    void testShouldRecognizeSekiInLifeStatusMode() {
+        // Seki bez oczu: czarny łańcuch X i biały Y dzielą oddechy a=(1,0) i b=(1,1)
+        //   0 1 2 3
+        // 0 B a W B
+        // 1 B b W B
+        // 2 B B W B
+        // 3 W W W B
+        // 4 B B B B
+        String[] rows = {"B.WB", "B.WB", "BBWB", "WWWB", "BBBB"};
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < 4; c++) {
+                char ch = rows[r].charAt(c);
+                if (ch == 'B') board.setStone(new Position(c, r), StoneColor.BLACK);
+                if (ch == 'W') board.setStone(new Position(c, r), StoneColor.WHITE);
+            }
+        }
+
+        TerritoryMap territory = new TerritoryService(new BoardService()).analyze(board);
+
+        assertEquals(LifeStatus.SEKI, territory.getStatus(new Position(0, 0)));
+        assertEquals(LifeStatus.SEKI, territory.getStatus(new Position(2, 0)));
+        assertEquals(LifeStatus.SEKI, territory.getStatus(new Position(1, 0)), "Wspólne oddechy seki nie są terytorium");
+        assertEquals(0, territory.getDeadWhiteStones(), "Białe kamienie w seki nie są martwe");
+
+        gameEngine.setScoringMode(ScoringMode.LIFE_STATUS);
+        ScoreResult scores = gameEngine.calculateScores();
+        // reszta planszy (81 - 18 kamieni - 2 oddechy seki) należy do czarnego
+        assertEquals(61, scores.getBlackScore());
+        assertEquals(0, scores.getWhiteScore());
+    }
+
+    @Test
+    void testShouldCountAreaWithKomi() {
+        // Czarny ściana w kolumnie 2, biały w kolumnie 3 - plansza podzielona na dwa obszary
+        for (int r = 0; r < 9; r++) {
+            board.setStone(new Position(2, r), StoneColor.BLACK);
+            board.setStone(new Position(3, r), StoneColor.WHITE);
+        }
+        gameEngine.setScoringStrategy(new AreaScoring(6.5));
+
+        ScoreResult scores = gameEngine.calculateScores();
+
+        // czarny: 9 kamieni + 18 pustych pól, biały: 9 kamieni + 45 pustych pól
+        assertEquals(27, scores.getBlackScore());
+        assertEquals(54, scores.getWhiteScore());
+        assertEquals(60.5, scores.getWhiteTotal());
+        assertEquals(whitePlayer, scores.getWinner());
+    }
+
+    @Test
+    void testShouldLetKomiDecideCloseAreaGame() {
+        // Czarny: kolumny 0-4 (45 pól), biały: kolumny 5-8 (36 pól)
+        for (int r = 0; r < 9; r++) {
+            board.setStone(new Position(4, r), StoneColor.BLACK);
+            board.setStone(new Position(5, r), StoneColor.WHITE);
+        }
+
+        gameEngine.setScoringStrategy(new AreaScoring(7.5));
+        assertEquals(blackPlayer, gameEngine.calculateScores().getWinner(), "45 > 36 + 7.5");
+
+        gameEngine.setScoringStrategy(new AreaScoring(9));
+        ScoreResult scores = gameEngine.calculateScores();
+        assertEquals(null, scores.getWinner(), "Przy komi 9 powinien być remis");
+        assertEquals(null, gameEngine.getWinner());
+    }
+
+    @Test
+    void testShouldEstimateOwnershipWithoutSideEffects() {
+        MoveResult result = gameEngine.applyMove(new Move(new Position(2, 2), blackPlayer));
+
+        // kamień i jego najbliższe otoczenie powinny przypaść czarnemu
+        OwnershipDelta delta = result.getOwnershipDelta();
+        assertTrue(delta.size() > 1, "Ruch powinien zmienić przynależność kilku pól");
+        assertEquals(StoneColor.BLACK, gameEngine.getOwnershipEstimator().getOwner(new Position(2, 3)));
+        assertEquals(StoneColor.EMPTY, gameEngine.getOwnershipEstimator().getOwner(new Position(8, 8)));
+
+        ScoreResult estimate = gameEngine.estimateScores();
+        assertEquals(delta.getBlackEstimate(), estimate.getBlackScore());
+        assertEquals(null, gameEngine.getWinner(), "Szacunek nie może ustawiać zwycięzcy");
+    }
+
+    /**
+     * Pomocniczo rozstawia kamienie według wierszy ('B', 'W', '.').
+     */
+    private void placeRows(String... rows) {
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length(); c++) {
+                char ch = rows[r].charAt(c);
+                if (ch == 'B') board.setStone(new Position(c, r), StoneColor.BLACK);
+                if (ch == 'W') board.setStone(new Position(c, r), StoneColor.WHITE);
+            }
+        }
+    }
+
+    @Test
+    void testShouldReadLadderAndLadderBreaker() {
+        // Biały kamień z dwoma oddechami - drabinka działa w obie strony
+        placeRows(".........",
+                  ".........",
+                  "...B.....",
+                  "..BW.....",
+                  "....B....");
+        TacticalReader reader = new TacticalReader();
+        assertTrue(reader.canCapture(board, new Position(3, 3)), "Pusta plansza - drabinka działa");
+
+        // Białe kamienie blokujące oba kierunki drabinki
+        board.setStone(new Position(6, 1), StoneColor.WHITE);
+        board.setStone(new Position(1, 6), StoneColor.WHITE);
+        assertFalse(reader.canCapture(board, new Position(3, 3)), "Kamienie blokujące łamią drabinkę");
+    }
+
+    @Test
+    void testShouldCountLibertiesInCaptureRace() {
+        // Czarny (kolumna 1) i biały (kolumna 2) bez oczu: czarny ma 2 oddechy, biały 1
+        placeRows(".BW.W",
+                  ".BWWB",
+                  "BBWB.",
+                  "WWB..");
+        TacticalReader reader = new TacticalReader();
+        assertEquals(RaceResult.WIN, reader.semeai(board, new Position(1, 0), new Position(2, 0)));
+        assertEquals(RaceResult.LOSS, reader.semeai(board, new Position(2, 0), new Position(1, 0)));
+    }
+
+    @Test
+    void testShouldNumberMovesInOrderOfExecution() {
+        MoveResult first = gameEngine.applyMove(new Move(new Position(2, 2), blackPlayer));
+        MoveResult illegal = gameEngine.applyMove(new Move(new Position(2, 2), whitePlayer));
+        MoveResult second = gameEngine.applyMove(new Move(new Position(3, 3), whitePlayer));
+
+        // numer nadaje silnik pod blokadą; niepoprawny ruch go nie zużywa
+        assertEquals(1, first.getMoveNumber());
+        assertEquals(0, illegal.getMoveNumber(), "Niepoprawny ruch nie dostaje numeru");
+        assertEquals(2, second.getMoveNumber());
+        assertEquals(2, gameEngine.getMoveCount());
+    }
+
+    @Test
+    void testShouldNumberPassesAndResignationsLikeStones() {
+        gameEngine.setKeyframeInterval(2);
+        MoveResult stone = gameEngine.applyMove(new Move(new Position(2, 2), blackPlayer));
+        MoveResult pass = gameEngine.pass(whitePlayer);
+        MoveResult early = gameEngine.pass(whitePlayer);
+        MoveResult resign = gameEngine.resign(blackPlayer);
+        MoveResult again = gameEngine.resign(whitePlayer);
+
+        assertEquals(1, stone.getMoveNumber());
+        assertEquals(2, pass.getMoveNumber(), "Pas dostaje kolejny numer");
+        assertEquals(StoneColor.BLACK, pass.getNextColor());
+        assertNull(pass.getKeyframe(), "Migawki tylko po kamieniach");
+        assertEquals(0, early.getMoveNumber(), "Pas poza kolejką nie dostaje numeru");
+        assertEquals(3, resign.getMoveNumber());
+        assertEquals(0, again.getMoveNumber(), "Rezygnacja po końcu gry nie dostaje numeru");
+        assertEquals(3, gameEngine.getMoveCount());
+    }
+
+    @Test
+    void testShouldTakeKeyframeWithTheNumberedMove() {
+        gameEngine.setKeyframeInterval(2);
+        MoveResult first = gameEngine.applyMove(new Move(new Position(2, 2), blackPlayer));
+        MoveResult second = gameEngine.applyMove(new Move(new Position(3, 3), whitePlayer));
+
+        assertNull(first.getKeyframe(), "Po pierwszym ruchu migawka nie przypada");
+        GameSnapshot keyframe = second.getKeyframe();
+        // migawka odpowiada planszy dokładnie po drugim ruchu
+        assertEquals(StoneColor.BLACK, keyframe.getStone(2 * 9 + 2));
+        assertEquals(StoneColor.WHITE, keyframe.getStone(3 * 9 + 3));
+        assertEquals(StoneColor.BLACK, keyframe.getNext(), "Po ruchu białego na ruchu jest czarny");
+    }
+
+    @Test
+    void testShouldKeepStateAfterMoveInResult() {
+        // biały kamień na 1,1 otoczony z trzech stron - czwarty czarny kamień go zbija
+        board.setStone(new Position(1, 0), StoneColor.BLACK);
+        board.setStone(new Position(0, 1), StoneColor.BLACK);
+        board.setStone(new Position(2, 1), StoneColor.BLACK);
+        board.setStone(new Position(1, 1), StoneColor.WHITE);
+
+        MoveResult capture = gameEngine.applyMove(new Move(new Position(1, 2), blackPlayer));
+        // przeciwnik gra dalej, zanim wynik pierwszego ruchu zostanie rozesłany
+        MoveResult reply = gameEngine.applyMove(new Move(new Position(5, 5), whitePlayer));
+
+        assertEquals(StoneColor.WHITE, capture.getNextColor(), "Po ruchu czarnego na ruchu był biały");
+        assertEquals(1, capture.getBlackCaptures());
+        assertEquals(0, capture.getWhiteCaptures());
+        assertEquals(StoneColor.BLACK, reply.getNextColor());
+        assertEquals(StoneColor.EMPTY, gameEngine.applyMove(new Move(new Position(0, 0), whitePlayer)).getNextColor(),
+                "Niepoprawny ruch nie opisuje stanu gry");
+    }
+
+    @Test
+    void testShouldCountTerritoryWithKomiFromStrategy() {
+        // Czarny: kolumny 0-3 (27 pustych pól), biały: kolumny 5-8 (27 pustych pól)
+        for (int r = 0; r < 9; r++) {
+            board.setStone(new Position(3, r), StoneColor.BLACK);
+            board.setStone(new Position(5, r), StoneColor.WHITE);
+        }
+        gameEngine.setScoringStrategy(new TerritoryScoring(ScoringMode.SIMPLE, 6.5));
+
+        ScoreResult scores = gameEngine.calculateScores();
+
+        assertEquals(scores.getBlackScore(), scores.getWhiteScore(), "Terytoria są równe");
+        assertEquals(whitePlayer, scores.getWinner(), "Komi rozstrzyga na korzyść białego");
+    }
+
+    @Test
+    void testShouldKeepKomiWhenSwitchingScoringMode() {
+        gameEngine.setScoringStrategy(new TerritoryScoring(ScoringMode.SIMPLE, 7.5));
+        gameEngine.setScoringMode(ScoringMode.LIFE_STATUS);
+
+        assertEquals(ScoringMode.LIFE_STATUS, gameEngine.getScoringMode());
+        assertEquals(7.5, gameEngine.getScoringStrategy().getKomi());
+
+        // liczenie obszaru nie ma trybu terytorium
+        gameEngine.setScoringStrategy(new AreaScoring(6.5));
+        assertNull(gameEngine.getScoringMode());
+        assertThrows(IllegalArgumentException.class, () -> gameEngine.setScoringStrategy(null));
+    }
+}
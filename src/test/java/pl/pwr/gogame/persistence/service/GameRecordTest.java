@@ -0,0 +1,129 @@
+package pl.pwr.gogame.persistence.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.model.Position;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
+
+public class GameRecordTest {
+
+    private static void assertMove(GameRecord.Reader reader, StoneColor color, MoveType type, int col, int row) {
+        assertTrue(reader.next(), "Brakuje ruchu " + color + " " + type);
+        assertEquals(color, reader.getColor());
+        assertEquals(type, reader.getType());
+        assertEquals(col, reader.getCol());
+        assertEquals(row, reader.getRow());
+    }
+
+    @Test
+    void testShouldRoundTripStonesPassAndResign() {
+        GameRecord.Writer writer = new GameRecord.Writer(19);
+        writer.append(1, StoneColor.BLACK, MoveType.MOVE, 3, 3);
+        writer.append(2, StoneColor.WHITE, MoveType.MOVE, 15, 15);
+        writer.append(3, StoneColor.BLACK, MoveType.PASS, -1, -1);
+        writer.append(4, StoneColor.WHITE, MoveType.MOVE, 18, 18);
+        writer.append(5, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        writer.append(6, StoneColor.WHITE, MoveType.RESIGN, -1, -1);
+        assertEquals(6, writer.getMoveCount());
+
+        GameRecord.Reader reader = new GameRecord.Reader(writer.toByteArray());
+        assertEquals(19, reader.getSize());
+        assertMove(reader, StoneColor.BLACK, MoveType.MOVE, 3, 3);
+        assertMove(reader, StoneColor.WHITE, MoveType.MOVE, 15, 15);
+        assertMove(reader, StoneColor.BLACK, MoveType.PASS, -1, -1);
+        assertMove(reader, StoneColor.WHITE, MoveType.MOVE, 18, 18);
+        assertMove(reader, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        assertMove(reader, StoneColor.WHITE, MoveType.RESIGN, -1, -1);
+        assertFalse(reader.next(), "Zapis powinien się skończyć");
+    }
+
+    @Test
+    void testShouldUseAtMostTwoBytesPerMoveOn19x19() {
+        GameRecord.Writer writer = new GameRecord.Writer(19);
+        writer.append(1, StoneColor.WHITE, MoveType.MOVE, 18, 18);
+
+        // wersja, rozmiar planszy i ruch na ostatnim polu
+        assertEquals(1 + 1 + 2, writer.toByteArray().length);
+    }
+
+    @Test
+    void testShouldOrderMovesAppendedOutOfOrder() {
+        GameRecord.Writer writer = new GameRecord.Writer(9);
+        writer.append(2, StoneColor.WHITE, MoveType.MOVE, 1, 1);
+        writer.append(3, StoneColor.BLACK, MoveType.PASS, -1, -1);
+        assertEquals(0, writer.getMoveCount(), "Ruchy czekają na ruch nr 1");
+        writer.append(1, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        assertEquals(3, writer.getMoveCount());
+
+        GameRecord.Reader reader = new GameRecord.Reader(writer.toByteArray());
+        assertMove(reader, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        assertMove(reader, StoneColor.WHITE, MoveType.MOVE, 1, 1);
+        assertMove(reader, StoneColor.BLACK, MoveType.PASS, -1, -1);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testShouldKeepPendingMovesWhenNumberIsMissing() {
+        GameRecord.Writer writer = new GameRecord.Writer(9);
+        writer.append(1, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        writer.append(3, StoneColor.BLACK, MoveType.MOVE, 2, 2);
+
+        // ruch nr 2 się nie zapisał - nr 3 i tak trafia do zapisu
+        GameRecord.Reader reader = new GameRecord.Reader(writer.toByteArray());
+        assertMove(reader, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        assertMove(reader, StoneColor.BLACK, MoveType.MOVE, 2, 2);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testShouldRejectDuplicateMoveNumberAndPointOffBoard() {
+        GameRecord.Writer writer = new GameRecord.Writer(9);
+        writer.append(1, StoneColor.BLACK, MoveType.MOVE, 0, 0);
+        writer.append(3, StoneColor.BLACK, MoveType.MOVE, 2, 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.append(1, StoneColor.WHITE, MoveType.PASS, -1, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.append(3, StoneColor.WHITE, MoveType.PASS, -1, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.append(2, StoneColor.WHITE, MoveType.MOVE, 9, 0));
+    }
+
+    @Test
+    void testShouldRejectCorruptedRecord() {
+        assertThrows(IllegalArgumentException.class, () -> new GameRecord.Reader(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> new GameRecord.Reader(new byte[] {9, 9}));
+
+        // urwany varint ruchu
+        GameRecord.Reader truncated = new GameRecord.Reader(new byte[] {GameRecord.VERSION, 9, (byte) 0x80});
+        assertThrows(IllegalArgumentException.class, truncated::next);
+
+        // pole 81 nie istnieje na planszy 9x9
+        GameRecord.Reader offBoard = new GameRecord.Reader(new byte[] {GameRecord.VERSION, 9, (byte) 0xa6, 0x01});
+        assertThrows(IllegalArgumentException.class, offBoard::next);
+    }
+
+    @Test
+    void testShouldRoundTripSnapshot() {
+        Board board = new Board(9);
+        board.setStone(new Position(2, 3), StoneColor.BLACK);
+        board.setStone(new Position(4, 4), StoneColor.WHITE);
+        GameSnapshot snapshot = GameSnapshot.of(board, StoneColor.WHITE, 3, 1);
+
+        GameSnapshot decoded = GameRecord.decodeSnapshot(GameRecord.encodeSnapshot(snapshot));
+
+        assertEquals(9, decoded.getSize());
+        assertEquals(snapshot.getBlack(), decoded.getBlack());
+        assertEquals(snapshot.getWhite(), decoded.getWhite());
+        assertEquals(StoneColor.WHITE, decoded.getNext());
+        assertEquals(3, decoded.getBlackCaptures());
+        assertEquals(1, decoded.getWhiteCaptures());
+    }
+}
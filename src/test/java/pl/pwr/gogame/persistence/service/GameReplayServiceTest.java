@@ -0,0 +1,205 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pl.pwr.gogame.model.Board;
+import pl.pwr.gogame.model.GameEngine;
+import pl.pwr.gogame.model.GamePlayer;
+import pl.pwr.gogame.model.GameSnapshot;
+import pl.pwr.gogame.model.Move;
+import pl.pwr.gogame.model.MoveResult;
+import pl.pwr.gogame.model.Position;
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.BoardSnapshotEntity;
+import pl.pwr.gogame.persistence.entity.GameEntity;
+import pl.pwr.gogame.persistence.entity.MoveEntity;
+import pl.pwr.gogame.persistence.entity.MoveType;
+import pl.pwr.gogame.persistence.repository.BoardSnapshotRepository;
+import pl.pwr.gogame.persistence.repository.GameRepository;
+import pl.pwr.gogame.persistence.repository.MoveRepository;
+
+public class GameReplayServiceTest {
+
+    private static final int KEYFRAME_INTERVAL = 4;
+
+    private GameEntity game;
+    /** Zapisane ruchy; numer ruchu to indeks + 1. */
+    private List<MoveEntity> moves;
+    private List<BoardSnapshotEntity> keyframes;
+    /** Pozycja gry po każdym ruchu (indeks 0 - pusta plansza). */
+    private List<GameSnapshot> positions;
+    /** Pierwszy numer ruchu, o który pytano tabelę {@code moves}. */
+    private int firstMoveRead;
+
+    /**
+     * Rozgrywa partię z biciem i pasami, zapisując ruchy i migawki tak
+     * jak serwer: numer ruchu (także pasu) i migawkę nadaje silnik.
+     */
+    @BeforeEach
+    void setUp() {
+        game = new GameEntity(9, "BlackPlayer", StoneColor.BLACK, "WhitePlayer", StoneColor.WHITE, LocalDateTime.now());
+        moves = new ArrayList<>();
+        keyframes = new ArrayList<>();
+        positions = new ArrayList<>();
+
+        GameEngine engine = new GameEngine(new Board(9));
+        engine.setKeyframeInterval(KEYFRAME_INTERVAL);
+        GamePlayer black = new GamePlayer("BlackPlayer", StoneColor.BLACK);
+        GamePlayer white = new GamePlayer("WhitePlayer", StoneColor.WHITE);
+        engine.setPlayers(black, white);
+        positions.add(engine.snapshot());
+
+        play(engine, black, 3, 4);
+        play(engine, white, 4, 4);
+        play(engine, black, 5, 4);
+        play(engine, white, 0, 0);
+        play(engine, black, 4, 3);
+        pass(engine, white);
+        // czarny bije biały kamień na 4,4
+        play(engine, black, 4, 5);
+        play(engine, white, 8, 8);
+        pass(engine, black);
+        play(engine, white, 7, 7);
+        play(engine, black, 6, 6);
+        play(engine, white, 1, 1);
+        assertEquals(1, engine.getBlackCaptures(), "Partia testowa powinna zawierać bicie");
+    }
+
+    private void play(GameEngine engine, GamePlayer player, int col, int row) {
+        MoveResult result = engine.applyMove(new Move(new Position(col, row), player));
+        assertTrue(result.isOk(), "Ruch testowy powinien być poprawny");
+        record(engine, result, player, MoveType.MOVE, col, row);
+    }
+
+    private void pass(GameEngine engine, GamePlayer player) {
+        MoveResult result = engine.pass(player);
+        assertTrue(result.isOk(), "Pas testowy powinien być poprawny");
+        record(engine, result, player, MoveType.PASS, -1, -1);
+    }
+
+    private void record(GameEngine engine, MoveResult result, GamePlayer player, MoveType type, int col, int row) {
+        assertEquals(moves.size() + 1, result.getMoveNumber());
+        MoveEntity move = new MoveEntity();
+        move.setGame(game);
+        move.setMoveNumber(result.getMoveNumber());
+        move.setPlayerColor(player.getColor());
+        move.setType(type);
+        move.setCol(col);
+        move.setRow(row);
+        moves.add(move);
+        if (result.getKeyframe() != null) {
+            keyframes.add(new BoardSnapshotEntity(game, result.getMoveNumber(),
+                    GameRecord.encodeSnapshot(result.getKeyframe())));
+        }
+        positions.add(engine.snapshot());
+    }
+
+    private void packMoves() {
+        GameRecord.Writer writer = new GameRecord.Writer(9);
+        for (int i = 0; i < moves.size(); i++) {
+            MoveEntity move = moves.get(i);
+            writer.append(i + 1, move.getPlayerColor(), move.getType(), move.getCol(), move.getRow());
+        }
+        game.setMoveRecord(writer.toByteArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private GameReplayService service(boolean withKeyframes) {
+        GameRepository gameRepo = repository(GameRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.of(game);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        MoveRepository moveRepo = repository(MoveRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findByGameOrderByMoveNumber" -> moves;
+            case "findByGame_IdAndMoveNumberBetweenOrderByMoveNumber" -> {
+                int from = (int) args[1];
+                int to = Math.min((int) args[2], moves.size());
+                firstMoveRead = from;
+                yield from > to ? List.of() : moves.subList(from - 1, to);
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        BoardSnapshotRepository snapshotRepo = repository(BoardSnapshotRepository.class,
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findFirstByGame_IdAndMoveNumberLessThanEqualOrderByMoveNumberDesc" -> {
+                        BoardSnapshotEntity found = null;
+                        if (withKeyframes) {
+                            for (BoardSnapshotEntity keyframe : keyframes) {
+                                if (keyframe.getMoveNumber() <= (int) args[1]) found = keyframe;
+                            }
+                        }
+                        yield Optional.ofNullable(found);
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new GameReplayService(gameRepo, moveRepo, snapshotRepo);
+    }
+
+    private static void assertSamePosition(GameSnapshot expected, GameSnapshot actual, String message) {
+        assertEquals(expected.getBlack(), actual.getBlack(), message + ": czarne kamienie");
+        assertEquals(expected.getWhite(), actual.getWhite(), message + ": białe kamienie");
+        assertEquals(expected.getNext(), actual.getNext(), message + ": gracz na ruchu");
+        assertEquals(expected.getBlackCaptures(), actual.getBlackCaptures(), message + ": bicia czarnego");
+        assertEquals(expected.getWhiteCaptures(), actual.getWhiteCaptures(), message + ": bicia białego");
+    }
+
+    @Test
+    void testShouldReplayFromKeyframeLikeFullReplay() {
+        GameReplayService fromKeyframes = service(true);
+        GameReplayService fullReplay = service(false);
+
+        for (int number = 0; number <= moves.size(); number++) {
+            GameSnapshot expected = positions.get(number);
+            assertSamePosition(expected, fullReplay.replayTo(1L, number).snapshot(), "Pełne odtworzenie, ruch " + number);
+            assertSamePosition(expected, fromKeyframes.replayTo(1L, number).snapshot(), "Od migawki, ruch " + number);
+        }
+    }
+
+    @Test
+    void testShouldReplayPackedRecordFromKeyframe() {
+        packMoves();
+        GameReplayService fromKeyframes = service(true);
+        GameReplayService fullReplay = service(false);
+
+        for (int number = 0; number <= moves.size(); number++) {
+            GameSnapshot expected = positions.get(number);
+            assertSamePosition(expected, fullReplay.replayTo(1L, number).snapshot(), "Pełne odtworzenie, ruch " + number);
+            assertSamePosition(expected, fromKeyframes.replayTo(1L, number).snapshot(), "Od migawki, ruch " + number);
+        }
+    }
+
+    @Test
+    void testShouldReadOnlyMovesAfterKeyframe() {
+        service(true).replayTo(1L, 10);
+        assertEquals(9, firstMoveRead, "Ruchy do migawki nr 8 nie są czytane");
+
+        service(false).replayTo(1L, 10);
+        assertEquals(1, firstMoveRead);
+    }
+
+    @Test
+    void testShouldReturnFinalPositionForNumberBeyondLastMove() {
+        GameSnapshot last = positions.get(positions.size() - 1);
+        assertSamePosition(last, service(true).replayTo(1L, 1000).snapshot(), "Numer poza zapisem");
+    }
+
+    @Test
+    void testShouldRejectNegativeMoveNumber() {
+        assertThrows(IllegalArgumentException.class, () -> service(true).replayTo(1L, -1));
+    }
+}
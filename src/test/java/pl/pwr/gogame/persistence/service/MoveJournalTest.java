@@ -0,0 +1,199 @@
+package pl.pwr.gogame.persistence.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pl.pwr.gogame.model.StoneColor;
+import pl.pwr.gogame.persistence.entity.MoveType;
+
+public class MoveJournalTest {
+
+    private static final LocalDateTime FINISHED_AT = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("move-journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Wpisy jednej krótkiej gry: dwa ruchy, migawka, pas i zakończenie.
+     */
+    private static List<JournalEntry> game() {
+        return List.of(
+                JournalEntry.move(7, 1, StoneColor.BLACK, 3, 4, MoveType.MOVE),
+                JournalEntry.move(7, 2, StoneColor.WHITE, 5, 6, MoveType.MOVE),
+                JournalEntry.snapshot(7, 2, new byte[] {1, 2, 3}),
+                JournalEntry.move(7, 3, StoneColor.BLACK, -1, -1, MoveType.PASS),
+                JournalEntry.finish(7, "WhitePlayer", FINISHED_AT, new byte[] {4, 5}));
+    }
+
+    private static void assertEntry(JournalEntry expected, JournalEntry actual) {
+        assertEquals(expected.kind(), actual.kind());
+        assertEquals(expected.gameId(), actual.gameId());
+        assertEquals(expected.moveNumber(), actual.moveNumber());
+        assertEquals(expected.color(), actual.color());
+        assertEquals(expected.col(), actual.col());
+        assertEquals(expected.row(), actual.row());
+        assertEquals(expected.type(), actual.type());
+        assertEquals(expected.winner(), actual.winner());
+        assertEquals(expected.finishedAt(), actual.finishedAt());
+        if (expected.record() != null) assertArrayEquals(expected.record(), actual.record());
+    }
+
+    /**
+     * Zapisuje wpisy dziennikiem z plikiem i zwraca kopię pliku z chwili,
+     * gdy partia była już na dysku, a jeszcze nie w bazie.
+     */
+    private Path journalFileWith(List<JournalEntry> entries) throws Exception {
+        Path file = directory.resolve("journal.bin");
+        Path copy = directory.resolve("crashed.bin");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MoveJournal journal = new MoveJournal(16, 16, file, (batch, recovery) -> {
+            writing.countDown();
+            release.await();
+        });
+        // wpisy dopisane przed startem trafiają do jednej partii
+        for (JournalEntry entry : entries) journal.append(entry);
+        journal.start();
+        assertTrue(writing.await(2, TimeUnit.SECONDS), "Partia powinna trafić do zapisu");
+        Files.copy(file, copy);
+        release.countDown();
+        journal.close();
+        assertEquals(0, Files.size(file), "Plik jest czyszczony po zapisie w bazie");
+        return copy;
+    }
+
+    private static List<JournalEntry> recover(Path file, List<Boolean> recoveryFlags) throws IOException {
+        List<JournalEntry> recovered = new ArrayList<>();
+        MoveJournal journal = new MoveJournal(16, 2, file, (batch, recovery) -> {
+            recovered.addAll(batch);
+            recoveryFlags.add(recovery);
+        });
+        journal.start();
+        journal.close();
+        return recovered;
+    }
+
+    @Test
+    void testShouldRecoverEntriesLeftInFile() throws Exception {
+        List<JournalEntry> entries = game();
+        Path file = journalFileWith(entries);
+
+        List<Boolean> flags = new ArrayList<>();
+        List<JournalEntry> recovered = recover(file, flags);
+
+        assertEquals(entries.size(), recovered.size());
+        for (int i = 0; i < entries.size(); i++) assertEntry(entries.get(i), recovered.get(i));
+        // partie po 2 wpisy, wszystkie oznaczone jako odtwarzanie
+        assertEquals(List.of(true, true, true), flags);
+        assertEquals(0, Files.size(file), "Odtworzony plik jest czyszczony");
+    }
+
+    @Test
+    void testShouldSkipPartiallyWrittenLastEntry() throws Exception {
+        List<JournalEntry> entries = game();
+        Path file = journalFileWith(entries);
+        // awaria w trakcie dopisywania ostatniego wpisu
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        List<JournalEntry> recovered = recover(file, new ArrayList<>());
+
+        assertEquals(entries.size() - 1, recovered.size(), "Niedopisany wpis jest pomijany");
+        for (int i = 0; i < recovered.size(); i++) assertEntry(entries.get(i), recovered.get(i));
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    void testShouldWriteEntriesInOrderAndFlushOnClose() {
+        List<JournalEntry> written = new CopyOnWriteArrayList<>();
+        MoveJournal journal = new MoveJournal(4, 3, null, (batch, recovery) -> written.addAll(batch));
+        try {
+            journal.start();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        for (JournalEntry entry : game()) journal.append(entry);
+        journal.close();
+
+        assertEquals(game().size(), written.size(), "Zamknięcie zapisuje oczekujące wpisy");
+        for (int i = 0; i < written.size(); i++) assertEntry(game().get(i), written.get(i));
+        assertEquals(written.size(), journal.getWrittenCount());
+        assertThrows(IllegalStateException.class, () -> journal.append(game().get(0)));
+    }
+
+    @Test
+    void testShouldNotBlockWhenQueueIsFull() throws Exception {
+        List<JournalEntry> written = new CopyOnWriteArrayList<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MoveJournal journal = new MoveJournal(2, 1, null, (batch, recovery) -> {
+            writing.countDown();
+            release.await();
+            written.addAll(batch);
+        });
+        journal.start();
+        journal.append(JournalEntry.move(7, 1, StoneColor.BLACK, 0, 0, MoveType.MOVE));
+        assertTrue(writing.await(2, TimeUnit.SECONDS), "Pierwszy wpis powinien trafić do zapisu");
+
+        // baza stoi - kolejka się zapełnia, a dopisywanie i tak od razu wraca
+        List<JournalEntry> entries = new ArrayList<>();
+        for (int number = 2; number <= 10; number++) {
+            JournalEntry entry = JournalEntry.move(7, number, StoneColor.BLACK, number % 9, 0, MoveType.MOVE);
+            entries.add(entry);
+            journal.append(entry);
+        }
+        assertTrue(journal.getStallCount() > 0, "Nadmiar wpisów powinien trafić do przelewu");
+        assertTrue(journal.overflowDepth() > 0);
+
+        release.countDown();
+        journal.close();
+        assertEquals(10, written.size(), "Przelane wpisy nie giną");
+        for (int i = 0; i < entries.size(); i++) assertEntry(entries.get(i), written.get(i + 1));
+    }
+
+    @Test
+    void testShouldRetryFailedBatch() throws Exception {
+        List<JournalEntry> written = new CopyOnWriteArrayList<>();
+        int[] attempts = new int[1];
+        MoveJournal journal = new MoveJournal(16, 16, null, (batch, recovery) -> {
+            if (attempts[0]++ == 0) throw new IllegalStateException("baza niedostępna");
+            written.addAll(batch);
+        });
+        journal.append(game().get(0));
+        journal.start();
+        journal.close();
+
+        assertEquals(2, attempts[0], "Nieudana partia jest ponawiana");
+        assertEquals(1, written.size());
+    }
+}
@@ -0,0 +1,46 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class BinaryProtocolTest {
+
+    @Test
+    void testShouldRoundTripVarints() {
+        int[] values = {0, 1, 127, 128, 300, 16_383, 16_384, 2_097_151, 268_435_455, 268_435_456, Integer.MAX_VALUE};
+        for (int value : values) {
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            BinaryProtocol.writeVarint(buffer, value);
+            assertEquals(BinaryProtocol.varintSize(value), buffer.position(), "Rozmiar varinta dla " + value);
+            buffer.flip();
+            assertEquals(value, BinaryProtocol.readVarint(buffer), "Odczytana wartość");
+            assertEquals(0, buffer.remaining(), "Varint powinien zostać skonsumowany w całości");
+        }
+    }
+
+    @Test
+    void testShouldReportTruncatedVarintWithoutConsumingIt() {
+        // 300 = 0xAC 0x02; brakuje drugiego bajtu
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {(byte) 0xAC});
+        assertEquals(-1, BinaryProtocol.readVarint(buffer), "Niepełny varint to brak bajtów, nie błąd");
+        assertEquals(0, buffer.position(), "Pozycja bufora nie powinna się zmienić");
+    }
+
+    @Test
+    void testShouldRejectVarintOverflowingInt() {
+        // piąty bajt z bitami powyżej 32. bitu
+        ByteBuffer tooWide = ByteBuffer.wrap(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10});
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.readVarint(tooWide));
+
+        // piąty bajt ustawiający bit znaku - wartość byłaby ujemna
+        ByteBuffer negative = ByteBuffer.wrap(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08});
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.readVarint(negative));
+
+        // varint dłuższy niż 5 bajtów
+        ByteBuffer tooLong = ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x87, 0x01});
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.readVarint(tooLong));
+    }
+}
@@ -0,0 +1,82 @@
+package pl.pwr.gogame.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FrameDecoderTest {
+
+    private FrameDecoder decoder;
+    private List<String> frames;
+    private FrameListener listener;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new FrameDecoder();
+        frames = new ArrayList<>();
+        // zapamiętujemy kod ramki i jej dane jako tekst
+        listener = (opcode, payload) -> frames.add(opcode + ":" + BinaryProtocol.readLine(payload));
+    }
+
+    @Test
+    void testShouldDecodeFramesSplitAcrossReads() {
+        ByteBuffer first = BinaryProtocol.encodeLine("MOVE 3 4");
+        ByteBuffer second = BinaryProtocol.encodeLine("PASS");
+        ByteBuffer stream = ByteBuffer.allocate(first.remaining() + second.remaining());
+        stream.put(first).put(second).flip();
+
+        // podajemy strumień po jednym bajcie
+        while (stream.hasRemaining()) {
+            ByteBuffer single = ByteBuffer.wrap(new byte[] {stream.get()});
+            decoder.decode(single, listener);
+            assertFalse(single.hasRemaining(), "Dekoder powinien skonsumować wszystkie bajty");
+        }
+
+        assertEquals(List.of(BinaryProtocol.LINE + ":MOVE 3 4", BinaryProtocol.LINE + ":PASS"), frames);
+    }
+
+    @Test
+    void testShouldWaitForTruncatedLength() {
+        // długość 300 zapisana na dwóch bajtach, z których dotarł tylko pierwszy
+        decoder.decode(ByteBuffer.wrap(new byte[] {(byte) 0xAC}), listener);
+        assertEquals(0, frames.size(), "Niepełny nagłówek nie jest jeszcze ramką");
+    }
+
+    @Test
+    void testShouldRejectOverflowingLength() {
+        // długość, która jako int byłaby ujemna; wcześniej dekoder czekał na nią w nieskończoność
+        ByteBuffer in = ByteBuffer.wrap(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 0x01});
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(in, listener));
+    }
+
+    @Test
+    void testShouldRejectOversizedAndEmptyFrames() {
+        ByteBuffer oversized = ByteBuffer.allocate(5);
+        BinaryProtocol.writeVarint(oversized, BinaryProtocol.MAX_FRAME + 1);
+        oversized.flip();
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(oversized, listener));
+
+        FrameDecoder fresh = new FrameDecoder();
+        assertThrows(IllegalArgumentException.class,
+                () -> fresh.decode(ByteBuffer.wrap(new byte[] {0x00}), listener));
+    }
+
+    @Test
+    void testShouldDecodeLargestFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME + 5);
+        BinaryProtocol.writeHeader(frame, BinaryProtocol.LINE, BinaryProtocol.MAX_FRAME - 1);
+        for (int i = 0; i < BinaryProtocol.MAX_FRAME - 1; i++) frame.put((byte) 'a');
+        frame.flip();
+
+        decoder.decode(frame, listener);
+
+        assertEquals(1, frames.size(), "Ramka o największej długości powinna zostać zdekodowana");
+        assertEquals(BinaryProtocol.MAX_FRAME - 1 + 2, frames.get(0).length(), "Długość danych ramki");
+    }
+}
@@ -0,0 +1,99 @@
+package pl.pwr.gogame.router;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class HashRingTest {
+
+    private static final int GAMES = 10_000;
+
+    private static final Node A = new Node("localhost", 5001);
+    private static final Node B = new Node("localhost", 5002);
+    private static final Node C = new Node("localhost", 5003);
+    private static final Node D = new Node("localhost", 5004);
+
+    private static Map<Long, Node> placement(HashRing ring) {
+        Map<Long, Node> result = new HashMap<>();
+        for (long id = 1; id <= GAMES; id++) result.put(id, ring.nodeFor(id));
+        return result;
+    }
+
+    @Test
+    void testShouldPlaceGamesIndependentlyOfNodeOrder() {
+        HashRing ring = new HashRing(List.of(A, B, C), HashRing.DEFAULT_VIRTUAL_NODES);
+        HashRing reordered = new HashRing(List.of(C, A, B), HashRing.DEFAULT_VIRTUAL_NODES);
+
+        assertEquals(placement(ring), placement(reordered), "Przydział nie może zależeć od kolejności węzłów");
+    }
+
+    @Test
+    void testShouldMoveOnlyGamesOfNewNodeWhenAdding() {
+        HashRing ring = new HashRing(List.of(A, B, C), HashRing.DEFAULT_VIRTUAL_NODES);
+        Map<Long, Node> before = placement(ring);
+        Map<Long, Node> after = placement(ring.withNode(D));
+
+        int moved = 0;
+        for (long id = 1; id <= GAMES; id++) {
+            if (before.get(id).equals(after.get(id))) continue;
+            // gra może przejść wyłącznie na nowy węzeł
+            assertEquals(D, after.get(id), "Gra " + id + " przeniesiona między starymi węzłami");
+            moved++;
+        }
+        // oczekiwane ok. 1/4 gier, z zapasem na nierówny podział
+        assertTrue(moved > GAMES / 8 && moved < GAMES * 3 / 8, "Przeniesiono " + moved + " gier");
+    }
+
+    @Test
+    void testShouldMoveOnlyGamesOfRemovedNode() {
+        HashRing ring = new HashRing(List.of(A, B, C, D), HashRing.DEFAULT_VIRTUAL_NODES);
+        Map<Long, Node> before = placement(ring);
+        Map<Long, Node> after = placement(ring.withoutNode(B));
+
+        for (long id = 1; id <= GAMES; id++) {
+            if (before.get(id).equals(B)) continue;
+            assertEquals(before.get(id), after.get(id), "Gra " + id + " nie należała do usuniętego węzła");
+        }
+        assertFalse(after.containsValue(B), "Usunięty węzeł nie dostaje gier");
+    }
+
+    @Test
+    void testShouldSpreadGamesEvenly() {
+        HashRing ring = new HashRing(List.of(A, B, C, D), HashRing.DEFAULT_VIRTUAL_NODES);
+        Map<Node, Integer> counts = new HashMap<>();
+        for (Node node : placement(ring).values()) counts.merge(node, 1, Integer::sum);
+
+        double shares = 0;
+        for (Node node : ring.getNodes()) {
+            int count = counts.getOrDefault(node, 0);
+            assertTrue(count > GAMES / 8 && count < GAMES * 3 / 8, node + " dostał " + count + " gier");
+            shares += ring.share(node);
+        }
+        assertEquals(1.0, shares, 1e-9, "Udziały węzłów sumują się do całego pierścienia");
+    }
+
+    @Test
+    void testShouldHandleEmptyAndSingleNodeRing() {
+        HashRing empty = new HashRing(List.of(), HashRing.DEFAULT_VIRTUAL_NODES);
+        assertTrue(empty.isEmpty());
+        assertNull(empty.nodeFor(42));
+
+        HashRing single = empty.withNode(A);
+        assertSame(A, single.nodeFor(42));
+        assertEquals(1.0, single.share(A), 0.0);
+        assertEquals(0.0, single.share(B), 0.0);
+    }
+
+    @Test
+    void testShouldRejectNonPositiveVirtualNodes() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(A), 0));
+    }
+}
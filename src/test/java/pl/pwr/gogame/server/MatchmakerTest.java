@@ -0,0 +1,129 @@
+package pl.pwr.gogame.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pl.pwr.gogame.server.net.TimingWheel;
+
+public class MatchmakerTest {
+
+    /**
+     * Dobrana para: czarny, biały i rozmiar planszy.
+     */
+    private record Pair(ClientHandler black, ClientHandler white, int boardSize) {}
+
+    private TimingWheel timers;
+    private Lobby lobby;
+    private BlockingQueue<Pair> pairs;
+    private Matchmaker matchmaker;
+    private final List<ClientHandler> players = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        timers = new TimingWheel("test-wheel", 5, 64);
+        lobby = new Lobby(new GameRegistry(), null, null);
+        pairs = new LinkedBlockingQueue<>();
+        matchmaker = new Matchmaker(timers, Runnable::run, (black, white, boardSize) -> pairs.add(new Pair(black, white, boardSize)));
+        matchmaker.setTickMillis(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // pusta kolejka zatrzymuje tick, zanim koło zostanie zamknięte
+        for (ClientHandler handler : players) matchmaker.leave(handler);
+        timers.close();
+    }
+
+    /**
+     * Handler gracza, który pozostaje połączony (bez prawdziwego gniazda).
+     */
+    private ClientHandler player() {
+        ClientHandler handler = new ClientHandler(lobby, null) {
+            @Override
+            boolean isConnected() {
+                return true;
+            }
+        };
+        players.add(handler);
+        return handler;
+    }
+
+    @Test
+    void testShouldPairPlayersWithinInitialWindow() throws InterruptedException {
+        matchmaker.setRatingWindow(100, 0, 100);
+        ClientHandler first = player();
+        ClientHandler second = player();
+        matchmaker.enqueue(first, "PLAYER", 9, 1500);
+        matchmaker.enqueue(second, "PLAYER", 9, 1580);
+
+        Pair pair = pairs.poll(2, TimeUnit.SECONDS);
+        assertNotNull(pair, "Gracze w oknie rankingu powinni zostać dobrani");
+        // dłużej czekający gracz gra czarnymi
+        assertSame(first, pair.black());
+        assertSame(second, pair.white());
+        assertEquals(9, pair.boardSize());
+        assertEquals(0, matchmaker.size());
+    }
+
+    @Test
+    void testShouldWidenWindowWhileWaiting() throws InterruptedException {
+        // okno rośnie od 0 o 100 na sekundę - różnica 150 mieści się po 2 sekundach
+        matchmaker.setRatingWindow(0, 100, 1000);
+        matchmaker.enqueue(player(), "PLAYER", 9, 1500);
+        matchmaker.enqueue(player(), "PLAYER", 9, 1650);
+
+        assertNull(pairs.poll(1500, TimeUnit.MILLISECONDS), "Okno jeszcze za wąskie");
+        assertEquals(2, matchmaker.size());
+        assertNotNull(pairs.poll(3, TimeUnit.SECONDS), "Poszerzone okno powinno objąć przeciwnika");
+        assertEquals(0, matchmaker.size());
+    }
+
+    @Test
+    void testShouldNotWidenBeyondMaxWindow() throws InterruptedException {
+        matchmaker.setRatingWindow(0, 1000, 100);
+        matchmaker.enqueue(player(), "PLAYER", 9, 1500);
+        matchmaker.enqueue(player(), "PLAYER", 9, 1800);
+
+        assertNull(pairs.poll(1500, TimeUnit.MILLISECONDS), "Różnica większa od największego okna");
+        assertEquals(2, matchmaker.size());
+    }
+
+    @Test
+    void testShouldNotPairDifferentBoardSizes() throws InterruptedException {
+        matchmaker.setRatingWindow(100, 0, 100);
+        matchmaker.enqueue(player(), "PLAYER", 9, 1500);
+        matchmaker.enqueue(player(), "PLAYER", 13, 1500);
+
+        assertNull(pairs.poll(300, TimeUnit.MILLISECONDS), "Różne plansze to różne kolejki");
+        assertEquals(2, matchmaker.size());
+    }
+
+    @Test
+    void testShouldSkipPlayerWhoLeftQueue() throws InterruptedException {
+        matchmaker.setRatingWindow(100, 0, 100);
+        ClientHandler leaving = player();
+        ClientHandler second = player();
+        ClientHandler third = player();
+        matchmaker.enqueue(leaving, "PLAYER", 9, 1500);
+        matchmaker.enqueue(second, "PLAYER", 9, 1510);
+        matchmaker.leave(leaving);
+        matchmaker.enqueue(third, "PLAYER", 9, 1520);
+
+        Pair pair = pairs.poll(2, TimeUnit.SECONDS);
+        assertNotNull(pair);
+        assertSame(second, pair.black());
+        assertSame(third, pair.white());
+        assertNull(pairs.poll(100, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,80 @@
+package pl.pwr.gogame.server;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import pl.pwr.gogame.server.RateLimiter.Budget;
+import pl.pwr.gogame.server.RateLimiter.Category;
+import pl.pwr.gogame.server.RateLimiter.Decision;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testShouldAllowBurstThenThrottle() {
+        // 1 komenda na sekundę i zapas na 2 sekundy - zryw dwóch komend
+        RateLimiter limiter = new RateLimiter(1, 0, 0, 0, 0);
+        Budget budget = limiter.newBudget();
+        long start = System.nanoTime();
+
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.GAME, start));
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.GAME, start));
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start), "Zryw wyczerpany");
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.LOBBY, start), "Inne kategorie bez limitu");
+
+        // po sekundzie kubełek uzupełnia się o jedną komendę
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.GAME, start + SECOND));
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start + SECOND));
+        assertEquals(2, limiter.getThrottledCount());
+    }
+
+    @Test
+    void testShouldWarnOncePerThrottlingSeries() {
+        Budget budget = new RateLimiter(1, 0, 0, 0, 0).newBudget();
+        long start = System.nanoTime();
+        budget.acquire(Category.GAME, start);
+        budget.acquire(Category.GAME, start);
+
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start));
+        assertTrue(budget.startThrottling(), "Pierwsze odrzucenie w serii");
+        assertFalse(budget.startThrottling(), "Kolejne odrzucenia bez ostrzeżenia");
+
+        // przyjęta komenda kończy serię
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.GAME, start + 2 * SECOND));
+        assertTrue(budget.startThrottling());
+    }
+
+    @Test
+    void testShouldNotChargeCategoryWhenTotalLimitRejects() {
+        // ruch co 2 s (zapas na jeden), łącznie 1 komenda na sekundę (zapas na dwie)
+        Budget budget = new RateLimiter(0.5, 0, 10, 1, 0).newBudget();
+        long start = System.nanoTime();
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.LOBBY, start));
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.LOBBY, start));
+
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start), "Wspólny limit wyczerpany");
+
+        // po sekundzie wspólny kubełek ma miejsce, a ruch nie został wcześniej policzony
+        assertEquals(Decision.ACCEPT, budget.acquire(Category.GAME, start + SECOND));
+    }
+
+    @Test
+    void testShouldDisconnectPersistentAbuser() {
+        // po dwóch odrzuceniach (uzupełnianych o jedno na sekundę) połączenie jest zrywane
+        RateLimiter limiter = new RateLimiter(1, 0, 0, 0, 2);
+        Budget budget = limiter.newBudget();
+        long start = System.nanoTime();
+        budget.acquire(Category.GAME, start);
+        budget.acquire(Category.GAME, start);
+
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start));
+        assertEquals(Decision.THROTTLE, budget.acquire(Category.GAME, start));
+        assertEquals(Decision.DISCONNECT, budget.acquire(Category.GAME, start));
+        assertEquals(1, limiter.getDisconnectedCount());
+    }
+}
@@ -0,0 +1,122 @@
+package pl.pwr.gogame.server.net;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 5;
+
+    @Test
+    void testShouldRunTaskNotBeforeItsDelay() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 8)) {
+            CountDownLatch done = new CountDownLatch(1);
+            long start = System.nanoTime();
+            long[] ranAfter = new long[1];
+            wheel.schedule(() -> {
+                ranAfter[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                done.countDown();
+            }, 50);
+
+            assertTrue(done.await(2, TimeUnit.SECONDS), "Zadanie powinno się wykonać");
+            // dokładność koła to jeden tick
+            assertTrue(ranAfter[0] >= 50 - TICK, "Zadanie wykonane za wcześnie: " + ranAfter[0] + " ms");
+        }
+    }
+
+    @Test
+    void testShouldRunTaskDelayedByMoreThanOneRotation() throws InterruptedException {
+        // 4 kubełki po 5 ms - opóźnienie 100 ms to pięć pełnych obrotów
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 4)) {
+            CountDownLatch done = new CountDownLatch(1);
+            long start = System.nanoTime();
+            long[] ranAfter = new long[1];
+            wheel.schedule(() -> {
+                ranAfter[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                done.countDown();
+            }, 100);
+
+            assertTrue(done.await(2, TimeUnit.SECONDS), "Zadanie powinno się wykonać");
+            assertTrue(ranAfter[0] >= 100 - TICK, "Zadanie wykonane o obrót za wcześnie: " + ranAfter[0] + " ms");
+        }
+    }
+
+    @Test
+    void testShouldRunTasksInOrderOfDeadlines() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 4)) {
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(3);
+            wheel.schedule(() -> { order.add(3); done.countDown(); }, 90);
+            wheel.schedule(() -> { order.add(1); done.countDown(); }, 10);
+            wheel.schedule(() -> { order.add(2); done.countDown(); }, 45);
+
+            assertTrue(done.await(2, TimeUnit.SECONDS), "Wszystkie zadania powinny się wykonać");
+            assertEquals(List.of(1, 2, 3), order);
+        }
+    }
+
+    @Test
+    void testShouldNotRunCancelledTask() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 8)) {
+            CountDownLatch cancelledRan = new CountDownLatch(1);
+            CountDownLatch laterRan = new CountDownLatch(1);
+            TimingWheel.Timeout timeout = wheel.schedule(cancelledRan::countDown, 20);
+            wheel.schedule(laterRan::countDown, 60);
+
+            assertTrue(timeout.cancel(), "Oczekujące zadanie można anulować");
+            assertFalse(timeout.cancel(), "Drugie anulowanie nie ma efektu");
+            assertTrue(timeout.isCancelled());
+            assertEquals(1, wheel.size(), "Anulowane zadanie nie jest liczone");
+
+            assertTrue(laterRan.await(2, TimeUnit.SECONDS), "Późniejsze zadanie powinno się wykonać");
+            assertEquals(1, cancelledRan.getCount(), "Anulowane zadanie nie może się wykonać");
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    void testShouldNotCancelExpiredTask() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 8)) {
+            CountDownLatch done = new CountDownLatch(1);
+            TimingWheel.Timeout timeout = wheel.schedule(done::countDown, 0);
+
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            // stan zmienia się przed wykonaniem zadania
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel(), "Wykonanego zadania nie można anulować");
+        }
+    }
+
+    @Test
+    void testShouldKeepRunningAfterFailingTask() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", TICK, 8)) {
+            CountDownLatch done = new CountDownLatch(1);
+            wheel.schedule(() -> { throw new IllegalStateException("błąd testowy"); }, 0);
+            wheel.schedule(done::countDown, 20);
+
+            assertTrue(done.await(2, TimeUnit.SECONDS), "Błąd jednego zadania nie zatrzymuje koła");
+        }
+    }
+
+    @Test
+    void testShouldRejectSchedulingAfterClose() {
+        TimingWheel wheel = new TimingWheel("test-wheel", TICK, 8);
+        wheel.close();
+
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> {}, 10));
+    }
+
+    @Test
+    void testShouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel("test-wheel", 0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel("test-wheel", TICK, 0));
+    }
+}